@@ -1,8 +1,11 @@
 package com.ctc.wstx.api;
 
 import java.lang.ref.SoftReference;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
 import java.net.URL;
 import java.util.*;
+import java.util.zip.Inflater;
 
 import javax.xml.XMLConstants;
 import javax.xml.stream.*;
@@ -16,9 +19,12 @@ import com.ctc.wstx.dtd.DTDEventListener;
 import com.ctc.wstx.ent.IntEntity;
 import com.ctc.wstx.ent.EntityDecl;
 import com.ctc.wstx.io.BufferRecycler;
+import com.ctc.wstx.io.ExternalEntityCache;
+import com.ctc.wstx.sr.PathFilter;
 import com.ctc.wstx.util.ArgUtil;
 import com.ctc.wstx.util.DataUtil;
 import com.ctc.wstx.util.SymbolTable;
+import com.ctc.wstx.util.ValueCache;
 
 /**
  * Simple configuration container class; passed by reader factory to reader
@@ -49,6 +55,9 @@ public final class ReaderConfig
     // @since 5.4/6.4
     public final static int DEFAULT_MAX_DTD_DEPTH = 500;
 
+    // @since 7.3
+    public final static int DEFAULT_VALUE_CACHE_SIZE = 1024;
+
     /*
     ///////////////////////////////////////////////////////////////////////
     // Constants for reader properties:
@@ -119,6 +128,12 @@ public final class ReaderConfig
      */
     final static int PROP_ALLOW_XML11_ESCAPED_CHARS_IN_XML10 = 47;
 
+    /**
+     * @since 7.3
+     */
+    final static int PROP_CACHE_EXT_ENTITIES = 48;
+    final static int PROP_CACHE_EXT_ENTITIES_BY_PUBLIC_ID = 49;
+
     // Object type properties:
 
     final static int PROP_INPUT_BUFFER_LENGTH = 50;
@@ -131,6 +146,11 @@ public final class ReaderConfig
     final static int PROP_BASE_URL = 57;
     final static int PROP_INPUT_PARSING_MODE = 58;
 
+    /**
+     * @since 7.3
+     */
+    final static int PROP_INPUT_DOCUMENT_SEPARATOR = 59;
+
     // Size limitation to prevent various DOS attacks
     final static int PROP_MAX_ATTRIBUTES_PER_ELEMENT = 60;
     final static int PROP_MAX_CHILDREN_PER_ELEMENT = 61;
@@ -149,6 +169,31 @@ public final class ReaderConfig
      */
     final static int PROP_ALLOW_SURROGATE_PAIR_ENTITIES = 70;
 
+    /**
+     * @since 7.3
+     */
+    final static int PROP_METRICS = 71;
+
+    /**
+     * @since 7.3
+     */
+    final static int PROP_PATH_FILTER = 72;
+
+    /**
+     * @since 7.3
+     */
+    final static int PROP_VALUE_CACHE_MAX_LENGTH = 73;
+
+    /**
+     * @since 7.3
+     */
+    final static int PROP_VALUE_CACHE_SIZE = 74;
+
+    /**
+     * @since 7.3
+     */
+    final static int PROP_DETECT_ZLIB_COMPRESSION = 75;
+
     /*
     ////////////////////////////////////////////////
     // Limits for numeric properties
@@ -169,6 +214,16 @@ public final class ReaderConfig
 
     final static int DTD_CACHE_SIZE_J2ME = 5;
 
+    /**
+     * External parsed entities are more numerous than DTDs, but also
+     * potentially bigger: so cache is bounded by their total length
+     * (in characters), and entities bigger than a fraction of that
+     * are not cached at all.
+     */
+    final static int EXT_ENTITY_CACHE_MAX_LENGTH = 1024 * 1024;
+
+    final static int EXT_ENTITY_CACHE_MAX_ENTITY_LENGTH = 64 * 1024;
+
     /*
     ///////////////////////////////////////////////////////////////////////
     // Default values for custom properties:
@@ -325,6 +380,12 @@ public final class ReaderConfig
         sProperties.put(WstxInputProperties.P_CACHE_DTDS, PROP_CACHE_DTDS);
         sProperties.put(WstxInputProperties.P_CACHE_DTDS_BY_PUBLIC_ID,
                         PROP_CACHE_DTDS_BY_PUBLIC_ID);
+        sProperties.put(WstxInputProperties.P_CACHE_EXTERNAL_ENTITIES,
+                        PROP_CACHE_EXT_ENTITIES);
+        sProperties.put(WstxInputProperties.P_CACHE_EXTERNAL_ENTITIES_BY_PUBLIC_ID,
+                        PROP_CACHE_EXT_ENTITIES_BY_PUBLIC_ID);
+        sProperties.put(WstxInputProperties.P_DETECT_ZLIB_COMPRESSION,
+                        PROP_DETECT_ZLIB_COMPRESSION);
         sProperties.put(XMLInputFactory2.P_LAZY_PARSING, PROP_LAZY_PARSING);
         /*
         sProperties.put(WstxInputProperties.P_SUPPORT_DTDPP,
@@ -377,6 +438,14 @@ public final class ReaderConfig
                         PROP_ALLOW_SURROGATE_PAIR_ENTITIES);
         sProperties.put(WstxInputProperties.P_INPUT_PARSING_MODE,
                         PROP_INPUT_PARSING_MODE);
+        sProperties.put(WstxInputProperties.P_INPUT_DOCUMENT_SEPARATOR,
+                        PROP_INPUT_DOCUMENT_SEPARATOR);
+        sProperties.put(WstxInputProperties.P_METRICS, PROP_METRICS);
+        sProperties.put(WstxInputProperties.P_PATH_FILTER, PROP_PATH_FILTER);
+        sProperties.put(WstxInputProperties.P_VALUE_CACHE_MAX_LENGTH,
+                PROP_VALUE_CACHE_MAX_LENGTH);
+        sProperties.put(WstxInputProperties.P_VALUE_CACHE_SIZE,
+                PROP_VALUE_CACHE_SIZE);
     }
 
     /*
@@ -448,6 +517,58 @@ public final class ReaderConfig
     protected WstxInputProperties.ParsingMode mParsingMode =
         WstxInputProperties.PARSING_MODE_DOCUMENT;
 
+    /**
+     * Character used to separate documents in multi-document mode;
+     * -1 if none.
+     *
+     * @since 7.3
+     */
+    protected int mDocumentSeparator = -1;
+
+    /**
+     * Cache for contents of external parsed entities, if caching is
+     * enabled; shared by all readers created by the same factory.
+     *
+     * @since 7.3
+     */
+    protected ExternalEntityCache mExtEntityCache;
+
+    /**
+     * Object to report metrics to, if any.
+     *
+     * @since 7.3
+     */
+    protected WstxMetrics mMetrics;
+
+    /**
+     * Path expression readers are to use for filtering out elements
+     * (and their contents) that do not match, if any.
+     *
+     * @since 7.3
+     */
+    protected PathFilter mPathFilter;
+
+    /**
+     * Maximum length of values to canonicalize using value cache;
+     * 0 if cache is disabled.
+     *
+     * @since 7.3
+     */
+    protected int mValueCacheMaxLength = 0;
+
+    /**
+     * @since 7.3
+     */
+    protected int mValueCacheSize = DEFAULT_VALUE_CACHE_SIZE;
+
+    /**
+     * Cache for canonicalizing short values, if enabled; shared by
+     * all readers created by the same factory.
+     *
+     * @since 7.3
+     */
+    protected ValueCache mValueCache;
+
     /**
      * This boolean flag is set if the input document requires
      * xml 1.1 (or above) compliant processing: default is xml 1.0
@@ -627,6 +748,13 @@ public final class ReaderConfig
         rc.mAccessAllowedProtocols = mAccessAllowedProtocols;
         rc.mBaseURL = mBaseURL;
         rc.mParsingMode = mParsingMode;
+        rc.mDocumentSeparator = mDocumentSeparator;
+        rc.mExtEntityCache = mExtEntityCache;
+        rc.mMetrics = mMetrics;
+        rc.mPathFilter = mPathFilter;
+        rc.mValueCacheMaxLength = mValueCacheMaxLength;
+        rc.mValueCacheSize = mValueCacheSize;
+        rc.mValueCache = mValueCache;
         rc.mMaxAttributesPerElement = mMaxAttributesPerElement;
         rc.mMaxAttributeSize = mMaxAttributeSize;
         rc.mMaxChildrenPerElement = mMaxChildrenPerElement;
@@ -766,6 +894,37 @@ public final class ReaderConfig
         return _hasConfigFlag(CFG_CACHE_DTDS_BY_PUBLIC_ID);
     }
 
+    /**
+     * @since 7.3
+     */
+    public boolean willCacheExternalEntities() {
+        return (mExtEntityCache != null);
+    }
+
+    /**
+     * @since 7.3
+     */
+    public boolean willCacheExternalEntitiesByPublicId() {
+        return _hasConfigFlag(CFG_CACHE_EXT_ENTITIES_BY_PUBLIC_ID);
+    }
+
+    /**
+     * @since 7.3
+     */
+    public boolean willDetectZlibCompression() {
+        return _hasConfigFlag(CFG_DETECT_ZLIB_COMPRESSION);
+    }
+
+    /**
+     * @return Cache to use for contents of external parsed entities,
+     *   if caching is enabled; null if not
+     *
+     * @since 7.3
+     */
+    public ExternalEntityCache getExternalEntityCache() {
+        return mExtEntityCache;
+    }
+
     public boolean willDoXmlIdTyping() {
         return _hasConfigFlag(CFG_XMLID_TYPING);
     }
@@ -867,6 +1026,55 @@ public final class ReaderConfig
         return mParsingMode == WstxInputProperties.PARSING_MODE_FRAGMENT;
     }
 
+    /**
+     * @return Character used to separate documents in multi-document
+     *   mode, if any; -1 if none
+     *
+     * @since 7.3
+     */
+    public int getInputDocumentSeparator() {
+        return mDocumentSeparator;
+    }
+
+    /**
+     * @return Object readers are to report metrics to, if any; null if
+     *   metrics are not to be collected
+     *
+     * @since 7.3
+     */
+    public WstxMetrics getMetrics() {
+        return mMetrics;
+    }
+
+    /**
+     * @return Path expression readers are to use for filtering, if any
+     *
+     * @since 7.3
+     */
+    public PathFilter getPathFilter() {
+        return mPathFilter;
+    }
+
+    /**
+     * @since 7.3
+     */
+    public int getValueCacheMaxLength() { return mValueCacheMaxLength; }
+
+    /**
+     * @since 7.3
+     */
+    public int getValueCacheSize() { return mValueCacheSize; }
+
+    /**
+     * @return Cache to use for canonicalizing short attribute values and
+     *   text, if enabled; null if not
+     *
+     * @since 7.3
+     */
+    public ValueCache getValueCache() {
+        return mValueCache;
+    }
+
     /**
      * @return True if the input well-formedness and validation checks
      *    should be done according to xml 1.1 specification; false if
@@ -1095,6 +1303,36 @@ public final class ReaderConfig
         setConfigFlag(CFG_CACHE_DTDS_BY_PUBLIC_ID, state);
     }
 
+    /**
+     * Method for enabling or disabling caching of external parsed
+     * entity contents. Enabling creates a new (empty) cache, unless
+     * caching was already enabled; disabling drops the cache.
+     *
+     * @since 7.3
+     */
+    public void doCacheExternalEntities(boolean state) {
+        if (!state) {
+            mExtEntityCache = null;
+        } else if (mExtEntityCache == null) {
+            mExtEntityCache = new ExternalEntityCache(EXT_ENTITY_CACHE_MAX_LENGTH,
+                    EXT_ENTITY_CACHE_MAX_ENTITY_LENGTH);
+        }
+    }
+
+    /**
+     * @since 7.3
+     */
+    public void doCacheExternalEntitiesByPublicId(boolean state) {
+        setConfigFlag(CFG_CACHE_EXT_ENTITIES_BY_PUBLIC_ID, state);
+    }
+
+    /**
+     * @since 7.3
+     */
+    public void doDetectZlibCompression(boolean state) {
+        setConfigFlag(CFG_DETECT_ZLIB_COMPRESSION, state);
+    }
+
     public void doParseLazily(boolean state) {
         setConfigFlag(CFG_LAZY_PARSING, state);
     }
@@ -1239,6 +1477,68 @@ public final class ReaderConfig
         mParsingMode = mode;
     }
 
+    /**
+     * @param sep Character to use for separating documents in
+     *   multi-document mode; -1 for none
+     *
+     * @since 7.3
+     */
+    public void setInputDocumentSeparator(int sep)
+    {
+        if (sep >= 0) {
+            if (sep >= 0x20 || sep == '\t' || sep == '\n' || sep == '\r') {
+                throw new IllegalArgumentException("Illegal document separator (0x"
+                        +Integer.toHexString(sep)+"): has to be a control character other than tab, linefeed or carriage return");
+            }
+        }
+        mDocumentSeparator = sep;
+    }
+
+    /**
+     * @since 7.3
+     */
+    public void setMetrics(WstxMetrics m) {
+        mMetrics = m;
+    }
+
+    /**
+     * @since 7.3
+     */
+    public void setPathFilter(PathFilter f) {
+        mPathFilter = f;
+    }
+
+    /**
+     * Method for enabling (with positive value) or disabling (with 0)
+     * value cache. Changing the value creates a new (empty) cache.
+     *
+     * @since 7.3
+     */
+    public void setValueCacheMaxLength(int value) {
+        mValueCacheMaxLength = value;
+        _updateValueCache();
+    }
+
+    /**
+     * @throws IllegalArgumentException If size is not positive, or exceeds
+     *    {@link ValueCache#MAX_SIZE}
+     *
+     * @since 7.3
+     */
+    public void setValueCacheSize(int value) {
+        if (value < 1 || value > ValueCache.MAX_SIZE) {
+            throw new IllegalArgumentException("Invalid value cache size ("+value
+                    +"): has to be between 1 and "+ValueCache.MAX_SIZE);
+        }
+        mValueCacheSize = value;
+        _updateValueCache();
+    }
+
+    private void _updateValueCache() {
+        mValueCache = (mValueCacheMaxLength > 0) ?
+            new ValueCache(mValueCacheSize, mValueCacheMaxLength) : null;
+    }
+
     /**
      * Method called to enable or disable 1.1 compliant processing; if
      * disabled, defaults to xml 1.0 compliant processing.
@@ -1553,6 +1853,92 @@ public final class ReaderConfig
         mCurrRecycler.returnFullBBuffer(buffer);
     }
 
+    /**
+     * Method for finding a (reset) decoder for given charset, either one
+     * recycled by an earlier reader in this thread, or a newly
+     * constructed one.
+     *
+     * @since 7.3
+     */
+    public CharsetDecoder allocDecoder(Charset cs)
+    {
+        if (mCurrRecycler != null) {
+            CharsetDecoder dec = mCurrRecycler.getDecoder(cs);
+            if (dec != null) {
+                return dec.reset();
+            }
+        }
+        return cs.newDecoder();
+    }
+
+    /**
+     * @since 7.3
+     */
+    public void freeDecoder(CharsetDecoder dec)
+    {
+        if (mCurrRecycler == null) {
+            mCurrRecycler = createRecycler();
+        }
+        mCurrRecycler.returnDecoder(dec);
+    }
+
+    /**
+     * Method for allocating buffer for compressed content
+     *
+     * @since 7.3
+     */
+    public byte[] allocCompressionBBuffer(int minSize)
+    {
+        if (mCurrRecycler != null) {
+            byte[] result = mCurrRecycler.getCompressionBBuffer(minSize);
+            if (result != null) {
+                return result;
+            }
+        }
+        return new byte[minSize];
+    }
+
+    /**
+     * @since 7.3
+     */
+    public void freeCompressionBBuffer(byte[] buffer)
+    {
+        if (mCurrRecycler == null) {
+            mCurrRecycler = createRecycler();
+        }
+        mCurrRecycler.returnCompressionBBuffer(buffer);
+    }
+
+    /**
+     * Method for finding an {@link Inflater} for decompressing raw deflate
+     * data: either one recycled by an earlier reader in this thread,
+     * or a newly constructed one.
+     *
+     * @since 7.3
+     */
+    public Inflater allocInflater()
+    {
+        if (mCurrRecycler != null) {
+            Inflater inf = mCurrRecycler.getInflater();
+            if (inf != null) {
+                return inf;
+            }
+        }
+        return new Inflater(true);
+    }
+
+    /**
+     * @since 7.3
+     */
+    public void freeInflater(Inflater inf)
+    {
+        inf.reset();
+        if (mCurrRecycler == null) {
+            mCurrRecycler = createRecycler();
+        }
+        mCurrRecycler.returnInflater(inf);
+    }
+
     private BufferRecycler createRecycler()
     {
         BufferRecycler recycler = new BufferRecycler();
@@ -1640,6 +2026,12 @@ public final class ReaderConfig
             return willCacheDTDs() ? Boolean.TRUE : Boolean.FALSE;
         case PROP_CACHE_DTDS_BY_PUBLIC_ID:
             return willCacheDTDsByPublicId() ? Boolean.TRUE : Boolean.FALSE;
+        case PROP_CACHE_EXT_ENTITIES:
+            return willCacheExternalEntities() ? Boolean.TRUE : Boolean.FALSE;
+        case PROP_CACHE_EXT_ENTITIES_BY_PUBLIC_ID:
+            return willCacheExternalEntitiesByPublicId() ? Boolean.TRUE : Boolean.FALSE;
+        case PROP_DETECT_ZLIB_COMPRESSION:
+            return willDetectZlibCompression() ? Boolean.TRUE : Boolean.FALSE;
         case PROP_LAZY_PARSING:
             return willParseLazily() ? Boolean.TRUE : Boolean.FALSE;
         case PROP_SUPPORT_XMLID:
@@ -1699,6 +2091,16 @@ public final class ReaderConfig
             return allowsSurrogatePairEntities();
         case PROP_INPUT_PARSING_MODE:
             return getInputParsingMode();
+        case PROP_INPUT_DOCUMENT_SEPARATOR:
+            return (mDocumentSeparator < 0) ? null : Character.valueOf((char) mDocumentSeparator);
+        case PROP_METRICS:
+            return getMetrics();
+        case PROP_PATH_FILTER:
+            return getPathFilter();
+        case PROP_VALUE_CACHE_MAX_LENGTH:
+            return getValueCacheMaxLength();
+        case PROP_VALUE_CACHE_SIZE:
+            return getValueCacheSize();
 
         default: // sanity check, should never happen
             throw new IllegalStateException("Internal error: no handler for property with internal id "+id+".");
@@ -1831,6 +2233,18 @@ public final class ReaderConfig
             doCacheDTDsByPublicId(ArgUtil.convertToBoolean(propName, value));
             break;
 
+        case PROP_CACHE_EXT_ENTITIES:
+            doCacheExternalEntities(ArgUtil.convertToBoolean(propName, value));
+            break;
+
+        case PROP_CACHE_EXT_ENTITIES_BY_PUBLIC_ID:
+            doCacheExternalEntitiesByPublicId(ArgUtil.convertToBoolean(propName, value));
+            break;
+
+        case PROP_DETECT_ZLIB_COMPRESSION:
+            doDetectZlibCompression(ArgUtil.convertToBoolean(propName, value));
+            break;
+
         case PROP_LAZY_PARSING:
             doParseLazily(ArgUtil.convertToBoolean(propName, value));
             break;
@@ -1938,6 +2352,41 @@ public final class ReaderConfig
             setInputParsingMode((WstxInputProperties.ParsingMode) value);
             break;
 
+        case PROP_INPUT_DOCUMENT_SEPARATOR:
+            if (value == null) {
+                setInputDocumentSeparator(-1);
+            } else if (value instanceof Number) {
+                setInputDocumentSeparator(((Number) value).intValue());
+            } else {
+                String str = value.toString();
+                if (str.length() != 1) {
+                    throw new IllegalArgumentException("Invalid value for property '"+propName+"': expected a single character, got \""+str+"\"");
+                }
+                setInputDocumentSeparator(str.charAt(0));
+            }
+            break;
+
+        case PROP_METRICS:
+            setMetrics((WstxMetrics) value);
+            break;
+
+        case PROP_PATH_FILTER:
+            // Can also be given as an expression without namespace prefixes
+            if (value instanceof String) {
+                setPathFilter(PathFilter.compile((String) value));
+            } else {
+                setPathFilter((PathFilter) value);
+            }
+            break;
+
+        case PROP_VALUE_CACHE_MAX_LENGTH:
+            setValueCacheMaxLength(ArgUtil.convertToInt(propName, value, 0));
+            break;
+
+        case PROP_VALUE_CACHE_SIZE:
+            setValueCacheSize(ArgUtil.convertToInt(propName, value, 1));
+            break;
+
         default: // sanity check, should never happen
             throw new IllegalStateException("Internal error: no handler for property with internal id "+id+".");
         }
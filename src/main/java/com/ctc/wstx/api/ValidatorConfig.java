@@ -1,42 +1,162 @@
 package com.ctc.wstx.api;
 
+import com.ctc.wstx.util.ArgUtil;
+
 public final class ValidatorConfig
     extends CommonConfig
 {
+    /*
+    ///////////////////////////////////////////////////////////////////////
+    // Property names
+    ///////////////////////////////////////////////////////////////////////
+     */
+
     /**
-     * For now, since there are no mutable properties, we can share
-     * a singleton instance.
+     * Property that determines whether schema factories will cache
+     * schema instances they have loaded, keyed by system id; and return
+     * the cached instance for subsequent requests for the same system id,
+     * instead of re-parsing the schema (and all schemas it includes or
+     * imports). Cached entries for schemas loaded from local files are
+     * reloaded if any of the files they were built from is modified.
+     *<p>
+     * Only schemas that factory loads itself, from a {@link java.net.URL}
+     * or {@link java.io.File}, are cached: schemas created from content
+     * passed by the caller (an {@link java.io.InputStream} or
+     * {@link java.io.Reader}) are always parsed, since system id passed
+     * along with such content need not identify the content.
+     *<p>
+     * Number of cached schemas is bounded by {@link #P_SCHEMA_CACHE_SIZE}:
+     * once the limit is reached, the least recently used schema is
+     * dropped from the cache.
+     *<p>
+     * Default value is false, since caching is only safe when schema
+     * contents for a given system id do not change during lifetime of
+     * the factory. Currently only W3C Schema and RELAX NG factories
+     * support caching; DTD factory ignores this setting.
+     *
+     * @since 7.3
+     */
+    public final static String P_CACHE_SCHEMAS = "com.ctc.wstx.cacheSchemas";
+
+    /**
+     * Property that defines maximum number of schema instances schema
+     * factory caches, if caching is enabled using {@link #P_CACHE_SCHEMAS}.
+     * Has to be at least 1.
+     *<p>
+     * Default value is 100.
+     *
+     * @since 7.3
+     */
+    public final static String P_SCHEMA_CACHE_SIZE = "com.ctc.wstx.schemaCacheSize";
+
+    /*
+    ///////////////////////////////////////////////////////////////////////
+    // Internal constants
+    ///////////////////////////////////////////////////////////////////////
+     */
+
+    final static int PROP_CACHE_SCHEMAS = 1;
+    final static int PROP_SCHEMA_CACHE_SIZE = 2;
+
+    final static int DEFAULT_SCHEMA_CACHE_SIZE = 100;
+
+    /*
+    ///////////////////////////////////////////////////////////////////////
+    // Current config state
+    ///////////////////////////////////////////////////////////////////////
      */
-    final static ValidatorConfig sInstance = new ValidatorConfig(null);
+
+    protected boolean mCacheSchemas = false;
+
+    protected int mSchemaCacheSize = DEFAULT_SCHEMA_CACHE_SIZE;
 
     private ValidatorConfig(ValidatorConfig base) {
         super(base);
+        if (base != null) {
+            mCacheSchemas = base.mCacheSchemas;
+            mSchemaCacheSize = base.mSchemaCacheSize;
+        }
     }
 
     public static ValidatorConfig createDefaults()
     {
-        /* For now, since there are no mutable properties, we can share
-         * a singleton instance.
-         */
-        return sInstance;
+        // Now that there are mutable properties, can no longer share a
+        // singleton instance
+        return new ValidatorConfig(null);
     }
 
+    /*
+    ///////////////////////////////////////////////////////////////////////
+    // Specific accessors
+    ///////////////////////////////////////////////////////////////////////
+     */
+
+    /**
+     * @since 7.3
+     */
+    public boolean willCacheSchemas() {
+        return mCacheSchemas;
+    }
+
+    /**
+     * @since 7.3
+     */
+    public void doCacheSchemas(boolean state) {
+        mCacheSchemas = state;
+    }
+
+    /**
+     * @since 7.3
+     */
+    public int getSchemaCacheSize() {
+        return mSchemaCacheSize;
+    }
+
+    /**
+     * @since 7.3
+     */
+    public void setSchemaCacheSize(int size) {
+        mSchemaCacheSize = size;
+    }
+
+    /*
+    ///////////////////////////////////////////////////////////////////////
+    // Implementation of abstract methods
+    ///////////////////////////////////////////////////////////////////////
+     */
+
     @Override
     protected int findPropertyId(String propName) {
-        // Nothing above and beyond default settings...
+        if (P_CACHE_SCHEMAS.equals(propName)) {
+            return PROP_CACHE_SCHEMAS;
+        }
+        if (P_SCHEMA_CACHE_SIZE.equals(propName)) {
+            return PROP_SCHEMA_CACHE_SIZE;
+        }
         return -1;
     }
 
     @Override
     protected Object getProperty(int id) {
-        // nothing to get:
+        switch (id) {
+        case PROP_CACHE_SCHEMAS:
+            return willCacheSchemas() ? Boolean.TRUE : Boolean.FALSE;
+        case PROP_SCHEMA_CACHE_SIZE:
+            return getSchemaCacheSize();
+        }
         return null;
     }
 
     @Override
     protected boolean setProperty(String propName, int id, Object value) {
-        // nothing to set:
+        switch (id) {
+        case PROP_CACHE_SCHEMAS:
+            doCacheSchemas(ArgUtil.convertToBoolean(propName, value));
+            return true;
+        case PROP_SCHEMA_CACHE_SIZE:
+            setSchemaCacheSize(ArgUtil.convertToInt(propName, value, 1));
+            return true;
+        }
         return false;
     }
 }
-
@@ -2,6 +2,7 @@ package com.ctc.wstx.api;
 
 import java.lang.ref.SoftReference;
 import java.util.HashMap;
+import java.util.zip.Deflater;
 
 import javax.xml.stream.XMLOutputFactory;
 import javax.xml.stream.XMLReporter;
@@ -73,6 +74,8 @@ public final class WriterConfig
 
     final static int PROP_OUTPUT_INVALID_CHAR_HANDLER = 21;
     final static int PROP_OUTPUT_EMPTY_ELEMENT_HANDLER = 22;
+    final static int PROP_OUTPUT_COMPRESSION = 23;
+    final static int PROP_METRICS = 24;
 
     // Per-writer instance information
 
@@ -217,6 +220,10 @@ public final class WriterConfig
                         DataUtil.Integer(PROP_OUTPUT_INVALID_CHAR_HANDLER));
         sProperties.put(WstxOutputProperties.P_OUTPUT_EMPTY_ELEMENT_HANDLER,
                         DataUtil.Integer(PROP_OUTPUT_EMPTY_ELEMENT_HANDLER));
+        sProperties.put(WstxOutputProperties.P_OUTPUT_COMPRESSION,
+                        DataUtil.Integer(PROP_OUTPUT_COMPRESSION));
+        sProperties.put(WstxOutputProperties.P_METRICS,
+                        DataUtil.Integer(PROP_METRICS));
 
         // Validation settings:
         sProperties.put(WstxOutputProperties.P_OUTPUT_VALIDATE_STRUCTURE,
@@ -261,7 +268,7 @@ public final class WriterConfig
 
     Object[] mSpecialProperties = null;
 
-    private final static int SPEC_PROC_COUNT = 6;
+    private final static int SPEC_PROC_COUNT = 8;
 
     private final static int SP_IX_AUTO_NS_PREFIX = 0;
     private final static int SP_IX_TEXT_ESCAPER_FACTORY = 1;
@@ -269,6 +276,8 @@ public final class WriterConfig
     private final static int SP_IX_PROBLEM_REPORTER = 3;
     private final static int SP_IX_INVALID_CHAR_HANDLER = 4;
     private final static int SP_IX_EMPTY_ELEMENT_HANDLER = 5;
+    private final static int SP_IX_OUTPUT_COMPRESSION = 6;
+    private final static int SP_IX_METRICS = 7;
 
     /*
     //////////////////////////////////////////////////////////
@@ -420,6 +429,10 @@ public final class WriterConfig
             return getInvalidCharHandler();
         case PROP_OUTPUT_EMPTY_ELEMENT_HANDLER:
             return getEmptyElementHandler();
+        case PROP_OUTPUT_COMPRESSION:
+            return getOutputCompression();
+        case PROP_METRICS:
+            return getMetrics();
 
             // And then per-instance properties: not valid via config object
         case PROP_UNDERLYING_STREAM:
@@ -515,6 +528,12 @@ public final class WriterConfig
         case PROP_OUTPUT_EMPTY_ELEMENT_HANDLER:
             setEmptyElementHandler((EmptyElementHandler) value);
             break;
+        case PROP_OUTPUT_COMPRESSION:
+            setOutputCompression((value == null) ? null : value.toString());
+            break;
+        case PROP_METRICS:
+            setMetrics((WstxMetrics) value);
+            break;
 
         case PROP_UNDERLYING_STREAM:
         case PROP_UNDERLYING_WRITER:
@@ -638,6 +657,27 @@ public final class WriterConfig
         return (EmptyElementHandler) getSpecialProperty(SP_IX_EMPTY_ELEMENT_HANDLER);
     }
 
+    /**
+     * @return Compression format to use for output (one of
+     *   <code>WstxOutputProperties.COMPRESSION_xxx</code> constants),
+     *   if any; null if none
+     *
+     * @since 7.3
+     */
+    public String getOutputCompression() {
+        return (String) getSpecialProperty(SP_IX_OUTPUT_COMPRESSION);
+    }
+
+    /**
+     * @return Object writers are to report metrics to, if any; null if
+     *   metrics are not to be collected
+     *
+     * @since 7.3
+     */
+    public WstxMetrics getMetrics() {
+        return (WstxMetrics) getSpecialProperty(SP_IX_METRICS);
+    }
+
     // // // Mutators:
 
     // Standard properies:
@@ -735,6 +775,39 @@ public final class WriterConfig
         setSpecialProperty(SP_IX_EMPTY_ELEMENT_HANDLER, h);
     }
 
+    /**
+     * @param format Compression format to use; one of
+     *   <code>WstxOutputProperties.COMPRESSION_xxx</code> constants, or
+     *   null to indicate no compression
+     *
+     * @since 7.3
+     */
+    public void setOutputCompression(String format)
+    {
+        if (format != null) {
+            if (WstxOutputProperties.COMPRESSION_NONE.equals(format)) {
+                format = null;
+            } else if (WstxOutputProperties.COMPRESSION_GZIP.equals(format)) {
+                format = WstxOutputProperties.COMPRESSION_GZIP;
+            } else if (WstxOutputProperties.COMPRESSION_DEFLATE.equals(format)) {
+                format = WstxOutputProperties.COMPRESSION_DEFLATE;
+            } else {
+                throw new IllegalArgumentException("Unrecognized compression format '"+format
+                        +"'; expected one of '"+WstxOutputProperties.COMPRESSION_GZIP
+                        +"', '"+WstxOutputProperties.COMPRESSION_DEFLATE
+                        +"' or '"+WstxOutputProperties.COMPRESSION_NONE+"'");
+            }
+        }
+        setSpecialProperty(SP_IX_OUTPUT_COMPRESSION, format);
+    }
+
+    /**
+     * @since 7.3
+     */
+    public void setMetrics(WstxMetrics m) {
+        setSpecialProperty(SP_IX_METRICS, m);
+    }
+
     /*
     //////////////////////////////////////////////////////////
     // Extended Woodstox API, profiles
@@ -856,6 +929,63 @@ public final class WriterConfig
         mCurrRecycler.returnFullBBuffer(buffer);
     }
 
+    /**
+     * Method for allocating buffer for compressed content
+     *
+     * @since 7.3
+     */
+    public byte[] allocCompressionBBuffer(int minSize)
+    {
+        if (mCurrRecycler != null) {
+            byte[] result = mCurrRecycler.getCompressionBBuffer(minSize);
+            if (result != null) {
+                return result;
+            }
+        }
+        return new byte[minSize];
+    }
+
+    /**
+     * @since 7.3
+     */
+    public void freeCompressionBBuffer(byte[] buffer)
+    {
+        if (mCurrRecycler == null) {
+            mCurrRecycler = createRecycler();
+        }
+        mCurrRecycler.returnCompressionBBuffer(buffer);
+    }
+
+    /**
+     * Method for finding a {@link Deflater} for compressing content as
+     * raw deflate data: either one recycled by an earlier writer in this
+     * thread, or a newly constructed one.
+     *
+     * @since 7.3
+     */
+    public Deflater allocDeflater()
+    {
+        if (mCurrRecycler != null) {
+            Deflater def = mCurrRecycler.getDeflater();
+            if (def != null) {
+                return def;
+            }
+        }
+        return new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+    }
+
+    /**
+     * @since 7.3
+     */
+    public void freeDeflater(Deflater def)
+    {
+        def.reset();
+        if (mCurrRecycler == null) {
+            mCurrRecycler = createRecycler();
+        }
+        mCurrRecycler.returnDeflater(def);
+    }
+
     private BufferRecycler createRecycler()
     {
         BufferRecycler recycler = new BufferRecycler();
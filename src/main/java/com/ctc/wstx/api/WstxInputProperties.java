@@ -93,6 +93,51 @@ public final class WstxInputProperties
      */
     public final static String P_CACHE_DTDS_BY_PUBLIC_ID = "com.ctc.wstx.cacheDTDsByPublicId";
 
+    /**
+     * Whether readers will cache contents of external parsed entities
+     * they expand, so that other references to the same entity (from
+     * the same or other documents parsed by readers created by the same
+     * factory) can be expanded from memory, without having to resolve,
+     * read and decode the entity again. Contents are read completely when
+     * the entity is first expanded. Cache is bounded by total length of
+     * entities cached (least recently used ones are dropped first), and
+     * entities that are too big (over 64k characters) are not cached but
+     * read from their source every time.
+     *<p>
+     * Disabled by default.
+     *
+     * @since 7.3
+     */
+    public final static String P_CACHE_EXTERNAL_ENTITIES = "com.ctc.wstx.cacheExternalEntities";
+
+    /**
+     * Whether reader is to cache external parsed entities (when caching
+     * is enabled) based on public id or not; works similar to
+     * {@link #P_CACHE_DTDS_BY_PUBLIC_ID}.
+     *<p>
+     * Disabled by default.
+     *
+     * @since 7.3
+     */
+    public final static String P_CACHE_EXTERNAL_ENTITIES_BY_PUBLIC_ID = "com.ctc.wstx.cacheExternalEntitiesByPublicId";
+
+    /**
+     * Whether byte stream input that starts with a zlib ("deflate")
+     * header is to be decompressed. Gzip compressed input is always
+     * detected, since its 2-byte signature can not start well-formed
+     * XML content in any encoding; but zlib headers are just 2 bytes
+     * whose value is a multiple of 31, and some of these are valid
+     * starts of XML fragments or documents (for example "x ").
+     *<p>
+     * Compression is never detected in fragment parsing mode
+     * (see {@link #P_INPUT_PARSING_MODE}).
+     *<p>
+     * Disabled by default.
+     *
+     * @since 7.3
+     */
+    public final static String P_DETECT_ZLIB_COMPRESSION = "com.ctc.wstx.detectZlibCompression";
+
 
     // // // Enabling/disabling lazy/incomplete parsing
 
@@ -335,6 +380,72 @@ public final class WstxInputProperties
      */
     public final static String P_INPUT_PARSING_MODE = "com.ctc.wstx.fragmentMode";
 
+    /**
+     * Property of type {@link java.lang.Character} (or null to indicate
+     * none; default) that defines a character used as an explicit
+     * separator between documents, when using multi-document
+     * ({@link #PARSING_MODE_DOCUMENTS}) parsing mode. Separator has
+     * to be one of control characters (0x00 - 0x1F, except for tab,
+     * linefeed and carriage return) that may not be included in XML
+     * content as is, such as the ASCII record separator (0x1E): this
+     * allows skipping of whole documents without parsing them (see
+     * {@link com.ctc.wstx.sr.StreamReaderImpl#skipDocument}).
+     *<p>
+     * Separator is only recognized after the root element of the
+     * current document has been closed.
+     *
+     * @since 7.3
+     */
+    public final static String P_INPUT_DOCUMENT_SEPARATOR = "com.ctc.wstx.inputDocumentSeparator";
+
+    /**
+     * Property of type {@link WstxMetrics} (or null to indicate none;
+     * default) that defines object stream readers report counts of
+     * processed content to, as well as DTD and validation events.
+     * If set for an input factory, readers it creates share the instance.
+     *
+     * @since 7.3
+     */
+    public final static String P_METRICS = "com.ctc.wstx.metrics";
+
+    /**
+     * Property of type {@link com.ctc.wstx.sr.PathFilter} (or null to
+     * indicate none; default) that defines path expression stream readers
+     * use to only report matching elements, along with their contents.
+     * All other events are skipped, except for START_DOCUMENT and
+     * END_DOCUMENT; and contents of elements that can not contain matches
+     * are skipped without fully tokenizing them. Value can also be given
+     * as a String, if expression does not use namespace prefixes.
+     *<p>
+     * Can be set for a reader only before the root element has been read.
+     *
+     * @since 7.3
+     */
+    public final static String P_PATH_FILTER = "com.ctc.wstx.pathFilter";
+
+    /**
+     * Property of type {@link java.lang.Integer} that defines maximum
+     * length of attribute values and text contents that are canonicalized
+     * using a value cache: if enabled, values that repeat are returned as
+     * the same String instance, instead of a new String being constructed
+     * for each occurrence. Cache is shared by all readers created by the
+     * same input factory; see {@link com.ctc.wstx.util.ValueCache} for
+     * details. Default value is 0, which means that cache is disabled.
+     *
+     * @since 7.3
+     */
+    public final static String P_VALUE_CACHE_MAX_LENGTH = "com.ctc.wstx.valueCacheMaxLength";
+
+    /**
+     * Property of type {@link java.lang.Integer} that defines maximum
+     * number of entries in the value cache (enabled using
+     * {@link #P_VALUE_CACHE_MAX_LENGTH}); default is 1024, and maximum
+     * allowed value {@link com.ctc.wstx.util.ValueCache#MAX_SIZE} (65536).
+     *
+     * @since 7.3
+     */
+    public final static String P_VALUE_CACHE_SIZE = "com.ctc.wstx.valueCacheSize";
+
     // // // DTD defaulting, overriding
 
     /*
@@ -0,0 +1,251 @@
+/* Woodstox XML processor
+ *
+ * Copyright (c) 2004- Tatu Saloranta, tatu.saloranta@iki.fi
+ *
+ * Licensed under the License specified in file LICENSE, included with
+ * the source code.
+ * You may not use this file except in compliance with the License.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ctc.wstx.api;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.codehaus.stax2.validation.XMLValidationProblem;
+
+/**
+ * Container for counters that stream readers and writers update when
+ * configured to collect metrics (using
+ * {@link WstxInputProperties#P_METRICS} and
+ * {@link WstxOutputProperties#P_METRICS}). A single instance is usually
+ * configured for a factory, in which case all readers (or writers) it
+ * creates add their counts to it; but an instance can also be set for
+ * an individual reader or writer.
+ *<p>
+ * Readers report counts for a document when the end of the document
+ * is reached, or when the reader is closed before that; writers when
+ * the document is finished or writer closed. Collection is per-document
+ * in order to keep overhead minimal: only trivial bookkeeping is done
+ * during parsing itself, and reporting is skipped altogether if no
+ * metrics object is configured.
+ *<p>
+ * Callback methods can be overridden by sub-classes (which should call
+ * the super-class implementation) to get notified of events as they
+ * occur; for example, to emit JDK Flight Recorder events, or to update
+ * counters of an external metrics library.
+ *<p>
+ * Instances are thread-safe.
+ *
+ * @since 7.3
+ */
+public class WstxMetrics
+{
+    // // // Reader-side counters
+
+    private final AtomicLong mDocumentsRead = new AtomicLong();
+    private final AtomicLong mCharactersRead = new AtomicLong();
+    private final AtomicLong mElementsRead = new AtomicLong();
+    private final AtomicLong mAttributesRead = new AtomicLong();
+    private final AtomicLong mEntityExpansions = new AtomicLong();
+    private final AtomicLong mBufferExpansions = new AtomicLong();
+
+    /**
+     * Size of the symbol table used by the last reader that reported
+     * document metrics
+     */
+    private volatile int mSymbolTableSize;
+
+    /**
+     * Average seek length of the symbol table used by the last reader
+     * that reported document metrics
+     */
+    private volatile double mSymbolTableAvgSeek;
+
+    // // // DTD handling
+
+    private final AtomicLong mDtdCacheHits = new AtomicLong();
+    private final AtomicLong mDtdCacheMisses = new AtomicLong();
+    private final AtomicLong mDtdsLoaded = new AtomicLong();
+    private final AtomicLong mDtdLoadNanos = new AtomicLong();
+
+    // // // Validation
+
+    private final AtomicLong mValidationProblems = new AtomicLong();
+
+    // // // Writer-side counters
+
+    private final AtomicLong mDocumentsWritten = new AtomicLong();
+    private final AtomicLong mCharactersWritten = new AtomicLong();
+
+    public WstxMetrics() { }
+
+    /*
+    ///////////////////////////////////////////////////////////
+    // Callbacks from readers, writers
+    ///////////////////////////////////////////////////////////
+     */
+
+    /**
+     * Method called by stream readers when a document has been read
+     * (or reader closed before the end of the document).
+     *
+     * @param chars Number of characters read for the document (from the
+     *   main input source; that is, not including expanded external entities)
+     * @param elements Number of elements (start tags) read
+     * @param attributes Number of attributes read (including ones added
+     *   as default values from DTD, but not namespace declarations)
+     * @param entityExpansions Number of general entities expanded
+     * @param bufferExpansions Number of times a work buffer (for names,
+     *   attribute values or text) had to be enlarged
+     * @param symbolTableSize Number of names in symbol table of the reader
+     * @param symbolTableAvgSeek Average number of comparisons needed to
+     *   find a name in the symbol table
+     */
+    public void documentRead(long chars, long elements, long attributes,
+            long entityExpansions, long bufferExpansions,
+            int symbolTableSize, double symbolTableAvgSeek)
+    {
+        mDocumentsRead.incrementAndGet();
+        mCharactersRead.addAndGet(chars);
+        mElementsRead.addAndGet(elements);
+        mAttributesRead.addAndGet(attributes);
+        mEntityExpansions.addAndGet(entityExpansions);
+        mBufferExpansions.addAndGet(bufferExpansions);
+        mSymbolTableSize = symbolTableSize;
+        mSymbolTableAvgSeek = symbolTableAvgSeek;
+    }
+
+    /**
+     * Method called when an external DTD subset was found in the
+     * DTD cache of the input factory, and could be reused.
+     */
+    public void dtdCacheHit(String publicId, String systemId)
+    {
+        mDtdCacheHits.incrementAndGet();
+    }
+
+    /**
+     * Method called when an external DTD subset was read and parsed
+     * (whether DTD caching is enabled or not).
+     *
+     * @param cacheEnabled Whether DTD caching is enabled: if so, read
+     *   also counts as a cache miss
+     * @param nanos Time taken to resolve, read and parse the subset,
+     *   in nanoseconds
+     */
+    public void dtdLoaded(String publicId, String systemId, boolean cacheEnabled,
+            long nanos)
+    {
+        if (cacheEnabled) {
+            mDtdCacheMisses.incrementAndGet();
+        }
+        mDtdsLoaded.incrementAndGet();
+        mDtdLoadNanos.addAndGet(nanos);
+    }
+
+    /**
+     * Method called when a validator reports a problem, before the
+     * problem is passed to problem handler (or thrown as an exception).
+     */
+    public void validationProblem(XMLValidationProblem problem)
+    {
+        mValidationProblems.incrementAndGet();
+    }
+
+    /**
+     * Method called by stream writers when a document has been finished,
+     * or writer closed.
+     *
+     * @param chars Number of characters written (before encoding and
+     *   compression, if any)
+     */
+    public void documentWritten(long chars)
+    {
+        mDocumentsWritten.incrementAndGet();
+        mCharactersWritten.addAndGet(chars);
+    }
+
+    /*
+    ///////////////////////////////////////////////////////////
+    // Accessors
+    ///////////////////////////////////////////////////////////
+     */
+
+    public long getDocumentsRead() { return mDocumentsRead.get(); }
+
+    public long getCharactersRead() { return mCharactersRead.get(); }
+
+    public long getElementsRead() { return mElementsRead.get(); }
+
+    public long getAttributesRead() { return mAttributesRead.get(); }
+
+    public long getEntityExpansions() { return mEntityExpansions.get(); }
+
+    public long getBufferExpansions() { return mBufferExpansions.get(); }
+
+    public int getSymbolTableSize() { return mSymbolTableSize; }
+
+    public double getSymbolTableAvgSeek() { return mSymbolTableAvgSeek; }
+
+    public long getDtdCacheHits() { return mDtdCacheHits.get(); }
+
+    public long getDtdCacheMisses() { return mDtdCacheMisses.get(); }
+
+    public long getDtdsLoaded() { return mDtdsLoaded.get(); }
+
+    public long getDtdLoadNanos() { return mDtdLoadNanos.get(); }
+
+    public long getValidationProblems() { return mValidationProblems.get(); }
+
+    public long getDocumentsWritten() { return mDocumentsWritten.get(); }
+
+    public long getCharactersWritten() { return mCharactersWritten.get(); }
+
+    /**
+     * Method for resetting all counters to zero.
+     */
+    public void reset()
+    {
+        mDocumentsRead.set(0L);
+        mCharactersRead.set(0L);
+        mElementsRead.set(0L);
+        mAttributesRead.set(0L);
+        mEntityExpansions.set(0L);
+        mBufferExpansions.set(0L);
+        mSymbolTableSize = 0;
+        mSymbolTableAvgSeek = 0.0;
+        mDtdCacheHits.set(0L);
+        mDtdCacheMisses.set(0L);
+        mDtdsLoaded.set(0L);
+        mDtdLoadNanos.set(0L);
+        mValidationProblems.set(0L);
+        mDocumentsWritten.set(0L);
+        mCharactersWritten.set(0L);
+    }
+
+    @Override
+    public String toString()
+    {
+        StringBuilder sb = new StringBuilder(200);
+        sb.append("[WstxMetrics: documentsRead=").append(getDocumentsRead())
+            .append(", charactersRead=").append(getCharactersRead())
+            .append(", elementsRead=").append(getElementsRead())
+            .append(", attributesRead=").append(getAttributesRead())
+            .append(", entityExpansions=").append(getEntityExpansions())
+            .append(", bufferExpansions=").append(getBufferExpansions())
+            .append(", dtdCacheHits=").append(getDtdCacheHits())
+            .append(", dtdCacheMisses=").append(getDtdCacheMisses())
+            .append(", dtdsLoaded=").append(getDtdsLoaded())
+            .append(", validationProblems=").append(getValidationProblems())
+            .append(", documentsWritten=").append(getDocumentsWritten())
+            .append(", charactersWritten=").append(getCharactersWritten())
+            .append(']');
+        return sb.toString();
+    }
+}
@@ -150,6 +150,55 @@ public final class WstxOutputProperties
      */
     public final static String P_OUTPUT_EMPTY_ELEMENT_HANDLER = "com.ctc.wstx.outputEmptyElementHandler";
 
+    /**
+     * Property that defines whether output written to an
+     * {@link java.io.OutputStream} is to be compressed, and if so, using
+     * which format: either {@link #COMPRESSION_GZIP} or
+     * {@link #COMPRESSION_DEFLATE} (zlib format); null (default) or
+     * {@link #COMPRESSION_NONE} for no compression.
+     * Compression is done using pooled {@link java.util.zip.Deflater}
+     * instances, directly from output buffers of the stream writer.
+     * Compressed stream is always finished when the stream writer is
+     * closed; underlying stream is only closed if auto-closing is enabled.
+     *<p>
+     * Note that setting has no effect when output is to a {@link java.io.Writer}.
+     *
+     * @since 7.3
+     */
+    public final static String P_OUTPUT_COMPRESSION = "com.ctc.wstx.outputCompression";
+
+    /**
+     * Value for {@link #P_OUTPUT_COMPRESSION} to indicate no compression
+     *
+     * @since 7.3
+     */
+    public final static String COMPRESSION_NONE = "none";
+
+    /**
+     * Value for {@link #P_OUTPUT_COMPRESSION} to indicate gzip compression
+     *
+     * @since 7.3
+     */
+    public final static String COMPRESSION_GZIP = "gzip";
+
+    /**
+     * Value for {@link #P_OUTPUT_COMPRESSION} to indicate compression
+     * using zlib ("deflate") format
+     *
+     * @since 7.3
+     */
+    public final static String COMPRESSION_DEFLATE = "deflate";
+
+    /**
+     * Property of type {@link WstxMetrics} (or null to indicate none;
+     * default) that defines object stream writers report counts of
+     * output written to. If set for an output factory, writers it
+     * creates share the instance.
+     *
+     * @since 7.3
+     */
+    public final static String P_METRICS = "com.ctc.wstx.metrics";
+
     // // // Per-instance access to underlying output objects
 
     /**
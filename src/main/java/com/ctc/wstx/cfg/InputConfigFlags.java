@@ -152,6 +152,22 @@ public interface InputConfigFlags
      */
     final static int CFG_CACHE_DTDS_BY_PUBLIC_ID = 0x00020000;
 
+    /**
+     * If true, key used for matching cached external parsed entities can
+     * be the public id, if false, only system id can be used.
+     *
+     * @since 7.3
+     */
+    final static int CFG_CACHE_EXT_ENTITIES_BY_PUBLIC_ID = 0x04000000;
+
+    /**
+     * If true, byte stream input that starts with a zlib header is
+     * decompressed; if false, only gzip compressed input is detected.
+     *
+     * @since 7.3
+     */
+    final static int CFG_DETECT_ZLIB_COMPRESSION = 0x08000000;
+
     // // // Lazy/incomplete parsing
 
     /**
@@ -123,6 +123,16 @@ public final class DFAState
         return mNext.get(elemName);
     }
 
+    /**
+     * Accessor for transitions from this state; only to be used for
+     * read-only access, once the DFA has been fully constructed.
+     *
+     * @since 7.3
+     */
+    Map<PrefixedName,DFAState> getTransitions() {
+        return mNext;
+    }
+
     public TreeSet<PrefixedName> getNextNames() {
         // Let's order them alphabetically
         TreeSet<PrefixedName> names = new TreeSet<PrefixedName>();
@@ -0,0 +1,173 @@
+/* Woodstox XML processor
+ *
+ * Copyright (c) 2004- Tatu Saloranta, tatu.saloranta@iki.fi
+ *
+ * Licensed under the License specified in file LICENSE, included with
+ * the source code.
+ * You may not use this file except in compliance with the License.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ctc.wstx.dtd;
+
+import java.util.*;
+
+import com.ctc.wstx.util.PrefixedName;
+
+/**
+ * Compiled ("flattened") representation of a DFA built from a DTD
+ * content model: transitions are stored as a dense int table indexed
+ * by state number and element id (as assigned by
+ * {@link DTDElementIndex}), so that validating a child element is just
+ * an array access, instead of a Map lookup.
+ *<p>
+ * Instances are immutable once constructed (all fields are final), and
+ * can thus be shared between threads without synchronization.
+ *
+ * @since 7.3
+ */
+final class DFATable
+{
+    /**
+     * States of the DFA, indexed by state number; needed for
+     * constructing error messages and checking for accepting states.
+     */
+    private final DFAState[] mStates;
+
+    /**
+     * Smallest element id that has any transitions in this DFA
+     */
+    private final int mMinId;
+
+    /**
+     * Mapping from element id (offset by {@link #mMinId}) into column
+     * index of {@link #mNext}; -1 for elements with no transitions.
+     */
+    private final int[] mColumns;
+
+    private final int mColumnCount;
+
+    /**
+     * Transition table; row for each state, column for each distinct
+     * element with transitions. Value is the index of the next state,
+     * or -1 if no transition exists.
+     */
+    private final int[] mNext;
+
+    private DFATable(DFAState[] states, int minId, int[] columns,
+            int columnCount, int[] next)
+    {
+        mStates = states;
+        mMinId = minId;
+        mColumns = columns;
+        mColumnCount = columnCount;
+        mNext = next;
+    }
+
+    /**
+     * Factory method for compiling the DFA starting from given initial
+     * state. Names that do not map to an element id (undeclared elements)
+     * are ignored, since such elements can never be matched.
+     */
+    public static DFATable construct(DFAState initial, Map<PrefixedName,Integer> elemIds)
+    {
+        // First: find all states; indexes are dense, starting from 0
+        ArrayList<DFAState> stateList = new ArrayList<DFAState>();
+        stateList.add(initial);
+        IdentityHashMap<DFAState,Boolean> seen = new IdentityHashMap<DFAState,Boolean>();
+        seen.put(initial, Boolean.TRUE);
+        int minId = Integer.MAX_VALUE;
+        int maxId = -1;
+        for (int i = 0; i < stateList.size(); ++i) {
+            for (Map.Entry<PrefixedName,DFAState> en : stateList.get(i).getTransitions().entrySet()) {
+                Integer id = elemIds.get(en.getKey());
+                if (id != null) {
+                    int ix = id.intValue();
+                    if (ix < minId) {
+                        minId = ix;
+                    }
+                    if (ix > maxId) {
+                        maxId = ix;
+                    }
+                }
+                DFAState next = en.getValue();
+                if (seen.put(next, Boolean.TRUE) == null) {
+                    stateList.add(next);
+                }
+            }
+        }
+        DFAState[] states = new DFAState[stateList.size()];
+        for (DFAState st : stateList) {
+            states[st.getIndex()] = st;
+        }
+        if (maxId < 0) { // no transitions at all
+            return new DFATable(states, 0, new int[0], 0, new int[0]);
+        }
+
+        // Then assign columns for all element ids that are used
+        int[] columns = new int[maxId - minId + 1];
+        Arrays.fill(columns, -1);
+        int colCount = 0;
+        for (DFAState st : states) {
+            for (PrefixedName n : st.getTransitions().keySet()) {
+                Integer id = elemIds.get(n);
+                if (id != null) {
+                    int ix = id.intValue() - minId;
+                    if (columns[ix] < 0) {
+                        columns[ix] = colCount++;
+                    }
+                }
+            }
+        }
+
+        // And finally fill in the transitions
+        int[] next = new int[states.length * colCount];
+        Arrays.fill(next, -1);
+        for (DFAState st : states) {
+            int rowOffset = st.getIndex() * colCount;
+            for (Map.Entry<PrefixedName,DFAState> en : st.getTransitions().entrySet()) {
+                Integer id = elemIds.get(en.getKey());
+                if (id != null) {
+                    next[rowOffset + columns[id.intValue() - minId]] = en.getValue().getIndex();
+                }
+            }
+        }
+        return new DFATable(states, minId, columns, colCount, next);
+    }
+
+    /*
+    ///////////////////////////////////////////////////////////
+    // Public API
+    ///////////////////////////////////////////////////////////
+     */
+
+    /**
+     * @return Index of the state to move to, if there is a transition from
+     *   given state with specified element; -1 if not.
+     */
+    public int findNext(int state, int elemId)
+    {
+        int ix = elemId - mMinId;
+        if (ix < 0 || ix >= mColumns.length) {
+            return -1;
+        }
+        int col = mColumns[ix];
+        if (col < 0) {
+            return -1;
+        }
+        return mNext[state * mColumnCount + col];
+    }
+
+    public DFAState getState(int index) {
+        return mStates[index];
+    }
+
+    public int getStateCount() {
+        return mStates.length;
+    }
+}
@@ -33,15 +33,45 @@ public final class DFAValidator
      */
     DFAState mState;
 
+    /**
+     * Compiled transition table, if validator was constructed for a
+     * specific DTD subset (see {@link DTDElementIndex}); null for
+     * "template" instances.
+     *
+     * @since 7.3
+     */
+    final DFATable mTable;
+
+    /**
+     * Index of the current state within {@link #mTable}, if one used.
+     *
+     * @since 7.3
+     */
+    int mStateIndex;
+
     public DFAValidator(DFAState initialState) {
         mState = initialState;
+        mTable = null;
+    }
+
+    DFAValidator(DFATable table) {
+        mTable = table;
+        mStateIndex = 0;
+        mState = table.getState(0);
     }
 
     @Override
     public StructValidator newInstance() {
+        if (mTable != null) {
+            return new DFAValidator(mTable);
+        }
         return new DFAValidator(mState);
     }
 
+    DFAState getInitialState() {
+        return mState;
+    }
+
     @Override
     public String tryToValidate(PrefixedName elemName)
     {
@@ -49,21 +79,28 @@ public final class DFAValidator
         DFAState next = mState.findNext(elemName);
 
         if (next == null) {
-            // Nope; let's show what we'd have expected instead...
-            TreeSet<PrefixedName> names = mState.getNextNames();
-            if (names.size() == 0) { // expected end tag?
-                return "Expected $END";
-            }
-
-            // Either end tag, or another tag?
-            if (mState.isAcceptingState()) {
-                return "Expected <"+StringUtil.concatEntries(names, ">, <", null)+"> or $END";
-            }
-            return "Expected <"+StringUtil.concatEntries(names,
-                                                         ">, <", "> or <")+">";
+            return buildErrorMsg();
         }
 
         mState = next;
+        if (mTable != null) {
+            mStateIndex = next.getIndex();
+        }
+        return null;
+    }
+
+    @Override
+    public String tryToValidate(int elemId, PrefixedName elemName)
+    {
+        if (mTable == null) {
+            return tryToValidate(elemName);
+        }
+        int next = mTable.findNext(mStateIndex, elemId);
+        if (next < 0) {
+            return buildErrorMsg();
+        }
+        mStateIndex = next;
+        mState = mTable.getState(next);
         return null;
     }
 
@@ -77,4 +114,20 @@ public final class DFAValidator
         return "Expected <"+StringUtil.concatEntries(names,
                                                      ">, <", "> or <")+">";
     }
+
+    private String buildErrorMsg()
+    {
+        // Let's show what we'd have expected instead...
+        TreeSet<PrefixedName> names = mState.getNextNames();
+        if (names.size() == 0) { // expected end tag?
+            return "Expected $END";
+        }
+
+        // Either end tag, or another tag?
+        if (mState.isAcceptingState()) {
+            return "Expected <"+StringUtil.concatEntries(names, ">, <", null)+"> or $END";
+        }
+        return "Expected <"+StringUtil.concatEntries(names,
+                                                     ">, <", "> or <")+">";
+    }
 }
@@ -0,0 +1,198 @@
+/* Woodstox XML processor
+ *
+ * Copyright (c) 2004- Tatu Saloranta, tatu.saloranta@iki.fi
+ *
+ * Licensed under the License specified in file LICENSE, included with
+ * the source code.
+ * You may not use this file except in compliance with the License.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ctc.wstx.dtd;
+
+import java.util.*;
+
+import com.ctc.wstx.util.PrefixedName;
+
+/**
+ * Container for element definitions of a (complete) DTD subset, in which
+ * each element has been assigned a small integer id. Ids are used by
+ * validators to index element definitions and compiled content model
+ * transition tables ({@link DFATable}) directly, instead of having to use
+ * name-based Map lookups for each child element.
+ *<p>
+ * Instances are constructed once per DTD subset used for validation, and
+ * are shared by all validators created from that subset. Compiled
+ * transition tables are constructed lazily; since {@link DFATable}
+ * instances are immutable, racing to construct one is harmless.
+ * Other per-element information validators need for each element
+ * instance (attributes that are required or have default values,
+ * namespace declaration defaults) is precomputed into arrays at
+ * construction.
+ *
+ * @since 7.3
+ */
+final class DTDElementIndex
+{
+    /**
+     * Original element specification Map this index was built from.
+     */
+    private final Map<PrefixedName,DTDElement> mElemSpecs;
+
+    private final HashMap<PrefixedName,Integer> mIds;
+
+    private final DTDElement[] mElements;
+
+    /**
+     * Compiled transition tables for elements that use DFA-based
+     * content model validation; lazily constructed.
+     */
+    private final DFATable[] mTables;
+
+    /**
+     * Attributes with "special" properties (required, or with default
+     * values) for each element, in the same order as
+     * {@link DTDElement#getSpecialAttrs()}.
+     */
+    private final DTDAttribute[][] mSpecialAttrs;
+
+    /**
+     * Prefixes of namespace declarations with default values, for each
+     * element; null for elements that have none.
+     */
+    private final String[][] mNsDefaultPrefixes;
+
+    /**
+     * Namespace declaration pseudo-attributes matching prefixes in
+     * {@link #mNsDefaultPrefixes}.
+     */
+    private final DTDAttribute[][] mNsDefaultAttrs;
+
+    private final static DTDAttribute[] NO_ATTRS = new DTDAttribute[0];
+
+    private DTDElementIndex(Map<PrefixedName,DTDElement> elemSpecs,
+            HashMap<PrefixedName,Integer> ids, DTDElement[] elems)
+    {
+        mElemSpecs = elemSpecs;
+        mIds = ids;
+        mElements = elems;
+        final int len = elems.length;
+        mTables = new DFATable[len];
+        mSpecialAttrs = new DTDAttribute[len][];
+        mNsDefaultPrefixes = new String[len][];
+        mNsDefaultAttrs = new DTDAttribute[len][];
+        for (int i = 0; i < len; ++i) {
+            DTDElement elem = elems[i];
+            List<DTDAttribute> spec = elem.getSpecialAttrs();
+            mSpecialAttrs[i] = (spec == null || spec.isEmpty()) ? NO_ATTRS
+                    : spec.toArray(new DTDAttribute[spec.size()]);
+            HashMap<String,DTDAttribute> nsDefs = elem.getNsDefaults();
+            if (nsDefs != null && !nsDefs.isEmpty()) {
+                String[] prefixes = new String[nsDefs.size()];
+                DTDAttribute[] attrs = new DTDAttribute[prefixes.length];
+                int ix = 0;
+                for (Map.Entry<String,DTDAttribute> en : nsDefs.entrySet()) {
+                    prefixes[ix] = en.getKey();
+                    attrs[ix] = en.getValue();
+                    ++ix;
+                }
+                mNsDefaultPrefixes[i] = prefixes;
+                mNsDefaultAttrs[i] = attrs;
+            }
+        }
+    }
+
+    public static DTDElementIndex construct(Map<PrefixedName,DTDElement> elemSpecs)
+    {
+        if (elemSpecs == null || elemSpecs.isEmpty()) {
+            return new DTDElementIndex(Collections.<PrefixedName,DTDElement>emptyMap(),
+                    new HashMap<PrefixedName,Integer>(), new DTDElement[0]);
+        }
+        int count = elemSpecs.size();
+        HashMap<PrefixedName,Integer> ids = new HashMap<PrefixedName,Integer>(count + (count >> 1));
+        DTDElement[] elems = new DTDElement[count];
+        int ix = 0;
+        for (Map.Entry<PrefixedName,DTDElement> en : elemSpecs.entrySet()) {
+            elems[ix] = en.getValue();
+            ids.put(en.getKey(), Integer.valueOf(ix));
+            ++ix;
+        }
+        return new DTDElementIndex(elemSpecs, ids, elems);
+    }
+
+    /*
+    ///////////////////////////////////////////////////////////
+    // Public API
+    ///////////////////////////////////////////////////////////
+     */
+
+    public Map<PrefixedName,DTDElement> getElementMap() {
+        return mElemSpecs;
+    }
+
+    public int size() {
+        return mElements.length;
+    }
+
+    /**
+     * @return Id of the element with given name, if one declared (or
+     *   referenced by an ATTLIST declaration); -1 if not.
+     */
+    public int findId(PrefixedName name)
+    {
+        Integer id = mIds.get(name);
+        return (id == null) ? -1 : id.intValue();
+    }
+
+    public DTDElement getElement(int id) {
+        return mElements[id];
+    }
+
+    /**
+     * @return Attributes of the element with given id that are either
+     *   required or have default values (never null)
+     */
+    public DTDAttribute[] getSpecialAttrs(int id) {
+        return mSpecialAttrs[id];
+    }
+
+    /**
+     * @return Prefixes of namespace declarations with default values,
+     *   for the element with given id; null if none
+     */
+    public String[] getNsDefaultPrefixes(int id) {
+        return mNsDefaultPrefixes[id];
+    }
+
+    public DTDAttribute[] getNsDefaultAttrs(int id) {
+        return mNsDefaultAttrs[id];
+    }
+
+    /**
+     * Method for constructing content model validator for the element
+     * with given id; for DFA-based content models will use compiled
+     * transition tables.
+     *
+     * @return Validator to use, if element has a content model to validate;
+     *   null if not
+     */
+    public StructValidator createStructValidator(int id)
+    {
+        DTDElement elem = mElements[id];
+        StructValidator v = elem.mValidator;
+        if (v instanceof DFAValidator) {
+            DFATable table = mTables[id];
+            if (table == null) {
+                table = DFATable.construct(((DFAValidator) v).getInitialState(), mIds);
+                mTables[id] = table;
+            }
+            return new DFAValidator(table);
+        }
+        return (v == null) ? null : v.newInstance();
+    }
+}
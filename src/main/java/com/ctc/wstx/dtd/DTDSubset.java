@@ -119,4 +119,51 @@ public abstract class DTDSubset
     public abstract List<NotationDeclaration> getNotationList();
 
     public abstract HashMap<PrefixedName,DTDElement> getElementMap();
+
+    /*
+    //////////////////////////////////////////////////////
+    // Woodstox-specific API, vocabulary
+    //////////////////////////////////////////////////////
+     */
+
+    /**
+     * Method for collecting names declared by this subset: prefixes and
+     * local names of elements and attributes (as well as full prefixed
+     * names, as used in non-namespace-aware mode), and names of general
+     * entities. Mostly useful for constructing frozen symbol tables
+     * with {@link com.ctc.wstx.util.SymbolTable#createFrozen}.
+     *
+     * @since 7.3
+     */
+    public Set<String> getDeclaredNames()
+    {
+        Set<String> names = new LinkedHashSet<String>();
+        HashMap<PrefixedName,DTDElement> elems = getElementMap();
+        if (elems != null) {
+            for (DTDElement elem : elems.values()) {
+                addName(names, elem.getName());
+                HashMap<PrefixedName,DTDAttribute> attrs = elem.getAttributes();
+                if (attrs != null) {
+                    for (PrefixedName attrName : attrs.keySet()) {
+                        addName(names, attrName);
+                    }
+                }
+            }
+        }
+        HashMap<String,EntityDecl> ents = getGeneralEntityMap();
+        if (ents != null) {
+            names.addAll(ents.keySet());
+        }
+        return names;
+    }
+
+    private static void addName(Set<String> names, PrefixedName name)
+    {
+        String prefix = name.getPrefix();
+        names.add(name.getLocalName());
+        if (prefix != null && prefix.length() > 0) {
+            names.add(prefix);
+            names.add(name.toString());
+        }
+    }
 }
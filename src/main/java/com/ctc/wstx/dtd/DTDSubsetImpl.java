@@ -33,6 +33,13 @@ import com.ctc.wstx.util.PrefixedName;
 
 /**
  * The default implementation of {@link DTDSubset}
+ *<p>
+ * Instances are immutable once fully constructed (lazily created helper
+ * objects are either immutable, or harmless to create more than once),
+ * so the same compiled subset can be shared by any number of validators,
+ * and used concurrently from multiple threads. All per-document state
+ * (element stack, content model state, ID/IDREF tracking) is held by
+ * the validator instances created by {@link #createValidator}.
  */
 public final class DTDSubsetImpl
     extends DTDSubset
@@ -134,7 +141,7 @@ public final class DTDSubsetImpl
      * on whether platform, ie. JDK version, has insertion-ordered
      * Maps available), used by DTD event Objects.
      */
-    transient List<NotationDeclaration> mNotationList = null;
+    volatile transient List<NotationDeclaration> mNotationList = null;
 
     /**
      * Notation references made in this subset that had not been resolved
@@ -154,6 +161,15 @@ public final class DTDSubsetImpl
 
     final HashMap<PrefixedName,DTDElement> mElements;
 
+    /**
+     * Element definitions with ids assigned; lazily constructed when
+     * the first validator is created, and shared by all validators
+     * created from this subset.
+     *
+     * @since 7.3
+     */
+    volatile transient DTDElementIndex mElementIndex = null;
+
     /*
     //////////////////////////////////////////////////////
     // Life-cycle
@@ -307,8 +323,14 @@ public final class DTDSubsetImpl
         /* Combos are not cachable, and because of that, there's no point
          * in storing any PE info either.
          */
-        return constructInstance(false, ge1, null, null, null, n1, e1,
+        DTDSubsetImpl combo = constructInstance(false, ge1, null, null, null, n1, e1,
                                  mFullyValidating);
+        // If element definitions come as-is from the (possibly cached)
+        // external subset, can share its element index (and compiled tables)
+        if (e1 == e2 && (extSubset instanceof DTDSubsetImpl)) {
+            combo.mElementIndex = ((DTDSubsetImpl) extSubset).getElementIndex();
+        }
+        return combo;
     }
 
     /*
@@ -323,13 +345,26 @@ public final class DTDSubsetImpl
     {
         if (mFullyValidating) {
             return new DTDValidator(this, ctxt, mHasNsDefaults,
-                                    getElementMap(), getGeneralEntityMap());
+                                    getElementIndex(), getGeneralEntityMap());
         }
         return new DTDTypingNonValidator(this, ctxt, mHasNsDefaults,
-                                         getElementMap(), getGeneralEntityMap());
+                                         getElementIndex(), getGeneralEntityMap());
 
     }
 
+    /**
+     * @since 7.3
+     */
+    DTDElementIndex getElementIndex()
+    {
+        DTDElementIndex ix = mElementIndex;
+        if (ix == null) {
+            // Construction is idempotent, so no need to synchronize
+            mElementIndex = ix = DTDElementIndex.construct(mElements);
+        }
+        return ix;
+    }
+
     /*
     //////////////////////////////////////////////////////
     // DTDValidationSchema implementation
@@ -389,7 +424,7 @@ public final class DTDSubsetImpl
     }
 
     @Override
-    public synchronized List<NotationDeclaration> getNotationList()
+    public List<NotationDeclaration> getNotationList()
     {
         List<NotationDeclaration> l = mNotationList;
         if (l == null) {
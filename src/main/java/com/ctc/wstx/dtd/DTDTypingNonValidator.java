@@ -86,6 +86,15 @@ public class DTDTypingNonValidator
         super(schema, ctxt, hasNsDefaults, elemSpecs, genEntities);
     }
 
+    /**
+     * @since 7.3
+     */
+    DTDTypingNonValidator(DTDSubset schema, ValidationContext ctxt, boolean hasNsDefaults,
+            DTDElementIndex elemIndex, Map<String,EntityDecl> genEntities)
+    {
+        super(schema, ctxt, hasNsDefaults, elemIndex, genEntities);
+    }
+
     /**
      * @return False, since this is not a real validator
      */
@@ -120,8 +129,8 @@ public class DTDTypingNonValidator
         throws XMLStreamException
     {
         // Ok, can we find the element definition?
-        mTmpKey.reset(prefix, localName);
-        DTDElement elem = mElemSpecs.get(mTmpKey);
+        int elemId = findElementId(prefix, localName);
+        DTDElement elem = (elemId < 0) ? null : mElemIndex.getElement(elemId);
         // whether it's found or not, let's add a stack frame:
         int elemCount = mElemCount++;
         if (elemCount >= mElems.length) {
@@ -129,6 +138,7 @@ public class DTDTypingNonValidator
         }
 
         mElems[elemCount] = mCurrElem = elem;
+        mCurrElemId = elemId;
         mAttrCount = 0;
         mIdAttrIndex = -2; // -2 as a "don't know yet" marker
 
@@ -260,11 +270,11 @@ public class DTDTypingNonValidator
         
         if (mHasAttrDefaults) {
             BitSet specBits = mCurrDefaultAttrs;
-            int specCount = elem.getSpecialCount();
+            DTDAttribute[] specAttrs = mElemIndex.getSpecialAttrs(mCurrElemId);
+            int specCount = specAttrs.length;
             int ix = specBits.nextClearBit(0);
             while (ix < specCount) { // something amiss!
-                List<DTDAttribute> specAttrs = elem.getSpecialAttrs();
-                DTDAttribute attr = specAttrs.get(ix);
+                DTDAttribute attr = specAttrs[ix];
                 if (attr.hasDefaultValue()) { // no default for #REQUIRED...
                     doAddDefaultValue(attr);
                 }
@@ -107,6 +107,16 @@ public class DTDValidator
         mValidators = new StructValidator[DEFAULT_STACK_SIZE];
     }
 
+    /**
+     * @since 7.3
+     */
+    DTDValidator(DTDSubset schema, ValidationContext ctxt, boolean hasNsDefaults,
+            DTDElementIndex elemIndex, Map<String,EntityDecl> genEntities)
+    {
+        super(schema, ctxt, hasNsDefaults, elemIndex, genEntities);
+        mValidators = new StructValidator[DEFAULT_STACK_SIZE];
+    }
+
     @Override
     public final boolean reallyValidating() { return true; }
 
@@ -131,9 +141,8 @@ public class DTDValidator
         /* Ok, need to find the element definition; if not found (or
          * only implicitly defined), need to throw the exception.
          */
-        mTmpKey.reset(prefix, localName);
-
-        DTDElement elem = mElemSpecs.get(mTmpKey);
+        final int elemId = findElementId(prefix, localName);
+        DTDElement elem = (elemId < 0) ? null : mElemIndex.getElement(elemId);
 
         /* Let's add the entry in (even if it's a null); this is necessary
          * to keep things in-sync if allowing graceful handling of validity
@@ -145,6 +154,7 @@ public class DTDValidator
             mValidators = (StructValidator[]) DataUtil.growArrayBy50Pct(mValidators);
         }
         mElems[elemCount] = mCurrElem = elem;
+        mCurrElemId = elemId;
         if (elem == null || !elem.isDefined()) {
             reportValidationProblem(ErrorConsts.ERR_VLD_UNKNOWN_ELEM, mTmpKey.toString());
         }
@@ -153,7 +163,7 @@ public class DTDValidator
         StructValidator pv = (elemCount > 0) ? mValidators[elemCount-1] : null;
 
         if (pv != null && elem != null) {
-            String msg = pv.tryToValidate(elem.getName());
+            String msg = pv.tryToValidate(elemId, elem.getName());
             if (msg != null) {
                 int ix = msg.indexOf("$END");
                 String pname = mElems[elemCount-1].toString();
@@ -177,7 +187,7 @@ public class DTDValidator
             mCurrHasAnyFixed = false;
             mCurrSpecialAttrs = null;
         } else {
-            mValidators[elemCount] = elem.getValidator();
+            mValidators[elemCount] = mElemIndex.createStructValidator(elemId);
             mCurrAttrDefs = elem.getAttributes();
             if (mCurrAttrDefs == null) {
                 mCurrAttrDefs = NO_ATTRS;
@@ -296,11 +306,11 @@ public class DTDValidator
         // Any special attributes missing?
         if (mCurrSpecialAttrs != null) {
             BitSet specBits = mCurrSpecialAttrs;
-            int specCount = elem.getSpecialCount();
+            DTDAttribute[] specAttrs = mElemIndex.getSpecialAttrs(mCurrElemId);
+            int specCount = specAttrs.length;
             int ix = specBits.nextClearBit(0);
             while (ix < specCount) { // something amiss!
-                List<DTDAttribute> specAttrs = elem.getSpecialAttrs();
-                DTDAttribute attr = specAttrs.get(ix);
+                DTDAttribute attr = specAttrs[ix];
 
                 /* [WSTX-155]: Problems if reportValidationProblem returns
                  *   ok (which happens if a reporter handles it). So what
@@ -39,6 +39,10 @@ import com.ctc.wstx.util.PrefixedName;
  * one that only adds type information and default values, with no actual
  * validation -- common functionality was refactored into this base
  * class.
+ *<p>
+ * Validator instances are not thread-safe, and are only to be used for
+ * validating a single document; but the DTD subset and element index they
+ * are created from are shared, read-only, between all such validators.
  */
 public abstract class DTDValidatorBase
     extends XMLValidator
@@ -98,6 +102,14 @@ public abstract class DTDValidatorBase
      */
     final Map<PrefixedName,DTDElement> mElemSpecs;
 
+    /**
+     * Element definitions with ids assigned, for faster access to
+     * definitions and content model validators.
+     *
+     * @since 7.3
+     */
+    final DTDElementIndex mElemIndex;
+
     /**
      * General entities defined in DTD subsets; needed for validating
      * ENTITY/ENTITIES attributes.
@@ -126,6 +138,14 @@ public abstract class DTDValidatorBase
      */
     protected DTDElement mCurrElem = null;
 
+    /**
+     * Id of {@link #mCurrElem} within {@link #mElemIndex}, if any;
+     * -1 if no definition found for the current element.
+     *
+     * @since 7.3
+     */
+    protected int mCurrElemId = -1;
+
     /**
      * Stack of element definitions matching the current active element stack.
      * Instances are elements definitions read from DTD.
@@ -172,6 +192,14 @@ public abstract class DTDValidatorBase
 
     protected final transient PrefixedName mTmpKey = new PrefixedName(null, null);
 
+    // Simple 1-slot cache for element id lookups: most commonly same
+    // element is looked up via {@link #mayHaveNsDefaults} and
+    // {@code validateElementStart}, and sibling elements often repeat
+
+    private String mLastLookupPrefix, mLastLookupLocalName;
+
+    private int mLastLookupId = -1;
+
     /**
      * Temporary buffer attribute instances can share for validation
      * purposes
@@ -231,15 +259,21 @@ public abstract class DTDValidatorBase
 
     public DTDValidatorBase(DTDSubset schema, ValidationContext ctxt, boolean hasNsDefaults,
                             Map<PrefixedName,DTDElement> elemSpecs, Map<String,EntityDecl> genEntities)
+    {
+        this(schema, ctxt, hasNsDefaults, DTDElementIndex.construct(elemSpecs), genEntities);
+    }
+
+    /**
+     * @since 7.3
+     */
+    DTDValidatorBase(DTDSubset schema, ValidationContext ctxt, boolean hasNsDefaults,
+            DTDElementIndex elemIndex, Map<String,EntityDecl> genEntities)
     {
         mSchema = schema;
         mContext = ctxt;
         mHasNsDefaults = hasNsDefaults;
-        if (elemSpecs == null || elemSpecs.size() == 0) {
-            mElemSpecs = Collections.emptyMap();
-        } else {
-            mElemSpecs = elemSpecs;
-        }
+        mElemIndex = elemIndex;
+        mElemSpecs = elemIndex.getElementMap();
         mGeneralEntities = genEntities;
         // By default, let's assume attrs are to be normalized (fully xml compliant)
         mNormAttrs = true;
@@ -426,9 +460,10 @@ public abstract class DTDValidatorBase
     @Override
     public boolean mayHaveNsDefaults(String elemPrefix, String elemLN)
     {
-        mTmpKey.reset(elemPrefix, elemLN);
-        DTDElement elem = mElemSpecs.get(mTmpKey);
+        int id = findElementId(elemPrefix, elemLN);
+        DTDElement elem = (id < 0) ? null : mElemIndex.getElement(id);
         mCurrElem = elem;
+        mCurrElemId = id;
         return (elem != null) && elem.hasNsDefaults();
     }
 
@@ -437,19 +472,47 @@ public abstract class DTDValidatorBase
         throws XMLStreamException
     {
         // We only get called if mCurrElem != null, and has defaults
-        HashMap<String,DTDAttribute> m = mCurrElem.getNsDefaults();
-        if (m != null) {
-        	for (Map.Entry<String,DTDAttribute> me : m.entrySet()) {
-                String prefix = me.getKey();
+        String[] prefixes = mElemIndex.getNsDefaultPrefixes(mCurrElemId);
+        if (prefixes != null) {
+            DTDAttribute[] attrs = mElemIndex.getNsDefaultAttrs(mCurrElemId);
+            for (int i = 0, len = prefixes.length; i < len; ++i) {
+                String prefix = prefixes[i];
                 if (!nsStack.isPrefixLocallyDeclared(prefix)) {
-                    DTDAttribute attr = me.getValue();
-                    String uri = attr.getDefaultValue(mContext, this);
+                    String uri = attrs[i].getDefaultValue(mContext, this);
                     nsStack.addNsBinding(prefix, uri);
                 }
             }
         }
     }
 
+    /*
+    ///////////////////////////////////////
+    // Internal methods, element lookup
+    ///////////////////////////////////////
+    */
+
+    /**
+     * Method for finding id of the element with given name, if one
+     * declared. Note that as a side effect {@link #mTmpKey} is always
+     * set to the name, to allow for error reporting.
+     *
+     * @return Id of the element definition, if one found; -1 if not
+     */
+    protected final int findElementId(String prefix, String localName)
+    {
+        mTmpKey.reset(prefix, localName);
+        // Names are canonicalized, so identity comparison suffices
+        if (localName == mLastLookupLocalName && prefix == mLastLookupPrefix
+                && localName != null) {
+            return mLastLookupId;
+        }
+        int id = mElemIndex.findId(mTmpKey);
+        mLastLookupPrefix = prefix;
+        mLastLookupLocalName = localName;
+        mLastLookupId = id;
+        return id;
+    }
+
     /*
     ///////////////////////////////////////
     // Package methods, accessors
@@ -38,6 +38,18 @@ public abstract class StructValidator
      */
     public abstract String tryToValidate(PrefixedName elemName);
 
+    /**
+     * Alternative to {@link #tryToValidate(PrefixedName)} that is called
+     * when the id of the element (as assigned by {@link DTDElementIndex})
+     * is known, allowing for table-based lookups. Default implementation
+     * simply calls {@link #tryToValidate(PrefixedName)}.
+     *
+     * @since 7.3
+     */
+    public String tryToValidate(int elemId, PrefixedName elemName) {
+        return tryToValidate(elemName);
+    }
+
     /**
      * Method called when the end element of the scope this validator
      * validates is encountered. It should make sure that the content
@@ -133,6 +133,16 @@ public abstract class EntityDecl
 
     public abstract boolean isParsed();
 
+    /**
+     * @return True, if the replacement text of the entity is plain
+     *   character data (no markup, references or white space that would
+     *   need normalization), and can thus be copied as is without
+     *   parsing; false otherwise
+     *
+     * @since 7.3
+     */
+    public boolean isSimpleText() { return false; }
+
     // // // Factory methods
 
     /**
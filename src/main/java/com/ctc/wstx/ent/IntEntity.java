@@ -28,6 +28,13 @@ public class IntEntity
      */
     final char[] mRepl;
 
+    /**
+     * Whether replacement text is plain character data that can be
+     * copied as is, without having to be parsed; determined when
+     * the entity is declared.
+     */
+    final boolean mSimpleText;
+
     String mReplText = null;
 
     public IntEntity(Location loc, String name, URL ctxt,
@@ -36,6 +43,7 @@ public class IntEntity
         super(loc, name, ctxt);
         mRepl = repl;
         mContentLocation = defLoc;
+        mSimpleText = isSimpleText(repl);
     }
 
     public static IntEntity create(String id, String repl)
@@ -125,6 +133,9 @@ public class IntEntity
     
     @Override
     public boolean isParsed() { return true; }
+
+    @Override
+    public boolean isSimpleText() { return mSimpleText; }
     
     @Override
     public WstxInputSource expand(WstxInputSource parent,
@@ -139,5 +150,32 @@ public class IntEntity
             //(parent, mName, mRepl, 0, mRepl.length, mContentLocation, getSource());
             (parent, mName, mRepl, 0, mRepl.length, mContentLocation, null);
     }
-}
 
+    /*
+    ///////////////////////////////////////////
+    // Internal methods
+    ///////////////////////////////////////////
+     */
+
+    /**
+     * Replacement text is simple if it contains no markup or references,
+     * nor linefeeds or tabs (which would need to be normalized within
+     * attribute values), nor the "]]>" sequence (not allowed in
+     * text content).
+     */
+    private static boolean isSimpleText(char[] repl)
+    {
+        for (int i = 0, len = repl.length; i < len; ++i) {
+            char c = repl[i];
+            if (c <= '>') {
+                if (c == '<' || c == '&' || c < ' ') {
+                    return false;
+                }
+                if (c == '>' && i >= 2 && repl[i-1] == ']' && repl[i-2] == ']') {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+}
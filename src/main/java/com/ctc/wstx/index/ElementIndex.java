@@ -0,0 +1,308 @@
+/* Woodstox XML processor
+ *
+ * Copyright (c) 2004- Tatu Saloranta, tatu.saloranta@iki.fi
+ *
+ * Licensed under the License specified in file LICENSE, included with
+ * the source code.
+ * You may not use this file except in compliance with the License.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ctc.wstx.index;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * Index of selected elements of an XML document, built using
+ * {@link ElementIndexer}: contains byte offsets of start and end of each
+ * element, along with namespace bindings it inherits from its ancestors,
+ * so that elements can be read directly (see
+ * {@link ElementIndexer#createReader}).
+ *<p>
+ * If the document has a DOCTYPE declaration, its location is stored as
+ * well, so that declarations (entities, default attribute values) can
+ * be applied when reading indexed elements.
+ *<p>
+ * Index can be written in a compact binary format using {@link #writeTo},
+ * and read back using {@link #readFrom}. Since elements usually share
+ * inherited namespace bindings, each distinct set of bindings is only
+ * stored once.
+ *<p>
+ * Instances are immutable.
+ *
+ * @since 7.3
+ */
+public final class ElementIndex
+{
+    private final static int MAGIC = 0x57584958; // "WXIX"
+
+    private final static int FORMAT_VERSION = 2;
+
+    private final static String[] NO_BINDINGS = new String[0];
+
+    private final String mEncoding;
+
+    private final Entry[] mEntries;
+
+    /**
+     * Byte offset of the DOCTYPE declaration of the document, if any;
+     * -1 if document has no DOCTYPE declaration.
+     */
+    private final long mDoctypeStart;
+
+    private final long mDoctypeEnd;
+
+    ElementIndex(String encoding, Entry[] entries, long doctypeStart, long doctypeEnd)
+    {
+        mEncoding = encoding;
+        mEntries = entries;
+        mDoctypeStart = doctypeStart;
+        mDoctypeEnd = doctypeEnd;
+    }
+
+    /*
+    ///////////////////////////////////////////////////////////
+    // Public API
+    ///////////////////////////////////////////////////////////
+     */
+
+    /**
+     * @return Name of the encoding of the indexed document
+     */
+    public String getEncoding() {
+        return mEncoding;
+    }
+
+    public int size() {
+        return mEntries.length;
+    }
+
+    public Entry getEntry(int index) {
+        return mEntries[index];
+    }
+
+    /**
+     * @return True if the indexed document has a DOCTYPE declaration
+     */
+    public boolean hasDoctype() {
+        return mDoctypeStart >= 0L;
+    }
+
+    /**
+     * @return Byte offset of the DOCTYPE declaration, if document has
+     *   one; -1 if not
+     */
+    public long getDoctypeStartOffset() {
+        return mDoctypeStart;
+    }
+
+    /**
+     * @return Byte offset right after the DOCTYPE declaration, if
+     *   document has one; -1 if not
+     */
+    public long getDoctypeEndOffset() {
+        return mDoctypeEnd;
+    }
+
+    /**
+     * Method for writing contents of this index to given stream, in
+     * binary format that {@link #readFrom} can read. Stream is not
+     * closed.
+     */
+    public void writeTo(OutputStream out) throws IOException
+    {
+        DataOutputStream dout = new DataOutputStream(new BufferedOutputStream(out));
+        dout.writeInt(MAGIC);
+        dout.writeByte(FORMAT_VERSION);
+        dout.writeUTF(mEncoding);
+        // DOCTYPE location: 0 to indicate there is none
+        if (mDoctypeStart < 0L) {
+            writeVLong(dout, 0L);
+        } else {
+            writeVLong(dout, mDoctypeStart + 1L);
+            writeVLong(dout, mDoctypeEnd - mDoctypeStart);
+        }
+
+        // First distinct namespace binding sets
+        Map<List<String>,Integer> sets = new HashMap<List<String>,Integer>();
+        List<String[]> setList = new ArrayList<String[]>();
+        int[] setIndexes = new int[mEntries.length];
+        for (int i = 0; i < mEntries.length; ++i) {
+            String[] bindings = mEntries[i].mNsBindings;
+            List<String> key = Arrays.asList(bindings);
+            Integer ix = sets.get(key);
+            if (ix == null) {
+                ix = Integer.valueOf(setList.size());
+                sets.put(key, ix);
+                setList.add(bindings);
+            }
+            setIndexes[i] = ix.intValue();
+        }
+        writeVInt(dout, setList.size());
+        for (String[] bindings : setList) {
+            writeVInt(dout, bindings.length >> 1);
+            for (int i = 0; i < bindings.length; ++i) {
+                // null prefix (default namespace) written as empty String
+                String str = bindings[i];
+                dout.writeUTF((str == null) ? "" : str);
+            }
+        }
+
+        // Then entries; start offsets delta-encoded as they are ascending
+        writeVInt(dout, mEntries.length);
+        long prevStart = 0L;
+        for (int i = 0; i < mEntries.length; ++i) {
+            Entry e = mEntries[i];
+            writeVLong(dout, e.mStartOffset - prevStart);
+            writeVLong(dout, e.mEndOffset - e.mStartOffset);
+            writeVInt(dout, e.mDepth);
+            writeVInt(dout, setIndexes[i]);
+            prevStart = e.mStartOffset;
+        }
+        dout.flush();
+    }
+
+    /**
+     * Method for reading an index written using {@link #writeTo}.
+     * Stream is not closed.
+     */
+    public static ElementIndex readFrom(InputStream in) throws IOException
+    {
+        DataInputStream din = new DataInputStream(new BufferedInputStream(in));
+        if (din.readInt() != MAGIC) {
+            throw new IOException("Invalid element index: unrecognized signature");
+        }
+        int version = din.readByte();
+        if (version != FORMAT_VERSION) {
+            throw new IOException("Unsupported element index format version "+version);
+        }
+        String encoding = din.readUTF();
+        long doctypeStart = readVLong(din) - 1L;
+        long doctypeEnd = (doctypeStart < 0L) ? -1L : (doctypeStart + readVLong(din));
+
+        String[][] sets = new String[readVInt(din)][];
+        for (int i = 0; i < sets.length; ++i) {
+            int count = readVInt(din) << 1;
+            String[] bindings = (count == 0) ? NO_BINDINGS : new String[count];
+            for (int j = 0; j < count; ++j) {
+                String str = din.readUTF();
+                bindings[j] = ((j & 1) == 0 && str.length() == 0) ? null : str;
+            }
+            sets[i] = bindings;
+        }
+        Entry[] entries = new Entry[readVInt(din)];
+        long start = 0L;
+        for (int i = 0; i < entries.length; ++i) {
+            start += readVLong(din);
+            long end = start + readVLong(din);
+            int depth = readVInt(din);
+            int setIndex = readVInt(din);
+            if (setIndex >= sets.length) {
+                throw new IOException("Invalid element index: namespace set index "+setIndex+" out of range");
+            }
+            entries[i] = new Entry(start, end, depth, sets[setIndex]);
+        }
+        return new ElementIndex(encoding, entries, doctypeStart, doctypeEnd);
+    }
+
+    /*
+    ///////////////////////////////////////////////////////////
+    // Internal methods
+    ///////////////////////////////////////////////////////////
+     */
+
+    private static void writeVInt(DataOutput out, int value) throws IOException {
+        writeVLong(out, value);
+    }
+
+    private static void writeVLong(DataOutput out, long value) throws IOException
+    {
+        while ((value & ~0x7FL) != 0L) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    private static int readVInt(DataInput in) throws IOException
+    {
+        long l = readVLong(in);
+        if (l > Integer.MAX_VALUE) {
+            throw new IOException("Invalid element index: value "+l+" out of range");
+        }
+        return (int) l;
+    }
+
+    private static long readVLong(DataInput in) throws IOException
+    {
+        long value = 0L;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Invalid element index: malformed variable-length number");
+    }
+
+    /*
+    ///////////////////////////////////////////////////////////
+    // Helper classes
+    ///////////////////////////////////////////////////////////
+     */
+
+    /**
+     * Information about a single indexed element.
+     */
+    public final static class Entry
+    {
+        final long mStartOffset;
+        final long mEndOffset;
+        final int mDepth;
+        final String[] mNsBindings;
+
+        Entry(long start, long end, int depth, String[] nsBindings)
+        {
+            mStartOffset = start;
+            mEndOffset = end;
+            mDepth = depth;
+            mNsBindings = nsBindings;
+        }
+
+        /**
+         * @return Byte offset of the start tag of the element
+         */
+        public long getStartOffset() { return mStartOffset; }
+
+        /**
+         * @return Byte offset right after the end tag of the element
+         */
+        public long getEndOffset() { return mEndOffset; }
+
+        /**
+         * @return Depth of the element in the document (1 for the root)
+         */
+        public int getDepth() { return mDepth; }
+
+        /**
+         * @return Number of namespace bindings element inherits from its
+         *   ancestors
+         */
+        public int getNsBindingCount() { return mNsBindings.length >> 1; }
+
+        /**
+         * @return Prefix of the specified inherited namespace binding;
+         *   null for the default namespace
+         */
+        public String getNsPrefix(int index) { return mNsBindings[index << 1]; }
+
+        public String getNsURI(int index) { return mNsBindings[(index << 1) + 1]; }
+    }
+}
@@ -0,0 +1,333 @@
+/* Woodstox XML processor
+ *
+ * Copyright (c) 2004- Tatu Saloranta, tatu.saloranta@iki.fi
+ *
+ * Licensed under the License specified in file LICENSE, included with
+ * the source code.
+ * You may not use this file except in compliance with the License.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ctc.wstx.index;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+import javax.xml.XMLConstants;
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+
+import org.codehaus.stax2.XMLStreamReader2;
+
+import com.ctc.wstx.api.ReaderConfig;
+import com.ctc.wstx.api.WstxInputProperties;
+import com.ctc.wstx.exc.WstxIOException;
+import com.ctc.wstx.io.ReaderBootstrapper;
+import com.ctc.wstx.io.SystemId;
+import com.ctc.wstx.sr.StreamReaderImpl;
+import com.ctc.wstx.stax.WstxInputFactory;
+
+/**
+ * Class used for building {@link ElementIndex}es for XML documents
+ * stored in files, by streaming through a document once; and for
+ * constructing stream readers for reading indexed elements directly,
+ * without having to parse the document up to the element.
+ *<p>
+ * Stream readers only keep track of character offsets, so byte offsets
+ * need to be calculated from the characters read. This is only
+ * supported for UTF-8, UTF-16BE, UTF-16LE and single-byte encodings;
+ * encoding needs to be specified by the caller.
+ *<p>
+ * If the document has a DOCTYPE declaration, it is read along with each
+ * indexed element, so that entities and default attribute values declared
+ * in the DTD are available; but this also means that the DTD (including
+ * the external subset, if any) is processed for each reader. DTD
+ * validation should not be enabled, since indexed elements are read as
+ * if they were the root element of the document.
+ *<p>
+ * Instances are thread-safe as long as the input factory passed is
+ * not reconfigured.
+ *
+ * @since 7.3
+ */
+public class ElementIndexer
+{
+    private final static String[] NO_BINDINGS = new String[0];
+
+    protected final WstxInputFactory mFactory;
+
+    public ElementIndexer(WstxInputFactory f)
+    {
+        mFactory = f;
+    }
+
+    /*
+    ///////////////////////////////////////////////////////////
+    // Public API
+    ///////////////////////////////////////////////////////////
+     */
+
+    /**
+     * Method for building index for all elements with given name
+     * in given document. Elements may be nested.
+     *
+     * @param cs Encoding of the document
+     * @param elemName Name of elements to index; namespace URI has to
+     *   match as well (empty String for "no namespace")
+     */
+    public ElementIndex buildIndex(File file, Charset cs, QName elemName)
+        throws IOException, XMLStreamException
+    {
+        final int charWidth = OffsetTrackingReader.charWidthFor(cs);
+        final String localName = elemName.getLocalPart();
+        final String nsURI = elemName.getNamespaceURI();
+
+        OffsetTrackingReader r = new OffsetTrackingReader(new InputStreamReader(new FileInputStream(file),
+                cs.newDecoder()), charWidth);
+        List<ElementIndex.Entry> entries = new ArrayList<ElementIndex.Entry>();
+        long doctypeStart = -1L;
+        long doctypeEnd = -1L;
+        try {
+            ReaderConfig cfg = mFactory.createPrivateConfig();
+            SystemId sysId = SystemId.construct(file.toURI().toURL());
+            StreamReaderImpl sr = (StreamReaderImpl) mFactory.createSR(cfg, sysId,
+                    ReaderBootstrapper.getInstance(null, sysId, r, cs.name()), false, false);
+
+            // Elements may nest, need to keep track of open matches
+            int[] openDepths = new int[8];
+            int[] openIndexes = new int[8];
+            long[] openStarts = new long[8];
+            String[][] openBindings = new String[8][];
+            int openCount = 0;
+            String[] prevBindings = NO_BINDINGS;
+
+            while (sr.hasNext()) {
+                int type = sr.next();
+                if (type == XMLStreamConstants.DTD) {
+                    // Need to keep DOCTYPE for readers, for entities and attribute defaults
+                    doctypeStart = r.byteOffsetFor(sr.getLocationInfo().getStartingCharOffset());
+                    doctypeEnd = r.byteOffsetFor(sr.getLocationInfo().getEndingCharOffset());
+                } else if (type == XMLStreamConstants.START_ELEMENT) {
+                    // Need to keep offset calculation up to date, for all elements
+                    long start = r.byteOffsetFor(sr.getLocationInfo().getStartingCharOffset());
+                    if (!localName.equals(sr.getLocalName())) {
+                        continue;
+                    }
+                    String uri = sr.getNamespaceURI();
+                    if (!nsURI.equals((uri == null) ? XMLConstants.NULL_NS_URI : uri)) {
+                        continue;
+                    }
+                    String[] bindings = findBindings(sr);
+                    if (Arrays.equals(bindings, prevBindings)) {
+                        bindings = prevBindings; // to share instances
+                    } else {
+                        prevBindings = bindings;
+                    }
+                    if (openCount == openDepths.length) {
+                        int newLen = openCount + openCount;
+                        openDepths = Arrays.copyOf(openDepths, newLen);
+                        openIndexes = Arrays.copyOf(openIndexes, newLen);
+                        openStarts = Arrays.copyOf(openStarts, newLen);
+                        openBindings = Arrays.copyOf(openBindings, newLen);
+                    }
+                    openDepths[openCount] = sr.getDepth();
+                    openIndexes[openCount] = entries.size();
+                    openStarts[openCount] = start;
+                    openBindings[openCount] = bindings;
+                    ++openCount;
+                    entries.add(null); // placeholder, to keep entries in document order
+                } else if (type == XMLStreamConstants.END_ELEMENT) {
+                    if (openCount > 0 && openDepths[openCount-1] == sr.getDepth()) {
+                        --openCount;
+                        long end = r.byteOffsetFor(sr.getLocationInfo().getEndingCharOffset());
+                        entries.set(openIndexes[openCount], new ElementIndex.Entry(openStarts[openCount],
+                                end, openDepths[openCount], openBindings[openCount]));
+                        openBindings[openCount] = null;
+                    }
+                }
+            }
+            sr.close();
+        } finally {
+            r.close();
+        }
+        return new ElementIndex(cs.name(), entries.toArray(new ElementIndex.Entry[entries.size()]),
+                doctypeStart, doctypeEnd);
+    }
+
+    /**
+     * Method for constructing a stream reader for reading specified
+     * indexed element from given file (which has to be the file index was
+     * built from). Reader will be positioned at the START_ELEMENT event
+     * of the element; and will return END_DOCUMENT after the matching
+     * END_ELEMENT. Namespace bindings the element inherits from its
+     * ancestors are in scope. If the document has a DOCTYPE declaration,
+     * it is read before the element (but DTD event is skipped), and
+     * location information also covers it.
+     *<p>
+     * Closing the reader will also close the underlying file.
+     */
+    public XMLStreamReader2 createReader(File file, ElementIndex index, int entryIndex)
+        throws XMLStreamException
+    {
+        ElementIndex.Entry entry = index.getEntry(entryIndex);
+        Reader r;
+        byte[] doctype = null;
+        try {
+            Charset cs = Charset.forName(index.getEncoding());
+            FileChannel ch = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+            try {
+                if (index.hasDoctype()) {
+                    doctype = readDoctype(ch, index);
+                }
+                ch.position(entry.getStartOffset());
+            } catch (IOException ioe) {
+                ch.close();
+                throw ioe;
+            }
+            InputStream in = new BoundedInputStream(Channels.newInputStream(ch),
+                    entry.getEndOffset() - entry.getStartOffset());
+            if (doctype != null) {
+                in = new SequenceInputStream(new ByteArrayInputStream(doctype), in);
+            }
+            r = new InputStreamReader(in, cs.newDecoder());
+        } catch (IOException ioe) {
+            throw new WstxIOException(ioe);
+        }
+
+        ReaderConfig cfg = mFactory.createPrivateConfig();
+        // With DOCTYPE, element needs to be parsed as the root element of a document
+        cfg.setInputParsingMode((doctype == null) ? WstxInputProperties.PARSING_MODE_FRAGMENT
+                : WstxInputProperties.PARSING_MODE_DOCUMENT);
+        SystemId sysId;
+        try {
+            sysId = SystemId.construct(file.toURI().toURL());
+        } catch (IOException ioe) {
+            throw new WstxIOException(ioe);
+        }
+        StreamReaderImpl sr = (StreamReaderImpl) mFactory.createSR(cfg, sysId,
+                ReaderBootstrapper.getInstance(null, sysId, r, null), false, true);
+        for (int i = 0, len = entry.getNsBindingCount(); i < len; ++i) {
+            sr.bindRootNamespace(entry.getNsPrefix(i), entry.getNsURI(i));
+        }
+        if (sr.next() == XMLStreamConstants.DTD) {
+            sr.nextTag();
+        }
+        return sr;
+    }
+
+    /*
+    ///////////////////////////////////////////////////////////
+    // Internal methods
+    ///////////////////////////////////////////////////////////
+     */
+
+    private static byte[] readDoctype(FileChannel ch, ElementIndex index)
+        throws IOException
+    {
+        long len = index.getDoctypeEndOffset() - index.getDoctypeStartOffset();
+        if (len > Integer.MAX_VALUE) {
+            throw new IOException("DOCTYPE declaration too long ("+len+" bytes) to read");
+        }
+        ByteBuffer bb = ByteBuffer.allocate((int) len);
+        long pos = index.getDoctypeStartOffset();
+        while (bb.hasRemaining()) {
+            int count = ch.read(bb, pos);
+            if (count < 0) {
+                throw new EOFException("Unexpected end of file when reading DOCTYPE declaration");
+            }
+            pos += count;
+        }
+        return bb.array();
+    }
+
+    /**
+     * @return Effective namespace bindings current element inherits;
+     *   no-namespace bindings are omitted, since they are the default
+     */
+    private static String[] findBindings(StreamReaderImpl sr)
+    {
+        String[] all = sr.getInputElementStack().getInheritedNsBindings();
+        if (all.length == 0) {
+            return NO_BINDINGS;
+        }
+        // Later bindings mask earlier ones with the same prefix
+        LinkedHashMap<String,String> effective = new LinkedHashMap<String,String>();
+        for (int i = 0; i < all.length; i += 2) {
+            String prefix = all[i];
+            effective.remove(prefix);
+            effective.put(prefix, all[i+1]);
+        }
+        ArrayList<String> result = new ArrayList<String>(effective.size() * 2);
+        for (Map.Entry<String,String> en : effective.entrySet()) {
+            String uri = en.getValue();
+            if (uri != null && uri.length() > 0) {
+                result.add(en.getKey());
+                result.add(uri);
+            }
+        }
+        return result.toArray(new String[result.size()]);
+    }
+
+    /**
+     * Simple wrapper that only allows reading of specified number of
+     * bytes from the underlying stream.
+     */
+    private final static class BoundedInputStream
+        extends InputStream
+    {
+        private final InputStream mIn;
+
+        private long mLeft;
+
+        BoundedInputStream(InputStream in, long length)
+        {
+            mIn = in;
+            mLeft = length;
+        }
+
+        @Override
+        public int read() throws IOException
+        {
+            if (mLeft <= 0L) {
+                return -1;
+            }
+            int b = mIn.read();
+            if (b >= 0) {
+                --mLeft;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException
+        {
+            if (mLeft <= 0L) {
+                return -1;
+            }
+            if (len > mLeft) {
+                len = (int) mLeft;
+            }
+            int count = mIn.read(b, off, len);
+            if (count > 0) {
+                mLeft -= count;
+            }
+            return count;
+        }
+
+        @Override
+        public void close() throws IOException {
+            mIn.close();
+        }
+    }
+}
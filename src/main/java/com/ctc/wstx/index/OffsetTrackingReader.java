@@ -0,0 +1,195 @@
+/* Woodstox XML processor
+ *
+ * Copyright (c) 2004- Tatu Saloranta, tatu.saloranta@iki.fi
+ *
+ * Licensed under the License specified in file LICENSE, included with
+ * the source code.
+ * You may not use this file except in compliance with the License.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ctc.wstx.index;
+
+import java.io.*;
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+
+import com.ctc.wstx.io.SingleByteCodec;
+
+/**
+ * Reader wrapper used during indexing, to translate character offsets
+ * reported by the stream reader into byte offsets of the underlying
+ * input. For fixed-width encodings this is simple multiplication; for
+ * UTF-8 the wrapper retains characters it has returned, until the
+ * caller has asked for offsets past them, and calculates encoded
+ * lengths of characters in between.
+ *<p>
+ * Offsets have to be requested in non-decreasing order.
+ *
+ * @since 7.3
+ */
+final class OffsetTrackingReader
+    extends Reader
+{
+    private final Reader mIn;
+
+    /**
+     * Number of bytes each character is encoded as, for fixed-width
+     * encodings; 0 for UTF-8
+     */
+    private final int mCharWidth;
+
+    /**
+     * Chunks of characters returned, but not yet passed by the cursor;
+     * only used for UTF-8
+     */
+    private final ArrayDeque<Chunk> mChunks = new ArrayDeque<Chunk>();
+
+    /**
+     * Total number of characters read so far
+     */
+    private long mCharsRead;
+
+    private long mCursorChar;
+
+    private long mCursorByte;
+
+    /**
+     * Character array of the last discarded chunk, to reuse
+     */
+    private char[] mSpareChars;
+
+    OffsetTrackingReader(Reader in, int charWidth)
+    {
+        mIn = in;
+        mCharWidth = charWidth;
+    }
+
+    /**
+     * @return Number of bytes each character of given charset is
+     *   encoded as; 0 for UTF-8
+     *
+     * @throws IllegalArgumentException If charset is not supported
+     */
+    static int charWidthFor(Charset cs)
+    {
+        String name = cs.name();
+        if ("UTF-8".equals(name)) {
+            return 0;
+        }
+        if ("UTF-16BE".equals(name) || "UTF-16LE".equals(name)) {
+            return 2;
+        }
+        if ("US-ASCII".equals(name) || "ISO-8859-1".equals(name)
+                || SingleByteCodec.forCharset(cs) != null) {
+            return 1;
+        }
+        throw new IllegalArgumentException("Encoding '"+name
+                +"' not supported for indexing: has to be UTF-8, UTF-16BE, UTF-16LE or a single-byte encoding");
+    }
+
+    /*
+    ///////////////////////////////////////////////////////////
+    // Reader implementation
+    ///////////////////////////////////////////////////////////
+     */
+
+    @Override
+    public int read(char[] cbuf, int off, int len) throws IOException
+    {
+        int count = mIn.read(cbuf, off, len);
+        if (count > 0) {
+            if (mCharWidth == 0) {
+                char[] chars = mSpareChars;
+                if (chars == null || chars.length < count) {
+                    chars = new char[Math.max(count, 4000)];
+                } else {
+                    mSpareChars = null;
+                }
+                System.arraycopy(cbuf, off, chars, 0, count);
+                mChunks.addLast(new Chunk(chars, count, mCharsRead));
+            }
+            mCharsRead += count;
+        }
+        return count;
+    }
+
+    @Override
+    public void close() throws IOException {
+        mChunks.clear();
+        mIn.close();
+    }
+
+    /*
+    ///////////////////////////////////////////////////////////
+    // Offset translation
+    ///////////////////////////////////////////////////////////
+     */
+
+    /**
+     * @param charOffset Character offset within input; has to be at
+     *   least as big as the offset passed in the previous call, and
+     *   no bigger than the number of characters read so far
+     *
+     * @return Byte offset matching given character offset
+     */
+    long byteOffsetFor(long charOffset)
+    {
+        if (mCharWidth > 0) {
+            return charOffset * mCharWidth;
+        }
+        if (charOffset < mCursorChar || charOffset > mCharsRead) {
+            throw new IllegalArgumentException("Illegal character offset "+charOffset
+                    +": has to be between "+mCursorChar+" and "+mCharsRead);
+        }
+        long bytes = mCursorByte;
+        long pos = mCursorChar;
+        while (pos < charOffset) {
+            Chunk chunk = mChunks.peekFirst();
+            int ix = (int) (pos - chunk.mStart);
+            if (ix >= chunk.mLength) {
+                mChunks.removeFirst();
+                mSpareChars = chunk.mChars;
+                continue;
+            }
+            final char[] chars = chunk.mChars;
+            final int end = (int) Math.min(chunk.mLength, charOffset - chunk.mStart);
+            pos += (end - ix);
+            for (; ix < end; ++ix) {
+                char c = chars[ix];
+                if (c < 0x80) {
+                    ++bytes;
+                } else if (c < 0x800) {
+                    bytes += 2;
+                } else if (c >= 0xD800 && c < 0xE000) {
+                    // surrogate pair: 4 bytes, count 2 for each part
+                    bytes += 2;
+                } else {
+                    bytes += 3;
+                }
+            }
+        }
+        mCursorChar = pos;
+        mCursorByte = bytes;
+        return bytes;
+    }
+
+    private final static class Chunk
+    {
+        final char[] mChars;
+        final int mLength;
+        final long mStart;
+
+        Chunk(char[] chars, int len, long start)
+        {
+            mChars = chars;
+            mLength = len;
+            mStart = start;
+        }
+    }
+}
@@ -2,6 +2,7 @@ package com.ctc.wstx.io;
 
 import java.io.IOException;
 import java.io.Reader;
+import java.io.Writer;
 
 import javax.xml.stream.XMLStreamException;
 
@@ -23,6 +24,14 @@ public final class BranchingReaderSource
 
     TextBuffer mBranchBuffer = null;
 
+    /**
+     * Alternative to {@link #mBranchBuffer}: Writer to copy branched
+     * content to, as is (without linefeed conversion).
+     *
+     * @since 7.3
+     */
+    Writer mBranchWriter = null;
+
     int mBranchStartOffset = 0;
 
     boolean mConvertLFs = false;
@@ -48,7 +57,7 @@ public final class BranchingReaderSource
         throws IOException, XMLStreamException
     {
         // Need to flush out branched content?
-        if (mBranchBuffer != null) {
+        if (mBranchBuffer != null || mBranchWriter != null) {
             if (mInputLast > mBranchStartOffset) {
                 appendBranched(mBranchStartOffset, mInputLast);
             }
@@ -62,7 +71,7 @@ public final class BranchingReaderSource
         throws IOException, XMLStreamException
     {
         // Existing data to output to branch?
-        if (mBranchBuffer != null) {
+        if (mBranchBuffer != null || mBranchWriter != null) {
             int ptr = reader.mInputPtr;
             int currAmount = mInputLast - ptr;
             if (currAmount > 0) {
@@ -98,12 +107,53 @@ public final class BranchingReaderSource
     {
         if (mBranchBuffer != null) {
             if (endOffset > mBranchStartOffset) {
-                appendBranched(mBranchStartOffset, endOffset);
+                appendToBuffer(mBranchStartOffset, endOffset);
             }
             // Let's also make sure no branching is done from this point on:
             mBranchBuffer = null;
         }
     }
+
+    /**
+     * Method for starting to copy all content read from this source,
+     * starting from given offset within current buffer, to given Writer.
+     * Content is copied exactly as is, without linefeed normalization.
+     *
+     * @since 7.3
+     */
+    public void startBranch(Writer w, int startOffset)
+    {
+        mBranchWriter = w;
+        mBranchStartOffset = startOffset;
+    }
+
+    /**
+     * Method for ending branch started with {@link #startBranch(Writer, int)}:
+     * copies remaining content up to given offset (exclusive).
+     *
+     * @since 7.3
+     */
+    public void endBranchToWriter(int endOffset)
+        throws IOException
+    {
+        Writer w = mBranchWriter;
+        if (w != null) {
+            mBranchWriter = null;
+            if (endOffset > mBranchStartOffset) {
+                w.write(mBuffer, mBranchStartOffset, endOffset-mBranchStartOffset);
+            }
+        }
+    }
+
+    /**
+     * Method for ending branch started with {@link #startBranch(Writer, int)}
+     * without copying any more content; used in error cases.
+     *
+     * @since 7.3
+     */
+    public void cancelBranchToWriter() {
+        mBranchWriter = null;
+    }
     
     /*
     //////////////////////////////////////////////////
@@ -111,7 +161,17 @@ public final class BranchingReaderSource
     //////////////////////////////////////////////////
     */
 
-    private void appendBranched(int startOffset, int pastEnd) {
+    private void appendBranched(int startOffset, int pastEnd)
+        throws IOException
+    {
+        if (mBranchWriter != null) {
+            mBranchWriter.write(mBuffer, startOffset, pastEnd-startOffset);
+        } else {
+            appendToBuffer(startOffset, pastEnd);
+        }
+    }
+
+    private void appendToBuffer(int startOffset, int pastEnd) {
         // Main tricky thing here is just replacing of linefeeds...
         if (mConvertLFs) {
             char[] inBuf = mBuffer;
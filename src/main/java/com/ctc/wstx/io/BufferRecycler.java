@@ -1,5 +1,10 @@
 package com.ctc.wstx.io;
 
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
 /**
  * This is a small utility class, whose main functionality is to allow
  * simple reuse of raw byte/char buffers. It is usually used through
@@ -24,6 +29,29 @@ public final class BufferRecycler
 
     private volatile byte[] mFullBBuffer = null;
 
+    /**
+     * Small set of decoders for encodings that have no dedicated Reader
+     * implementation; kept so that documents using the same legacy
+     * encoding need not construct a new decoder each time.
+     *
+     * @since 7.3
+     */
+    private final CharsetDecoder[] mDecoders = new CharsetDecoder[MAX_DECODERS];
+
+    private final static int MAX_DECODERS = 4;
+
+    /**
+     * Buffer used for compressed content (input for inflating, output
+     * for deflating), along with (de)compressor instances.
+     *
+     * @since 7.3
+     */
+    private volatile byte[] mCompressionBBuffer = null;
+
+    private Inflater mInflater = null;
+
+    private Deflater mDeflater = null;
+
     public BufferRecycler() { }
 
     // // // Char buffers:
@@ -105,4 +133,121 @@ public final class BufferRecycler
         mFullBBuffer = buffer;
 //System.err.println("DEBUG: Return BFull ("+buffer.length+"): "+buffer);
     }
+
+    // // Byte buffers for compressed content
+
+    /**
+     * @since 7.3
+     */
+    public synchronized byte[] getCompressionBBuffer(int minSize)
+    {
+        byte[] result = mCompressionBBuffer;
+        if (result != null && result.length >= minSize) {
+            mCompressionBBuffer = null;
+            return result;
+        }
+        return null;
+    }
+
+    /**
+     * @since 7.3
+     */
+    public synchronized void returnCompressionBBuffer(byte[] buffer)
+    {
+        mCompressionBBuffer = buffer;
+    }
+
+    // // // Compressors, decompressors
+
+    /**
+     * @return Inflater (configured for raw deflate data) if one available;
+     *   null if not. Inflater has been reset.
+     *
+     * @since 7.3
+     */
+    public synchronized Inflater getInflater()
+    {
+        Inflater result = mInflater;
+        mInflater = null;
+        return result;
+    }
+
+    /**
+     * @since 7.3
+     */
+    public synchronized void returnInflater(Inflater inf)
+    {
+        mInflater = inf;
+    }
+
+    /**
+     * @return Deflater (configured for raw deflate data, default
+     *   compression level) if one available; null if not.
+     *   Deflater has been reset.
+     *
+     * @since 7.3
+     */
+    public synchronized Deflater getDeflater()
+    {
+        Deflater result = mDeflater;
+        mDeflater = null;
+        return result;
+    }
+
+    /**
+     * @since 7.3
+     */
+    public synchronized void returnDeflater(Deflater def)
+    {
+        mDeflater = def;
+    }
+
+    // // // Charset decoders
+
+    /**
+     * @return Decoder for given charset, if one is available; null if not.
+     *   Decoder has not been reset, caller needs to do that.
+     *
+     * @since 7.3
+     */
+    public synchronized CharsetDecoder getDecoder(Charset cs)
+    {
+        for (int i = 0; i < MAX_DECODERS; ++i) {
+            CharsetDecoder dec = mDecoders[i];
+            if (dec != null && dec.charset().equals(cs)) {
+                mDecoders[i] = null;
+                return dec;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @since 7.3
+     */
+    public synchronized void returnDecoder(CharsetDecoder dec)
+    {
+        // Only keep one decoder per charset: replace one for the same
+        // charset, if any; otherwise use an empty slot, if there is one
+        final Charset cs = dec.charset();
+        int empty = -1;
+        for (int i = 0; i < MAX_DECODERS; ++i) {
+            CharsetDecoder curr = mDecoders[i];
+            if (curr == null) {
+                if (empty < 0) {
+                    empty = i;
+                }
+            } else if (curr.charset().equals(cs)) {
+                mDecoders[i] = dec;
+                return;
+            }
+        }
+        if (empty >= 0) {
+            mDecoders[empty] = dec;
+            return;
+        }
+        // If not, replace the oldest one
+        System.arraycopy(mDecoders, 1, mDecoders, 0, MAX_DECODERS-1);
+        mDecoders[MAX_DECODERS-1] = dec;
+    }
 }
@@ -0,0 +1,288 @@
+/* Woodstox XML processor
+ *
+ * Copyright (c) 2004- Tatu Saloranta, tatu.saloranta@iki.fi
+ *
+ * Licensed under the License specified in file LICENSE, included with
+ * the source code.
+ * You may not use this file except in compliance with the License.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ctc.wstx.io;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayDeque;
+
+/**
+ * Non-blocking output target for stream writers, to be used with
+ * {@link com.ctc.wstx.stax.WstxOutputFactory#createXMLStreamWriter(ByteBufferQueue, String)}:
+ * instead of writing to a blocking stream, encoded content is appended
+ * to a queue of (recycled) {@link ByteBuffer}s, from which the
+ * application can take them at its own pace, either one by one using
+ * {@link #poll} (and return them using {@link #release}), or by
+ * writing to a (non-blocking) channel using {@link #drainTo}.
+ *<p>
+ * Writes never block; instead, the queue reports back-pressure
+ * via {@link #isSaturated}, once amount of queued content reaches
+ * the high-water mark specified. Producers are expected to check this
+ * between writes, and stop producing output until the queue has been
+ * drained sufficiently.
+ *<p>
+ * Content is only made available to consumers when a buffer fills up,
+ * or when {@link #flush} is called (which happens when stream writer is
+ * flushed or closed).
+ *<p>
+ * Instances are not thread-safe: if producer and consumer run in
+ * different threads, access needs to be synchronized by the caller.
+ *
+ * @since 7.3
+ */
+public final class ByteBufferQueue
+    extends OutputStream
+{
+    public final static int DEFAULT_BUFFER_SIZE = 8000;
+
+    public final static int DEFAULT_HIGH_WATER_MARK = 64000;
+
+    /**
+     * Let's not retain more than this many released buffers for reuse
+     */
+    private final static int MAX_POOLED_BUFFERS = 16;
+
+    private final int mBufferSize;
+
+    private final int mHighWaterMark;
+
+    private final boolean mDirect;
+
+    /**
+     * Buffers filled and flipped, ready to be consumed
+     */
+    private final ArrayDeque<ByteBuffer> mReady = new ArrayDeque<ByteBuffer>();
+
+    /**
+     * Buffers released by the consumer, for reuse
+     */
+    private final ArrayDeque<ByteBuffer> mFree = new ArrayDeque<ByteBuffer>();
+
+    /**
+     * Buffer currently being filled, if any
+     */
+    private ByteBuffer mCurrent;
+
+    /**
+     * Number of bytes in buffers ready to be consumed
+     */
+    private long mReadyBytes;
+
+    private boolean mClosed;
+
+    public ByteBufferQueue() {
+        this(DEFAULT_BUFFER_SIZE, DEFAULT_HIGH_WATER_MARK, false);
+    }
+
+    /**
+     * @param bufferSize Size of individual buffers to allocate
+     * @param highWaterMark Number of queued bytes at which
+     *   {@link #isSaturated} starts returning true
+     * @param direct Whether to allocate direct ({@link ByteBuffer#allocateDirect})
+     *   or heap buffers
+     */
+    public ByteBufferQueue(int bufferSize, int highWaterMark, boolean direct)
+    {
+        if (bufferSize < 1) {
+            throw new IllegalArgumentException("Illegal buffer size ("+bufferSize+"): has to be positive");
+        }
+        mBufferSize = bufferSize;
+        mHighWaterMark = highWaterMark;
+        mDirect = direct;
+    }
+
+    /*
+    ///////////////////////////////////////////////////////////
+    // OutputStream implementation (producer side)
+    ///////////////////////////////////////////////////////////
+     */
+
+    @Override
+    public void write(int b) throws IOException
+    {
+        ByteBuffer buf = mCurrent;
+        if (buf == null || !buf.hasRemaining()) {
+            buf = nextBuffer();
+        }
+        buf.put((byte) b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException
+    {
+        while (len > 0) {
+            ByteBuffer buf = mCurrent;
+            if (buf == null || !buf.hasRemaining()) {
+                buf = nextBuffer();
+            }
+            int count = Math.min(len, buf.remaining());
+            buf.put(b, off, count);
+            off += count;
+            len -= count;
+        }
+    }
+
+    /**
+     * Makes all content written so far available to consumers.
+     */
+    @Override
+    public void flush()
+    {
+        ByteBuffer buf = mCurrent;
+        if (buf != null && buf.position() > 0) {
+            mCurrent = null;
+            enqueue(buf);
+        }
+    }
+
+    /**
+     * Flushes all content written, and marks queue as closed: no more
+     * content may be written, but queued content may still be consumed.
+     */
+    @Override
+    public void close()
+    {
+        if (!mClosed) {
+            flush();
+            mClosed = true;
+            // may have an empty buffer left; not needed any more
+            mCurrent = null;
+        }
+    }
+
+    /*
+    ///////////////////////////////////////////////////////////
+    // Public API, consumer side
+    ///////////////////////////////////////////////////////////
+     */
+
+    /**
+     * @return True if the amount of content queued (including content
+     *   not yet flushed) has reached the high-water mark, and producer
+     *   should wait until the queue has been drained
+     */
+    public boolean isSaturated() {
+        return getQueuedBytes() >= mHighWaterMark;
+    }
+
+    /**
+     * @return Number of bytes written but not yet consumed, including
+     *   content not yet flushed
+     */
+    public long getQueuedBytes() {
+        ByteBuffer buf = mCurrent;
+        return (buf == null) ? mReadyBytes : (mReadyBytes + buf.position());
+    }
+
+    /**
+     * @return True if there are flushed buffers to consume
+     */
+    public boolean hasReady() {
+        return !mReady.isEmpty();
+    }
+
+    /**
+     * @return True if the queue has been closed, and all content consumed
+     */
+    public boolean isFinished() {
+        return mClosed && mReady.isEmpty();
+    }
+
+    /**
+     * Method for taking the next buffer with flushed content off the
+     * queue. Buffer is ready to be read from (flipped); once content has
+     * been consumed, caller may pass it back via {@link #release} for
+     * reuse.
+     *
+     * @return Next buffer with content, if any; null if none
+     */
+    public ByteBuffer poll()
+    {
+        ByteBuffer buf = mReady.pollFirst();
+        if (buf != null) {
+            mReadyBytes -= buf.remaining();
+        }
+        return buf;
+    }
+
+    /**
+     * Method for returning a buffer obtained using {@link #poll} for
+     * reuse, once its content has been consumed.
+     */
+    public void release(ByteBuffer buf)
+    {
+        if (buf.capacity() == mBufferSize && buf.isDirect() == mDirect
+                && mFree.size() < MAX_POOLED_BUFFERS) {
+            buf.clear();
+            mFree.addLast(buf);
+        }
+    }
+
+    /**
+     * Method for writing as much of flushed content as the channel
+     * accepts: with a non-blocking channel, this may be less than the
+     * amount queued, in which case the method should be called again
+     * when the channel becomes writable.
+     *
+     * @return True if all flushed content was written; false if some
+     *   remains queued
+     */
+    public boolean drainTo(WritableByteChannel ch) throws IOException
+    {
+        ByteBuffer buf;
+        while ((buf = mReady.peekFirst()) != null) {
+            int count = ch.write(buf);
+            mReadyBytes -= count;
+            if (buf.hasRemaining()) {
+                return false;
+            }
+            mReady.removeFirst();
+            release(buf);
+        }
+        return true;
+    }
+
+    /*
+    ///////////////////////////////////////////////////////////
+    // Internal methods
+    ///////////////////////////////////////////////////////////
+     */
+
+    private ByteBuffer nextBuffer() throws IOException
+    {
+        if (mClosed) {
+            throw new IOException("Can not write to a closed ByteBufferQueue");
+        }
+        ByteBuffer buf = mCurrent;
+        if (buf != null) {
+            enqueue(buf);
+        }
+        buf = mFree.pollFirst();
+        if (buf == null) {
+            buf = mDirect ? ByteBuffer.allocateDirect(mBufferSize) : ByteBuffer.allocate(mBufferSize);
+        }
+        mCurrent = buf;
+        return buf;
+    }
+
+    private void enqueue(ByteBuffer buf)
+    {
+        buf.flip();
+        mReadyBytes += buf.remaining();
+        mReady.addLast(buf);
+    }
+}
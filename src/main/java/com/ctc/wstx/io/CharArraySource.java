@@ -15,10 +15,28 @@ public final class CharArraySource
     // // // Plus, location offset info:
 
     final Location mContentStart;
+
+    /**
+     * Whether source is for an internal entity (usual case), or for
+     * cached contents of an external entity
+     *
+     * @since 7.3
+     */
+    final boolean mFromInternalEntity;
         
     protected CharArraySource(WstxInputSource parent, String fromEntity,
                     char[] chars, int offset, int len,
                     Location loc, SystemId sysId)
+    {
+        this(parent, fromEntity, chars, offset, len, loc, sysId, true);
+    }
+
+    /**
+     * @since 7.3
+     */
+    protected CharArraySource(WstxInputSource parent, String fromEntity,
+                    char[] chars, int offset, int len,
+                    Location loc, SystemId sysId, boolean fromInternalEntity)
     {
         super(parent, fromEntity, loc.getPublicId(), sysId);
         //loc.getSystemId());
@@ -26,15 +44,16 @@ public final class CharArraySource
         mOffset = offset;
         mInputLast = offset + len;
         mContentStart = loc;
+        mFromInternalEntity = fromInternalEntity;
     }
 
     /**
-     * This is a hard-coded assumption, but yes, for now this source is
-     * only created from internal entities.
+     * Usually this source is created from internal entities; but it is
+     * also used for cached contents of external entities.
      */
     @Override
     public boolean fromInternalEntity() {
-        return true;
+        return mFromInternalEntity;
     }
 
     /**
@@ -0,0 +1,282 @@
+/* Woodstox XML processor
+ *
+ * Copyright (c) 2004 Tatu Saloranta, tatu.saloranta@iki.fi
+ *
+ * Licensed under the License specified in file LICENSE, included with
+ * the source code.
+ * You may not use this file except in compliance with the License.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ctc.wstx.io;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.*;
+
+import com.ctc.wstx.api.ReaderConfig;
+import com.ctc.wstx.cfg.XmlConsts;
+
+/**
+ * Reader used for encodings that Woodstox has no dedicated Reader
+ * implementation for: drives a JDK {@link CharsetDecoder} directly
+ * over the byte buffer filled by the bootstrapper. Compared to using
+ * an {@link InputStreamReader}, avoids an additional level of buffering,
+ * allows recycling of the byte buffer, and reuses decoders (via
+ * {@link ReaderConfig#allocDecoder}) instead of constructing a new
+ * one for each document.
+ *<p>
+ * As with {@link InputStreamReader}, malformed and unmappable input is
+ * replaced with the replacement character of the decoder.
+ *
+ * @since 7.3
+ */
+public final class CharsetReader
+    extends BaseReader
+{
+    protected CharsetDecoder mDecoder;
+
+    protected boolean mXml11;
+
+    /**
+     * Flag set when the underlying stream has been exhausted; after which
+     * only remaining buffered bytes (if any) need to be decoded.
+     */
+    protected boolean mInputEnd = false;
+
+    /**
+     * Wrapper for the byte buffer; re-created if the buffer changes.
+     */
+    protected ByteBuffer mInBuffer;
+
+    /**
+     * Wrapper for the last char buffer passed by the caller; callers
+     * usually read into the same buffer, so it is worth reusing.
+     */
+    protected CharBuffer mOutBuffer;
+
+    /**
+     * Character decoded but not yet returned; needed when the caller
+     * only has room for the first character of a surrogate pair.
+     * 0 if none.
+     */
+    protected char mPendingChar = NULL_CHAR;
+
+    /**
+     * Total read character count; used for error reporting purposes
+     */
+    protected int mCharCount = 0;
+
+    /*
+    ///////////////////////////////////////////////////////////
+    // Life-cycle
+    ///////////////////////////////////////////////////////////
+    */
+
+    public CharsetReader(ReaderConfig cfg, InputStream in, byte[] buf, int ptr, int len,
+            boolean recycleBuffer, Charset cs)
+    {
+        super(cfg, in, buf, ptr, len, recycleBuffer);
+        CharsetDecoder dec = (cfg == null) ? cs.newDecoder() : cfg.allocDecoder(cs);
+        mDecoder = dec.onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        if (in == null) {
+            mInputEnd = true;
+        }
+    }
+
+    @Override
+    public void setXmlCompliancy(int xmlVersion) {
+        mXml11 = (xmlVersion == XmlConsts.XML_V_11);
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        freeDecoder();
+        super.close();
+    }
+
+    /*
+    ///////////////////////////////////////////////////////////
+    // Public API
+    ///////////////////////////////////////////////////////////
+    */
+
+    @Override
+    public int read(char[] cbuf, int start, int len) throws IOException
+    {
+        // Let's first ensure there's enough room...
+        if (start < 0 || (start+len) > cbuf.length) {
+            reportBounds(cbuf, start, len);
+        }
+        // Already EOF?
+        if (mDecoder == null) {
+            return -1;
+        }
+        if (len < 1) {
+            return 0;
+        }
+
+        int outPtr = start;
+        if (mPendingChar != NULL_CHAR) {
+            cbuf[outPtr++] = mPendingChar;
+            mPendingChar = NULL_CHAR;
+            if (outPtr == start+len) {
+                return _processDecoded(cbuf, start, 1);
+            }
+        }
+        CharBuffer out = mOutBuffer;
+        if (out == null || out.array() != cbuf) {
+            mOutBuffer = out = CharBuffer.wrap(cbuf);
+        }
+        out.limit(start+len);
+        out.position(outPtr);
+
+        while (true) {
+            ByteBuffer in = mInBuffer;
+            if (in == null || in.array() != mByteBuffer) {
+                mInBuffer = in = ByteBuffer.wrap(mByteBuffer);
+            }
+            in.limit(mByteBufferEnd);
+            in.position(mBytePtr);
+            CoderResult result = mDecoder.decode(in, out, mInputEnd);
+            mBytePtr = in.position();
+            if (result.isError()) { // can't happen with REPLACE, but just in case
+                result.throwException();
+            }
+            if (out.position() > start) { // got something, good enough
+                break;
+            }
+            if (result.isOverflow()) { // room for just 1 char, got a pair?
+                _decodeSurrogatePair(out);
+                break;
+            }
+            if (mInputEnd) { // all input decoded, only need to flush
+                mDecoder.flush(out);
+                if (out.position() == start) {
+                    freeDecoder();
+                    freeBuffers();
+                    return -1;
+                }
+                break;
+            }
+            loadMore();
+        }
+
+        return _processDecoded(cbuf, start, out.position() - start);
+    }
+
+    /*
+    ///////////////////////////////////////////////////////////
+    // Internal methods
+    ///////////////////////////////////////////////////////////
+    */
+
+    /**
+     * Method called to do xml 1.1 specific linefeed conversions and
+     * character validity checks for decoded characters.
+     */
+    private int _processDecoded(char[] cbuf, int start, int count)
+        throws IOException
+    {
+        if (mXml11) {
+            for (int i = start, end = start+count; i < end; ++i) {
+                char c = cbuf[i];
+                if (c >= 0x7F) {
+                    if (c <= 0x9F) {
+                        if (c == 0x85) {
+                            cbuf[i] = CONVERT_NEL_TO;
+                        } else { // other high-order ctrl chars not allowed
+                            reportInvalidXml11(c, -1, mCharCount + (i-start));
+                        }
+                    } else if (c == 0x2028) {
+                        cbuf[i] = CONVERT_LSEP_TO;
+                    }
+                }
+            }
+        }
+        mCharCount += count;
+        return count;
+    }
+
+    private void _decodeSurrogatePair(CharBuffer out)
+        throws IOException
+    {
+        CharBuffer pair = CharBuffer.allocate(2);
+        while (true) {
+            ByteBuffer in = mInBuffer;
+            if (in.array() != mByteBuffer) {
+                mInBuffer = in = ByteBuffer.wrap(mByteBuffer);
+            }
+            in.limit(mByteBufferEnd);
+            in.position(mBytePtr);
+            CoderResult result = mDecoder.decode(in, pair, mInputEnd);
+            mBytePtr = in.position();
+            if (result.isError()) {
+                result.throwException();
+            }
+            if (pair.position() > 0 || mInputEnd) {
+                break;
+            }
+            loadMore();
+        }
+        pair.flip();
+        if (pair.hasRemaining()) {
+            out.put(pair.get());
+            if (pair.hasRemaining()) {
+                mPendingChar = pair.get();
+            }
+        }
+    }
+
+    /**
+     * Method called when all currently buffered bytes have been
+     * consumed (except for a possible partial character at the end).
+     * Will move any such leftover bytes to the beginning of the buffer
+     * (if allowed to), and read more bytes after them; or mark end of
+     * input if no more can be read.
+     */
+    private void loadMore()
+        throws IOException
+    {
+        int available = mByteBufferEnd - mBytePtr;
+
+        int count;
+        if (available > 0) {
+            if (mBytePtr > 0 && canModifyBuffer()) {
+                System.arraycopy(mByteBuffer, mBytePtr, mByteBuffer, 0, available);
+                mBytePtr = 0;
+                mByteBufferEnd = available;
+            }
+            count = readBytesAt(mByteBufferEnd);
+        } else {
+            count = readBytes();
+        }
+        if (count < 1) {
+            if (count < 0) {
+                mInputEnd = true;
+                return;
+            }
+            // 0 count is no good; let's err out
+            reportStrangeStream();
+        }
+    }
+
+    private void freeDecoder()
+    {
+        CharsetDecoder dec = mDecoder;
+        if (dec != null) {
+            mDecoder = null;
+            if (mConfig != null) {
+                mConfig.freeDecoder(dec);
+            }
+        }
+    }
+}
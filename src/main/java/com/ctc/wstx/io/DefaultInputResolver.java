@@ -1,7 +1,10 @@
 package com.ctc.wstx.io;
 
 import java.io.*;
+import java.net.URI;
+import java.net.URISyntaxException;
 import java.net.URL;
+import java.util.Arrays;
 
 import javax.xml.stream.XMLResolver;
 import javax.xml.stream.XMLStreamException;
@@ -74,6 +77,37 @@ public final class DefaultInputResolver
             }
         }
 
+        // Entity contents may have been cached, if caching is enabled
+        ExternalEntityCache cache = (entityName == null) ? null : cfg.getExternalEntityCache();
+        if (cache != null) {
+            ExternalEntityCache.Key key = constructCacheKey(cfg, pathCtxt, publicId, systemId, xmlVersion);
+            if (key != null) {
+                ExternalEntityCache.Entry entry = cache.find(key);
+                if (entry == null) {
+                    WstxInputSource src = resolveUncachedEntity(parent, pathCtxt, entityName,
+                            publicId, systemId, customResolver, cfg, xmlVersion);
+                    if (!(src instanceof ReaderSource)) { // can only cache contents we can read
+                        return src;
+                    }
+                    entry = readForCache((ReaderSource) src, cache.getMaxEntityLength());
+                    if (entry == null) { // too big to cache, will be read as is
+                        return src;
+                    }
+                    cache.add(key, entry);
+                }
+                return InputSourceFactory.constructCachedEntitySource(parent, entityName, entry);
+            }
+        }
+        return resolveUncachedEntity(parent, pathCtxt, entityName, publicId, systemId,
+                customResolver, cfg, xmlVersion);
+    }
+
+    private static WstxInputSource resolveUncachedEntity
+        (WstxInputSource parent, URL pathCtxt, String entityName,
+         String publicId, String systemId,
+         XMLResolver customResolver, ReaderConfig cfg, int xmlVersion)
+        throws IOException, XMLStreamException
+    {
         // Do we have a custom resolver that may be able to resolve it?
         if (customResolver != null) {
             Object source = customResolver.resolveEntity(publicId, systemId, pathCtxt.toExternalForm(), entityName);
@@ -206,6 +240,86 @@ public final class DefaultInputResolver
     ////////////////////////////
     */
 
+    /**
+     * @return Key to use for caching the entity; null if entity can
+     *   not be cached (no usable identifier)
+     */
+    private static ExternalEntityCache.Key constructCacheKey(ReaderConfig cfg, URL pathCtxt,
+            String publicId, String systemId, int xmlVersion)
+    {
+        boolean xml11 = (xmlVersion == XmlConsts.XML_V_11);
+        // As with DTDs, public ids are only used if explicitly enabled
+        if (cfg.willCacheExternalEntitiesByPublicId()
+                && publicId != null && publicId.length() > 0) {
+            return new ExternalEntityCache.Key(publicId, null, xml11);
+        }
+        if (systemId == null) {
+            return null;
+        }
+        try {
+            URL url = URLUtil.urlFromSystemId(systemId, pathCtxt);
+            return new ExternalEntityCache.Key(null, new URI(url.toExternalForm()), xml11);
+        } catch (IOException e) {
+            // unresolvable (as URL), but custom resolver may still deal with it
+            return null;
+        } catch (URISyntaxException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return Entry with contents of the entity, if it is not longer than
+     *   specified maximum; null if it is (in which case source can still
+     *   be read normally)
+     */
+    private static ExternalEntityCache.Entry readForCache(ReaderSource src, int maxLength)
+        throws IOException
+    {
+        char[] content = src.readAll(maxLength);
+        if (content == null) {
+            return null;
+        }
+        content = normalizeLFs(content);
+        URL url;
+        try {
+            url = src.getSource();
+        } catch (IOException e) { // only used for resolving relative references
+            url = null;
+        }
+        // Note: columns of Location objects are 1-based
+        return new ExternalEntityCache.Entry(content, src.getPublicId(), src.getSystemId(), url,
+                src.mInputProcessed, src.mInputRow, 1 - src.mInputRowStart);
+    }
+
+    /**
+     * Since cached contents are shared, linefeeds are normalized before
+     * caching, instead of when parsing (which may replace them in the
+     * input buffer).
+     */
+    private static char[] normalizeLFs(char[] content)
+    {
+        int i = 0;
+        final int len = content.length;
+        while (i < len && content[i] != '\r') {
+            ++i;
+        }
+        if (i == len) {
+            return content;
+        }
+        int out = i;
+        for (; i < len; ++i) {
+            char c = content[i];
+            if (c == '\r') {
+                c = '\n';
+                if ((i+1) < len && content[i+1] == '\n') {
+                    ++i;
+                }
+            }
+            content[out++] = c;
+        }
+        return Arrays.copyOf(content, out);
+    }
+
     @SuppressWarnings("resource")
     private static WstxInputSource sourceFromSS(WstxInputSource parent, ReaderConfig cfg,
     		String refName, int xmlVersion, StreamSource ssrc)
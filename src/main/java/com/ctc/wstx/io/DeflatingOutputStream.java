@@ -0,0 +1,242 @@
+/* Woodstox XML processor
+ *
+ * Copyright (c) 2004- Tatu Saloranta, tatu.saloranta@iki.fi
+ *
+ * Licensed under the License specified in file LICENSE, included with
+ * the source code.
+ * You may not use this file except in compliance with the License.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ctc.wstx.io;
+
+import java.io.*;
+import java.util.zip.*;
+
+import com.ctc.wstx.api.WriterConfig;
+
+/**
+ * Output stream used for compressing output of stream writers, when
+ * enabled using
+ * {@link com.ctc.wstx.api.WstxOutputProperties#P_OUTPUT_COMPRESSION}.
+ * Compared to JDK {@link GZIPOutputStream}, compresses directly from
+ * the buffer caller passes (usually the recycled output buffer of the
+ * stream writer), and uses recycled {@link Deflater} instance and output
+ * buffer.
+ *<p>
+ * Stream writers call {@link #finish} when closed without closing the
+ * underlying stream, so that compressed content is always complete.
+ *
+ * @since 7.3
+ */
+public final class DeflatingOutputStream
+    extends OutputStream
+    implements CompletelyCloseable
+{
+    private final static int BUFFER_SIZE = 8000;
+
+    private final WriterConfig mConfig;
+
+    private final OutputStream mOut;
+
+    private final boolean mGzip;
+
+    /**
+     * Checksum calculated over uncompressed content: CRC-32 for gzip,
+     * Adler-32 for zlib.
+     */
+    private final Checksum mChecksum;
+
+    private Deflater mDeflater;
+
+    private byte[] mBuffer;
+
+    private int mPtr;
+
+    private long mLength;
+
+    /**
+     * Flag set when content has been written since the last flush, so
+     * that Deflater needs to be flushed on {@link #flush}.
+     */
+    private boolean mNeedsSync;
+
+    private byte[] mTmpBuf;
+
+    /**
+     * @param gzip True to produce gzip format; false for zlib format
+     */
+    public DeflatingOutputStream(WriterConfig cfg, OutputStream out,
+            boolean gzip)
+    {
+        mConfig = cfg;
+        mOut = out;
+        mGzip = gzip;
+        mChecksum = gzip ? new CRC32() : new Adler32();
+        mDeflater = cfg.allocDeflater();
+        mBuffer = cfg.allocCompressionBBuffer(BUFFER_SIZE);
+        byte[] buf = mBuffer;
+        if (gzip) {
+            buf[0] = (byte) 0x1F; // magic
+            buf[1] = (byte) 0x8B;
+            buf[2] = 8; // deflate
+            buf[3] = 0; // flags
+            buf[4] = buf[5] = buf[6] = buf[7] = 0; // mtime
+            buf[8] = 0; // extra flags
+            buf[9] = (byte) 0xFF; // OS: unknown
+            mPtr = 10;
+        } else {
+            buf[0] = (byte) 0x78; // deflate, 32k window
+            buf[1] = (byte) 0x9C; // default level, check bits
+            mPtr = 2;
+        }
+    }
+
+    /*
+    ///////////////////////////////////////////////////////////
+    // OutputStream implementation
+    ///////////////////////////////////////////////////////////
+     */
+
+    @Override
+    public void write(int b) throws IOException
+    {
+        if (mTmpBuf == null) {
+            mTmpBuf = new byte[1];
+        }
+        mTmpBuf[0] = (byte) b;
+        write(mTmpBuf, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException
+    {
+        if (len < 1) {
+            return;
+        }
+        if (mDeflater == null) {
+            throw new IOException("Compressed stream already finished");
+        }
+        mChecksum.update(b, off, len);
+        mLength += len;
+        mNeedsSync = true;
+        mDeflater.setInput(b, off, len);
+        // need to consume all input before returning, caller will reuse buffer
+        while (!mDeflater.needsInput()) {
+            deflate();
+        }
+    }
+
+    /**
+     * Flushes all content written so far (using {@link Deflater#SYNC_FLUSH}),
+     * so that it can be decompressed by the receiver without waiting
+     * for more content. Note that this reduces compression ratio, so
+     * flushing should not be done too frequently.
+     */
+    @Override
+    public void flush() throws IOException
+    {
+        if (mNeedsSync && mDeflater != null) {
+            mNeedsSync = false;
+            while (true) {
+                int space = mBuffer.length - mPtr;
+                int count = mDeflater.deflate(mBuffer, mPtr, space, Deflater.SYNC_FLUSH);
+                mPtr += count;
+                // if output buffer was not filled, all pending content was flushed
+                if (count < space) {
+                    break;
+                }
+                flushBuffer();
+            }
+        }
+        if (mPtr > 0) {
+            flushBuffer();
+        }
+        mOut.flush();
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        finish();
+        mOut.close();
+    }
+
+    @Override
+    public void closeCompletely() throws IOException {
+        close();
+    }
+
+    /**
+     * Method for finishing compressed content (writing all remaining
+     * content, and trailer), without closing the underlying stream.
+     * No more content can be written after calling this method; calling
+     * it more than once has no effect.
+     */
+    public void finish() throws IOException
+    {
+        if (mDeflater == null) {
+            return;
+        }
+        mDeflater.finish();
+        while (!mDeflater.finished()) {
+            deflate();
+        }
+        if ((mPtr + 8) > mBuffer.length) {
+            flushBuffer();
+        }
+        int cs = (int) mChecksum.getValue();
+        byte[] buf = mBuffer;
+        if (mGzip) { // CRC-32 and length (mod 2^32), little-endian
+            int len = (int) mLength;
+            buf[mPtr++] = (byte) cs;
+            buf[mPtr++] = (byte) (cs >> 8);
+            buf[mPtr++] = (byte) (cs >> 16);
+            buf[mPtr++] = (byte) (cs >> 24);
+            buf[mPtr++] = (byte) len;
+            buf[mPtr++] = (byte) (len >> 8);
+            buf[mPtr++] = (byte) (len >> 16);
+            buf[mPtr++] = (byte) (len >> 24);
+        } else { // Adler-32, big-endian
+            buf[mPtr++] = (byte) (cs >> 24);
+            buf[mPtr++] = (byte) (cs >> 16);
+            buf[mPtr++] = (byte) (cs >> 8);
+            buf[mPtr++] = (byte) cs;
+        }
+        flushBuffer();
+        mOut.flush();
+
+        Deflater def = mDeflater;
+        mDeflater = null;
+        mConfig.freeDeflater(def);
+        mConfig.freeCompressionBBuffer(buf);
+        mBuffer = null;
+    }
+
+    /*
+    ///////////////////////////////////////////////////////////
+    // Internal methods
+    ///////////////////////////////////////////////////////////
+     */
+
+    private void deflate() throws IOException
+    {
+        int count = mDeflater.deflate(mBuffer, mPtr, mBuffer.length - mPtr);
+        mPtr += count;
+        if (mPtr >= mBuffer.length) {
+            flushBuffer();
+        }
+    }
+
+    private void flushBuffer() throws IOException
+    {
+        int len = mPtr;
+        mPtr = 0;
+        mOut.write(mBuffer, 0, len);
+    }
+}
@@ -0,0 +1,70 @@
+/* Woodstox XML processor
+ *
+ * Copyright (c) 2004- Tatu Saloranta, tatu.saloranta@iki.fi
+ *
+ * Licensed under the License specified in file LICENSE, included with
+ * the source code.
+ * You may not use this file except in compliance with the License.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ctc.wstx.io;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+
+/**
+ * Helper class used by writers for writing large blocks of already
+ * encoded content directly to the underlying stream, instead of
+ * copying it through their output buffers.
+ *
+ * @since 7.3
+ */
+public final class DirectOutput
+{
+    /**
+     * Minimum length of content for which direct writes are worth the
+     * trouble: shorter content is best just copied into the output buffer.
+     */
+    public final static int MIN_DIRECT_WRITE = 256;
+
+    private DirectOutput() { }
+
+    /**
+     * Method for writing out contents of the output buffer, followed by
+     * given content. If the stream is backed by a channel that supports
+     * gathering writes (like {@link FileOutputStream}), both are written
+     * using a single call; otherwise using two separate writes.
+     * In either case, given content is not copied.
+     *
+     * @param buffered Output buffer of the caller
+     * @param bufferedLen Length of content in the output buffer
+     */
+    public static void write(OutputStream out, byte[] buffered, int bufferedLen,
+            byte[] data, int offset, int len)
+        throws IOException
+    {
+        if (bufferedLen > 0 && (out instanceof FileOutputStream)) {
+            GatheringByteChannel ch = ((FileOutputStream) out).getChannel();
+            ByteBuffer[] bufs = new ByteBuffer[] {
+                    ByteBuffer.wrap(buffered, 0, bufferedLen),
+                    ByteBuffer.wrap(data, offset, len)
+            };
+            // May need multiple calls, although for files it's rare
+            while (bufs[1].hasRemaining()) {
+                ch.write(bufs);
+            }
+            return;
+        }
+        if (bufferedLen > 0) {
+            out.write(buffered, 0, bufferedLen);
+        }
+        out.write(data, offset, len);
+    }
+}
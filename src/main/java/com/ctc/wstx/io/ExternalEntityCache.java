@@ -0,0 +1,204 @@
+/* Woodstox XML processor
+ *
+ * Copyright (c) 2004- Tatu Saloranta, tatu.saloranta@iki.fi
+ *
+ * Licensed under the License specified in file LICENSE, included with
+ * the source code.
+ * You may not use this file except in compliance with the License.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ctc.wstx.io;
+
+import java.net.URI;
+import java.net.URL;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * Size-bounded cache for decoded contents of external parsed entities,
+ * shared by readers created by the same input factory (when enabled
+ * using {@link com.ctc.wstx.api.WstxInputProperties#P_CACHE_EXTERNAL_ENTITIES}).
+ * Entries are keyed similar to cached DTDs (see {@link com.ctc.wstx.dtd.DTDId}):
+ * by public id if so configured and one is available; otherwise by
+ * resolved system id. Whether entity is read in xml 1.1 mode or not
+ * is also part of the key, since it affects decoding.
+ *<p>
+ * Cache is bounded by total length of contents of entities, instead
+ * of number of entities: least recently used entries are dropped
+ * when adding an entry would exceed the limit. Entities longer than
+ * the per-entity limit are not cached at all.
+ *<p>
+ * Instances are thread-safe.
+ *
+ * @since 7.3
+ */
+public final class ExternalEntityCache
+{
+    /**
+     * Entries in access order, least recently used first
+     */
+    private final LinkedHashMap<Key,Entry> mEntries;
+
+    private final int mMaxLength;
+
+    private final int mMaxEntityLength;
+
+    /**
+     * Total length of contents of all cached entries
+     */
+    private long mTotalLength;
+
+    /**
+     * @param maxLength Maximum total length (in characters) of contents
+     *   of cached entities
+     * @param maxEntityLength Maximum length of a single entity to cache
+     */
+    public ExternalEntityCache(int maxLength, int maxEntityLength)
+    {
+        mEntries = new LinkedHashMap<Key,Entry>(16, 0.8f, true);
+        mMaxLength = maxLength;
+        mMaxEntityLength = Math.min(maxEntityLength, maxLength);
+    }
+
+    /*
+    ///////////////////////////////////////////////////////////
+    // Public API
+    ///////////////////////////////////////////////////////////
+     */
+
+    public int getMaxLength() { return mMaxLength; }
+
+    public int getMaxEntityLength() { return mMaxEntityLength; }
+
+    public synchronized int size() {
+        return mEntries.size();
+    }
+
+    /**
+     * @return Total length (in characters) of contents of entities
+     *   currently cached
+     */
+    public synchronized long getTotalLength() {
+        return mTotalLength;
+    }
+
+    /*
+    ///////////////////////////////////////////////////////////
+    // Package methods
+    ///////////////////////////////////////////////////////////
+     */
+
+    synchronized Entry find(Key key) {
+        return mEntries.get(key);
+    }
+
+    synchronized void add(Key key, Entry entry)
+    {
+        final int len = entry.mContent.length;
+        if (len > mMaxEntityLength) { // caller should have checked, but just in case
+            return;
+        }
+        Entry old = mEntries.put(key, entry);
+        if (old != null) {
+            mTotalLength -= old.mContent.length;
+        }
+        mTotalLength += len;
+        // Drop least recently used entries (but not the one just added)
+        Iterator<Entry> it = mEntries.values().iterator();
+        while (mTotalLength > mMaxLength) {
+            Entry eldest = it.next();
+            if (eldest == entry) {
+                break;
+            }
+            it.remove();
+            mTotalLength -= eldest.mContent.length;
+        }
+    }
+
+    /*
+    ///////////////////////////////////////////////////////////
+    // Helper classes
+    ///////////////////////////////////////////////////////////
+     */
+
+    /**
+     * Key for cached entities: either public id or system id is used,
+     * along with xml 1.1 mode indicator.
+     */
+    final static class Key
+    {
+        final String mPublicId;
+
+        final URI mSystemId;
+
+        final boolean mXml11;
+
+        Key(String publicId, URI systemId, boolean xml11)
+        {
+            mPublicId = publicId;
+            mSystemId = systemId;
+            mXml11 = xml11;
+        }
+
+        @Override
+        public int hashCode() {
+            int hash = (mPublicId != null) ? mPublicId.hashCode() : mSystemId.hashCode();
+            return mXml11 ? (hash ^ 1) : hash;
+        }
+
+        @Override
+        public boolean equals(Object o)
+        {
+            if (o == this) return true;
+            if (o == null || o.getClass() != getClass()) return false;
+            Key other = (Key) o;
+            if (other.mXml11 != mXml11) {
+                return false;
+            }
+            if (mPublicId != null) {
+                return mPublicId.equals(other.mPublicId);
+            }
+            return (other.mPublicId == null) && mSystemId.equals(other.mSystemId);
+        }
+    }
+
+    /**
+     * Decoded contents of an entity (excluding text declaration, if any),
+     * along with information needed to construct input sources for
+     * reading them.
+     */
+    final static class Entry
+    {
+        final char[] mContent;
+
+        final String mPublicId;
+
+        final String mSystemId;
+
+        final URL mSource;
+
+        /**
+         * Location of the first content character, within the entity
+         */
+        final long mStartOffset;
+        final int mStartRow, mStartColumn;
+
+        Entry(char[] content, String pubId, String sysId, URL src,
+                long startOffset, int startRow, int startColumn)
+        {
+            mContent = content;
+            mPublicId = pubId;
+            mSystemId = sysId;
+            mSource = src;
+            mStartOffset = startOffset;
+            mStartRow = startRow;
+            mStartColumn = startColumn;
+        }
+    }
+}
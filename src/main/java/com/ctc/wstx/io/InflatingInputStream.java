@@ -0,0 +1,334 @@
+/* Woodstox XML processor
+ *
+ * Copyright (c) 2004- Tatu Saloranta, tatu.saloranta@iki.fi
+ *
+ * Licensed under the License specified in file LICENSE, included with
+ * the source code.
+ * You may not use this file except in compliance with the License.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ctc.wstx.io;
+
+import java.io.*;
+import java.util.zip.*;
+
+import com.ctc.wstx.api.ReaderConfig;
+
+/**
+ * Input stream used for decompressing gzip or zlib ("deflate") compressed
+ * input, when detected by {@link StreamBootstrapper} (zlib only if
+ * enabled, see {@link com.ctc.wstx.api.WstxInputProperties#P_DETECT_ZLIB_COMPRESSION}). Compared to JDK
+ * {@link GZIPInputStream}, inflates directly into buffer caller passes
+ * (usually the recycled input buffer of the bootstrapper or Reader),
+ * and uses recycled {@link Inflater} instance and input buffer.
+ * Concatenated gzip members are handled same way as by
+ * {@link GZIPInputStream}.
+ *
+ * @since 7.3
+ */
+public final class InflatingInputStream
+    extends InputStream
+{
+    public final static int FORMAT_NONE = 0;
+    public final static int FORMAT_GZIP = 1;
+    public final static int FORMAT_ZLIB = 2;
+
+    private final static int GZIP_MAGIC1 = 0x1F;
+    private final static int GZIP_MAGIC2 = 0x8B;
+
+    private final static int GZIP_FHCRC = 2;
+    private final static int GZIP_FEXTRA = 4;
+    private final static int GZIP_FNAME = 8;
+    private final static int GZIP_FCOMMENT = 16;
+
+    private final static int BUFFER_SIZE = 8000;
+
+    private final ReaderConfig mConfig;
+
+    private final InputStream mIn;
+
+    private final int mFormat;
+
+    /**
+     * Checksum calculated over decompressed content: CRC-32 for gzip,
+     * Adler-32 for zlib.
+     */
+    private final Checksum mChecksum;
+
+    private Inflater mInflater;
+
+    private byte[] mBuffer;
+
+    private int mPtr;
+
+    private int mEnd;
+
+    /**
+     * Number of decompressed bytes of the current member; needed for
+     * verifying gzip trailer.
+     */
+    private long mMemberLength;
+
+    private byte[] mTmpBuf;
+
+    /**
+     * @param in Stream to read compressed content from, after contents
+     *   of the buffer; may be null if all content is in the buffer
+     * @param buf Buffer with compressed content already read; contents
+     *   will be copied
+     */
+    public InflatingInputStream(ReaderConfig cfg, InputStream in,
+            byte[] buf, int ptr, int end, int format)
+        throws IOException
+    {
+        mConfig = cfg;
+        mIn = in;
+        mFormat = format;
+        mChecksum = (format == FORMAT_GZIP) ? new CRC32() : new Adler32();
+        int len = end - ptr;
+        mBuffer = cfg.allocCompressionBBuffer(Math.max(BUFFER_SIZE, len));
+        System.arraycopy(buf, ptr, mBuffer, 0, len);
+        mPtr = 0;
+        mEnd = len;
+        mInflater = cfg.allocInflater();
+        readHeader();
+    }
+
+    /**
+     * Method for checking whether the first two bytes of the input
+     * indicate compressed content.
+     *
+     * @param detectZlib Whether zlib headers are to be detected, in
+     *   addition to gzip signature: unlike gzip signature, some zlib
+     *   headers are also valid starts of XML content
+     *
+     * @return Compression format detected; {@link #FORMAT_NONE} if none
+     */
+    public static int findFormat(int b1, int b2, boolean detectZlib)
+    {
+        b1 &= 0xFF;
+        b2 &= 0xFF;
+        if (b1 == GZIP_MAGIC1 && b2 == GZIP_MAGIC2) {
+            return FORMAT_GZIP;
+        }
+        if (detectZlib && isZlibHeader(b1, b2)) {
+            return FORMAT_ZLIB;
+        }
+        return FORMAT_NONE;
+    }
+
+    private static boolean isZlibHeader(int b1, int b2)
+    {
+        // compression method 8 (deflate), header is a multiple of 31
+        return ((b1 & 0x0F) == 8 && (b1 >> 4) <= 7 && ((b1 << 8) | b2) % 31 == 0);
+    }
+
+    /*
+    ///////////////////////////////////////////////////////////
+    // InputStream implementation
+    ///////////////////////////////////////////////////////////
+     */
+
+    @Override
+    public int read() throws IOException
+    {
+        if (mTmpBuf == null) {
+            mTmpBuf = new byte[1];
+        }
+        if (read(mTmpBuf, 0, 1) < 1) {
+            return -1;
+        }
+        return mTmpBuf[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException
+    {
+        if (mInflater == null) { // EOF or closed
+            return -1;
+        }
+        if (len < 1) {
+            return 0;
+        }
+        while (true) {
+            int count;
+            try {
+                count = mInflater.inflate(b, off, len);
+            } catch (DataFormatException e) {
+                throw new ZipException("Invalid compressed content: "+e.getMessage());
+            }
+            if (count > 0) {
+                mChecksum.update(b, off, count);
+                mMemberLength += count;
+                return count;
+            }
+            if (mInflater.finished()) {
+                mPtr = mEnd - mInflater.getRemaining();
+                readTrailer();
+                if (!startNextMember()) {
+                    release();
+                    return -1;
+                }
+            } else if (mInflater.needsDictionary()) {
+                throw new ZipException("Compressed content requires a preset dictionary");
+            } else if (mInflater.needsInput()) {
+                if (mPtr >= mEnd && !loadMore()) {
+                    throw new EOFException("Unexpected end of compressed input");
+                }
+                mInflater.setInput(mBuffer, mPtr, mEnd - mPtr);
+                mPtr = mEnd;
+            }
+        }
+    }
+
+    @Override
+    public int available() throws IOException {
+        return (mInflater == null) ? 0 : 1;
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        release();
+        if (mIn != null) {
+            mIn.close();
+        }
+    }
+
+    /*
+    ///////////////////////////////////////////////////////////
+    // Internal methods
+    ///////////////////////////////////////////////////////////
+     */
+
+    private void readHeader() throws IOException
+    {
+        if (mFormat == FORMAT_ZLIB) {
+            int cmf = nextByte();
+            int flg = nextByte();
+            if ((flg & 0x20) != 0) {
+                throw new ZipException("Compressed content requires a preset dictionary");
+            }
+            if (!isZlibHeader(cmf, flg)) {
+                throw new ZipException("Invalid zlib header");
+            }
+        } else {
+            if (nextByte() != GZIP_MAGIC1 || nextByte() != GZIP_MAGIC2) {
+                throw new ZipException("Not in GZIP format");
+            }
+            if (nextByte() != 8) {
+                throw new ZipException("Unsupported compression method for GZIP content");
+            }
+            int flags = nextByte();
+            skipBytes(6); // mtime, extra flags, os
+            if ((flags & GZIP_FEXTRA) != 0) {
+                skipBytes(nextByte() | (nextByte() << 8));
+            }
+            if ((flags & GZIP_FNAME) != 0) {
+                while (nextByte() != 0) { }
+            }
+            if ((flags & GZIP_FCOMMENT) != 0) {
+                while (nextByte() != 0) { }
+            }
+            if ((flags & GZIP_FHCRC) != 0) {
+                skipBytes(2);
+            }
+        }
+        mChecksum.reset();
+        mMemberLength = 0L;
+        mInflater.setInput(mBuffer, mPtr, mEnd - mPtr);
+        mPtr = mEnd;
+    }
+
+    private void readTrailer() throws IOException
+    {
+        long checksum = mChecksum.getValue();
+        if (mFormat == FORMAT_ZLIB) { // Adler-32, big-endian
+            long exp = ((long) nextByte() << 24) | (nextByte() << 16) | (nextByte() << 8) | nextByte();
+            if (exp != checksum) {
+                throw new ZipException("Corrupt zlib content (Adler-32 checksum mismatch)");
+            }
+        } else { // CRC-32 and length (mod 2^32), little-endian
+            long exp = nextByte() | (nextByte() << 8) | (nextByte() << 16) | ((long) nextByte() << 24);
+            if (exp != checksum) {
+                throw new ZipException("Corrupt GZIP content (CRC-32 checksum mismatch)");
+            }
+            long len = nextByte() | (nextByte() << 8) | (nextByte() << 16) | ((long) nextByte() << 24);
+            if (len != (mMemberLength & 0xFFFFFFFFL)) {
+                throw new ZipException("Corrupt GZIP content (length mismatch)");
+            }
+        }
+    }
+
+    /**
+     * Method called after the end of a gzip member, to see if there is
+     * another one following it.
+     */
+    private boolean startNextMember() throws IOException
+    {
+        if (mFormat != FORMAT_GZIP) {
+            return false;
+        }
+        if (mPtr >= mEnd && !loadMore()) {
+            return false;
+        }
+        if ((mBuffer[mPtr] & 0xFF) != GZIP_MAGIC1) { // trailing garbage; ignore same as JDK
+            return false;
+        }
+        mInflater.reset();
+        readHeader();
+        return true;
+    }
+
+    private int nextByte() throws IOException
+    {
+        if (mPtr >= mEnd && !loadMore()) {
+            throw new EOFException("Unexpected end of compressed input");
+        }
+        return mBuffer[mPtr++] & 0xFF;
+    }
+
+    private void skipBytes(int count) throws IOException
+    {
+        while (--count >= 0) {
+            nextByte();
+        }
+    }
+
+    private boolean loadMore() throws IOException
+    {
+        if (mIn == null) {
+            return false;
+        }
+        int count = mIn.read(mBuffer, 0, mBuffer.length);
+        if (count < 1) {
+            if (count == 0) {
+                throw new IOException("Strange I/O stream, returned 0 bytes on read");
+            }
+            return false;
+        }
+        mPtr = 0;
+        mEnd = count;
+        return true;
+    }
+
+    private void release()
+    {
+        Inflater inf = mInflater;
+        if (inf != null) {
+            mInflater = null;
+            mConfig.freeInflater(inf);
+        }
+        byte[] buf = mBuffer;
+        if (buf != null) {
+            mBuffer = null;
+            mConfig.freeCompressionBBuffer(buf);
+        }
+    }
+}
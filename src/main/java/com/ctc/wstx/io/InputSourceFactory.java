@@ -73,4 +73,23 @@ public final class InputSourceFactory
     	SystemId sysId = SystemId.construct(loc.getSystemId(), src);
         return new CharArraySource(parent, fromEntity, text, offset, len, loc, sysId);
     }
+
+    /**
+     * Factory method used for expanding external parsed entities from
+     * their cached contents.
+     *
+     * @since 7.3
+     */
+    static WstxInputSource constructCachedEntitySource
+        (WstxInputSource parent, String entityName, ExternalEntityCache.Entry entry)
+    {
+        SystemId sysId = SystemId.construct(entry.mSystemId, entry.mSource);
+        /* Location objects use 1-based columns, and need to refer to
+         * the start of the content, after text declaration
+         */
+        WstxInputLocation loc = new WstxInputLocation(null, entry.mPublicId, sysId,
+                entry.mStartOffset, entry.mStartRow, entry.mStartColumn);
+        char[] text = entry.mContent;
+        return new CharArraySource(parent, entityName, text, 0, text.length, loc, sysId, false);
+    }
 }
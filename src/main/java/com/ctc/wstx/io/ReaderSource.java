@@ -2,6 +2,7 @@ package com.ctc.wstx.io;
 
 import java.io.IOException;
 import java.io.Reader;
+import java.util.Arrays;
 
 import javax.xml.stream.XMLStreamException;
 
@@ -156,6 +157,45 @@ public class ReaderSource
         return true;
     }
 
+    /**
+     * Method for reading all (remaining) content of this source, for
+     * caching purposes, if it is not longer than given maximum. If all
+     * content was read, source is closed afterwards; if not, content
+     * read so far is pushed back, so that the source can be read
+     * normally.
+     *
+     * @return All remaining content, if no longer than maximum length;
+     *   null if longer
+     *
+     * @since 7.3
+     */
+    char[] readAll(int maxLength) throws IOException
+    {
+        char[] buf = new char[Math.min(mBuffer.length, maxLength + 1)];
+        int len = 0;
+        try {
+            while (true) {
+                if (len == buf.length) {
+                    if (len > maxLength) { // too long to cache, need to push back
+                        mReader = new PrefixedReader(buf, mReader);
+                        return null;
+                    }
+                    buf = Arrays.copyOf(buf, Math.min(len + len, maxLength + 1));
+                }
+                int count = mReader.read(buf, len, buf.length - len);
+                if (count < 0) {
+                    break;
+                }
+                len += count;
+            }
+        } catch (IOException ioe) {
+            closeCompletely();
+            throw ioe;
+        }
+        closeCompletely();
+        return Arrays.copyOf(buf, len);
+    }
+
     @Override
     public void close() throws IOException
     {
@@ -201,5 +241,54 @@ public class ReaderSource
             }
         }
     }
-}
 
+    /*
+    ///////////////////////////////////////////////////////////
+    // Helper classes
+    ///////////////////////////////////////////////////////////
+     */
+
+    /**
+     * Reader used for returning content pushed back by {@link #readAll}
+     * before the rest of content from the underlying Reader.
+     */
+    private final static class PrefixedReader
+        extends Reader
+    {
+        private char[] mPrefix;
+
+        private int mPtr;
+
+        private final Reader mIn;
+
+        PrefixedReader(char[] prefix, Reader in)
+        {
+            mPrefix = prefix;
+            mIn = in;
+        }
+
+        @Override
+        public int read(char[] cbuf, int off, int len) throws IOException
+        {
+            if (mPrefix != null) {
+                if (len < 1) {
+                    return 0;
+                }
+                int count = Math.min(len, mPrefix.length - mPtr);
+                System.arraycopy(mPrefix, mPtr, cbuf, off, count);
+                mPtr += count;
+                if (mPtr >= mPrefix.length) {
+                    mPrefix = null;
+                }
+                return count;
+            }
+            return mIn.read(cbuf, off, len);
+        }
+
+        @Override
+        public void close() throws IOException {
+            mPrefix = null;
+            mIn.close();
+        }
+    }
+}
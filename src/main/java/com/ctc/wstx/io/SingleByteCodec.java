@@ -0,0 +1,200 @@
+/* Woodstox XML processor
+ *
+ * Copyright (c) 2004- Tatu Saloranta, tatu.saloranta@iki.fi
+ *
+ * Licensed under the License specified in file LICENSE, included with
+ * the source code.
+ * You may not use this file except in compliance with the License.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ctc.wstx.io;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Container for lookup tables used for decoding and encoding content
+ * in single-byte encodings (windows-125x, ISO-8859-x, KOI8-x, EBCDIC
+ * code pages and so on) without using JDK Readers and Writers.
+ * Tables are built from the JDK {@link Charset} implementation once
+ * per charset, and shared (instances are immutable).
+ *<p>
+ * Decoding uses a simple 256-entry table; encoding a two-level table,
+ * with 256-entry byte pages for those 256-character blocks that contain
+ * mappable characters (usually just one or two).
+ *
+ * @since 7.3
+ */
+public final class SingleByteCodec
+{
+    /**
+     * Character that unmappable bytes decode to; same as what JDK
+     * decoders replace them with by default.
+     */
+    public final static char REPLACEMENT_CHAR = '\uFFFD';
+
+    private final static SingleByteCodec NOT_SINGLE_BYTE = new SingleByteCodec(null, null, null, false);
+
+    private final static ConcurrentHashMap<String,SingleByteCodec> sCodecs
+        = new ConcurrentHashMap<String,SingleByteCodec>();
+
+    private final String mName;
+
+    private final char[] mDecodeTable;
+
+    /**
+     * Encoding pages, indexed by the high byte of the character; null for
+     * pages with no mappable characters. Within a page, 0 indicates an
+     * unmappable character (except for the null char itself).
+     */
+    private final byte[][] mEncodePages;
+
+    /**
+     * Whether all 7-bit ASCII characters are encoded as themselves (as is
+     * the case with all but EBCDIC variants)
+     */
+    private final boolean mAsciiCompatible;
+
+    private SingleByteCodec(String name, char[] decodeTable, byte[][] encodePages,
+            boolean asciiCompatible)
+    {
+        mName = name;
+        mDecodeTable = decodeTable;
+        mEncodePages = encodePages;
+        mAsciiCompatible = asciiCompatible;
+    }
+
+    /**
+     * @return Codec for given encoding, if it is a single-byte encoding
+     *   supported by the JDK; null otherwise
+     */
+    public static SingleByteCodec forEncoding(String enc)
+    {
+        Charset cs;
+        try {
+            cs = Charset.forName(enc);
+        } catch (IllegalArgumentException e) { // illegal or unsupported name
+            return null;
+        }
+        return forCharset(cs);
+    }
+
+    /**
+     * @return Codec for given charset, if it is a single-byte charset;
+     *   null otherwise
+     */
+    public static SingleByteCodec forCharset(Charset cs)
+    {
+        SingleByteCodec codec = sCodecs.get(cs.name());
+        if (codec == null) {
+            codec = construct(cs);
+            sCodecs.put(cs.name(), codec);
+        }
+        return (codec == NOT_SINGLE_BYTE) ? null : codec;
+    }
+
+    private static SingleByteCodec construct(Charset cs)
+    {
+        if (!cs.canEncode()) {
+            return NOT_SINGLE_BYTE;
+        }
+        CharsetEncoder enc = cs.newEncoder();
+        CharsetDecoder dec = cs.newDecoder();
+        if (enc.maxBytesPerChar() != 1.0f || dec.maxCharsPerByte() != 1.0f) {
+            return NOT_SINGLE_BYTE;
+        }
+        dec.onMalformedInput(CodingErrorAction.REPORT)
+            .onUnmappableCharacter(CodingErrorAction.REPORT);
+        char[] table = new char[256];
+        byte[][] pages = new byte[256][];
+        ByteBuffer in = ByteBuffer.allocate(1);
+        CharBuffer out = CharBuffer.allocate(2);
+        boolean ascii = true;
+
+        for (int i = 0; i < 256; ++i) {
+            in.clear();
+            in.put((byte) i);
+            in.flip();
+            out.clear();
+            dec.reset();
+            char c = REPLACEMENT_CHAR;
+            if (!dec.decode(in, out, true).isError()
+                    && !dec.flush(out).isError() && out.position() == 1) {
+                c = out.get(0);
+            }
+            table[i] = c;
+            if (i < 0x80 && c != i) {
+                ascii = false;
+            }
+            if (c != REPLACEMENT_CHAR) {
+                byte[] page = pages[c >> 8];
+                if (page == null) {
+                    pages[c >> 8] = page = new byte[256];
+                }
+                // if multiple bytes decode to the same char, first one wins
+                if (page[c & 0xFF] == 0) {
+                    page[c & 0xFF] = (byte) i;
+                }
+            }
+        }
+        return new SingleByteCodec(cs.name(), table, pages, ascii);
+    }
+
+    /*
+    ///////////////////////////////////////////////////////////
+    // Public API
+    ///////////////////////////////////////////////////////////
+     */
+
+    public String getName() {
+        return mName;
+    }
+
+    /**
+     * @return 256-entry table that contains character each byte decodes
+     *   to; {@link #REPLACEMENT_CHAR} for unmappable bytes. Caller is not
+     *   to modify the table.
+     */
+    public char[] getDecodeTable() {
+        return mDecodeTable;
+    }
+
+    /**
+     * @return Two-level encoding table; caller is not to modify it
+     *
+     * @see #encode
+     */
+    public byte[][] getEncodePages() {
+        return mEncodePages;
+    }
+
+    public boolean isAsciiCompatible() {
+        return mAsciiCompatible;
+    }
+
+    /**
+     * @return Byte (0 - 255) given character encodes to, if mappable; -1
+     *   if not
+     */
+    public int encode(int c)
+    {
+        if (c <= 0xFFFF) {
+            byte[] page = mEncodePages[c >> 8];
+            if (page != null) {
+                int b = page[c & 0xFF];
+                if (b != 0 || c == 0) {
+                    return b & 0xFF;
+                }
+            }
+        }
+        return -1;
+    }
+}
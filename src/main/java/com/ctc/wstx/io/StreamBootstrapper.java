@@ -1,6 +1,7 @@
 package com.ctc.wstx.io;
 
 import java.io.*;
+import java.nio.charset.Charset;
 
 import javax.xml.stream.Location;
 import javax.xml.stream.XMLStreamException;
@@ -41,8 +42,10 @@ public final class StreamBootstrapper
     /**
      * Underlying InputStream to use for reading content. May be null
      * if the actual data source is not stream-based but a block source.
+     * Will be replaced with a decompressing stream if input is found to
+     * be compressed.
      */
-    final InputStream mIn;
+    InputStream mIn;
 
     /*
     ///////////////////////////////////////////////////////////////////////
@@ -55,7 +58,7 @@ public final class StreamBootstrapper
     /**
      * Whether byte buffer is recyclable or not
      */
-    private final boolean mRecycleBuffer;
+    private boolean mRecycleBuffer;
 
     private int mInputPtr;
     private int mInputEnd;
@@ -166,6 +169,7 @@ public final class StreamBootstrapper
             mByteBuffer = cfg.allocFullBBuffer(bufSize);
         }
 
+        resolveCompression(cfg, bufSize);
         resolveStreamEncoding();
 
         if (hasXmlDecl()) {
@@ -227,36 +231,31 @@ public final class StreamBootstrapper
             }
             r = new UTF32Reader(cfg, mIn, mByteBuffer, mInputPtr, mInputEnd,
 				mRecycleBuffer, mBigEndian);
-        } else {
-            // Nah, JDK needs to try it
-            // Ok; first, do we need to merge stuff back?
-            InputStream in = mIn;
-            if (mInputPtr < mInputEnd) {
-                // 16-Oct-2020, tatu: But we may or may not have InputStream to merge
-                //    as per [woodstox-core#117]
-                if (in == null) {
-                    in = new ByteArrayInputStream(mByteBuffer, mInputPtr, mInputEnd - mInputPtr);
-                } else {
-                    in = new MergedStream(cfg, in, mByteBuffer, mInputPtr, mInputEnd);
-                }
-            } else {
-                // 03-Apr-2021, tatu: [woodstox-core#123] Edge case possible, too:
-                //   specifically, input only contains XML declaration, with an unknown
-                //   encoding, and no more input.
-                if (in == null) {
-                    in = new ByteArrayInputStream(mByteBuffer, 0, 0);
-                }
-            }
-            // 20-Jan-2006, TSa: Ok; although it is possible to declare
-            //   stream as 'UTF-16', JDK may need help in figuring out
-            //   the right order, so let's be explicit:
+        } else if (normEnc.startsWith(CharsetNames.CS_UTF16)) {
+            boolean bigEndian;
             if (normEnc == CharsetNames.CS_UTF16) {
-                mInputEncoding = normEnc = mBigEndian ? CharsetNames.CS_UTF16BE : CharsetNames.CS_UTF16LE;
+                bigEndian = mBigEndian;
+                mInputEncoding = bigEndian ? CharsetNames.CS_UTF16BE : CharsetNames.CS_UTF16LE;
+            } else {
+                bigEndian = (normEnc == CharsetNames.CS_UTF16BE);
             }
+            r = new UTF16Reader(cfg, mIn, mByteBuffer, mInputPtr, mInputEnd,
+                    mRecycleBuffer, bigEndian);
+        } else {
+            // Nah, need to use JDK charset, either via lookup tables or a decoder
+            Charset cs;
             try {
-                return new InputStreamReader(in, normEnc);
-            } catch (UnsupportedEncodingException usex) {
-                throw new WstxIOException("Unsupported encoding: "+usex.getMessage());
+                cs = Charset.forName(normEnc);
+            } catch (IllegalArgumentException e) { // illegal or unsupported charset name
+                throw new WstxIOException("Unsupported encoding: "+normEnc);
+            }
+            SingleByteCodec codec = SingleByteCodec.forCharset(cs);
+            if (codec != null) {
+                r = new SingleByteReader(cfg, mIn, mByteBuffer, mInputPtr, mInputEnd,
+                        mRecycleBuffer, codec);
+            } else {
+                r = new CharsetReader(cfg, mIn, mByteBuffer, mInputPtr, mInputEnd,
+                        mRecycleBuffer, cs);
             }
         }
 
@@ -300,6 +299,35 @@ public final class StreamBootstrapper
     ///////////////////////////////////////////////////////////////////////
     */
 
+    /**
+     * Method called to check whether input is compressed (gzip or zlib
+     * format), and if so, to replace input with a decompressing stream.
+     * This has to be done before trying to detect encoding, since that
+     * needs to be done on decompressed content. Not done in fragment
+     * mode, where input need not start with markup.
+     *
+     * @since 7.3
+     */
+    protected void resolveCompression(ReaderConfig cfg, int bufSize)
+        throws IOException
+    {
+        if (cfg.inputParsingModeFragment() || !ensureLoaded(2)) {
+            return;
+        }
+        int format = InflatingInputStream.findFormat(mByteBuffer[mInputPtr],
+                mByteBuffer[mInputPtr+1], cfg.willDetectZlibCompression());
+        if (format == InflatingInputStream.FORMAT_NONE) {
+            return;
+        }
+        mIn = new InflatingInputStream(cfg, mIn, mByteBuffer, mInputPtr, mInputEnd, format);
+        // If we were given the (compressed) data, need a buffer of our own
+        if (!mRecycleBuffer) {
+            mByteBuffer = cfg.allocFullBBuffer(bufSize);
+            mRecycleBuffer = true;
+        }
+        mInputPtr = mInputEnd = 0;
+    }
+
     /**
      * Method called to try to figure out physical encoding the underlying
      * input stream uses.
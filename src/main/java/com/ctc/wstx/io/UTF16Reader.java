@@ -0,0 +1,246 @@
+/* Woodstox XML processor
+ *
+ * Copyright (c) 2004 Tatu Saloranta, tatu.saloranta@iki.fi
+ *
+ * Licensed under the License specified in file LICENSE, included with
+ * the source code.
+ * You may not use this file except in compliance with the License.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ctc.wstx.io;
+
+import java.io.*;
+
+import com.ctc.wstx.api.ReaderConfig;
+import com.ctc.wstx.cfg.XmlConsts;
+
+/**
+ * Optimized Reader that reads UTF-16 (big- or little-endian) encoded
+ * content from an input stream. Compared to using a JDK
+ * {@link InputStreamReader}, avoids an additional level of buffering
+ * (and synchronization), and allows for recycling of the byte buffer.
+ *<p>
+ * In addition to decoding, verifies that surrogate characters are
+ * properly paired, and that no invalid characters (0xFFFE, 0xFFFF) are
+ * included.
+ *
+ * @since 7.3
+ */
+public final class UTF16Reader
+    extends BaseReader
+{
+    protected final boolean mBigEndian;
+
+    protected boolean mXml11;
+
+    /**
+     * Flag set when the last character decoded was the first (high)
+     * part of a surrogate pair; in which case the next one has to be
+     * the second (low) part.
+     */
+    protected boolean mExpectLowSurrogate = false;
+
+    /**
+     * Total read character count; used for error reporting purposes
+     */
+    protected int mCharCount = 0;
+
+    /**
+     * Total read byte count; used for error reporting purposes
+     */
+    protected int mByteCount = 0;
+
+    /*
+    ///////////////////////////////////////////////////////////
+    // Life-cycle
+    ///////////////////////////////////////////////////////////
+    */
+
+    public UTF16Reader(ReaderConfig cfg, InputStream in, byte[] buf, int ptr, int len,
+            boolean recycleBuffer, boolean isBigEndian)
+    {
+        super(cfg, in, buf, ptr, len, recycleBuffer);
+        mBigEndian = isBigEndian;
+    }
+
+    @Override
+    public void setXmlCompliancy(int xmlVersion) {
+        mXml11 = (xmlVersion == XmlConsts.XML_V_11);
+    }
+
+    /*
+    ///////////////////////////////////////////////////////////
+    // Public API
+    ///////////////////////////////////////////////////////////
+    */
+
+    @Override
+    public int read(char[] cbuf, int start, int len) throws IOException
+    {
+        // Let's first ensure there's enough room...
+        if (start < 0 || (start+len) > cbuf.length) {
+            reportBounds(cbuf, start, len);
+        }
+        // Already EOF?
+        if (mByteBuffer == null) {
+            return -1;
+        }
+        if (len < 1) {
+            return 0;
+        }
+
+        // Need at least 2 bytes for a char
+        final int left = (mByteBufferEnd - mBytePtr);
+        if (left < 2) {
+            if (!loadMore(left)) { // (legal) EOF?
+                // Ok if (but only if!) was at boundary
+                if (left == 0) {
+                    if (mExpectLowSurrogate) {
+                        reportUnexpectedEOF(0, 2);
+                    }
+                    return -1;
+                }
+                reportUnexpectedEOF(left, 2);
+            }
+        }
+
+        len += start;
+        int outPtr = start;
+        final byte[] buf = mByteBuffer;
+        final int lastValidInputStart = (mByteBufferEnd - 2);
+        int ptr = mBytePtr;
+
+        while (outPtr < len && ptr <= lastValidInputStart) {
+            int ch;
+            if (mBigEndian) {
+                ch = ((buf[ptr] & 0xFF) << 8) | (buf[ptr+1] & 0xFF);
+            } else {
+                ch = (buf[ptr] & 0xFF) | ((buf[ptr+1] & 0xFF) << 8);
+            }
+            ptr += 2;
+
+            if (ch >= 0x7F) {
+                if (mExpectLowSurrogate) {
+                    if (ch < 0xDC00 || ch >= 0xE000) {
+                        mBytePtr = ptr;
+                        reportInvalid(ch, outPtr-start, "(expected second part of a surrogate pair) ");
+                    }
+                    mExpectLowSurrogate = false;
+                } else if (ch <= 0x9F) {
+                    if (mXml11) { // high-order ctrl char detection...
+                        if (ch != 0x85) {
+                            mBytePtr = ptr;
+                            reportInvalid(ch, outPtr-start, "(can only be included via entity in xml 1.1) ");
+                        }
+                        ch = CONVERT_NEL_TO;
+                    }
+                } else if (ch >= 0xD800) {
+                    if (ch < 0xDC00) { // first part of surrogate pair
+                        mExpectLowSurrogate = true;
+                    } else if (ch < 0xE000) {
+                        mBytePtr = ptr;
+                        reportInvalid(ch, outPtr-start, "(second part of a surrogate pair without first part) ");
+                    } else if (ch >= 0xFFFE) {
+                        mBytePtr = ptr;
+                        reportInvalid(ch, outPtr-start, "");
+                    }
+                } else if (ch == 0x2028 && mXml11) { // LSEP
+                    ch = CONVERT_LSEP_TO;
+                }
+            } else if (mExpectLowSurrogate) {
+                mBytePtr = ptr;
+                reportInvalid(ch, outPtr-start, "(expected second part of a surrogate pair) ");
+            }
+            cbuf[outPtr++] = (char) ch;
+        }
+        mBytePtr = ptr;
+
+        len = outPtr - start;
+        mCharCount += len;
+        return len;
+    }
+
+    /*
+    ///////////////////////////////////////////////////////////
+    // Internal methods
+    ///////////////////////////////////////////////////////////
+    */
+
+    private void reportUnexpectedEOF(int gotBytes, int needed)
+        throws IOException
+    {
+        int bytePos = mByteCount + gotBytes;
+        int charPos = mCharCount;
+
+        String desc = mExpectLowSurrogate ? "a UTF-16 surrogate pair" : "a 2-byte UTF-16 char";
+        throw new CharConversionException("Unexpected EOF in the middle of "+desc+": got "
+                +gotBytes+", needed "+needed
+                +", at char #"+charPos+", byte #"+bytePos+")");
+    }
+
+    private void reportInvalid(int value, int offset, String msg)
+        throws IOException
+    {
+        int bytePos = mByteCount + mBytePtr - 2;
+        int charPos = mCharCount + offset;
+
+        throw new CharConversionException("Invalid UTF-16 character 0x"
+                +Integer.toHexString(value)
+                +msg+" at char #"+charPos+", byte #"+bytePos+")");
+    }
+
+    /**
+     * @param available Number of "unused" bytes in the input buffer
+     *
+     * @return True, if enough bytes were read to allow decoding of at least
+     *   one full character; false if EOF was encountered instead.
+     */
+    private boolean loadMore(int available)
+        throws IOException
+    {
+        mByteCount += (mByteBufferEnd - available);
+
+        // Bytes that need to be moved to the beginning of buffer?
+        if (available > 0) {
+            // Can only move if we own the buffer; otherwise we are stuck
+            // with the data.
+            if (mBytePtr > 0 && canModifyBuffer()) {
+                mByteBuffer[0] = mByteBuffer[mBytePtr];
+                mBytePtr = 0;
+                mByteBufferEnd = available;
+            }
+        } else {
+            // Ok; here we can actually reasonably expect an EOF,
+            // so let's do a separate read right away:
+            int count = readBytes();
+            if (count < 1) {
+                if (count < 0) { // -1
+                    freeBuffers(); // to help GC?
+                    return false;
+                }
+                // 0 count is no good; let's err out
+                reportStrangeStream();
+            }
+        }
+
+        // Need at least 2 bytes; if we don't get that many, it's an error.
+        while ((mByteBufferEnd - mBytePtr) < 2) {
+            int count = readBytesAt(mByteBufferEnd);
+            if (count < 1) {
+                if (count < 0) { // -1, EOF... no good!
+                    freeBuffers(); // to help GC?
+                    reportUnexpectedEOF(mByteBufferEnd - mBytePtr, 2);
+                }
+                // 0 count is no good; let's err out
+                reportStrangeStream();
+            }
+        }
+        return true;
+    }
+}
@@ -354,6 +354,39 @@ public final class UTF8Writer
         mOutPtr = outPtr;
     }
 
+    /*
+    ////////////////////////////////////////////////////////////
+    // Extended API
+    ////////////////////////////////////////////////////////////
+     */
+
+    /**
+     * Method for writing already UTF-8 encoded content, without
+     * verifying it in any way. Longer content is passed directly to
+     * the underlying stream (along with buffered content), instead of
+     * being copied through the output buffer.
+     *
+     * @since 7.3
+     */
+    public void writeBytes(byte[] data, int offset, int len) throws IOException
+    {
+        if (mSurrogate != 0) {
+            throwIllegal(mSurrogate);
+        }
+        if (len < DirectOutput.MIN_DIRECT_WRITE) {
+            if ((mOutPtr + len) > mOutBuffer.length) {
+                mOut.write(mOutBuffer, 0, mOutPtr);
+                mOutPtr = 0;
+            }
+            System.arraycopy(data, offset, mOutBuffer, mOutPtr, len);
+            mOutPtr += len;
+            return;
+        }
+        int ptr = mOutPtr;
+        mOutPtr = 0;
+        DirectOutput.write(mOut, mOutBuffer, ptr, data, offset, len);
+    }
+
     /*
     ////////////////////////////////////////////////////////////
     // Internal methods
@@ -16,7 +16,12 @@
 package com.ctc.wstx.msv;
 
 import java.io.*;
+import java.net.URI;
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 
 import javax.xml.parsers.SAXParserFactory;
 import javax.xml.stream.*;
@@ -42,6 +47,17 @@ public abstract class BaseSchemaFactory
      */
     protected final ValidatorConfig mConfig;
 
+    /**
+     * Schemas loaded by this factory, keyed by system id, in access
+     * order (least recently used first); only used if caching is enabled
+     * (see {@link ValidatorConfig#P_CACHE_SCHEMAS}). Access needs to be
+     * synchronized on the map.
+     *
+     * @since 7.3
+     */
+    protected final LinkedHashMap<String,CachedSchema> mSchemaCache
+        = new LinkedHashMap<String,CachedSchema>(16, 0.75f, true);
+
     protected BaseSchemaFactory(String schemaType)
     {
         super(schemaType);
@@ -69,6 +85,18 @@ public abstract class BaseSchemaFactory
         return mConfig.getProperty(propName);
     }
 
+    /**
+     * Method that can be called to remove all cached schema instances
+     * (if schema caching is enabled).
+     *
+     * @since 7.3
+     */
+    public void clearSchemaCache() {
+        synchronized (mSchemaCache) {
+            mSchemaCache.clear();
+        }
+    }
+
     /*
     ////////////////////////////////////////////////////////////
     // Stax2, Factory methods
@@ -98,19 +126,14 @@ public abstract class BaseSchemaFactory
         return loadSchema(src, systemId);
     }
 
-    @SuppressWarnings("resource")
     @Override
     public XMLValidationSchema createSchema(URL url)
         throws XMLStreamException
     {
-        try {
-            InputStream in = URLUtil.inputStreamFromURL(url);
-            InputSource src = new InputSource(in);
-            src.setSystemId(url.toExternalForm());
-            return loadSchema(src, url);
-        } catch (IOException ioe) {
-            throw new WstxIOException(ioe);
+        if (mConfig.willCacheSchemas()) {
+            return findOrLoadSchema(url);
         }
+        return loadSchema(sourceFor(url), url);
     }
 
     @SuppressWarnings("deprecation")
@@ -134,12 +157,78 @@ public abstract class BaseSchemaFactory
     protected abstract XMLValidationSchema loadSchema(InputSource src, Object sysRef)
         throws XMLStreamException;
 
+    /**
+     * Alternate schema loading method that uses given controller for
+     * loading, so that caller can find out which other resources (included
+     * and imported schemas) were read. Default implementation simply
+     * calls {@link #loadSchema(InputSource, Object)}, in which case
+     * dependencies are not known.
+     *
+     * @since 7.3
+     */
+    protected XMLValidationSchema loadSchema(InputSource src, Object sysRef,
+            MyGrammarController ctrl)
+        throws XMLStreamException
+    {
+        return loadSchema(src, sysRef);
+    }
+
     /*
     ////////////////////////////////////////////////////////////
     // Internal/package methods
     ////////////////////////////////////////////////////////////
      */
 
+    /**
+     * Method that will either return a cached schema instance for given
+     * URL, or load one and add it to the cache (dropping the least
+     * recently used schema, if cache is full). Loading is "single-flight":
+     * if multiple threads request the same schema concurrently, only one
+     * of them will load it while others wait for the result.
+     */
+    protected XMLValidationSchema findOrLoadSchema(URL url)
+        throws XMLStreamException
+    {
+        final String systemId = url.toExternalForm();
+        CachedSchema entry;
+        synchronized (mSchemaCache) {
+            entry = mSchemaCache.get(systemId);
+            if (entry == null) {
+                entry = new CachedSchema();
+                mSchemaCache.put(systemId, entry);
+                final int maxSize = mConfig.getSchemaCacheSize();
+                Iterator<CachedSchema> it = mSchemaCache.values().iterator();
+                while (mSchemaCache.size() > maxSize) {
+                    it.next();
+                    it.remove();
+                }
+            }
+        }
+        synchronized (entry) {
+            XMLValidationSchema schema = entry.getSchema();
+            if (schema == null) {
+                MyGrammarController ctrl = new MyGrammarController();
+                schema = loadSchema(sourceFor(url), url, ctrl);
+                entry.setSchema(schema, systemId, ctrl.getResolvedIds());
+            }
+            return schema;
+        }
+    }
+
+    @SuppressWarnings("resource")
+    protected InputSource sourceFor(URL url)
+        throws XMLStreamException
+    {
+        try {
+            InputStream in = URLUtil.inputStreamFromURL(url);
+            InputSource src = new InputSource(in);
+            src.setSystemId(url.toExternalForm());
+            return src;
+        } catch (IOException ioe) {
+            throw new WstxIOException(ioe);
+        }
+    }
+
     /**
      * We will essentially share a singleton sax parser factory;
      * the reason being that constructing (or, rather, locating
@@ -165,8 +254,31 @@ public abstract class BaseSchemaFactory
     {
         public String mErrorMsg = null;
 
+        /**
+         * System ids of all resources (included, imported schemas)
+         * MSV resolved while loading the schema.
+         */
+        protected List<String> mResolvedIds = null;
+
         public MyGrammarController() { }
 
+        @Override
+        public InputSource resolveEntity(String publicId, String systemId)
+        {
+            if (systemId != null) {
+                if (mResolvedIds == null) {
+                    mResolvedIds = new ArrayList<String>();
+                }
+                mResolvedIds.add(systemId);
+            }
+            // null means "use default handling"
+            return null;
+        }
+
+        public List<String> getResolvedIds() {
+            return mResolvedIds;
+        }
+
         //public void warning(Locator[] locs, String errorMessage) { }
 
         @Override
@@ -179,4 +291,71 @@ public abstract class BaseSchemaFactory
             }
         }
     }
+
+    /**
+     * Entry in the schema cache. Besides the schema instance itself,
+     * keeps track of local files the schema was built from (main schema
+     * document as well as included and imported ones), so that the
+     * schema can be reloaded if any of them is modified.
+     */
+    protected final static class CachedSchema
+    {
+        private XMLValidationSchema mSchema;
+
+        private File[] mFiles;
+
+        private long[] mTimestamps;
+
+        CachedSchema() { }
+
+        /**
+         * @return Cached schema instance, if one exists and is still
+         *   up-to-date; null otherwise
+         */
+        XMLValidationSchema getSchema()
+        {
+            if (mSchema != null && mFiles != null) {
+                for (int i = 0, len = mFiles.length; i < len; ++i) {
+                    if (mFiles[i].lastModified() != mTimestamps[i]) {
+                        mSchema = null;
+                        break;
+                    }
+                }
+            }
+            return mSchema;
+        }
+
+        void setSchema(XMLValidationSchema schema, String systemId, List<String> deps)
+        {
+            ArrayList<File> files = new ArrayList<File>();
+            _addFile(files, systemId);
+            if (deps != null) {
+                for (String id : deps) {
+                    _addFile(files, id);
+                }
+            }
+            if (files.isEmpty()) {
+                mFiles = null;
+                mTimestamps = null;
+            } else {
+                mFiles = files.toArray(new File[files.size()]);
+                mTimestamps = new long[mFiles.length];
+                for (int i = 0; i < mFiles.length; ++i) {
+                    mTimestamps[i] = mFiles[i].lastModified();
+                }
+            }
+            mSchema = schema;
+        }
+
+        private static void _addFile(ArrayList<File> files, String systemId)
+        {
+            if (systemId.startsWith("file:")) {
+                try {
+                    files.add(new File(new URI(systemId)));
+                } catch (Exception e) { // malformed, or not hierarchical; can't track
+                    ;
+                }
+            }
+        }
+    }
 }
@@ -0,0 +1,78 @@
+/* Woodstox XML processor
+ *
+ * Copyright (c) 2004- Tatu Saloranta, tatu.saloranta@iki.fi
+ *
+ * Licensed under the License specified in the file LICENSE which is
+ * included with the source code.
+ * You may not use this file except in compliance with the License.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ctc.wstx.msv;
+
+import com.sun.msv.verifier.DocumentDeclaration;
+
+/**
+ * Small pool of MSV {@link DocumentDeclaration} instances ("VGMs"),
+ * used by schema instances to avoid having to construct the acceptor
+ * infrastructure (residual calculators, attribute feeders and so on)
+ * separately for each validated document. Instances are released back
+ * by {@link GenericMsvValidator} once validation of a document has
+ * been completed.
+ *<p>
+ * Instances are thread-safe, since schema objects are shared.
+ *
+ * @since 7.3
+ */
+abstract class DocDeclPool
+{
+    /**
+     * Maximum number of idle instances retained; more than this many are
+     * only needed if many documents are validated concurrently, in which
+     * case allocation cost is not the limiting factor.
+     */
+    final static int MAX_POOLED = 8;
+
+    private final DocumentDeclaration[] mPooled = new DocumentDeclaration[MAX_POOLED];
+
+    private int mCount;
+
+    protected DocDeclPool() { }
+
+    /**
+     * Method for getting a document declaration to use for validating
+     * a single document: either a pooled (released) instance, or a
+     * newly constructed one.
+     */
+    public DocumentDeclaration allocate()
+    {
+        synchronized (mPooled) {
+            if (mCount > 0) {
+                DocumentDeclaration dd = mPooled[--mCount];
+                mPooled[mCount] = null;
+                return dd;
+            }
+        }
+        return construct();
+    }
+
+    /**
+     * Method called to return an instance that is no longer used by
+     * any validator (or acceptor created by it).
+     */
+    public void release(DocumentDeclaration dd)
+    {
+        synchronized (mPooled) {
+            if (mCount < MAX_POOLED) {
+                mPooled[mCount++] = dd;
+            }
+        }
+    }
+
+    protected abstract DocumentDeclaration construct();
+}
@@ -41,7 +41,6 @@ import com.sun.msv.verifier.regexp.StringToken;
 import com.ctc.wstx.util.ElementId;
 import com.ctc.wstx.util.ElementIdMap;
 import com.ctc.wstx.util.PrefixedName;
-import com.ctc.wstx.util.TextAccumulator;
 
 /**
  * Generic validator instance to be used for all Multi-Schema Validator
@@ -58,6 +57,8 @@ public final class GenericMsvValidator
     implements com.sun.msv.grammar.IDContextProvider2,
         XMLStreamConstants
 {
+    private final static char CHAR_SPACE = ' ';
+
     /*
     ///////////////////////////////////////////////////////////
     // Configuration
@@ -70,17 +71,55 @@ public final class GenericMsvValidator
 
     final DocumentDeclaration mVGM;
 
+    /**
+     * Pool that {@link #mVGM} was allocated from, if any, and to which
+     * it is to be released once validation completes; null if no pooling
+     * is used, or if already released.
+     *
+     * @since 7.3
+     */
+    DocDeclPool mVGMPool;
+
     /*
     ///////////////////////////////////////////////////////////
     // State, helper objects
     ///////////////////////////////////////////////////////////
     */
 
-    final ArrayList<Object> mAcceptors = new ArrayList<Object>();
+    /**
+     * Stack of acceptors for currently open elements; first
+     * {@link #mAcceptorCount} entries are in use.
+     */
+    Acceptor[] mAcceptors = new Acceptor[16];
+
+    int mAcceptorCount = 0;
 
     Acceptor mCurrAcceptor = null;
 
-    final TextAccumulator mTextAccumulator = new TextAccumulator();
+    /**
+     * "String care level" of {@link #mCurrAcceptor}, as last computed;
+     * used to avoid accumulating text that MSV would ignore.
+     *
+     * @since 7.3
+     */
+    int mTextCareLevel = Acceptor.STRING_STRICT;
+
+    /**
+     * Text segment passed as a String, if the only text accumulated
+     * since last validated text.
+     */
+    String mText;
+
+    /**
+     * Buffer used for accumulating text passed in multiple segments;
+     * reused for the whole document.
+     */
+    char[] mTextBuffer;
+
+    /**
+     * Number of characters accumulated in {@link #mTextBuffer}
+     */
+    int mTextLen;
 
     /**
      * Map that contains information about element id (values of attributes
@@ -149,6 +188,19 @@ public final class GenericMsvValidator
         mAttributeProxy = new AttributeProxy(ctxt);
     }
 
+    /**
+     * Constructor used when document declaration is allocated from a
+     * pool maintained by the schema instance.
+     *
+     * @since 7.3
+     */
+    GenericMsvValidator(XMLValidationSchema parent, ValidationContext ctxt,
+            DocDeclPool vgmPool)
+    {
+        this(parent, ctxt, vgmPool.allocate());
+        mVGMPool = vgmPool;
+    }
+
     /*
     ///////////////////////////////////////////////////////////
     // IDContextProvider2 implementation:
@@ -256,8 +308,8 @@ public final class GenericMsvValidator
         }
 
         // Very first thing: do we have text collected?
-        if (mTextAccumulator.hasText()) {
-            doValidateText(mTextAccumulator);
+        if (mText != null || mTextLen > 0) {
+            doValidateText(_getAndClearText());
         }
 
         /* 31-Mar-2006, TSa: MSV seems to require empty String for empty/no
@@ -289,7 +341,12 @@ public final class GenericMsvValidator
             mProblem = null;
             mContext.reportProblem(p);
         }
-        mAcceptors.add(mCurrAcceptor);
+        if (mAcceptorCount == mAcceptors.length) {
+            mAcceptors = Arrays.copyOf(mAcceptors, mAcceptorCount + mAcceptorCount);
+        }
+        mAcceptors[mAcceptorCount++] = mCurrAcceptor;
+        // Not known until attributes have been handled; assume the worst
+        mTextCareLevel = Acceptor.STRING_STRICT;
     }
 
     @Override
@@ -352,17 +409,7 @@ public final class GenericMsvValidator
                 reportError(mErrorRef, XMLStreamConstants.END_ELEMENT, _startTagAsQName());
             }
 
-            int stringChecks = mCurrAcceptor.getStringCareLevel();
-            switch (stringChecks) {
-            case Acceptor.STRING_PROHIBITED: // only WS
-                return XMLValidator.CONTENT_ALLOW_WS;
-            case Acceptor.STRING_IGNORE: // anything (mixed content models)
-                return XMLValidator.CONTENT_ALLOW_ANY_TEXT;
-            case Acceptor.STRING_STRICT: // validatable (data-oriented)
-                return XMLValidator.CONTENT_ALLOW_VALIDATABLE_TEXT;
-            default:
-                throw new IllegalArgumentException("Internal error: unexpected string care level value return by MSV: "+stringChecks);
-            }
+            return _contentType(mCurrAcceptor);
         }
 
         // If no acceptor, we are recovering, no need or use to validate text
@@ -382,15 +429,17 @@ public final class GenericMsvValidator
          *   validation anyway, in case there might be restriction(s) on
          *   textual content. Otherwise we'll get an error.
          */
-        doValidateText(mTextAccumulator);
+        doValidateText(_getAndClearText());
 
         // [WSTX-200]: need to avoid problems when doing sub-tree
         //   validation... not a proper solution, but has to do for now
-        int lastIx = mAcceptors.size()-1;
+        int lastIx = mAcceptorCount-1;
         if (lastIx < 0) {
             return XMLValidator.CONTENT_ALLOW_WS;
         }
-        Acceptor acc = (Acceptor)mAcceptors.remove(lastIx);
+        Acceptor acc = mAcceptors[lastIx];
+        mAcceptors[lastIx] = null;
+        mAcceptorCount = lastIx;
         if (acc != null) { // may be null during error recovery? or not?
             if (!acc.isAcceptState(mErrorRef) || mErrorRef.str != null) {
                 if (mErrorRef.str == null) {
@@ -402,24 +451,14 @@ public final class GenericMsvValidator
         if (lastIx == 0) { // root closed
             mCurrAcceptor = null;
         } else {
-            mCurrAcceptor = (Acceptor) mAcceptors.get(lastIx-1);
+            mCurrAcceptor = mAcceptors[lastIx-1];
         }
         if (mCurrAcceptor != null && acc != null) {
             if (!mCurrAcceptor.stepForward(acc, mErrorRef)
                 || mErrorRef.str != null) {
                 reportError(mErrorRef, XMLStreamConstants.END_ELEMENT, _qname(uri, localName, prefix));
             }
-            int stringChecks = mCurrAcceptor.getStringCareLevel();
-            switch (stringChecks) {
-            case Acceptor.STRING_PROHIBITED: // only WS
-                return XMLValidator.CONTENT_ALLOW_WS;
-            case Acceptor.STRING_IGNORE: // anything (mixed content models)
-                return XMLValidator.CONTENT_ALLOW_ANY_TEXT;
-            case Acceptor.STRING_STRICT: // validatable (data-oriented)
-                return XMLValidator.CONTENT_ALLOW_VALIDATABLE_TEXT;
-            default:
-                throw new IllegalArgumentException("Internal error: unexpected string care level value return by MSV: "+stringChecks);
-            }
+            return _contentType(mCurrAcceptor);
         }
         return XMLValidator.CONTENT_ALLOW_ANY_TEXT;
     }
@@ -432,9 +471,24 @@ public final class GenericMsvValidator
          * (not guaranteed, though; in case of multiple parallel validators,
          * only one of them may actually be interested)
          */
-        mTextAccumulator.addText(text);
+        int len = text.length();
+        if (_canSkipText(text, len)) {
+            return;
+        }
+        if (mText == null && mTextLen == 0) {
+            if (lastTextSegment) { // common case: no need to accumulate
+                doValidateText(text);
+                return;
+            }
+            mText = text;
+            return;
+        }
+        _appendPendingString();
+        _ensureTextCapacity(len);
+        text.getChars(0, len, mTextBuffer, mTextLen);
+        mTextLen += len;
         if (lastTextSegment) {
-            doValidateText(mTextAccumulator);
+            doValidateText(_getAndClearText());
         }
     }
 
@@ -447,9 +501,21 @@ public final class GenericMsvValidator
          * (not guaranteed, though; in case of multiple parallel validators,
          * only one of them may actually be interested)
          */
-        mTextAccumulator.addText(cbuf, textStart, textEnd);
+        if (_canSkipText(cbuf, textStart, textEnd)) {
+            return;
+        }
+        int len = textEnd - textStart;
+        if (lastTextSegment && mText == null && mTextLen == 0) {
+            // common case: single segment, can construct String directly
+            doValidateText(new String(cbuf, textStart, len));
+            return;
+        }
+        _appendPendingString();
+        _ensureTextCapacity(len);
+        System.arraycopy(cbuf, textStart, mTextBuffer, mTextLen, len);
+        mTextLen += len;
         if (lastTextSegment) {
-            doValidateText(mTextAccumulator);
+            doValidateText(_getAndClearText());
         }
     }
 
@@ -462,6 +528,13 @@ public final class GenericMsvValidator
          * if validation was cancelled.
          */
         if (eod) {
+            // No more acceptors (that refer to document declaration) in use?
+            // If so, can let others reuse it
+            if (mVGMPool != null && mAcceptorCount == 0) {
+                mCurrAcceptor = null;
+                mVGMPool.release(mVGM);
+                mVGMPool = null;
+            }
             if (mIdDefs != null) {
                 ElementId ref = mIdDefs.getFirstUndefined();
                 if (ref != null) { // problem!
@@ -520,11 +593,10 @@ public final class GenericMsvValidator
         return new PrefixedName(mCurrAttrPrefix, mCurrAttrLocalName);
     }
 
-    void doValidateText(TextAccumulator textAcc)
+    void doValidateText(String str)
         throws XMLStreamException
     {
         if (mCurrAcceptor != null) {
-            String str = textAcc.getAndClear();
             DatatypeRef typeRef = null;
             if (!mCurrAcceptor.onText2(str, this, mErrorRef, typeRef)
                 || mErrorRef.str != null) {
@@ -533,6 +605,102 @@ public final class GenericMsvValidator
         }
     }
 
+    /**
+     * Helper method for converting MSV "string care level" into matching
+     * content type constant; also updates cached care level.
+     */
+    private int _contentType(Acceptor acc)
+    {
+        int stringChecks = acc.getStringCareLevel();
+        mTextCareLevel = stringChecks;
+        switch (stringChecks) {
+        case Acceptor.STRING_PROHIBITED: // only WS
+            return XMLValidator.CONTENT_ALLOW_WS;
+        case Acceptor.STRING_IGNORE: // anything (mixed content models)
+            return XMLValidator.CONTENT_ALLOW_ANY_TEXT;
+        case Acceptor.STRING_STRICT: // validatable (data-oriented)
+            return XMLValidator.CONTENT_ALLOW_VALIDATABLE_TEXT;
+        default:
+            throw new IllegalArgumentException("Internal error: unexpected string care level value return by MSV: "+stringChecks);
+        }
+    }
+
+    /**
+     * Method for checking whether given text segment can be skipped,
+     * without passing it to MSV. This is the case for all text within
+     * mixed content (which MSV ignores), and for white space within
+     * element-only content; same as what MSV's own SAX-based verifier
+     * does.
+     */
+    private boolean _canSkipText(char[] cbuf, int start, int end)
+    {
+        if (mTextCareLevel == Acceptor.STRING_IGNORE) {
+            return true;
+        }
+        if (mTextCareLevel == Acceptor.STRING_PROHIBITED) {
+            for (; start < end; ++start) {
+                if (cbuf[start] > CHAR_SPACE) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    private boolean _canSkipText(String text, int len)
+    {
+        if (mTextCareLevel == Acceptor.STRING_IGNORE) {
+            return true;
+        }
+        if (mTextCareLevel == Acceptor.STRING_PROHIBITED) {
+            for (int i = 0; i < len; ++i) {
+                if (text.charAt(i) > CHAR_SPACE) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    private void _appendPendingString()
+    {
+        if (mText != null) {
+            String str = mText;
+            mText = null;
+            int len = str.length();
+            _ensureTextCapacity(len);
+            str.getChars(0, len, mTextBuffer, mTextLen);
+            mTextLen += len;
+        }
+    }
+
+    private void _ensureTextCapacity(int len)
+    {
+        int needed = mTextLen + len;
+        if (mTextBuffer == null) {
+            mTextBuffer = new char[Math.max(needed, 500)];
+        } else if (needed > mTextBuffer.length) {
+            mTextBuffer = Arrays.copyOf(mTextBuffer, Math.max(needed, mTextBuffer.length + (mTextBuffer.length >> 1)));
+        }
+    }
+
+    private String _getAndClearText()
+    {
+        if (mText != null) {
+            String str = mText;
+            mText = null;
+            return str;
+        }
+        if (mTextLen > 0) {
+            String str = new String(mTextBuffer, 0, mTextLen);
+            mTextLen = 0;
+            return str;
+        }
+        return "";
+    }
+
     private void reportError(StringRef errorRef, int type, QName name) throws XMLStreamException
     {
         String msg = errorRef.str;
@@ -20,6 +20,7 @@ import javax.xml.stream.*;
 import org.codehaus.stax2.validation.*;
 
 import com.sun.msv.grammar.trex.TREXGrammar;
+import com.sun.msv.verifier.DocumentDeclaration;
 import com.sun.msv.verifier.regexp.REDocumentDeclaration;
 
 /**
@@ -36,9 +37,23 @@ public class RelaxNGSchema
      */
     protected final TREXGrammar mGrammar;
 
+    /**
+     * Document declarations released by validators that have completed
+     * validating their documents, to be reused for subsequent documents.
+     *
+     * @since 7.3
+     */
+    protected final DocDeclPool mDocDecls;
+
     public RelaxNGSchema(TREXGrammar grammar)
     {
         mGrammar = grammar;
+        mDocDecls = new DocDeclPool() {
+            @Override
+            protected DocumentDeclaration construct() {
+                return new REDocumentDeclaration(mGrammar);
+            }
+        };
     }
 
     @Override
@@ -50,7 +65,6 @@ public class RelaxNGSchema
     public XMLValidator createValidator(ValidationContext ctxt)
         throws XMLStreamException
     {
-        REDocumentDeclaration dd = new REDocumentDeclaration(mGrammar);
-        return new GenericMsvValidator(this, ctxt, dd);
+        return new GenericMsvValidator(this, ctxt, mDocDecls);
     }
 }
@@ -61,6 +61,14 @@ public class RelaxNGSchemaFactory
     @Override
     protected XMLValidationSchema loadSchema(InputSource src, Object sysRef)
         throws XMLStreamException
+    {
+        return loadSchema(src, sysRef, new MyGrammarController());
+    }
+
+    @Override
+    protected XMLValidationSchema loadSchema(InputSource src, Object sysRef,
+            MyGrammarController ctrl)
+        throws XMLStreamException
     {
         /* 26-Oct-2007, TSa: Are sax parser factories safe to share?
          *   If not, should just create new instances for each
@@ -70,7 +78,6 @@ public class RelaxNGSchemaFactory
          * errors in parsing?
          */
         SAXParserFactory saxFactory = getSaxFactory();
-        MyGrammarController ctrl = new MyGrammarController();
         TREXGrammar grammar = RELAXNGReader.parse(src, saxFactory, ctrl);
         if (grammar == null) {
             String msg = "Failed to load RelaxNG schema from '"+sysRef+"'";
@@ -20,6 +20,7 @@ import javax.xml.stream.*;
 import org.codehaus.stax2.validation.*;
 
 import com.sun.msv.grammar.xmlschema.XMLSchemaGrammar;
+import com.sun.msv.verifier.DocumentDeclaration;
 import com.sun.msv.verifier.regexp.xmlschema.XSREDocDecl;
 
 /**
@@ -31,9 +32,23 @@ public class W3CSchema
 {
     protected final XMLSchemaGrammar mGrammar;
 
+    /**
+     * Document declarations released by validators that have completed
+     * validating their documents, to be reused for subsequent documents.
+     *
+     * @since 7.3
+     */
+    protected final DocDeclPool mDocDecls;
+
     public W3CSchema(XMLSchemaGrammar grammar)
     {
         mGrammar = grammar;
+        mDocDecls = new DocDeclPool() {
+            @Override
+            protected DocumentDeclaration construct() {
+                return new XSREDocDecl(mGrammar);
+            }
+        };
     }
 
     @Override
@@ -45,7 +60,6 @@ public class W3CSchema
     public XMLValidator createValidator(ValidationContext ctxt)
         throws XMLStreamException
     {
-        XSREDocDecl dd = new XSREDocDecl(mGrammar);
-        return new GenericMsvValidator(this, ctxt, dd);
+        return new GenericMsvValidator(this, ctxt, mDocDecls);
     }
 }
@@ -61,6 +61,14 @@ public class W3CSchemaFactory
     @Override
     protected XMLValidationSchema loadSchema(InputSource src, Object sysRef)
         throws XMLStreamException
+    {
+        return loadSchema(src, sysRef, new MyGrammarController());
+    }
+
+    @Override
+    protected XMLValidationSchema loadSchema(InputSource src, Object sysRef,
+            MyGrammarController ctrl)
+        throws XMLStreamException
     {
         /* 26-Oct-2007, TSa: Are sax parser factories safe to share?
          *   If not, should just create new instances for each
@@ -68,7 +76,6 @@ public class W3CSchemaFactory
          */
         SAXParserFactory saxFactory = getSaxFactory();
 
-        MyGrammarController ctrl = new MyGrammarController();
         XMLSchemaGrammar grammar = XMLSchemaReader.parse(src, saxFactory, ctrl);
         if (grammar == null) {
             String msg = "Failed to load W3C Schema from '"+sysRef+"'";
@@ -898,10 +898,8 @@ public class WstxSAXParser
             if (index < 0) {
                 return null;
             }
-            String prefix = mAttrCollector.getPrefix(index);
-            String ln = mAttrCollector.getLocalName(index);
-            return (prefix == null || prefix.length() == 0) ?
-                ln : (prefix + ":" + ln);
+            // Element stack caches qualified names, no need to concatenate
+            return mElemStack.getAttributeQName(index);
         }
         index -= mAttrCount;
         if (index < mNsCount) {
@@ -909,11 +907,7 @@ public class WstxSAXParser
              * element stack, not attribute collector:
              */
             //String prefix = mAttrCollector.getNsPrefix(index);
-            String prefix = mElemStack.getLocalNsPrefix(index);
-            if (prefix == null || prefix.length() == 0) {
-                return "xmlns";
-            }
-            return "xmlns:"+prefix;
+            return mElemStack.getLocalNsDeclQName(index);
         }
         return null;
     }
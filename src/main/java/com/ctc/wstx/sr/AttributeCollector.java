@@ -194,6 +194,13 @@ public final class AttributeCollector
     protected int mMaxAttributesPerElement;
 //    protected int mMaxAttributeSize;
 
+    /**
+     * Cache used for canonicalizing short attribute values, if enabled.
+     *
+     * @since 7.3
+     */
+    protected final ValueCache mValueCache;
+
     /*
     ///////////////////////////////////////////////
     // Life-cycle:
@@ -212,6 +219,7 @@ public final class AttributeCollector
         }
         mMaxAttributesPerElement = cfg.getMaxAttributesPerElement();
 //        mMaxAttributeSize = cfg.getMaxAttributeSize();
+        mValueCache = cfg.getValueCache();
     }
 
     /**
@@ -359,8 +367,20 @@ public final class AttributeCollector
         if (index < 0 || index >= mAttrCount) {
             throwIndex(index);
         }
-        String full = mValueBuilder.getAllValues();
         Attribute attr = mAttributes[index];
+        // Short values may be shared via cache, if one is enabled; if so,
+        // can also avoid constructing the String with all values
+        if (mValueCache != null && attr.mReusableValue == null) {
+            int start = attr.mValueStartOffset;
+            int end = (index+1 < mAttrCount) ?
+                mAttributes[index+1].mValueStartOffset : mValueBuilder.getCharSize();
+            if (mValueCache.canCache(end - start)) {
+                String value = mValueCache.find(mValueBuilder.getCharBuffer(), start, end - start);
+                attr.setValue(value);
+                return value;
+            }
+        }
+        String full = mValueBuilder.getAllValues();
         ++index;
         if (index < mAttrCount) { // not last
             int endOffset = mAttributes[index].mValueStartOffset;
@@ -40,6 +40,7 @@ import org.codehaus.stax2.validation.*;
 
 import com.ctc.wstx.api.ReaderConfig;
 import com.ctc.wstx.api.WstxInputProperties;
+import com.ctc.wstx.api.WstxMetrics;
 import com.ctc.wstx.cfg.ErrorConsts;
 import com.ctc.wstx.cfg.XmlConsts;
 import com.ctc.wstx.dtd.MinimalDTDReader;
@@ -48,9 +49,12 @@ import com.ctc.wstx.exc.WstxException;
 import com.ctc.wstx.io.*;
 import com.ctc.wstx.util.DefaultXmlSymbolTable;
 import com.ctc.wstx.util.ExceptionUtil;
+import com.ctc.wstx.util.InternCache;
 import com.ctc.wstx.util.StringUtil;
 import com.ctc.wstx.util.TextBuffer;
 import com.ctc.wstx.util.TextBuilder;
+import com.ctc.wstx.util.TextView;
+import com.ctc.wstx.util.ValueCache;
 
 /**
  * Partial implementation of {@link XMLStreamReader2} consisting of
@@ -84,6 +88,13 @@ public abstract class BasicStreamReader
     final static int STATE_MULTIDOC_HACK = 3; // State "between" multiple documents (in multi-doc mode)
     final static int STATE_CLOSED = 4; // After reader has been closed
 
+    /**
+     * Marker used as {@link #mSecondaryToken} when document boundary
+     * was indicated by a document separator (and not by the first event
+     * of the next document).
+     */
+    final static int MULTIDOC_SEPARATOR = -1;
+
     // // // Tokenization state consts:
 
     // no idea as to what comes next (unknown type):
@@ -185,6 +196,14 @@ public abstract class BasicStreamReader
     protected final boolean mCfgReportTextAsChars;
     protected final boolean mCfgLazyParsing;
 
+    /**
+     * Character used to separate documents, in multi-document mode;
+     * -1 if none (or if not in multi-document mode)
+     *
+     * @since 7.3
+     */
+    protected final int mCfgDocSeparator;
+
     /**
      * Minimum number of characters parser can return as partial text
      * segment, IF it's not required to coalesce adjacent text
@@ -322,6 +341,62 @@ public abstract class BasicStreamReader
      */
     protected int mSecondaryToken = START_DOCUMENT;
 
+    /**
+     * Index of the current document within the input stream; only
+     * changes in multi-document mode.
+     *
+     * @since 7.3
+     */
+    protected int mDocumentIndex = 0;
+
+    /**
+     * Character offset of the start of the current document within
+     * the input stream.
+     *
+     * @since 7.3
+     */
+    protected long mDocumentStartOffset = 0L;
+
+    /**
+     * Character offset of the start of the next document, when
+     * a document boundary has been detected but not yet crossed.
+     *
+     * @since 7.3
+     */
+    protected long mNextDocumentStart = 0L;
+
+    /**
+     * Number of attributes start elements of the current document have
+     * had; only used for metrics.
+     *
+     * @since 7.3
+     */
+    protected long mTotalAttributes = 0L;
+
+    /**
+     * Evaluation state of the path filter, if one is used; null if not.
+     *
+     * @since 7.3
+     */
+    protected PathMatcher mPathMatcher;
+
+    /**
+     * Cache used for canonicalizing short text values returned by
+     * {@link #getText} (and {@link #getElementText}), if enabled.
+     *
+     * @since 7.3
+     */
+    protected final ValueCache mValueCache;
+
+    /**
+     * When path filter is used, depth of the element that matched the
+     * filter (and is being reported along with its contents); 0 when
+     * outside such element.
+     *
+     * @since 7.3
+     */
+    protected int mPathMatchDepth = 0;
+
     /**
      * Status of current (text) token's "whitespaceness", that is,
      * whether it is or is not all white space.
@@ -427,6 +502,12 @@ public abstract class BasicStreamReader
          *   not catching all exceptions as expected)
          */
         mCfgLazyParsing = !forER && ((mConfigFlags & CFG_LAZY_PARSING) != 0);
+        mCfgDocSeparator = cfg.inputParsingModeDocuments() ? cfg.getInputDocumentSeparator() : -1;
+        {
+            PathFilter pf = cfg.getPathFilter();
+            mPathMatcher = (pf == null) ? null : new PathMatcher(pf);
+        }
+        mValueCache = cfg.getValueCache();
 
         /* There are a few derived settings used during tokenization that
          * need to be initialized now...
@@ -714,7 +795,7 @@ public abstract class BasicStreamReader
             mInputPtr += 2;
             mCurrToken = END_ELEMENT;
             // must first get text, as call to readEndElem may break it:
-            String result = mTextBuffer.contentsAsString();
+            String result = mTextBuffer.contentsAsString(mValueCache);
             // Can by-pass next(), nextFromTree(), in this case:
             readEndElem();
             // and then return results
@@ -903,7 +984,26 @@ public abstract class BasicStreamReader
             //   should return just the internal subset, or the whole thing...
             return getDTDInternalSubset();
         }
-        return mTextBuffer.contentsAsString();
+        return mTextBuffer.contentsAsString(mValueCache);
+    }
+
+    @Override
+    public TextView getTextAsCharSequence()
+    {
+        final int currToken = mCurrToken;
+        if (((1 << currToken) & MASK_GET_TEXT) == 0) {
+            throwNotTextual(currToken);
+        }
+        if (mTokenState < mStTextThreshold) {
+            safeFinishToken();
+        }
+        if (currToken == ENTITY_REFERENCE) {
+            // External entities have no replacement text (same as with getText())
+            char[] ch = (mCurrEntity == null) ? null : mCurrEntity.getReplacementChars();
+            return (ch == null) ? null : mTextBuffer.contentsAsCharSequence(ch, 0, ch.length);
+        }
+        // note: for DTD, buffer contains the internal subset
+        return mTextBuffer.contentsAsCharSequence();
     }
 
     @Override
@@ -1106,6 +1206,14 @@ public abstract class BasicStreamReader
 
     @Override
     public final int next() throws XMLStreamException
+    {
+        if (mPathMatcher != null) {
+            return nextMatching();
+        }
+        return nextToken();
+    }
+
+    private final int nextToken() throws XMLStreamException
     {
         /* 24-Sep-2006, TSa: We may have deferred an exception that occurred
          *   during parsing of the previous event. If so, now it needs to
@@ -1198,6 +1306,90 @@ public abstract class BasicStreamReader
         return mCurrToken;
     }
 
+    /**
+     * Method called instead of {@link #nextToken} when a path filter is
+     * used, to skip events outside of elements that match the filter.
+     */
+    private int nextMatching() throws XMLStreamException
+    {
+        if (mPathMatchDepth > 0) {
+            // Within matching element, everything is reported; but need to
+            // check depth since end element may have been read by
+            // getElementText() or such, not via this method
+            if (mCurrToken != END_ELEMENT || mElementStack.getDepth() != mPathMatchDepth) {
+                return nextToken();
+            }
+            mPathMatchDepth = 0;
+            mPathMatcher.endElement();
+        }
+        while (true) {
+            int type = nextToken();
+            switch (type) {
+            case START_ELEMENT:
+                switch (mPathMatcher.startElement(mElementStack)) {
+                case PathMatcher.ELEMENT_MATCHES:
+                    mPathMatchDepth = mElementStack.getDepth();
+                    return type;
+                case PathMatcher.ELEMENT_SKIP:
+                    skipUnmatchedElement();
+                    mPathMatcher.endElement();
+                    break;
+                }
+                break;
+            case END_ELEMENT:
+                mPathMatcher.endElement();
+                break;
+            case START_DOCUMENT:
+            case END_DOCUMENT:
+                return type;
+            }
+        }
+    }
+
+    /**
+     * Method called to skip contents of an element that the path
+     * filter can not match; similar to {@link #skipElement}, but
+     * does not finish text events unless they need to be validated.
+     */
+    private void skipUnmatchedElement() throws XMLStreamException
+    {
+        int nesting = 1;
+        while (true) {
+            int type;
+            if (mValidateText) {
+                type = nextToken();
+            } else {
+                type = nextFromTree();
+                mCurrToken = type;
+            }
+            if (type == START_ELEMENT) {
+                ++nesting;
+            } else if (type == END_ELEMENT) {
+                if (--nesting == 0) {
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Method called by {@link MultiPathMatcher} to skip the current
+     * element (reader must point to its START_ELEMENT), when neither it
+     * nor its descendants can match any of the paths.
+     */
+    final void skipElementContents() throws XMLStreamException
+    {
+        if (mCurrToken != START_ELEMENT) {
+            throw new IllegalStateException(ErrorConsts.ERR_STATE_NOT_STELEM);
+        }
+        // If path filter is also used, need to keep its state in sync
+        if (mPathMatcher != null) {
+            skipElement();
+        } else {
+            skipUnmatchedElement();
+        }
+    }
+
     @Override
     public int nextTag() throws XMLStreamException
     {
@@ -1263,6 +1455,14 @@ public abstract class BasicStreamReader
              * for the underlying source, so we need not check that here.
              */
             closeAllInput(false);
+            /* If closed before the end of input; unless document was
+             * already reported when crossing the boundary to the next
+             * (not yet started) one, in multi-document mode
+             */
+            if (mConfig.getMetrics() != null
+                    && (mDocumentIndex == 0 || mElementStack.mTotalElements > 0)) {
+                reportDocumentMetrics(mCurrInputProcessed + mInputPtr);
+            }
             // And finally, can now recycle low-level (text) buffers
             mTextBuffer.recycle(true);
         }
@@ -1304,7 +1504,15 @@ public abstract class BasicStreamReader
     @Override
     public boolean setProperty(String name, Object value)
     {
+        final boolean pathFilter = WstxInputProperties.P_PATH_FILTER.equals(name);
+        if (pathFilter && mParseState != STATE_PROLOG) {
+            throw new IllegalStateException("Can not change path filter after the root element has been read");
+        }
         boolean ok = mConfig.setProperty(name, value);
+        if (ok && pathFilter) {
+            PathFilter pf = mConfig.getPathFilter();
+            mPathMatcher = (pf == null) ? null : new PathMatcher(pf);
+        }
         /* To make [WSTX-50] work fully dynamically (i.e. allow
          * setting BASE_URL after stream reader has been constructed)
          * need to force
@@ -1338,6 +1546,165 @@ public abstract class BasicStreamReader
         }
     }
 
+    /**
+     * Method similar to {@link #skipElement}, but one that also copies the
+     * whole element -- start tag, all contents and the matching end tag --
+     * to given Writer, exactly as it appears in the input document: no
+     * entity expansion, linefeed normalization or re-serialization is done.
+     * After successful call, current event is the matching END_ELEMENT.
+     *<p>
+     * Raw copying is only possible if the start tag is located in the main
+     * document (not within an expanded entity), and is still contained
+     * within the current input buffer; if not, method returns false
+     * without changing state of the reader, and caller needs to copy
+     * the element using other means.
+     *
+     * @return True if element was skipped and copied; false if raw copying
+     *   was not possible
+     *
+     * @since 7.3
+     */
+    @Override
+    public boolean skipElementCopyingRaw(Writer w) throws XMLStreamException
+    {
+        if (mCurrToken != START_ELEMENT) {
+            throw new IllegalStateException(ErrorConsts.ERR_STATE_NOT_STELEM);
+        }
+        if (mInput != mRootInput || !(mInput instanceof BranchingReaderSource)) {
+            return false;
+        }
+        long start = mTokenInputTotal - mCurrInputProcessed;
+        if (start < 0L || start >= mInputPtr) {
+            return false;
+        }
+        BranchingReaderSource input = (BranchingReaderSource) mInput;
+        input.startBranch(w, (int) start);
+        boolean ok = false;
+        try {
+            skipElement();
+            ok = true;
+        } finally {
+            if (!ok) {
+                input.cancelBranchToWriter();
+            }
+        }
+        try {
+            input.endBranchToWriter(mInputPtr);
+        } catch (IOException ioe) {
+            throw constructFromIOE(ioe);
+        }
+        return true;
+    }
+
+    // // // Multi-document mode access
+
+    @Override
+    public int getDocumentIndex() {
+        return mDocumentIndex;
+    }
+
+    @Override
+    public long getDocumentStartOffset() {
+        return mDocumentStartOffset;
+    }
+
+    @Override
+    public boolean skipDocument() throws XMLStreamException
+    {
+        if (mCfgDocSeparator < 0) {
+            throw new IllegalStateException("Can not skip documents: requires multi-document parsing mode with property '"
+                    +WstxInputProperties.P_INPUT_DOCUMENT_SEPARATOR+"' set");
+        }
+        if (mParseState == STATE_CLOSED) {
+            return false;
+        }
+        // Between documents? Need to count the one we'll skip
+        if (mParseState == STATE_MULTIDOC_HACK && mCurrToken == END_DOCUMENT) {
+            resetForNextDocument();
+        }
+        // Any expanded entities can just be closed
+        if (mInput != mRootInput) {
+            do {
+                WstxInputSource input = mInput;
+                try {
+                    input.close();
+                } catch (IOException ioe) {
+                    throw constructFromIOE(ioe);
+                }
+                mInput = input = input.getParent();
+                input.restoreContext(this);
+            } while (mInput != mRootInput);
+            mInputTopDepth = 0;
+            if (!mNormalizeLFs) {
+                mNormalizeLFs = !mInput.fromInternalEntity();
+            }
+        }
+        mCurrDepth = 0;
+        mTextBuffer.resetWithEmpty();
+        mTokenState = TOKEN_FULL_COALESCED;
+
+        // Then just need to find the separator; only linefeeds matter
+        final char sep = (char) mCfgDocSeparator;
+        main_loop:
+        while (true) {
+            if (mInputPtr >= mInputEnd) {
+                if (!loadMore()) {
+                    handleEOF(false);
+                    mParseState = STATE_CLOSED;
+                    mSecondaryToken = 0; // END_DOCUMENT is the current event
+                    mElementStack.resetForNextDocument();
+                    return false;
+                }
+            }
+            final char[] buf = mInputBuffer;
+            final int end = mInputEnd;
+            int ptr = mInputPtr;
+            while (ptr < end) {
+                char c = buf[ptr++];
+                if (c <= CHAR_SPACE) {
+                    if (c == sep) {
+                        mInputPtr = ptr;
+                        break main_loop;
+                    }
+                    if (c == '\n') {
+                        markLF(ptr);
+                    } else if (c == '\r') {
+                        if (ptr < end && buf[ptr] == '\n') {
+                            ++ptr;
+                        }
+                        markLF(ptr);
+                    }
+                }
+            }
+            mInputPtr = ptr;
+        }
+
+        mParseState = STATE_EPILOG;
+        if (nextAfterDocumentSeparator()) {
+            mSecondaryToken = 0;
+            return false;
+        }
+        // Got END_DOCUMENT for the boundary, need to move to START_DOCUMENT
+        mCurrToken = nextFromMultiDocState();
+        return true;
+    }
+
+    @Override
+    public void bindRootNamespace(String prefix, String nsURI)
+    {
+        if (mParseState != STATE_PROLOG && mParseState != STATE_TREE) {
+            throw new IllegalStateException("Can only bind root namespaces before the root element");
+        }
+        // Prefixes are compared by identity, need to canonicalize
+        if (prefix != null) {
+            prefix = (prefix.length() == 0) ? null : mSymbols.findSymbol(prefix);
+        }
+        if (nsURI != null && mConfig.willInternNsURIs()) {
+            nsURI = InternCache.getInstance().intern(nsURI);
+        }
+        mElementStack.addRootNsBinding(prefix, nsURI);
+    }
+
     // // // StAX2, additional attribute access
 
     @Override
@@ -1509,19 +1876,8 @@ public abstract class BasicStreamReader
         switch (mCurrToken) {
         case START_ELEMENT:
         case END_ELEMENT:
-            {
-                String prefix = mElementStack.getPrefix();
-                String ln = mElementStack.getLocalName();
-
-                if (prefix == null) {
-                    return ln;
-                }
-                StringBuilder sb = new StringBuilder(ln.length() + 1 + prefix.length());
-                sb.append(prefix);
-                sb.append(':');
-                sb.append(ln);
-                return sb.toString();
-            }
+            // element stack caches qualified names, so no need to build here
+            return mElementStack.getTopElementDesc();
         case ENTITY_REFERENCE:
             return getLocalName();
         case PROCESSING_INSTRUCTION:
@@ -2022,7 +2378,7 @@ public abstract class BasicStreamReader
                         ;
                     } else { // full entity just changes buffer...
                         final WstxInputSource preInput = mInput;
-                        ch = fullyResolveEntity(false);
+                        ch = fullyResolveEntity(false, true);
                         if (ch == 0) {
                             // [woodstox-core#292] char-ref-as-entity: output its
                             // replacement chars inline (else expanded to new input
@@ -2121,6 +2477,10 @@ currAttrSize, maxAttrSize, outPtr, outBuf.length));
 
         // Any white space to parse or skip?
         if (i <= CHAR_SPACE && i >= 0) {
+            // Document separator? (can never be legal white space)
+            if (i == mCfgDocSeparator && !isProlog) {
+                return nextAfterDocumentSeparator();
+            }
             // Need to return as an event?
             if (hasConfigFlags(CFG_REPORT_PROLOG_WS)) {
                 mCurrToken = SPACE;
@@ -2145,7 +2505,7 @@ currAttrSize, maxAttrSize, outPtr, outBuf.length));
             }
             // If not, can skip it right away
             --mInputPtr; // to handle linefeeds gracefully
-            i = getNextAfterWS();
+            i = (isProlog || mCfgDocSeparator < 0) ? getNextAfterWS() : getNextAfterEpilogWS();
             if (i >= 0) {
                 // ... after which location has to be reset properly:
                 /* 11-Apr-2005, TSa: But note that we need to "move back"
@@ -2156,6 +2516,9 @@ currAttrSize, maxAttrSize, outPtr, outBuf.length));
                 mTokenInputTotal = mCurrInputProcessed + mInputPtr - 1;
                 mTokenInputRow = mCurrInputRow;
                 mTokenInputCol = mInputPtr - mCurrInputRowStart - 1;
+                if (i == mCfgDocSeparator) { // only returned for epilog
+                    return nextAfterDocumentSeparator();
+                }
             }
         }
 
@@ -2257,6 +2620,9 @@ currAttrSize, maxAttrSize, outPtr, outBuf.length));
         if (isProlog) {
             throwUnexpectedEOF(SUFFIX_IN_PROLOG);
         }
+        if (mConfig.getMetrics() != null) {
+            reportDocumentMetrics(mCurrInputProcessed + mInputPtr);
+        }
         return mCurrToken;
     }
 
@@ -2297,9 +2663,134 @@ currAttrSize, maxAttrSize, outPtr, outBuf.length));
         mParseState = STATE_MULTIDOC_HACK;
         mTokenState = TOKEN_FULL_COALESCED; // this is a virtual event after all...
         mSecondaryToken = nextEvent;
+        mNextDocumentStart = mTokenInputTotal;
         return END_DOCUMENT;
     }
 
+    /**
+     * Method called when a document separator has been encountered in
+     * epilog. Unless followed by end of input, will indicate document
+     * boundary similar to {@link #handleMultiDocStart}.
+     *
+     * @return True if we hit EOI, false otherwise
+     */
+    private boolean nextAfterDocumentSeparator()
+        throws XMLStreamException
+    {
+        long docStart;
+        int i;
+        // Need to skip white space, as well as possible empty documents
+        do {
+            docStart = mCurrInputProcessed + mInputPtr;
+            i = getNextAfterEpilogWS();
+        } while (i == mCfgDocSeparator);
+
+        if (i < 0) {
+            handleEOF(false);
+            mParseState = STATE_CLOSED;
+            return true;
+        }
+        --mInputPtr;
+        mTokenInputTotal = mCurrInputProcessed + mInputPtr;
+        mTokenInputRow = mCurrInputRow;
+        mTokenInputCol = mInputPtr - mCurrInputRowStart;
+
+        // Xml declaration needs to be handled as a part of START_DOCUMENT
+        int nextEvent = MULTIDOC_SEPARATOR;
+        if (i == '<' && ensureInput(6)) {
+            char[] buf = mInputBuffer;
+            int ptr = mInputPtr;
+            if (buf[ptr+1] == '?' && buf[ptr+2] == 'x' && buf[ptr+3] == 'm'
+                && buf[ptr+4] == 'l' && isSpaceChar(buf[ptr+5])) {
+                mInputPtr = ptr+6;
+                nextEvent = START_DOCUMENT;
+            }
+        }
+        mCurrToken = handleMultiDocStart(nextEvent);
+        mNextDocumentStart = docStart;
+        return false;
+    }
+
+    /**
+     * Variant of {@link #getNextAfterWS} used in epilog when a document
+     * separator has been configured: separator ends white space similar
+     * to other non-white space characters.
+     */
+    private int getNextAfterEpilogWS()
+        throws XMLStreamException
+    {
+        while (true) {
+            if (mInputPtr >= mInputEnd) {
+                if (!loadMore()) {
+                    return -1;
+                }
+            }
+            char c = mInputBuffer[mInputPtr++];
+            if (c > CHAR_SPACE || c == mCfgDocSeparator) {
+                return c;
+            }
+            if (c == '\n' || c == '\r') {
+                skipCRLF(c);
+            } else if (c != CHAR_SPACE && c != '\t') {
+                throwInvalidSpace(c);
+            }
+        }
+    }
+
+    /**
+     * Method called when crossing a document boundary in multi-document
+     * mode, to clear out all per-document state; and to let the owner
+     * factory know of symbols added by the document just completed.
+     */
+    protected void resetForNextDocument()
+    {
+        if (mConfig.getMetrics() != null) {
+            reportDocumentMetrics(mNextDocumentStart);
+        }
+        ++mDocumentIndex;
+        mDocumentStartOffset = mNextDocumentStart;
+
+        mDocXmlEncoding = null;
+        mDocXmlVersion = XmlConsts.XML_V_UNKNOWN;
+        mDocStandalone = DOC_STANDALONE_UNKNOWN;
+        mStDoctypeFound = false;
+        mDtdPublicId = null;
+        mDtdSystemId = null;
+        mRootPrefix = null;
+        mRootLName = null;
+        mGeneralEntities = null;
+        mEntityExpansionCount = 0;
+        mTotalAttributes = 0L;
+        mElementStack.resetForNextDocument();
+        if (mPathMatcher != null) {
+            mPathMatcher.reset();
+            mPathMatchDepth = 0;
+        }
+
+        if (mSymbols.isDirty()) {
+            mOwner.updateSymbolTable(mSymbols);
+        }
+    }
+
+    /**
+     * Method called to pass counts for the current document to the
+     * configured metrics object; either when crossing a document
+     * boundary, or when reader is closed.
+     *
+     * @param endOffset Character offset of the end of the document
+     */
+    private void reportDocumentMetrics(long endOffset)
+    {
+        WstxMetrics metrics = mConfig.getMetrics();
+        int bufferExpansions = mBufferExpansionCount + mTextBuffer.getExpansionCount();
+        mBufferExpansionCount = 0;
+        mTextBuffer.resetExpansionCount();
+        metrics.documentRead(Math.max(0L, endOffset - mDocumentStartOffset),
+                mElementStack.mTotalElements, mTotalAttributes,
+                mEntityExpansionCount, bufferExpansions,
+                mSymbols.size(), mSymbols.calcAvgSeek());
+    }
+
     /**
      * Method called to get the next event when we are "multi-doc hack" mode,
      * during which extra END_DOCUMENT/START_DOCUMENT events need to be
@@ -2313,20 +2804,17 @@ currAttrSize, maxAttrSize, outPtr, outBuf.length));
              * xml declaration if that was the cause, otherwise just clear
              * up values.
              */
+            resetForNextDocument();
             if (mSecondaryToken == START_DOCUMENT) {
                 handleMultiDocXmlDecl();
-            } else { // Nah, DOCTYPE or start element... just need to clear decl info:
-                mDocXmlEncoding = null;
-                mDocXmlVersion = XmlConsts.XML_V_UNKNOWN;
-                mDocStandalone = DOC_STANDALONE_UNKNOWN;
             }
             return START_DOCUMENT;
         }
         if (mCurrToken == START_DOCUMENT) {
             mParseState = STATE_PROLOG; // yup, we are now officially in prolog again...
 
-            // Had an xml decl (ie. "real" START_DOCUMENT event)
-            if (mSecondaryToken == START_DOCUMENT) { // was a real xml decl
+            // Had an xml decl (ie. "real" START_DOCUMENT event), or separator
+            if (mSecondaryToken == START_DOCUMENT || mSecondaryToken == MULTIDOC_SEPARATOR) {
                 nextFromProlog(true);
                 return mCurrToken;
             }
@@ -2511,10 +2999,8 @@ currAttrSize, maxAttrSize, outPtr, outBuf.length));
             if (!isProlog) {
                 // Still possibly ok in multidoc mode...
                 if (mConfig.inputParsingModeDocuments()) {
-                    if (!mStDoctypeFound) {
-                        mCurrToken = handleMultiDocStart(DTD);
-                        return;
-                    }
+                    mCurrToken = handleMultiDocStart(DTD);
+                    return;
                 } else {
                     throwParseError(ErrorConsts.ERR_DTD_IN_EPILOG);
                 }
@@ -3155,6 +3641,7 @@ currAttrSize, maxAttrSize, outPtr, outBuf.length));
          *   occur later on when actually returning that end element.
          */
         int vld = mElementStack.resolveAndValidateElement();
+        mTotalAttributes += mAttrCollector.getCount();
         mVldContent = vld;
         mValidateText = (vld == XMLValidator.CONTENT_ALLOW_VALIDATABLE_TEXT);
     }
@@ -3595,6 +4082,10 @@ currAttrSize, maxAttrSize, outPtr, outBuf.length));
                     if (c == '\n' || c == '\r') {
                         skipCRLF(c);
                     } else if (c != CHAR_SPACE && c != '\t') {
+                        if (c == mCfgDocSeparator && mParseState == STATE_EPILOG) {
+                            result = c;
+                            break main_switch;
+                        }
                         throwInvalidSpace(c);
                     }
                 }
@@ -4913,7 +5404,7 @@ currAttrSize, maxAttrSize, outPtr, outBuf.length));
                             // Ok, it's fine then
                         } else {
                             final WstxInputSource preInput = mInput;
-                            ch = fullyResolveEntity(true);
+                            ch = fullyResolveEntity(true, true);
                             if (ch == 0) {
                                 // [woodstox-core#292] char-ref-as-entity: output its
                                 // replacement chars inline (mid-segment we can not emit
@@ -5028,6 +5519,9 @@ currAttrSize, maxAttrSize, outPtr, outBuf.length));
      * replacement characters must still be output inline by the caller -- mid-content
      * a separate {@code ENTITY_REFERENCE} event can not be emitted -- or the
      * referenced character would be silently dropped.
+     * Same is done for simple internal entities (ones with plain text as
+     * replacement text) when entities are replaced, to avoid having to
+     * construct and switch to a new input source for them.
      *<p>
      * This "resolved inline" case is told apart from the "entered a new input source"
      * case (where 0 also means "nothing to output here") by checking whether the
@@ -5208,6 +5702,12 @@ currAttrSize, maxAttrSize, outPtr, outBuf.length));
                 }
                 markLF(ptr);
             } else if (c != CHAR_SPACE && c != '\t') {
+                // Document separator ends white space in epilog
+                if (c == mCfgDocSeparator && mParseState == STATE_EPILOG) {
+                    mInputPtr = --ptr;
+                    mTextBuffer.resetWithShared(mInputBuffer, start, ptr-start);
+                    return true;
+                }
                 throwInvalidSpace(c);
             }
             if (ptr >= inputLen) { // end-of-buffer?
@@ -5274,6 +5774,10 @@ currAttrSize, maxAttrSize, outPtr, outBuf.length));
                     c = '\n'; // For Mac text
                 }
             } else if (c != CHAR_SPACE && c != '\t') {
+                if (c == mCfgDocSeparator && mParseState == STATE_EPILOG) {
+                    --mInputPtr;
+                    break;
+                }
                 throwInvalidSpace(c);
             }
                 
@@ -5410,7 +5914,7 @@ currAttrSize, maxAttrSize, outPtr, outBuf.length));
                         if ((mInputEnd - mInputPtr) < 3
                             || (ch = resolveSimpleEntity(true)) == 0) {
                             final WstxInputSource preInput = mInput;
-                            ch = fullyResolveEntity(true);
+                            ch = fullyResolveEntity(true, true);
                             if (ch == 0) {
                                 // [woodstox-core#292] char-ref-as-entity: write its
                                 // replacement chars directly so they are not lost
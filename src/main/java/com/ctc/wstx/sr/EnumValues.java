@@ -0,0 +1,196 @@
+/* Woodstox XML processor
+ *
+ * Copyright (c) 2004- Tatu Saloranta, tatu.saloranta@iki.fi
+ *
+ * Licensed under the License specified in file LICENSE, included with
+ * the source code.
+ * You may not use this file except in compliance with the License.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ctc.wstx.sr;
+
+import java.util.*;
+
+import org.codehaus.stax2.typed.TypedValueDecoder;
+
+import com.ctc.wstx.util.WordResolver;
+
+/**
+ * Fixed set of words that attribute values and element contents can
+ * be decoded into, as ordinals (indexes of the words in the list
+ * instance was constructed from), using
+ * {@link StreamReaderImpl#getAttributeAsEnum} and
+ * {@link StreamReaderImpl#getElementAsEnum}. Words are compiled into
+ * a {@link WordResolver}, same as enumerated attribute values declared
+ * in DTDs, so that values can be matched directly from the parser's
+ * buffers without constructing Strings.
+ *<p>
+ * Instances are immutable and thread-safe, and are meant to be
+ * constructed once and reused.
+ *
+ * @since 7.3
+ */
+public final class EnumValues
+{
+    private final String[] mWords;
+
+    private final WordResolver mResolver;
+
+    /**
+     * Mapping from indexes of {@link WordResolver} (which orders words
+     * alphabetically) to ordinals of words in the original list.
+     */
+    private final int[] mOrdinals;
+
+    private EnumValues(String[] words, WordResolver resolver, int[] ordinals)
+    {
+        mWords = words;
+        mResolver = resolver;
+        mOrdinals = ordinals;
+    }
+
+    /**
+     * @param words Words to match, in order that defines their ordinals;
+     *   must be non-empty and unique
+     *
+     * @throws IllegalArgumentException If word list is empty, contains
+     *   duplicates or empty words, or is too big (see
+     *   {@link WordResolver#MAX_WORDS})
+     */
+    public static EnumValues construct(String... words)
+    {
+        return construct(Arrays.asList(words));
+    }
+
+    public static EnumValues construct(List<String> words)
+    {
+        if (words.isEmpty()) {
+            throw new IllegalArgumentException("Can not construct EnumValues with no words");
+        }
+        TreeSet<String> set = new TreeSet<String>();
+        for (String word : words) {
+            if (word.length() == 0) {
+                throw new IllegalArgumentException("Can not construct EnumValues with an empty word");
+            }
+            if (!set.add(word)) {
+                throw new IllegalArgumentException("Can not construct EnumValues with duplicate word '"+word+"'");
+            }
+        }
+        WordResolver resolver = WordResolver.constructInstance(set);
+        if (resolver == null) {
+            throw new IllegalArgumentException("Too many words ("+words.size()+") for EnumValues");
+        }
+        String[] orig = words.toArray(new String[words.size()]);
+        int[] ordinals = new int[orig.length];
+        for (int i = 0; i < orig.length; ++i) {
+            ordinals[resolver.findIndex(orig[i])] = i;
+        }
+        return new EnumValues(orig, resolver, ordinals);
+    }
+
+    /**
+     * Factory method for constructing an instance that matches names of
+     * constants of given enum type, so that ordinals returned match
+     * {@link Enum#ordinal} of the constants.
+     */
+    public static EnumValues construct(Class<? extends Enum<?>> enumType)
+    {
+        Enum<?>[] constants = enumType.getEnumConstants();
+        String[] words = new String[constants.length];
+        for (int i = 0; i < words.length; ++i) {
+            words[i] = constants[i].name();
+        }
+        return construct(words);
+    }
+
+    /*
+    ///////////////////////////////////////////////////////////
+    // Public API
+    ///////////////////////////////////////////////////////////
+     */
+
+    public int size() {
+        return mWords.length;
+    }
+
+    public String getWord(int ordinal) {
+        return mWords[ordinal];
+    }
+
+    /**
+     * @param end Index following the last character of the word (same
+     *   as with {@link WordResolver#find(char[],int,int)})
+     *
+     * @return Ordinal of the word with given contents, if it is included;
+     *   -1 if not
+     */
+    public int find(char[] buf, int start, int end)
+    {
+        int ix = mResolver.findIndex(buf, start, end);
+        return (ix < 0) ? -1 : mOrdinals[ix];
+    }
+
+    /**
+     * @return Ordinal of given word, if it is included; -1 if not
+     */
+    public int find(String word)
+    {
+        int ix = mResolver.findIndex(word);
+        return (ix < 0) ? -1 : mOrdinals[ix];
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.asList(mWords).toString();
+    }
+
+    /*
+    ///////////////////////////////////////////////////////////
+    // Helper classes
+    ///////////////////////////////////////////////////////////
+     */
+
+    /**
+     * Decoder used by stream readers, to be able to use the same
+     * code paths as other typed access methods. Instances are reused
+     * by readers, and are not thread-safe.
+     */
+    final static class Decoder
+        extends TypedValueDecoder
+    {
+        EnumValues mValues;
+
+        int mOrdinal;
+
+        Decoder reset(EnumValues values) {
+            mValues = values;
+            mOrdinal = -1;
+            return this;
+        }
+
+        @Override
+        public void decode(String lexical) {
+            mOrdinal = mValues.find(lexical);
+        }
+
+        @Override
+        public void decode(char[] lexical, int start, int end) {
+            mOrdinal = mValues.find(lexical, start, end);
+        }
+
+        /**
+         * Empty values can not match, but are not considered errors
+         * either; they just decode to -1.
+         */
+        @Override
+        public void handleEmptyValue() {
+            mOrdinal = -1;
+        }
+    }
+}
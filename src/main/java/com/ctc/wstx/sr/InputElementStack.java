@@ -99,6 +99,15 @@ public final class InputElementStack
 
     protected boolean mMayHaveNsDefaults = false;
 
+    /**
+     * Default namespace in effect outside of the root element: usually
+     * the "no namespace", but may be bound when reading a sub-tree of
+     * a larger document.
+     *
+     * @since 7.3
+     */
+    protected String mRootDefaultNsURI = XmlConsts.DEFAULT_NAMESPACE_URI;
+
     /*
     ///////////////////////////////////////////////////////////
     // Element validation (optional), attribute typing
@@ -134,6 +143,15 @@ public final class InputElementStack
 
     protected QName mLastName = null;
 
+    /**
+     * Cache used for reusing qualified ("prefix:localName") name
+     * Strings; constructed lazily when first needed (mostly by
+     * SAX implementation).
+     *
+     * @since 7.3
+     */
+    protected PrefixedNameCache mQNameCache = null;
+
     /*
     ///////////////////////////////////////////////////////////
     // Other simple caching
@@ -329,7 +347,7 @@ public final class InputElementStack
             throw new XMLStreamException("Maximum Element Count limit ("+mConfig.getMaxElementCount()+") Exceeded");
         }
         String defaultNs = (mCurrElement == null) ?
-            XmlConsts.DEFAULT_NAMESPACE_URI : mCurrElement.mDefaultNsURI;
+            mRootDefaultNsURI : mCurrElement.mDefaultNsURI;
         if (mCurrElement != null) {
             ++mCurrElement.mChildCount;
             final int max = mConfig.getMaxChildrenPerElement();
@@ -389,6 +407,57 @@ public final class InputElementStack
         return (parent != null);
     }
 
+    /**
+     * Method called to add a namespace binding that is to be in scope
+     * for the root element (and all of its descendants), when reading
+     * a sub-tree extracted from a larger document.
+     *
+     * @param prefix Prefix to bind, canonicalized using the symbol table
+     *   of the reader; null for the default namespace
+     *
+     * @since 7.3
+     */
+    protected void addRootNsBinding(String prefix, String nsURI)
+    {
+        if (mDepth != 0) {
+            throw new IllegalStateException("Can only add root namespace bindings before the root element");
+        }
+        if (nsURI == null) {
+            nsURI = XmlConsts.DEFAULT_NAMESPACE_URI;
+        }
+        if (prefix == null) {
+            mRootDefaultNsURI = nsURI;
+        }
+        mLastNsContext = null;
+        mNamespaces.addStrings(prefix, nsURI);
+    }
+
+    /**
+     * Method called by the stream reader when moving on to the next
+     * document in multi-document mode: will discard any elements still
+     * open (if rest of the current document was skipped), and reset
+     * per-document counters.
+     *
+     * @since 7.3
+     */
+    protected void resetForNextDocument()
+    {
+        Element elem = mCurrElement;
+        if (elem != null) {
+            mCurrElement = null;
+            while (elem != null) {
+                Element parent = elem.mParent;
+                elem.relink(mFreeElement);
+                mFreeElement = elem;
+                elem = parent;
+            }
+            mDepth = 0;
+            mNamespaces.clear(false);
+            mLastNsContext = null;
+        }
+        mTotalElements = 0;
+    }
+
     /**
      * Method called to resolve element and attribute namespaces (in
      * namespace-aware mode), and do optional validation using pluggable
@@ -1006,7 +1075,45 @@ public final class InputElementStack
         if (prefix == null) { // no name space
             return name;
         }
-        return prefix + ":" + name;
+        return getQNameCache().findQName(prefix, name);
+    }
+
+    /**
+     * Method for accessing qualified name ("prefix:localName") of the
+     * attribute at specified index; uses caching to avoid having to
+     * construct a new String for each call.
+     *
+     * @since 7.3
+     */
+    public final String getAttributeQName(int index)
+    {
+        return getQNameCache().findQName(mAttrCollector.getPrefix(index),
+                mAttrCollector.getLocalName(index));
+    }
+
+    /**
+     * Method for accessing qualified name of the namespace declaration
+     * pseudo-attribute ("xmlns" or "xmlns:prefix") for a local namespace
+     * binding at specified index.
+     *
+     * @since 7.3
+     */
+    public final String getLocalNsDeclQName(int index)
+    {
+        String prefix = getLocalNsPrefix(index);
+        if (prefix == null || prefix.length() == 0) {
+            return XMLConstants.XMLNS_ATTRIBUTE;
+        }
+        return getQNameCache().findQName(XMLConstants.XMLNS_ATTRIBUTE, prefix);
+    }
+
+    protected final PrefixedNameCache getQNameCache()
+    {
+        PrefixedNameCache c = mQNameCache;
+        if (c == null) {
+            mQNameCache = c = new PrefixedNameCache();
+        }
+        return c;
     }
 
     // // // Namespace information:
@@ -1029,6 +1136,27 @@ public final class InputElementStack
         return (mNamespaces.size() - mCurrElement.mNsOffset) >> 1;
     }
 
+    /**
+     * Method for accessing namespace bindings in scope for the current
+     * element, excluding ones declared by the element itself; that is,
+     * ones it inherits from its ancestors. Bindings are returned in
+     * declaration order, so later ones may mask earlier ones.
+     *
+     * @return Array that contains prefix and URI for each binding
+     *   (prefix being null for the default namespace)
+     *
+     * @since 7.3
+     */
+    public final String[] getInheritedNsBindings()
+    {
+        int count = (mCurrElement == null) ? mNamespaces.size() : mCurrElement.mNsOffset;
+        String[] result = new String[count];
+        if (count > 0) {
+            System.arraycopy(mNamespaces.getInternalArray(), 0, result, 0, count);
+        }
+        return result;
+    }
+
     public final String getLocalNsPrefix(int index)
     {
         int offset = mCurrElement.mNsOffset;
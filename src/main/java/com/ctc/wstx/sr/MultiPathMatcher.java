@@ -0,0 +1,582 @@
+/* Woodstox XML processor
+ *
+ * Copyright (c) 2004- Tatu Saloranta, tatu.saloranta@iki.fi
+ *
+ * Licensed under the License specified in file LICENSE, included with
+ * the source code.
+ * You may not use this file except in compliance with the License.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ctc.wstx.sr;
+
+import java.io.StringWriter;
+import java.util.*;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.codehaus.stax2.XMLStreamProperties;
+import org.codehaus.stax2.XMLStreamReader2;
+import org.codehaus.stax2.XMLStreamWriter2;
+
+import com.ctc.wstx.stax.WstxOutputFactory;
+
+/**
+ * Matcher that evaluates a set of path expressions ({@link PathFilter}s),
+ * each identified by a subscription id, during a single pass over
+ * a document read using a stream reader; and notifies a {@link Handler}
+ * of elements that match. Expressions are compiled into a single
+ * automaton in which steps common to expressions (prefixes of paths)
+ * are shared, so that they need to be evaluated only once per element;
+ * and subtrees that can not contain matches for any of the expressions
+ * are skipped without fully tokenizing them.
+ *<p>
+ * Contents of matching elements can also be captured, either as text
+ * (concatenation of all text contained) or as serialized XML, if handler
+ * so requests.
+ *<p>
+ * Instances are immutable and can be used concurrently; all matching
+ * state is kept per call to {@link #match}.
+ *
+ * @since 7.3
+ */
+public final class MultiPathMatcher
+{
+    /**
+     * Capture mode handler returns when it does not need contents
+     * of the matching element.
+     */
+    public final static int CAPTURE_NONE = 0;
+
+    /**
+     * Capture mode handler returns to get textual contents of the
+     * matching element: all text (including CDATA) it contains,
+     * concatenated.
+     */
+    public final static int CAPTURE_TEXT = 1;
+
+    /**
+     * Capture mode handler returns to get the whole matching element,
+     * including start and end tags, serialized as XML. Namespace
+     * declarations needed are added to the start tag.
+     */
+    public final static int CAPTURE_XML = 2;
+
+    /**
+     * Interface for objects that get notified of matching elements.
+     */
+    public interface Handler
+    {
+        /**
+         * Method called when the start element of an element that
+         * matches a path has been read. Handler can access information
+         * about the start element (like attributes) from the reader,
+         * but must not advance it.
+         *
+         * @param id Id of the subscription for which path matches; if
+         *   multiple paths match the element, method is called
+         *   separately for each (in no particular order)
+         * @param reader Reader that points to the START_ELEMENT
+         *
+         * @return One of <code>CAPTURE_xxx</code> constants, to indicate
+         *   whether contents of the element are to be captured and passed
+         *   to {@link #matchCaptured}
+         */
+        public int matchStarted(String id, XMLStreamReader2 reader)
+            throws XMLStreamException;
+
+        /**
+         * Method called with captured contents of a matching element,
+         * when {@link #matchStarted} requested capturing; after the end
+         * element of the matching element has been read.
+         */
+        public void matchCaptured(String id, String content)
+            throws XMLStreamException;
+    }
+
+    /*
+    ///////////////////////////////////////////////////////////
+    // Automaton
+    ///////////////////////////////////////////////////////////
+     */
+
+    /**
+     * Steps of nodes of the automaton; node 0 is the root, which
+     * represents the document node (and has no step).
+     */
+    final PathFilter.Step[] mSteps;
+
+    /**
+     * Child nodes (that is, possible next steps) of nodes
+     */
+    final int[][] mChildren;
+
+    /**
+     * Flags to indicate whether a node has children with descendant
+     * axis; if so, it needs to be kept active for descendants too.
+     */
+    final boolean[] mHasDescChildren;
+
+    /**
+     * Subscription ids for which path ends at the node, if any
+     */
+    final String[][] mIds;
+
+    /**
+     * Index of the first counter (for positional predicates) of nodes'
+     * steps
+     */
+    final int[] mCounterOffsets;
+
+    final int mCounterCount;
+
+    final int mPathCount;
+
+    private MultiPathMatcher(List<Node> nodes, int counterCount, int pathCount)
+    {
+        final int count = nodes.size();
+        mSteps = new PathFilter.Step[count];
+        mChildren = new int[count][];
+        mHasDescChildren = new boolean[count];
+        mIds = new String[count][];
+        mCounterOffsets = new int[count];
+        for (int i = 0; i < count; ++i) {
+            Node n = nodes.get(i);
+            mSteps[i] = n.mStep;
+            mCounterOffsets[i] = n.mCounterOffset;
+            int[] children = new int[n.mChildren.size()];
+            int ix = 0;
+            for (Node child : n.mChildren.values()) {
+                children[ix++] = child.mIndex;
+                if (child.mStep.mDescendant) {
+                    mHasDescChildren[i] = true;
+                }
+            }
+            mChildren[i] = children;
+            if (n.mIds != null) {
+                mIds[i] = n.mIds.toArray(new String[n.mIds.size()]);
+            }
+        }
+        mCounterCount = counterCount;
+        mPathCount = pathCount;
+    }
+
+    /**
+     * Factory method for constructing a matcher for given paths.
+     *
+     * @param paths Paths to match, keyed by subscription ids; multiple
+     *   subscriptions may use the same path
+     */
+    public static MultiPathMatcher compile(Map<String,PathFilter> paths)
+    {
+        ArrayList<Node> nodes = new ArrayList<Node>();
+        Node root = new Node(0, null, 0);
+        nodes.add(root);
+        int counters = 0;
+
+        for (Map.Entry<String,PathFilter> en : paths.entrySet()) {
+            Node curr = root;
+            for (PathFilter.Step step : en.getValue().mSteps) {
+                String key = step.getKey();
+                Node next = curr.mChildren.get(key);
+                if (next == null) {
+                    next = new Node(nodes.size(), step, counters);
+                    counters += step.mCounterCount;
+                    nodes.add(next);
+                    curr.mChildren.put(key, next);
+                }
+                curr = next;
+            }
+            curr.addId(en.getKey());
+        }
+        return new MultiPathMatcher(nodes, counters, paths.size());
+    }
+
+    /**
+     * @return Number of nodes (distinct steps) in the automaton;
+     *   less than total number of steps in paths, if paths share steps
+     */
+    public int getStateCount() {
+        return mSteps.length - 1;
+    }
+
+    public int getPathCount() {
+        return mPathCount;
+    }
+
+    /*
+    ///////////////////////////////////////////////////////////
+    // Public API, matching
+    ///////////////////////////////////////////////////////////
+     */
+
+    /**
+     * Method for reading through the rest of the document (or, in
+     * multi-document mode, all documents) that given reader reads,
+     * and notifying handler of elements matching the paths. Reader
+     * must be a Woodstox stream reader, positioned at START_DOCUMENT.
+     * Reader is not closed by this method.
+     */
+    public void match(XMLStreamReader reader, Handler h)
+        throws XMLStreamException
+    {
+        if (!(reader instanceof BasicStreamReader)) {
+            throw new IllegalArgumentException("Can only match using a Woodstox stream reader, not "
+                    +((reader == null) ? "null" : reader.getClass().getName()));
+        }
+        BasicStreamReader sr = (BasicStreamReader) reader;
+        if (sr.getEventType() != XMLStreamConstants.START_DOCUMENT) {
+            throw new IllegalStateException("Reader must be positioned at START_DOCUMENT");
+        }
+        new Evaluation(sr, h).run();
+    }
+
+    /*
+    ///////////////////////////////////////////////////////////
+    // Helper classes
+    ///////////////////////////////////////////////////////////
+     */
+
+    /**
+     * Node of the automaton, used when compiling
+     */
+    private final static class Node
+    {
+        final int mIndex;
+
+        final PathFilter.Step mStep;
+
+        final int mCounterOffset;
+
+        final LinkedHashMap<String,Node> mChildren = new LinkedHashMap<String,Node>();
+
+        ArrayList<String> mIds;
+
+        Node(int index, PathFilter.Step step, int counterOffset)
+        {
+            mIndex = index;
+            mStep = step;
+            mCounterOffset = counterOffset;
+        }
+
+        void addId(String id)
+        {
+            if (mIds == null) {
+                mIds = new ArrayList<String>(2);
+            }
+            mIds.add(id);
+        }
+    }
+
+    /**
+     * Contents being captured for a matching element
+     */
+    private final static class Capture
+    {
+        final String mId;
+
+        /**
+         * Depth of the matching element
+         */
+        final int mDepth;
+
+        final StringBuilder mText;
+
+        final StringWriter mOut;
+
+        final XMLStreamWriter2 mWriter;
+
+        Capture(String id, int depth, XMLOutputFactory f)
+            throws XMLStreamException
+        {
+            mId = id;
+            mDepth = depth;
+            if (f == null) {
+                mText = new StringBuilder();
+                mOut = null;
+                mWriter = null;
+            } else {
+                mText = null;
+                mOut = new StringWriter();
+                mWriter = (XMLStreamWriter2) f.createXMLStreamWriter(mOut);
+            }
+        }
+
+        String finish() throws XMLStreamException
+        {
+            if (mWriter == null) {
+                return mText.toString();
+            }
+            mWriter.close();
+            return mOut.toString();
+        }
+    }
+
+    /**
+     * Matching state for a single call to {@link #match}: for each open
+     * element, set of active automaton nodes (ones whose child steps are
+     * to be evaluated for its children), and counters for positional
+     * predicates.
+     *<p>
+     * Active nodes are stored as <code>(index &lt;&lt; 1) | flag</code>,
+     * where flag is set if only children with descendant axis are to be
+     * evaluated (node was active for an ancestor).
+     */
+    private final class Evaluation
+    {
+        final BasicStreamReader mReader;
+
+        final InputElementStack mElemStack;
+
+        final Handler mHandler;
+
+        int[][] mActive = new int[16][];
+
+        int[] mActiveCounts = new int[16];
+
+        int[][] mCounters;
+
+        /**
+         * Number of open elements
+         */
+        int mDepth;
+
+        /**
+         * Marker used to find out whether node has already been added
+         * for the current element; along with index of entry.
+         */
+        final int[] mSeen, mSeenIndex;
+
+        int mStamp;
+
+        final ArrayList<Capture> mCaptures = new ArrayList<Capture>();
+
+        final ArrayList<String> mMatched = new ArrayList<String>();
+
+        XMLOutputFactory mOutputFactory;
+
+        Evaluation(BasicStreamReader sr, Handler h)
+        {
+            mReader = sr;
+            mElemStack = sr.getInputElementStack();
+            mHandler = h;
+            mSeen = new int[mSteps.length];
+            mSeenIndex = new int[mSteps.length];
+            if (mCounterCount > 0) {
+                mCounters = new int[16][];
+            }
+            reset();
+        }
+
+        private void reset()
+        {
+            mDepth = 0;
+            mActive[0] = new int[] { 0 };
+            mActiveCounts[0] = 1;
+            clearCounters(0);
+            mCaptures.clear();
+        }
+
+        void run() throws XMLStreamException
+        {
+            final BasicStreamReader sr = mReader;
+            while (sr.hasNext()) {
+                int type = sr.next();
+                switch (type) {
+                case XMLStreamConstants.START_ELEMENT:
+                    startElement();
+                    break;
+                case XMLStreamConstants.END_ELEMENT:
+                    endElement();
+                    break;
+                case XMLStreamConstants.START_DOCUMENT: // multi-document mode
+                    reset();
+                    break;
+                case XMLStreamConstants.CHARACTERS:
+                case XMLStreamConstants.CDATA:
+                case XMLStreamConstants.SPACE:
+                    if (!mCaptures.isEmpty()) {
+                        captureText();
+                    }
+                    break;
+                case XMLStreamConstants.COMMENT:
+                case XMLStreamConstants.PROCESSING_INSTRUCTION:
+                case XMLStreamConstants.ENTITY_REFERENCE:
+                    if (!mCaptures.isEmpty()) {
+                        copyEvent();
+                    }
+                    break;
+                }
+            }
+        }
+
+        private void startElement() throws XMLStreamException
+        {
+            final int[] parent = mActive[mDepth];
+            final int parentCount = mActiveCounts[mDepth];
+            final int[] counters = (mCounters == null) ? null : mCounters[mDepth];
+            final int depth = mDepth+1;
+            if (depth == mActive.length) {
+                mActive = Arrays.copyOf(mActive, depth+depth);
+                mActiveCounts = Arrays.copyOf(mActiveCounts, depth+depth);
+                if (mCounters != null) {
+                    mCounters = Arrays.copyOf(mCounters, depth+depth);
+                }
+            }
+            mDepth = depth;
+            mActiveCounts[depth] = 0;
+            clearCounters(depth);
+            ++mStamp;
+            mMatched.clear();
+
+            for (int i = 0; i < parentCount; ++i) {
+                final int node = parent[i] >> 1;
+                final boolean descOnly = (parent[i] & 1) != 0;
+                if (mHasDescChildren[node]) {
+                    addActive(node, true);
+                }
+                for (int child : mChildren[node]) {
+                    PathFilter.Step step = mSteps[child];
+                    if (descOnly && !step.mDescendant) {
+                        continue;
+                    }
+                    if (step.matches(mElemStack, counters, mCounterOffsets[child])) {
+                        if (mIds[child] != null) {
+                            Collections.addAll(mMatched, mIds[child]);
+                        }
+                        if (mChildren[child].length > 0) {
+                            addActive(child, false);
+                        }
+                    }
+                }
+            }
+
+            // Existing captures contain this element
+            if (!mCaptures.isEmpty()) {
+                copyEvent();
+            }
+            for (int i = 0, len = mMatched.size(); i < len; ++i) {
+                String id = mMatched.get(i);
+                int capture = mHandler.matchStarted(id, mReader);
+                if (capture == CAPTURE_TEXT) {
+                    mCaptures.add(new Capture(id, depth, null));
+                } else if (capture == CAPTURE_XML) {
+                    Capture c = new Capture(id, depth, getOutputFactory());
+                    c.mWriter.copyEventFromReader(mReader, true);
+                    mCaptures.add(c);
+                }
+            }
+            // Nothing to match or capture within? Can skip the whole subtree
+            if (mActiveCounts[depth] == 0 && mCaptures.isEmpty()) {
+                mReader.skipElementContents();
+                --mDepth;
+            }
+        }
+
+        private void endElement() throws XMLStreamException
+        {
+            int last = mCaptures.size() - 1;
+            if (last >= 0) {
+                copyEvent();
+                while (last >= 0) {
+                    Capture c = mCaptures.get(last);
+                    if (c.mDepth != mDepth) {
+                        break;
+                    }
+                    mCaptures.remove(last--);
+                    mHandler.matchCaptured(c.mId, c.finish());
+                }
+            }
+            --mDepth;
+        }
+
+        private void addActive(int node, boolean descOnly)
+        {
+            final int depth = mDepth;
+            int[] active = mActive[depth];
+            final int entry = (node << 1) | (descOnly ? 1 : 0);
+            if (mSeen[node] == mStamp) {
+                // Already added; only need to widen from descendants-only
+                if (!descOnly) {
+                    active[mSeenIndex[node]] = entry;
+                }
+                return;
+            }
+            int count = mActiveCounts[depth];
+            if (active == null) {
+                active = mActive[depth] = new int[Math.max(8, count+1)];
+            } else if (count == active.length) {
+                active = mActive[depth] = Arrays.copyOf(active, count+count);
+            }
+            mSeen[node] = mStamp;
+            mSeenIndex[node] = count;
+            active[count] = entry;
+            mActiveCounts[depth] = count+1;
+        }
+
+        private void clearCounters(int depth)
+        {
+            if (mCounters != null) {
+                int[] c = mCounters[depth];
+                if (c == null) {
+                    mCounters[depth] = new int[mCounterCount];
+                } else {
+                    Arrays.fill(c, 0);
+                }
+            }
+        }
+
+        private void captureText() throws XMLStreamException
+        {
+            String text = null;
+            for (int i = 0, len = mCaptures.size(); i < len; ++i) {
+                Capture c = mCaptures.get(i);
+                if (c.mWriter != null) {
+                    c.mWriter.copyEventFromReader(mReader, true);
+                } else {
+                    if (text == null) {
+                        text = mReader.getText();
+                    }
+                    c.mText.append(text);
+                }
+            }
+        }
+
+        /**
+         * Method for copying current (non-text) event to XML captures
+         */
+        private void copyEvent() throws XMLStreamException
+        {
+            for (int i = 0, len = mCaptures.size(); i < len; ++i) {
+                Capture c = mCaptures.get(i);
+                if (c.mWriter != null) {
+                    c.mWriter.copyEventFromReader(mReader, true);
+                }
+            }
+        }
+
+        private XMLOutputFactory getOutputFactory()
+        {
+            if (mOutputFactory == null) {
+                XMLOutputFactory f = new WstxOutputFactory();
+                if (mElemStack.isNamespaceAware()) {
+                    // Since captured fragments are taken out of context, may need
+                    // to add namespace declarations
+                    f.setProperty(XMLOutputFactory.IS_REPAIRING_NAMESPACES, Boolean.TRUE);
+                } else {
+                    f.setProperty(XMLStreamProperties.XSP_NAMESPACE_AWARE, Boolean.FALSE);
+                }
+                mOutputFactory = f;
+            }
+            return mOutputFactory;
+        }
+    }
+}
@@ -0,0 +1,525 @@
+/* Woodstox XML processor
+ *
+ * Copyright (c) 2004- Tatu Saloranta, tatu.saloranta@iki.fi
+ *
+ * Licensed under the License specified in file LICENSE, included with
+ * the source code.
+ * You may not use this file except in compliance with the License.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ctc.wstx.sr;
+
+import java.util.ArrayList;
+
+import javax.xml.namespace.NamespaceContext;
+
+/**
+ * Compiled path expression that stream readers can use to only report
+ * matching elements (along with their contents), skipping everything
+ * else; see {@link com.ctc.wstx.api.WstxInputProperties#P_PATH_FILTER}.
+ * Expressions are evaluated when start elements are parsed, and
+ * subtrees that can not contain matches are skipped without
+ * fully tokenizing their contents.
+ *<p>
+ * Supported expression language is a subset of XPath 1.0 location paths:
+ *<ul>
+ * <li>Absolute paths only, consisting of steps separated by either
+ *   '/' (child axis) or '//' (descendant axis)
+ *  </li>
+ * <li>Name tests: <code>name</code>, <code>prefix:name</code>,
+ *   <code>prefix:*</code> and <code>*</code>; prefixes are bound using
+ *   the namespace context given when compiling the expression
+ *  </li>
+ * <li>Predicates: attribute existence (<code>[@attr]</code>), attribute
+ *   equality (<code>[@attr='value']</code>) and position among matching
+ *   siblings (<code>[2]</code>); multiple predicates may be used for a
+ *   step, and are evaluated in order
+ *  </li>
+ *</ul>
+ * If no namespace context is given, prefixed names are matched against
+ * names as written in the document (which is also how all names are
+ * matched by non-namespace-aware readers).
+ *<p>
+ * Instances are immutable, and can be shared between factories and
+ * readers.
+ *
+ * @since 7.3
+ */
+public final class PathFilter
+{
+    /**
+     * Maximum number of steps an expression can have; matching state
+     * is kept as a bit set in a single long.
+     */
+    final static int MAX_STEPS = 63;
+
+    final String mExpression;
+
+    final Step[] mSteps;
+
+    /**
+     * Number of positional predicates in all steps; each needs one
+     * counter per open element.
+     */
+    final int mCounterCount;
+
+    private PathFilter(String expr, Step[] steps, int counterCount)
+    {
+        mExpression = expr;
+        mSteps = steps;
+        mCounterCount = counterCount;
+    }
+
+    /**
+     * Method for compiling an expression that does not use namespace
+     * prefixes (or uses them only with non-namespace-aware readers).
+     *
+     * @throws IllegalArgumentException If expression is not valid
+     */
+    public static PathFilter compile(String expr) {
+        return compile(expr, null);
+    }
+
+    /**
+     * @param expr Path expression to compile
+     * @param nsCtxt Namespace context used for binding prefixes used
+     *   in the expression, if any
+     *
+     * @throws IllegalArgumentException If expression is not valid, or
+     *   uses a prefix not bound by given namespace context
+     */
+    public static PathFilter compile(String expr, NamespaceContext nsCtxt)
+    {
+        return new Parser(expr, nsCtxt).parse();
+    }
+
+    public String getExpression() { return mExpression; }
+
+    @Override
+    public String toString() { return mExpression; }
+
+    /*
+    ///////////////////////////////////////////////////////////
+    // Matching
+    ///////////////////////////////////////////////////////////
+     */
+
+    /**
+     * Method for checking whether the current start element of given
+     * element stack matches specified step.
+     *
+     * @param counters Counters for positional predicates, for the
+     *   parent element
+     */
+    boolean matches(int stepIndex, InputElementStack elemStack, int[] counters)
+    {
+        Step step = mSteps[stepIndex];
+        return step.matches(elemStack, counters, step.mCounterOffset);
+    }
+
+    /*
+    ///////////////////////////////////////////////////////////
+    // Helper classes, compiled expression
+    ///////////////////////////////////////////////////////////
+     */
+
+    final static class Step
+    {
+        /**
+         * Whether step uses descendant (instead of child) axis
+         */
+        final boolean mDescendant;
+
+        /**
+         * Name test for the step
+         */
+        final NameTest mName;
+
+        final Predicate[] mPredicates;
+
+        /**
+         * Index of the first counter (for positional predicates) of this
+         * step, among all counters of the expression
+         */
+        final int mCounterOffset;
+
+        /**
+         * Number of positional predicates step has
+         */
+        final int mCounterCount;
+
+        Step(boolean desc, NameTest name, Predicate[] preds, int counterOffset,
+                int counterCount)
+        {
+            mDescendant = desc;
+            mName = name;
+            mPredicates = preds;
+            mCounterOffset = counterOffset;
+            mCounterCount = counterCount;
+        }
+
+        /**
+         * @param counters Counters for positional predicates, for the
+         *   parent element
+         * @param counterOffset Index of the first counter of this step
+         *   within <code>counters</code>
+         */
+        boolean matches(InputElementStack elemStack, int[] counters, int counterOffset)
+        {
+            if (!matchesName(elemStack)) {
+                return false;
+            }
+            for (Predicate p : mPredicates) {
+                if (!p.matches(elemStack, counters, counterOffset)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Method for constructing a key that is equal for steps that
+         * match the same elements (when evaluated in the same context);
+         * used for sharing steps between expressions.
+         */
+        String getKey()
+        {
+            StringBuilder sb = new StringBuilder();
+            sb.append(mDescendant ? "//" : "/");
+            mName.appendKey(sb);
+            for (Predicate p : mPredicates) {
+                sb.append('[');
+                if (p.mPosition > 0) {
+                    sb.append(p.mPosition);
+                } else {
+                    sb.append('@');
+                    p.mAttrName.appendKey(sb);
+                    if (p.mAttrValue != null) {
+                        // length prefix, to avoid ambiguity with quotes, brackets
+                        sb.append('=').append(p.mAttrValue.length()).append(':').append(p.mAttrValue);
+                    }
+                }
+                sb.append(']');
+            }
+            return sb.toString();
+        }
+
+        boolean matchesName(InputElementStack elemStack)
+        {
+            NameTest name = mName;
+            if (name.mQName == null) { // '*'
+                return true;
+            }
+            if (!elemStack.isNamespaceAware() || name.mNsURI == null) {
+                if (name.mLocalName == null) { // 'prefix:*'
+                    return name.mPrefix.equals(elemStack.getPrefix());
+                }
+                return name.mQName.equals(elemStack.getTopElementDesc());
+            }
+            String uri = elemStack.getNsURI();
+            if (uri == null) {
+                uri = "";
+            }
+            if (!name.mNsURI.equals(uri)) {
+                return false;
+            }
+            return (name.mLocalName == null) || name.mLocalName.equals(elemStack.getLocalName());
+        }
+    }
+
+    final static class NameTest
+    {
+        /**
+         * Name as written in the expression; null for '*'
+         */
+        final String mQName;
+
+        final String mPrefix;
+
+        /**
+         * Local name to match; null for wildcards
+         */
+        final String mLocalName;
+
+        /**
+         * Namespace URI bound to the prefix (empty String for "no
+         * namespace"); null if there was a prefix that was not bound
+         * (in which case names are matched as written)
+         */
+        final String mNsURI;
+
+        NameTest(String qname, String prefix, String localName, String nsURI)
+        {
+            mQName = qname;
+            mPrefix = prefix;
+            mLocalName = localName;
+            mNsURI = nsURI;
+        }
+
+        void appendKey(StringBuilder sb)
+        {
+            if (mQName == null) {
+                sb.append('*');
+            } else if (mNsURI == null) {
+                sb.append(mQName);
+            } else {
+                sb.append('{').append(mNsURI).append('}');
+                sb.append((mLocalName == null) ? "*" : mLocalName);
+            }
+        }
+    }
+
+    final static class Predicate
+    {
+        /**
+         * Position to match (1-based), for positional predicates; 0 for
+         * attribute predicates
+         */
+        final int mPosition;
+
+        /**
+         * Index of the counter used for positional predicate, relative
+         * to the first counter of the step
+         */
+        final int mCounterIndex;
+
+        final NameTest mAttrName;
+
+        /**
+         * Value attribute has to have; null if only existence is checked
+         */
+        final String mAttrValue;
+
+        Predicate(int pos, int counterIndex, NameTest attrName, String attrValue)
+        {
+            mPosition = pos;
+            mCounterIndex = counterIndex;
+            mAttrName = attrName;
+            mAttrValue = attrValue;
+        }
+
+        boolean matches(InputElementStack elemStack, int[] counters, int counterOffset)
+        {
+            if (mPosition > 0) {
+                // Counted regardless, as long as previous tests passed
+                return (++counters[counterOffset + mCounterIndex] == mPosition);
+            }
+            String value = findValue(elemStack);
+            if (value == null) {
+                return false;
+            }
+            return (mAttrValue == null) || mAttrValue.equals(value);
+        }
+
+        private String findValue(InputElementStack elemStack)
+        {
+            AttributeCollector ac = elemStack.getAttrCollector();
+            NameTest name = mAttrName;
+            if (elemStack.isNamespaceAware() && name.mNsURI != null) {
+                String uri = (name.mNsURI.length() == 0) ? null : name.mNsURI;
+                return ac.getValue(uri, name.mLocalName);
+            }
+            // Need to match by name as written
+            for (int i = 0, len = ac.getCount(); i < len; ++i) {
+                if (name.mQName.equals(elemStack.getAttributeQName(i))) {
+                    return ac.getValue(i);
+                }
+            }
+            return null;
+        }
+    }
+
+    /*
+    ///////////////////////////////////////////////////////////
+    // Helper classes, parsing
+    ///////////////////////////////////////////////////////////
+     */
+
+    private final static class Parser
+    {
+        final String mExpr;
+
+        final NamespaceContext mNsCtxt;
+
+        int mPtr;
+
+        int mCounters;
+
+        Parser(String expr, NamespaceContext nsCtxt)
+        {
+            mExpr = expr;
+            mNsCtxt = nsCtxt;
+        }
+
+        PathFilter parse()
+        {
+            ArrayList<Step> steps = new ArrayList<Step>();
+            final int end = mExpr.length();
+            if (end == 0 || mExpr.charAt(0) != '/') {
+                throw error("expression has to start with '/' or '//'");
+            }
+            while (mPtr < end) {
+                if (mExpr.charAt(mPtr) != '/') {
+                    throw error("expected '/'");
+                }
+                ++mPtr;
+                boolean desc = false;
+                if (mPtr < end && mExpr.charAt(mPtr) == '/') {
+                    desc = true;
+                    ++mPtr;
+                }
+                steps.add(parseStep(desc));
+            }
+            if (steps.size() > MAX_STEPS) {
+                throw error("too many steps (max "+MAX_STEPS+")");
+            }
+            return new PathFilter(mExpr, steps.toArray(new Step[steps.size()]), mCounters);
+        }
+
+        private Step parseStep(boolean desc)
+        {
+            NameTest name = parseName(false);
+            ArrayList<Predicate> preds = new ArrayList<Predicate>();
+            final int firstCounter = mCounters;
+            while (mPtr < mExpr.length() && mExpr.charAt(mPtr) == '[') {
+                ++mPtr;
+                skipSpace();
+                preds.add(parsePredicate(firstCounter));
+                skipSpace();
+                expect(']');
+            }
+            return new Step(desc, name, preds.toArray(new Predicate[preds.size()]),
+                    firstCounter, mCounters - firstCounter);
+        }
+
+        private Predicate parsePredicate(int firstCounter)
+        {
+            final int end = mExpr.length();
+            if (mPtr < end && mExpr.charAt(mPtr) == '@') {
+                ++mPtr;
+                NameTest name = parseName(true);
+                skipSpace();
+                String value = null;
+                if (mPtr < end && mExpr.charAt(mPtr) == '=') {
+                    ++mPtr;
+                    skipSpace();
+                    value = parseLiteral();
+                }
+                return new Predicate(0, -1, name, value);
+            }
+            int start = mPtr;
+            while (mPtr < end && mExpr.charAt(mPtr) >= '0' && mExpr.charAt(mPtr) <= '9') {
+                ++mPtr;
+            }
+            if (start == mPtr) {
+                throw error("expected '@' or a position");
+            }
+            int pos;
+            try {
+                pos = Integer.parseInt(mExpr.substring(start, mPtr));
+            } catch (NumberFormatException e) {
+                pos = 0;
+            }
+            if (pos < 1) {
+                throw error("invalid position '"+mExpr.substring(start, mPtr)+"'");
+            }
+            return new Predicate(pos, (mCounters++) - firstCounter, null, null);
+        }
+
+        private String parseLiteral()
+        {
+            final int end = mExpr.length();
+            char quote = (mPtr < end) ? mExpr.charAt(mPtr) : ' ';
+            if (quote != '\'' && quote != '"') {
+                throw error("expected a quoted value");
+            }
+            int close = mExpr.indexOf(quote, mPtr+1);
+            if (close < 0) {
+                throw error("missing closing quote");
+            }
+            String value = mExpr.substring(mPtr+1, close);
+            mPtr = close+1;
+            return value;
+        }
+
+        private NameTest parseName(boolean attr)
+        {
+            final int end = mExpr.length();
+            if (!attr && mPtr < end && mExpr.charAt(mPtr) == '*') {
+                ++mPtr;
+                return new NameTest(null, null, null, null);
+            }
+            String prefix = null;
+            String local = parseNCName();
+            if (mPtr < end && mExpr.charAt(mPtr) == ':') {
+                ++mPtr;
+                prefix = local;
+                if (!attr && mPtr < end && mExpr.charAt(mPtr) == '*') {
+                    ++mPtr;
+                    local = null;
+                } else {
+                    local = parseNCName();
+                }
+            }
+            String qname = (prefix == null) ? local
+                : (prefix + ":" + ((local == null) ? "*" : local));
+            String uri;
+            if (prefix == null) {
+                uri = "";
+            } else if (mNsCtxt == null) {
+                uri = null;
+            } else {
+                uri = mNsCtxt.getNamespaceURI(prefix);
+                if (uri == null || uri.length() == 0) {
+                    throw error("unbound namespace prefix '"+prefix+"'");
+                }
+            }
+            return new NameTest(qname, prefix, local, uri);
+        }
+
+        private String parseNCName()
+        {
+            final int start = mPtr;
+            final int end = mExpr.length();
+            while (mPtr < end) {
+                char c = mExpr.charAt(mPtr);
+                if (c == '/' || c == '[' || c == ']' || c == ':' || c == '='
+                    || c == '@' || c == '*' || c == '\'' || c == '"' || c <= ' ') {
+                    break;
+                }
+                ++mPtr;
+            }
+            if (start == mPtr) {
+                throw error("expected a name");
+            }
+            return mExpr.substring(start, mPtr);
+        }
+
+        private void skipSpace()
+        {
+            while (mPtr < mExpr.length() && mExpr.charAt(mPtr) <= ' ') {
+                ++mPtr;
+            }
+        }
+
+        private void expect(char c)
+        {
+            if (mPtr >= mExpr.length() || mExpr.charAt(mPtr) != c) {
+                throw error("expected '"+c+"'");
+            }
+            ++mPtr;
+        }
+
+        private IllegalArgumentException error(String msg)
+        {
+            return new IllegalArgumentException("Invalid path expression \""+mExpr
+                    +"\" (at position "+mPtr+"): "+msg);
+        }
+    }
+}
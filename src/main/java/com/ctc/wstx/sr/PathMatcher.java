@@ -0,0 +1,150 @@
+/* Woodstox XML processor
+ *
+ * Copyright (c) 2004- Tatu Saloranta, tatu.saloranta@iki.fi
+ *
+ * Licensed under the License specified in file LICENSE, included with
+ * the source code.
+ * You may not use this file except in compliance with the License.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ctc.wstx.sr;
+
+import java.util.Arrays;
+
+/**
+ * Per-reader evaluation state of a {@link PathFilter}. For each open
+ * element, keeps track of the set of steps that may still match
+ * the element's children (or descendants), as a bit set; as well as
+ * counters for positional predicates of its children.
+ */
+final class PathMatcher
+{
+    /**
+     * Return value of {@link #startElement}: element matches the
+     * expression, and is to be reported along with its contents
+     */
+    final static int ELEMENT_MATCHES = 1;
+
+    /**
+     * Return value of {@link #startElement}: element does not match,
+     * but its descendants may
+     */
+    final static int ELEMENT_DESCEND = 2;
+
+    /**
+     * Return value of {@link #startElement}: neither element nor
+     * any of its descendants can match, so its contents can be skipped
+     */
+    final static int ELEMENT_SKIP = 3;
+
+    final PathFilter mFilter;
+
+    final int mStepCount;
+
+    /**
+     * Bit set of steps that are to be evaluated for the children of
+     * open elements: index 0 is for the document itself (children of
+     * which are root elements), 1 for the root element and so on.
+     */
+    private long[] mStates = new long[16];
+
+    /**
+     * Counters for positional predicates, for each open element; null
+     * if expression has no positional predicates.
+     */
+    private int[][] mCounters;
+
+    /**
+     * Number of open elements evaluated
+     */
+    private int mDepth;
+
+    PathMatcher(PathFilter filter)
+    {
+        mFilter = filter;
+        mStepCount = filter.mSteps.length;
+        if (filter.mCounterCount > 0) {
+            mCounters = new int[16][];
+        }
+        reset();
+    }
+
+    /**
+     * Method called at the beginning of a document.
+     */
+    void reset()
+    {
+        mDepth = 0;
+        mStates[0] = 1L;
+        if (mCounters != null) {
+            clearCounters(0);
+        }
+    }
+
+    /**
+     * Method called when a start element has been parsed and its
+     * namespaces resolved, to evaluate it and push evaluation state
+     * for its children.
+     *
+     * @return One of <code>ELEMENT_xxx</code> constants
+     */
+    int startElement(InputElementStack elemStack)
+    {
+        final long parentState = mStates[mDepth];
+        final int[] counters = (mCounters == null) ? null : mCounters[mDepth];
+        final PathFilter.Step[] steps = mFilter.mSteps;
+        long state = 0L;
+
+        for (int i = 0; i < mStepCount; ++i) {
+            if ((parentState & (1L << i)) == 0L) {
+                continue;
+            }
+            if (steps[i].mDescendant) {
+                state |= (1L << i);
+            }
+            if (mFilter.matches(i, elemStack, counters)) {
+                state |= (1L << (i+1));
+            }
+        }
+
+        if (++mDepth == mStates.length) {
+            mStates = Arrays.copyOf(mStates, mDepth+mDepth);
+            if (mCounters != null) {
+                mCounters = Arrays.copyOf(mCounters, mDepth+mDepth);
+            }
+        }
+        mStates[mDepth] = state;
+        if (mCounters != null) {
+            clearCounters(mDepth);
+        }
+        if ((state & (1L << mStepCount)) != 0L) {
+            return ELEMENT_MATCHES;
+        }
+        return (state == 0L) ? ELEMENT_SKIP : ELEMENT_DESCEND;
+    }
+
+    /**
+     * Method called when an element evaluated with {@link #startElement}
+     * is closed.
+     */
+    void endElement()
+    {
+        --mDepth;
+    }
+
+    private void clearCounters(int depth)
+    {
+        int[] c = mCounters[depth];
+        if (c == null) {
+            mCounters[depth] = new int[mFilter.mCounterCount];
+        } else {
+            Arrays.fill(c, 0);
+        }
+    }
+}
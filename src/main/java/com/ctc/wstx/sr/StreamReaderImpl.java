@@ -1,10 +1,13 @@
 package com.ctc.wstx.sr;
 
+import java.io.Writer;
+
 import javax.xml.stream.*;
 
 import org.codehaus.stax2.XMLStreamReader2;
 
 import com.ctc.wstx.ent.EntityDecl;
+import com.ctc.wstx.util.TextView;
 
 /**
  * Interface that defines "internal Woodstox API". It is used to decouple
@@ -25,4 +28,125 @@ public interface StreamReaderImpl
     public AttributeCollector getAttributeCollector();
 
     public InputElementStack getInputElementStack();
+
+    /**
+     * Method for skipping current element (reader must be positioned at
+     * START_ELEMENT), while copying its raw textual contents, including
+     * start and end tags, to given Writer.
+     *
+     * @return True if element was copied; false if raw copying was not
+     *   possible (in which case reader state is not changed)
+     *
+     * @since 7.3
+     */
+    public boolean skipElementCopyingRaw(Writer w) throws XMLStreamException;
+
+    /**
+     * Method similar to {@link #getText}, but one that does not construct
+     * a String: returned view refers directly to the buffer parser uses
+     * (if text is contained in a single buffer). View is reused for
+     * subsequent events, and its contents are only valid until reader
+     * is advanced; {@link TextView#toString} can be used to get
+     * a persistent copy if needed.
+     *
+     * @return Textual content of the current event; null for an
+     *   ENTITY_REFERENCE if entity is not declared, or is an external
+     *   entity (same as {@link #getText})
+     *
+     * @throws IllegalStateException If the current event is not
+     *   a textual one
+     *
+     * @since 7.3
+     */
+    public TextView getTextAsCharSequence();
+
+    /**
+     * Method for decoding value of specified attribute as one of
+     * given words, similar to other typed access methods (like
+     * {@link org.codehaus.stax2.typed.TypedXMLStreamReader#getAttributeAsInt}):
+     * leading and trailing white space is ignored. Matching is done
+     * directly from the attribute value buffer, without constructing
+     * a String.
+     *
+     * @return Ordinal of the matching word; or -1 if value is not one
+     *   of the words (or is empty)
+     *
+     * @throws IllegalStateException If the current event is not
+     *   START_ELEMENT
+     *
+     * @since 7.3
+     */
+    public int getAttributeAsEnum(int index, EnumValues values) throws XMLStreamException;
+
+    /**
+     * Method for decoding textual content of the current START_ELEMENT
+     * as one of given words; works similar to
+     * {@link org.codehaus.stax2.typed.TypedXMLStreamReader#getElementAsInt}
+     * (including skipping of comments and processing instructions, and
+     * ignoring leading and trailing white space), and leaves reader
+     * positioned at the matching END_ELEMENT.
+     *
+     * @return Ordinal of the matching word; or -1 if content is not
+     *   one of the words (or is empty)
+     *
+     * @since 7.3
+     */
+    public int getElementAsEnum(EnumValues values) throws XMLStreamException;
+
+    /**
+     * @return Index of the current document within input stream: always 0
+     *   except in multi-document parsing mode, where it is incremented
+     *   at each document boundary (first START_DOCUMENT of a document)
+     *
+     * @since 7.3
+     */
+    public int getDocumentIndex();
+
+    /**
+     * @return Character offset of the start of the current document
+     *   within input stream; in multi-document mode, either offset of
+     *   the first character of the document, or, if documents are
+     *   separated using a document separator, offset right after the
+     *   separator
+     *
+     * @since 7.3
+     */
+    public long getDocumentStartOffset();
+
+    /**
+     * Method for skipping the rest of the current document without
+     * parsing it, in multi-document mode with document separator
+     * (see {@link com.ctc.wstx.api.WstxInputProperties#P_INPUT_DOCUMENT_SEPARATOR})
+     * enabled: input is scanned for the next separator without
+     * tokenizing it. If there is a following document, reader will be
+     * positioned at its START_DOCUMENT event; otherwise at the final
+     * END_DOCUMENT event.
+     *<p>
+     * Note: if called when reader is positioned at END_DOCUMENT
+     * between two documents, the following document is skipped.
+     *
+     * @return True if reader is positioned at the start of the next
+     *   document; false if end of input was reached
+     *
+     * @throws IllegalStateException If document separator has not been
+     *   configured
+     *
+     * @since 7.3
+     */
+    public boolean skipDocument() throws XMLStreamException;
+
+    /**
+     * Method for binding a namespace prefix so that it is in scope for
+     * the root element; needed when reading a sub-tree of a larger
+     * document (such as one located using
+     * {@link com.ctc.wstx.index.ElementIndex}) that uses bindings declared
+     * by its ancestors. Can only be called before the root element
+     * has been read.
+     *
+     * @param prefix Prefix to bind; null or empty String for the
+     *   default namespace
+     *
+     * @since 7.3
+     */
+    public void bindRootNamespace(String prefix, String nsURI);
 }
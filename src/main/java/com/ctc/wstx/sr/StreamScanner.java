@@ -233,6 +233,14 @@ public abstract class StreamScanner
      * @since 4.3
      */
     protected int mEntityExpansionCount;
+
+    /**
+     * Number of times a name or attribute value buffer has had to be
+     * enlarged; only used for metrics.
+     *
+     * @since 7.3
+     */
+    protected int mBufferExpansionCount;
     
     /**
      * Flag that indicates whether linefeeds in the input data are to
@@ -1487,6 +1495,26 @@ public abstract class StreamScanner
      */
     protected int fullyResolveEntity(boolean allowExt)
         throws XMLStreamException
+    {
+        return fullyResolveEntity(allowExt, false);
+    }
+
+    /**
+     * Variant of {@link #fullyResolveEntity(boolean)} used by callers that
+     * can output replacement text of simple internal entities (see
+     * {@link EntityDecl#isSimpleText}) directly: if so, no new input source
+     * is entered; instead, entity is assigned as {@link #mCurrEntity} and
+     * 0 returned, same as with character entities that are to be treated
+     * as entities. Such expansions still count against entity expansion
+     * count and depth limits.
+     *
+     * @param allowInline Whether simple internal entities may be expanded
+     *   without switching input source
+     *
+     * @since 7.3
+     */
+    protected int fullyResolveEntity(boolean allowExt, boolean allowInline)
+        throws XMLStreamException
     {
         char c = getNextCharFromCurrent(SUFFIX_IN_ENTITY_REF);
         // Do we have a (numeric) character entity reference?
@@ -1540,7 +1568,8 @@ public abstract class StreamScanner
             return d;
         }
 
-        final EntityDecl e = expandEntity(id, allowExt, null);
+        final EntityDecl e = expandEntity(id, allowExt,
+                allowInline && mCfgReplaceEntities && !mCfgTreatCharRefsAsEntities, null);
         if (mCfgTreatCharRefsAsEntities) {
             mCurrEntity = e;
         }
@@ -1588,6 +1617,13 @@ public abstract class StreamScanner
     protected EntityDecl expandEntity(String id, boolean allowExt,
                                       Object extraArg)
         throws XMLStreamException
+    {
+        return expandEntity(id, allowExt, false, extraArg);
+    }
+
+    private EntityDecl expandEntity(String id, boolean allowExt,
+                                    boolean allowInline, Object extraArg)
+        throws XMLStreamException
     {
         mCurrName = id;
 
@@ -1607,7 +1643,9 @@ public abstract class StreamScanner
             return null;
         }
         
-        if (mCfgReplaceEntities || !mCfgTreatCharRefsAsEntities || this instanceof MinimalDTDReader) {
+        if (allowInline && ed.isSimpleText()) {
+            expandSimpleEntity(ed);
+        } else if (mCfgReplaceEntities || !mCfgTreatCharRefsAsEntities || this instanceof MinimalDTDReader) {
             expandEntity(ed, allowExt);
         }
         
@@ -1675,6 +1713,21 @@ public abstract class StreamScanner
         initInputSource(newInput, isExt, id);
     }
 
+    /**
+     * Method called instead of {@link #expandEntity(EntityDecl,boolean)}
+     * for simple internal entities, when caller can output replacement
+     * text as is: no input source is constructed, but limits are checked
+     * the same way.
+     */
+    private void expandSimpleEntity(EntityDecl ed)
+        throws XMLStreamException
+    {
+        // No references within, so no need to check for recursion
+        verifyLimit("Maximum entity expansion count", mConfig.getMaxEntityCount(), ++mEntityExpansionCount);
+        verifyLimit("Maximum entity expansion depth", mConfig.getMaxEntityDepth(), mInput.getEntityDepth() + 1);
+        mCurrEntity = ed;
+    }
+
     /**
      *<p>
      * note: only called from the local expandEntity() method
@@ -2404,6 +2457,7 @@ public abstract class StreamScanner
         int len = buf.length;
         char[] newBuf = new char[len + (len >> 1)];
         System.arraycopy(buf, 0, newBuf, 0, len);
+        ++mBufferExpansionCount;
         return newBuf;
     }
 
@@ -79,6 +79,13 @@ public class TypedStreamReader
      */
     protected CharArrayBase64Decoder _base64Decoder = null;
 
+    /**
+     * Lazily-constructed decoder for matching enumerated values
+     *
+     * @since 7.3
+     */
+    private EnumValues.Decoder _enumDecoder = null;
+
     /*
     ////////////////////////////////////////////////////
     // Instance construction
@@ -184,6 +191,17 @@ public class TypedStreamReader
         return _verifyQName(dec.getValue());
     }
 
+    /**
+     * @since 7.3
+     */
+    @Override
+    public int getElementAsEnum(EnumValues values) throws XMLStreamException
+    {
+        EnumValues.Decoder dec = _enumDecoder(values);
+        getElementAs(dec);
+        return dec.mOrdinal;
+    }
+
     @Override
     public final byte[] getElementAsBinary() throws XMLStreamException
     {
@@ -640,6 +658,17 @@ public class TypedStreamReader
         return _verifyQName(dec.getValue());
     }
 
+    /**
+     * @since 7.3
+     */
+    @Override
+    public int getAttributeAsEnum(int index, EnumValues values) throws XMLStreamException
+    {
+        EnumValues.Decoder dec = _enumDecoder(values);
+        getAttributeAs(index, dec);
+        return dec.mOrdinal;
+    }
+
     @Override
     public void getAttributeAs(int index, TypedValueDecoder tvd) throws XMLStreamException
     {
@@ -755,6 +784,14 @@ public class TypedStreamReader
         return _base64Decoder;
     }
 
+    private EnumValues.Decoder _enumDecoder(EnumValues values)
+    {
+        if (_enumDecoder == null) {
+            _enumDecoder = new EnumValues.Decoder();
+        }
+        return _enumDecoder.reset(values);
+    }
+
     /**
      * Method called to handle value that has empty String
      * as representation. This will usually either lead to an
@@ -29,6 +29,7 @@ import org.codehaus.stax2.XMLInputFactory2;
 import org.codehaus.stax2.validation.*;
 
 import com.ctc.wstx.api.ReaderConfig;
+import com.ctc.wstx.api.WstxMetrics;
 import com.ctc.wstx.cfg.ErrorConsts;
 import com.ctc.wstx.cfg.XmlConsts;
 import com.ctc.wstx.io.*;
@@ -384,6 +385,10 @@ public class ValidatingStreamReader
     public void reportValidationProblem(XMLValidationProblem prob)
         throws XMLStreamException
     {
+        WstxMetrics metrics = mConfig.getMetrics();
+        if (metrics != null) {
+            metrics.validationProblem(prob);
+        }
     	if (mVldProbHandler != null) {
             // Fix for [WSTX-209]
             mVldProbHandler.reportProblem(prob);
@@ -433,12 +438,17 @@ public class ValidatingStreamReader
             throw constructFromIOE(ioe);
         }
 
+        WstxMetrics metrics = mConfig.getMetrics();
         if (cache) {
             DTDSubset extSubset = findCachedSubset(dtdId, intSubset);
             if (extSubset != null) {
+                if (metrics != null) {
+                    metrics.dtdCacheHit(pubId, sysId);
+                }
                 return extSubset;
             }
         }
+        final long startTime = (metrics == null) ? 0L : System.nanoTime();
 
         // No useful cached copy? Need to read it then.
         /* For now, we do require system identifier; otherwise we don't
@@ -477,7 +487,10 @@ public class ValidatingStreamReader
         DTDSubset extSubset = FullDTDReader.readExternalSubset(src, mConfig, intSubset,
                                                                hasConfigFlags(CFG_VALIDATE_AGAINST_DTD),
                                                                mDocXmlVersion);
-        
+        if (metrics != null) {
+            metrics.dtdLoaded(pubId, sysId, cache, System.nanoTime() - startTime);
+        }
+
         if (cache) {
             /* Ok; can be cached, but only if it does NOT refer to
              * parameter entities defined in the internal subset (if
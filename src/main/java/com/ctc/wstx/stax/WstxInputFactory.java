@@ -155,6 +155,12 @@ public class WstxInputFactory
      * be useful in pre-populating symbols; although it is unlikely
      * to be commonly useful.
      * 
+     *<p>
+     * Note: can not be used if a frozen symbol table has been set using
+     * {@link #setSharedSymbolTable}; will throw an
+     * {@link IllegalStateException} in that case, unless the symbol
+     * is already contained in the table.
+     * 
      * @since 4.2.1
      */
     public void addSymbol(String symbol)
@@ -164,6 +170,43 @@ public class WstxInputFactory
         }
     }
     
+    /**
+     * Method for setting a frozen symbol table (constructed using
+     * {@link SymbolTable#createFrozen}) to use as the base for symbol
+     * tables of readers this factory creates. The same table can be
+     * shared by any number of factories: readers will find names of the
+     * pre-loaded vocabulary from it, and add other names to their private
+     * copies only; such additions are never merged back to the shared
+     * table.
+     *
+     * @param t Frozen symbol table to use, or null to revert back to the
+     *   default (non-frozen, per-factory) handling
+     *
+     * @since 7.3
+     */
+    public synchronized void setSharedSymbolTable(SymbolTable t)
+    {
+        if (t == null) {
+            mSymbols = mRootSymbols;
+        } else {
+            if (!t.isFrozen()) {
+                throw new IllegalArgumentException("Shared SymbolTable must be frozen (constructed using SymbolTable.createFrozen())");
+            }
+            mSymbols = t;
+        }
+    }
+
+    /**
+     * @return Frozen symbol table set using {@link #setSharedSymbolTable},
+     *   if any; null if none
+     *
+     * @since 7.3
+     */
+    public synchronized SymbolTable getSharedSymbolTable()
+    {
+        return mSymbols.isFrozen() ? mSymbols : null;
+    }
+
     /*
     ///////////////////////////////////////////////////////////////////////
     // ReaderCreator implementation
@@ -198,6 +241,10 @@ public class WstxInputFactory
     public synchronized void updateSymbolTable(SymbolTable t)
     {
         SymbolTable curr = mSymbols;
+        // Frozen (shared) tables are never updated
+        if (curr.isFrozen()) {
+            return;
+        }
         /* Let's only add if table was direct descendant; this prevents
          * siblings from keeping overwriting settings (multiple direct
          * children have additional symbols added)
@@ -41,7 +41,10 @@ import com.ctc.wstx.api.WstxOutputProperties;
 import com.ctc.wstx.cfg.OutputConfigFlags;
 import com.ctc.wstx.dom.WstxDOMWrappingWriter;
 import com.ctc.wstx.exc.WstxIOException;
+import com.ctc.wstx.io.ByteBufferQueue;
 import com.ctc.wstx.io.CharsetNames;
+import com.ctc.wstx.io.DeflatingOutputStream;
+import com.ctc.wstx.io.SingleByteCodec;
 import com.ctc.wstx.io.UTF8Writer;
 import com.ctc.wstx.sw.AsciiXmlWriter;
 import com.ctc.wstx.sw.BufferingXmlWriter;
@@ -49,6 +52,8 @@ import com.ctc.wstx.sw.ISOLatin1XmlWriter;
 import com.ctc.wstx.sw.NonNsStreamWriter;
 import com.ctc.wstx.sw.RepairingNsStreamWriter;
 import com.ctc.wstx.sw.SimpleNsStreamWriter;
+import com.ctc.wstx.sw.SingleByteXmlWriter;
+import com.ctc.wstx.sw.XmlFragmentWriter;
 import com.ctc.wstx.sw.XmlWriter;
 import com.ctc.wstx.util.URLUtil;
 
@@ -205,6 +210,41 @@ public class WstxOutputFactory
         return createSW(null, w, enc, false);
     }
 
+    // // // Woodstox-specific factory methods
+
+    /**
+     * Method for constructing a stream writer that outputs encoded
+     * content into given non-blocking buffer queue, instead of a
+     * blocking stream: application can consume content produced
+     * incrementally, and use {@link ByteBufferQueue#isSaturated} to
+     * detect when producing more output should be postponed.
+     *
+     * @param enc Encoding to use for output; if null, default
+     *   (UTF-8) is used
+     *
+     * @since 7.3
+     */
+    public XMLStreamWriter2 createXMLStreamWriter(ByteBufferQueue out, String enc)
+        throws XMLStreamException
+    {
+        if (out == null) {
+            throw new IllegalArgumentException("Null ByteBufferQueue is not a valid argument");
+        }
+        return createSW(out, null, enc, false);
+    }
+
+    /**
+     * Method for constructing a writer for recording reusable
+     * pre-serialized fragments; see {@link XmlFragmentWriter} for details.
+     *
+     * @since 7.3
+     */
+    public XmlFragmentWriter createFragmentWriter()
+        throws XMLStreamException
+    {
+        return XmlFragmentWriter.create(mConfig);
+    }
+
     // // // Stax2 "Profile" mutators
 
     @Override
@@ -261,6 +301,11 @@ public class WstxOutputFactory
         boolean autoCloseOutput = requireAutoClose || mConfig.willAutoCloseOutput();
 
         if (w == null) {
+            String compression = cfg.getOutputCompression();
+            if (compression != null) {
+                out = new DeflatingOutputStream(cfg, out,
+                        compression == WstxOutputProperties.COMPRESSION_GZIP);
+            }
             if (enc == null) {
                 enc = WstxOutputProperties.DEFAULT_OUTPUT_ENCODING;
             } else {
@@ -283,8 +328,13 @@ public class WstxOutputFactory
                 } else if (enc == CharsetNames.CS_US_ASCII) {
                     xw = new AsciiXmlWriter(out, cfg, autoCloseOutput);
                 } else {
-                    w = new OutputStreamWriter(out, enc);
-                    xw = new BufferingXmlWriter(w, cfg, enc, autoCloseOutput, out, -1);
+                    SingleByteCodec codec = SingleByteCodec.forEncoding(enc);
+                    if (codec != null && codec.isAsciiCompatible()) {
+                        xw = new SingleByteXmlWriter(out, cfg, enc, autoCloseOutput, codec);
+                    } else {
+                        w = new OutputStreamWriter(out, enc);
+                        xw = new BufferingXmlWriter(w, cfg, enc, autoCloseOutput, out, -1);
+                    }
                 }
             } catch (IOException ex) {
                 throw new XMLStreamException(ex);
@@ -459,6 +459,30 @@ public abstract class BaseNsStreamWriter
         return mCurrElem.getNameDesc();
     }
 
+    @Override
+    protected void pushFragmentElement(XmlFragment frag, int index)
+    {
+        String prefix = frag.getOpenElementPrefix(index);
+        String localName = frag.getOpenElementLocalName(index);
+        String nsURI = frag.getOpenElementNamespaceURI(index);
+        if (mOutputElemPool != null) {
+            SimpleOutputElement newCurr = mOutputElemPool;
+            mOutputElemPool = newCurr.reuseAsChild(mCurrElem, prefix, localName, nsURI);
+            --mPoolSize;
+            mCurrElem = newCurr;
+        } else {
+            mCurrElem = mCurrElem.createChild(prefix, localName, nsURI);
+        }
+        for (int i = 0, len = frag.getOpenElementNsDeclCount(index); i < len; ++i) {
+            String nsPrefix = frag.getOpenElementNsPrefix(index, i);
+            if (nsPrefix == null) {
+                mCurrElem.setDefaultNsUri(frag.getOpenElementNsURI(index, i));
+            } else {
+                mCurrElem.addPrefix(nsPrefix, frag.getOpenElementNsURI(index, i));
+            }
+        }
+    }
+
     /*
     ///////////////////////////////////////////////////////////////////////
     // Package methods sub-classes may also need
@@ -168,6 +168,14 @@ public abstract class BaseStreamWriter
      */
     protected boolean mAnyOutput = false;
 
+    /**
+     * Output offset up to which written characters have been reported
+     * to configured metrics object, if any.
+     *
+     * @since 7.3
+     */
+    protected int mMetricsOffset = 0;
+
     /**
      * Flag that is set during time that a start element is "open", ie.
      * START_ELEMENT has been output (and possibly zero or more name
@@ -949,6 +957,76 @@ public abstract class BaseStreamWriter
                 +sr.getEventType()+"); not sure how to copy");
     }
 
+    /**
+     * Method for copying the current START_ELEMENT event of given reader,
+     * along with all of its contents and the matching END_ELEMENT: after
+     * the call, reader will be positioned at that END_ELEMENT.
+     *<p>
+     * If possible -- reader is a Woodstox stream reader, and this writer
+     * neither validates output nor repairs namespaces, and can output all
+     * characters without escaping -- the element is copied as raw
+     * characters from the input buffer of the reader, with no
+     * re-serialization. Otherwise events are copied one by one, as if
+     * using {@link #copyEventFromReader}.
+     *<p>
+     * Note that when copied as raw content, element and its contents are
+     * output exactly as they appear in the input; this includes any entity
+     * references (which need to be defined for the output document), and
+     * namespace prefixes that were declared by ancestors of the element
+     * (which caller needs to bind in the output document as well).
+     *
+     * @since 7.3
+     */
+    public void copyElementFromReader(XMLStreamReader2 sr)
+        throws XMLStreamException
+    {
+        if (sr.getEventType() != START_ELEMENT) {
+            throw new IllegalStateException(ErrorConsts.ERR_STATE_NOT_STELEM);
+        }
+        if ((sr instanceof StreamReaderImpl) && mValidator == null
+                && !mConfig.automaticNamespacesEnabled() && mWriter.canWriteAllCharsRaw()) {
+            mAnyOutput = true;
+            // Same structural checks as when writing the start element
+            // (and matching end element) one by one
+            boolean topLevel = false;
+            if (mStartElementOpen) {
+                closeStartElement(mEmptyElement);
+            } else if (mState == STATE_PROLOG) {
+                verifyRootElement(sr.getLocalName(), sr.getPrefix());
+                topLevel = true;
+            } else if (mState == STATE_EPILOG) {
+                if (mCheckStructure) {
+                    String prefix = sr.getPrefix();
+                    String localName = sr.getLocalName();
+                    reportNwfStructure(ErrorConsts.WERR_PROLOG_SECOND_ROOT,
+                            (prefix == null || prefix.length() == 0) ?
+                            localName : (prefix + ":" + localName));
+                }
+                topLevel = true;
+            }
+            if (((StreamReaderImpl) sr).skipElementCopyingRaw(wrapAsRawWriter())) {
+                // Whole root element written: now in epilog
+                if (topLevel) {
+                    mState = STATE_EPILOG;
+                }
+                return;
+            }
+        }
+        int depth = 0;
+        while (true) {
+            int type = sr.getEventType();
+            copyEventFromReader(sr, false);
+            if (type == START_ELEMENT) {
+                ++depth;
+            } else if (type == END_ELEMENT) {
+                if (--depth == 0) {
+                    break;
+                }
+            }
+            sr.next();
+        }
+    }
+
     /*
     ///////////////////////////////////////////////////////////
     // StAX2, output handling
@@ -1224,6 +1302,99 @@ public abstract class BaseStreamWriter
         writeRaw(text, offset, length);
     }
 
+    /*
+    ///////////////////////////////////////////////////////////
+    // Woodstox-specific output methods
+    ///////////////////////////////////////////////////////////
+     */
+
+    /**
+     * Method similar to {@link #writeRaw(char[],int,int)}, but for content
+     * that has already been encoded using the output encoding of this
+     * writer (see {@link #getEncoding}). As with other raw write methods,
+     * no verification or escaping is done. Large blocks of content are
+     * passed to the underlying stream directly, instead of being copied
+     * through output buffers (and with a single gathering write, if the
+     * stream is a {@link java.io.FileOutputStream}).
+     *
+     * @since 7.3
+     */
+    public void writeRawBytes(byte[] data, int offset, int len)
+        throws XMLStreamException
+    {
+        mAnyOutput = true;
+        if (mStartElementOpen) {
+            closeStartElement(mEmptyElement);
+        }
+        try {
+            mWriter.writeRawBytes(data, offset, len);
+        } catch (IOException ioe) {
+            throw new WstxIOException(ioe);
+        }
+    }
+
+    /**
+     * Method for outputting a pre-serialized fragment, as is. If the
+     * fragment leaves elements open, they will be considered open by
+     * this writer after the call, with namespace bindings they declare
+     * in scope. Since contents of the fragment can not be passed to
+     * validators, fragments can not be output when output validation
+     * is enabled.
+     *<p>
+     * If the writer outputs to a stream using an encoding compatible
+     * with 7-bit ascii, encoded content of the fragment is cached and
+     * written without re-encoding.
+     *
+     * @since 7.3
+     */
+    public void writeFragment(XmlFragment frag)
+        throws XMLStreamException
+    {
+        if (mVldException != null) {
+            throwOutputError("Cannot write after a validation error", mVldException);
+        }
+        if (mValidator != null) {
+            throwOutputError("Cannot write fragments when output validation is enabled");
+        }
+        mAnyOutput = true;
+        if (mStartElementOpen) {
+            closeStartElement(mEmptyElement);
+        }
+        final int topLevel = frag.getTopLevelElementCount();
+        final int open = frag.getOpenElementCount();
+        if (inPrologOrEpilog()) {
+            if (mCheckStructure) {
+                if (topLevel > 1 || (topLevel > 0 && mState == STATE_EPILOG)) {
+                    reportNwfStructure(ErrorConsts.WERR_PROLOG_SECOND_ROOT,
+                            (open > 0) ? frag.getOpenElementLocalName(0) : "[fragment]");
+                }
+                // As with writeCharacters(), no text outside the root element
+                if (frag.hasTopLevelText()) {
+                    reportNwfStructure(ErrorConsts.WERR_PROLOG_NONWS_TEXT);
+                }
+            }
+            if (topLevel > 0) {
+                mState = (open > 0) ? STATE_TREE : STATE_EPILOG;
+            }
+        }
+        try {
+            byte[] encoded = null;
+            if (mWriter.mEncoding != null && mWriter.getOutputStream() != null) {
+                encoded = frag.getEncoded(mWriter.mEncoding);
+            }
+            if (encoded == null) {
+                mWriter.writeRaw(frag.getContent());
+            } else {
+                mWriter.writeRawBytes(encoded, 0, encoded.length);
+            }
+        } catch (IOException ioe) {
+            throw new WstxIOException(ioe);
+        }
+        for (int i = 0; i < open; ++i) {
+            pushFragmentElement(frag, i);
+        }
+    }
+
     /*
     ///////////////////////////////////////////////////////////
     // ValidationContext interface (StAX2, validation)
@@ -1496,6 +1667,15 @@ public abstract class BaseStreamWriter
             mCopyBuffer = null;
             mConfig.freeMediumCBuffer(buf);
         }
+        WstxMetrics metrics = mConfig.getMetrics();
+        if (metrics != null) {
+            // May get called more than once (end document, then close)
+            int offset = mWriter.getAbsOffset();
+            if (offset > mMetricsOffset) {
+                metrics.documentWritten(offset - mMetricsOffset);
+                mMetricsOffset = offset;
+            }
+        }
         try {
             mWriter.close(forceRealClose);
         } catch (IOException ie) {
@@ -1814,6 +1994,17 @@ public abstract class BaseStreamWriter
      */
     protected abstract String getTopElementDesc();
 
+    /**
+     * Method called by {@link #writeFragment} to add an element fragment
+     * left open to the element stack.
+     *
+     * @param index Index of the open element within fragment
+     *
+     * @since 7.3
+     */
+    protected abstract void pushFragmentElement(XmlFragment frag, int index)
+        throws XMLStreamException;
+
     /*
     ///////////////////////////////////////////////////////////
     // Package methods, other
@@ -27,8 +27,10 @@ import org.codehaus.stax2.ri.typed.AsciiValueEncoder;
 import org.codehaus.stax2.validation.XMLValidator;
 
 import com.ctc.wstx.api.WriterConfig;
+import com.ctc.wstx.api.WstxOutputProperties;
 import com.ctc.wstx.io.CharsetNames;
 import com.ctc.wstx.io.CompletelyCloseable;
+import com.ctc.wstx.io.UTF8Writer;
 
 /**
  * Concrete implementation of {@link XmlWriter} that will dispatch writes
@@ -195,6 +197,11 @@ public final class BufferingXmlWriter
         mEncHighChar = ((bitsize < 16) ? (1 << bitsize) : 0xFFFE);
     }
 
+    @Override
+    public boolean canWriteAllCharsRaw() {
+        return (mEncHighChar >= 0xFFFE);
+    }
+
     @Override
     protected int getOutputPtr() {
         return mOutputPtr;
@@ -247,6 +254,8 @@ public final class BufferingXmlWriter
             } else {
                 mOut.close();
             }
+        } else {
+            finishCompression();
         }
     }
 
@@ -315,6 +324,27 @@ public final class BufferingXmlWriter
         writeRaw(cbuf, offset, len);
     }
 
+    @Override
+    public void writeRawBytes(byte[] data, int offset, int len)
+        throws IOException
+    {
+        if (mOut instanceof UTF8Writer) {
+            // Our own UTF-8 encoder can take bytes as is
+            flushBuffer();
+            ((UTF8Writer) mOut).writeBytes(data, offset, len);
+        } else if (mUnderlyingStream != null) {
+            // Need to flush everything encoded so far, before writing to the stream
+            flushBuffer();
+            mOut.flush();
+            mUnderlyingStream.write(data, offset, len);
+        } else {
+            // No stream to write to; need to decode content instead
+            String enc = (mEncoding == null || mEncoding.length() == 0) ?
+                WstxOutputProperties.DEFAULT_OUTPUT_ENCODING : mEncoding;
+            writeRaw(new String(data, offset, len, enc));
+        }
+    }
+
     @Override
     public void writeRaw(String str) throws IOException
     {
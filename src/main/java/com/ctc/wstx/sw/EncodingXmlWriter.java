@@ -26,6 +26,7 @@ import org.codehaus.stax2.validation.XMLValidator;
 
 import com.ctc.wstx.api.WriterConfig;
 import com.ctc.wstx.cfg.XmlConsts;
+import com.ctc.wstx.io.DirectOutput;
 //import com.ctc.wstx.io.CompletelyCloseable;
 
 /**
@@ -167,6 +168,8 @@ public abstract class EncodingXmlWriter
              *   (unlike with BufferingXmlWriter)
              */
             mOut.close();
+        } else {
+            finishCompression();
         }
     }
 
@@ -815,6 +818,27 @@ public abstract class EncodingXmlWriter
         }
     }
 
+    @Override
+    public final void writeRawBytes(byte[] data, int offset, int len)
+        throws IOException
+    {
+        if (mSurrogate != 0) {
+            throwUnpairedSurrogate();
+        }
+        // Short content is cheapest to just copy
+        if (len < DirectOutput.MIN_DIRECT_WRITE) {
+            if ((mOutputPtr + len) > mOutputBuffer.length) {
+                flushBuffer();
+            }
+            System.arraycopy(data, offset, mOutputBuffer, mOutputPtr, len);
+            mOutputPtr += len;
+            return;
+        }
+        int ptr = mOutputPtr;
+        mOutputPtr = 0;
+        DirectOutput.write(mOut, mOutputBuffer, ptr, data, offset, len);
+    }
+
     /**
      * Entity writing can be optimized quite nicely, since it only
      * needs to output ascii characters.
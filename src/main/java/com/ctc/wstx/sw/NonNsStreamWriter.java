@@ -417,6 +417,15 @@ public class NonNsStreamWriter
         return mElements.isEmpty() ? "#root" : mElements.getLastString();
     }
 
+    @Override
+    protected void pushFragmentElement(XmlFragment frag, int index)
+    {
+        String prefix = frag.getOpenElementPrefix(index);
+        String localName = frag.getOpenElementLocalName(index);
+        mElements.addString((prefix == null || prefix.length() == 0) ?
+                localName : (prefix + ":" + localName));
+    }
+
     @Override
     public String validateQNamePrefix(QName name) {
         // Can either strip prefix out, or return as is
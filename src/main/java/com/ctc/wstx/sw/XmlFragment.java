@@ -0,0 +1,207 @@
+/* Woodstox XML processor
+ *
+ * Copyright (c) 2004- Tatu Saloranta, tatu.saloranta@iki.fi
+ *
+ * Licensed under the License specified in file LICENSE, included with
+ * the source code.
+ * You may not use this file except in compliance with the License.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ctc.wstx.sw;
+
+import java.nio.charset.Charset;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.ctc.wstx.io.CharsetNames;
+import com.ctc.wstx.io.SingleByteCodec;
+
+/**
+ * Immutable pre-serialized piece of XML content, recorded once using
+ * a {@link XmlFragmentWriter}, and then output any number of times
+ * using {@link BaseStreamWriter#writeFragment}, by any number of
+ * writers (concurrently as well).
+ *<p>
+ * A fragment may leave elements open (for example, envelope and header
+ * elements of a message): if so, writer that outputs the fragment will
+ * consider those elements open afterwards, along with namespace
+ * declarations they contain, and content can be added to them as usual.
+ *<p>
+ * Encoded representations of the fragment are calculated when
+ * first needed for an encoding, and retained for reuse. Note that
+ * since fragment is output as is, all of its characters have to be
+ * representable in the output encoding: characters are not escaped
+ * when the fragment is output.
+ *
+ * @since 7.3
+ */
+public final class XmlFragment
+{
+    private final static String[] NO_STRINGS = new String[0];
+
+    /**
+     * Marker used for encodings content can not be (fully) encoded in
+     */
+    private final static byte[] NOT_ENCODABLE = new byte[0];
+
+    private final String mContent;
+
+    /**
+     * Names of open elements, outermost first: prefix (null if none),
+     * local name and namespace URI for each
+     */
+    private final String[] mOpenElements;
+
+    /**
+     * Namespace declarations of open elements: prefix/URI pairs, prefix
+     * null for the default namespace
+     */
+    private final String[][] mOpenNsDecls;
+
+    /**
+     * Number of elements fragment contains on its outermost level,
+     * including the outermost open element, if any
+     */
+    private final int mTopLevelElements;
+
+    /**
+     * Whether fragment has text (or CDATA) on its outermost level,
+     * other than white space
+     */
+    private final boolean mTopLevelText;
+
+    private final ConcurrentHashMap<String,byte[]> mEncoded = new ConcurrentHashMap<String,byte[]>();
+
+    XmlFragment(String content, String[] openElements, String[][] openNsDecls,
+            int topLevelElements, boolean topLevelText)
+    {
+        mContent = content;
+        mOpenElements = (openElements.length == 0) ? NO_STRINGS : openElements;
+        mOpenNsDecls = openNsDecls;
+        mTopLevelElements = topLevelElements;
+        mTopLevelText = topLevelText;
+    }
+
+    /*
+    ///////////////////////////////////////////////////////////
+    // Public API
+    ///////////////////////////////////////////////////////////
+     */
+
+    /**
+     * @return Serialized contents of the fragment
+     */
+    public String getContent() {
+        return mContent;
+    }
+
+    /**
+     * @return Number of elements fragment leaves open
+     */
+    public int getOpenElementCount() {
+        return mOpenNsDecls.length;
+    }
+
+    /**
+     * @param index Index of the open element; 0 for the outermost
+     */
+    public String getOpenElementPrefix(int index) {
+        return mOpenElements[index * 3];
+    }
+
+    public String getOpenElementLocalName(int index) {
+        return mOpenElements[index * 3 + 1];
+    }
+
+    public String getOpenElementNamespaceURI(int index) {
+        return mOpenElements[index * 3 + 2];
+    }
+
+    /**
+     * @return Number of namespace declarations specified open element has
+     */
+    public int getOpenElementNsDeclCount(int index) {
+        return mOpenNsDecls[index].length >> 1;
+    }
+
+    /**
+     * @return Prefix of the specified namespace declaration; null for
+     *   the default namespace
+     */
+    public String getOpenElementNsPrefix(int index, int declIndex) {
+        return mOpenNsDecls[index][declIndex << 1];
+    }
+
+    public String getOpenElementNsURI(int index, int declIndex) {
+        return mOpenNsDecls[index][(declIndex << 1) + 1];
+    }
+
+    public int getTopLevelElementCount() {
+        return mTopLevelElements;
+    }
+
+    /**
+     * @return True if the fragment has non-white space text (or CDATA)
+     *   outside of its elements; such fragments can only be output
+     *   within the root element
+     */
+    public boolean hasTopLevelText() {
+        return mTopLevelText;
+    }
+
+    @Override
+    public String toString() {
+        return mContent;
+    }
+
+    /*
+    ///////////////////////////////////////////////////////////
+    // Package methods
+    ///////////////////////////////////////////////////////////
+     */
+
+    /**
+     * @return Contents of the fragment encoded using given encoding, if
+     *   the encoding is supported and all content can be encoded with it;
+     *   null if not
+     */
+    byte[] getEncoded(String enc)
+    {
+        byte[] result = mEncoded.get(enc);
+        if (result == null) {
+            result = encode(enc);
+            mEncoded.put(enc, result);
+        }
+        return (result == NOT_ENCODABLE) ? null : result;
+    }
+
+    private byte[] encode(String enc)
+    {
+        /* Only encode for encodings that are compatible with 7-bit
+         * ascii: others may need byte order marks or such, and are
+         * better left for writers to handle.
+         */
+        if (enc != CharsetNames.CS_UTF8 && enc != CharsetNames.CS_ISO_LATIN1
+                && enc != CharsetNames.CS_US_ASCII) {
+            SingleByteCodec codec = SingleByteCodec.forEncoding(enc);
+            if (codec == null || !codec.isAsciiCompatible()) {
+                return NOT_ENCODABLE;
+            }
+        }
+        Charset cs;
+        try {
+            cs = Charset.forName(enc);
+        } catch (IllegalArgumentException e) {
+            return NOT_ENCODABLE;
+        }
+        if (!cs.newEncoder().canEncode(mContent)) {
+            return NOT_ENCODABLE;
+        }
+        return mContent.getBytes(cs);
+    }
+}
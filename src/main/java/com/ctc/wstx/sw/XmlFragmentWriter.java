@@ -0,0 +1,280 @@
+/* Woodstox XML processor
+ *
+ * Copyright (c) 2004- Tatu Saloranta, tatu.saloranta@iki.fi
+ *
+ * Licensed under the License specified in file LICENSE, included with
+ * the source code.
+ * You may not use this file except in compliance with the License.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ctc.wstx.sw;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLStreamException;
+
+import com.ctc.wstx.api.WriterConfig;
+import com.ctc.wstx.exc.WstxIOException;
+
+/**
+ * Stream writer used for recording {@link XmlFragment}s: content is
+ * written using regular stream writer methods, after which
+ * {@link #toFragment} is called to get an immutable fragment.
+ *<p>
+ * Recording is always done in non-repairing namespace-aware mode
+ * (namespace declarations have to be written explicitly), regardless
+ * of configuration passed; other settings, such as content validation,
+ * are used as is. Unlike with regular writers, multiple elements (and
+ * text) are allowed on the outermost level; and elements may be left
+ * open. Writer should not be closed before calling {@link #toFragment},
+ * since that would close all open elements.
+ *
+ * @since 7.3
+ */
+public class XmlFragmentWriter
+    extends SimpleNsStreamWriter
+{
+    private final StringWriter mBuffer;
+
+    /**
+     * Namespace declarations written, in triplets of element depth,
+     * prefix (null for the default namespace) and URI; only contains
+     * entries for currently open elements
+     */
+    private final ArrayList<Object> mNsDecls = new ArrayList<Object>();
+
+    private int mTopLevelElements;
+
+    /**
+     * Offset in the buffer where current stretch of outermost-level
+     * content (content outside of all elements) starts
+     */
+    private int mTopLevelStart;
+
+    /**
+     * Flag set if content written on the outermost level contains
+     * anything other than white space, comments and processing
+     * instructions
+     */
+    private boolean mTopLevelText;
+
+    /**
+     * @param cfg Configuration to base settings of the writer on; will
+     *   not be modified
+     */
+    public static XmlFragmentWriter create(WriterConfig cfg)
+        throws XMLStreamException
+    {
+        cfg = cfg.createNonShared();
+        cfg.doSupportNamespaces(true);
+        cfg.enableAutomaticNamespaces(false);
+        StringWriter w = new StringWriter();
+        try {
+            // No encoding, so all characters can be written as is
+            return new XmlFragmentWriter(new BufferingXmlWriter(w, cfg, null, false, null, 16),
+                    cfg, w);
+        } catch (IOException ioe) {
+            throw new WstxIOException(ioe);
+        }
+    }
+
+    protected XmlFragmentWriter(XmlWriter xw, WriterConfig cfg, StringWriter w)
+    {
+        super(xw, null, cfg);
+        mBuffer = w;
+        // Fragments are always output within the tree
+        mState = STATE_TREE;
+    }
+
+    /*
+    ///////////////////////////////////////////////////////////
+    // Public API
+    ///////////////////////////////////////////////////////////
+     */
+
+    /**
+     * Method for constructing a fragment out of content written so far.
+     * Writer may be used to write more content after the call, to
+     * construct another fragment with additional content.
+     */
+    public XmlFragment toFragment()
+        throws XMLStreamException
+    {
+        if (mStartElementOpen) {
+            closeStartElement(mEmptyElement);
+        }
+        flush();
+        int depth = depthOf(mCurrElem);
+        if (depth == 0) {
+            checkTopLevelContent();
+        }
+
+        // Open elements, outermost first
+        String[] openElems = new String[depth * 3];
+        String[][] openDecls = new String[depth][];
+        for (SimpleOutputElement elem = mCurrElem; !elem.isRoot(); elem = elem.getParent()) {
+            --depth;
+            openElems[depth * 3] = elem.getPrefix();
+            openElems[depth * 3 + 1] = elem.getLocalName();
+            openElems[depth * 3 + 2] = elem.getNamespaceURI();
+            openDecls[depth] = findNsDecls(depth + 1);
+        }
+        return new XmlFragment(mBuffer.toString(), openElems, openDecls,
+                mTopLevelElements, mTopLevelText);
+    }
+
+    /*
+    ///////////////////////////////////////////////////////////
+    // Overridden methods
+    ///////////////////////////////////////////////////////////
+     */
+
+    @Override
+    protected void checkStartElement(String localName, String prefix)
+        throws XMLStreamException
+    {
+        super.checkStartElement(localName, prefix);
+        // Any earlier start element was closed above, so:
+        int depth = depthOf(mCurrElem) + 1;
+        if (depth == 1) {
+            ++mTopLevelElements;
+            flush();
+            checkTopLevelContent();
+        }
+        // Declarations of closed elements at the same (or deeper) level no longer apply
+        int i = mNsDecls.size();
+        while (i > 0 && ((Integer) mNsDecls.get(i-3)).intValue() >= depth) {
+            i -= 3;
+        }
+        while (mNsDecls.size() > i) {
+            mNsDecls.remove(mNsDecls.size() - 1);
+        }
+    }
+
+    @Override
+    protected void closeStartElement(boolean emptyElem)
+        throws XMLStreamException
+    {
+        super.closeStartElement(emptyElem);
+        mState = STATE_TREE;
+        if (emptyElem && mCurrElem.isRoot()) {
+            markTopLevelStart();
+        }
+    }
+
+    @Override
+    protected void doWriteEndTag(QName expName, boolean allowEmpty)
+        throws XMLStreamException
+    {
+        if (mCurrElem.isRoot()) {
+            reportNwfStructure("No open start element, when trying to write end element");
+        }
+        super.doWriteEndTag(expName, allowEmpty);
+        mState = STATE_TREE;
+        if (mCurrElem.isRoot()) {
+            markTopLevelStart();
+        }
+    }
+
+    @Override
+    protected void doWriteNamespace(String prefix, String nsURI)
+        throws XMLStreamException
+    {
+        super.doWriteNamespace(prefix, nsURI);
+        addNsDecl(prefix, nsURI);
+    }
+
+    @Override
+    protected void doWriteDefaultNs(String nsURI)
+        throws XMLStreamException
+    {
+        super.doWriteDefaultNs(nsURI);
+        addNsDecl(null, (nsURI == null) ? "" : nsURI);
+    }
+
+    /*
+    ///////////////////////////////////////////////////////////
+    // Internal methods
+    ///////////////////////////////////////////////////////////
+     */
+
+    private void markTopLevelStart()
+        throws XMLStreamException
+    {
+        flush();
+        mTopLevelStart = mBuffer.getBuffer().length();
+    }
+
+    /**
+     * Method called to check outermost-level content written since
+     * the last outermost element was closed (or since the start) for
+     * anything that could not be output in prolog or epilog.
+     */
+    private void checkTopLevelContent()
+    {
+        StringBuffer sb = mBuffer.getBuffer();
+        int i = mTopLevelStart;
+        final int end = sb.length();
+        mTopLevelStart = end;
+
+        while (i < end && !mTopLevelText) {
+            char c = sb.charAt(i);
+            if (c == ' ' || c == '\t' || c == '\n' || c == '\r') {
+                ++i;
+                continue;
+            }
+            String endMarker = null;
+            if (c == '<' && i+1 < end) {
+                c = sb.charAt(i+1);
+                if (c == '?') {
+                    endMarker = "?>";
+                } else if (c == '!' && i+3 < end && sb.charAt(i+2) == '-' && sb.charAt(i+3) == '-') {
+                    endMarker = "-->";
+                }
+            }
+            if (endMarker == null) { // text, CDATA or something raw
+                mTopLevelText = true;
+                break;
+            }
+            int ix = sb.indexOf(endMarker, i+2);
+            i = (ix < 0) ? end : (ix + endMarker.length());
+        }
+    }
+
+    private void addNsDecl(String prefix, String nsURI)
+    {
+        mNsDecls.add(Integer.valueOf(depthOf(mCurrElem)));
+        mNsDecls.add(prefix);
+        mNsDecls.add(nsURI);
+    }
+
+    private String[] findNsDecls(int depth)
+    {
+        ArrayList<String> result = new ArrayList<String>();
+        for (int i = 0, len = mNsDecls.size(); i < len; i += 3) {
+            if (((Integer) mNsDecls.get(i)).intValue() == depth) {
+                result.add((String) mNsDecls.get(i+1));
+                result.add((String) mNsDecls.get(i+2));
+            }
+        }
+        return result.toArray(new String[result.size()]);
+    }
+
+    private static int depthOf(SimpleOutputElement elem)
+    {
+        int depth = 0;
+        for (; !elem.isRoot(); elem = elem.getParent()) {
+            ++depth;
+        }
+        return depth;
+    }
+}
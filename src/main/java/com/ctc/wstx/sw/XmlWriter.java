@@ -33,6 +33,7 @@ import com.ctc.wstx.cfg.ErrorConsts;
 import com.ctc.wstx.cfg.OutputConfigFlags;
 import com.ctc.wstx.exc.WstxIOException;
 import com.ctc.wstx.exc.WstxOutputException;
+import com.ctc.wstx.io.DeflatingOutputStream;
 import com.ctc.wstx.io.WstxInputData;
 
 /**
@@ -230,6 +231,21 @@ public abstract class XmlWriter
      */
     protected abstract OutputStream getOutputStream();
 
+    /**
+     * Method called by sub-classes when closing the writer without closing
+     * the underlying stream: if output is being compressed, compressed
+     * content still needs to be finished.
+     *
+     * @since 7.3
+     */
+    protected final void finishCompression() throws IOException
+    {
+        OutputStream out = getOutputStream();
+        if (out instanceof DeflatingOutputStream) {
+            ((DeflatingOutputStream) out).finish();
+        }
+    }
+
     /**
      * @return Underlying Writer used for physical output,
      *   if the writer was constructed with one, or one was
@@ -272,6 +288,21 @@ public abstract class XmlWriter
     public abstract void writeRawAscii(char[] cbuf, int offset, int len)
         throws IOException;
 
+    /**
+     * Method for writing content that has already been encoded using
+     * the output encoding of this writer, as is: no verification or
+     * escaping is done. Long content is passed directly to the underlying
+     * stream, if possible, instead of being copied through the output
+     * buffer.
+     *<p>
+     * Note: content is not included in character offsets of locations
+     * writer reports.
+     *
+     * @since 7.3
+     */
+    public abstract void writeRawBytes(byte[] data, int offset, int len)
+        throws IOException;
+
     /*
     ///////////////////////////////////////////////////////////////////////
     // Raw, non-verifying write methods; used when directly copying trusted content
@@ -496,6 +527,18 @@ public abstract class XmlWriter
 
     protected abstract int getOutputPtr();
 
+    /**
+     * Method that can be called to check whether any (valid XML) content
+     * can be passed to <code>writeRaw</code> methods as is: this is
+     * the case if the output encoding can represent all Unicode characters,
+     * so that no character entities are ever needed.
+     *
+     * @since 7.3
+     */
+    public boolean canWriteAllCharsRaw() {
+        return false;
+    }
+
     public int getRow() {
         return mLocRowNr;
     }
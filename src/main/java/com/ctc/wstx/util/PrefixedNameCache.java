@@ -0,0 +1,73 @@
+package com.ctc.wstx.util;
+
+/**
+ * Small direct-mapped cache used for reusing "prefix:localName" Strings
+ * (qualified names) constructed from prefix and local name components.
+ * Main user is the SAX implementation, which has to pass qualified
+ * names for all start and end elements (as well as for attributes,
+ * when requested), and would otherwise need to concatenate a new String
+ * for each such call.
+ *<p>
+ * Since both components are expected to come from a symbol table
+ * (and thereby be canonicalized), matching is primarily done using
+ * identity comparison; but equality is checked as a fallback to
+ * guarantee correctness for non-canonical arguments.
+ *<p>
+ * Instances are not thread-safe, and are meant to be owned by a single
+ * reader instance.
+ *
+ * @since 7.3
+ */
+public final class PrefixedNameCache
+{
+    /**
+     * Number of slots; needs to be a power of two. Contents are
+     * replaced on collision, so size only limits hit rate, not
+     * correctness.
+     */
+    private final static int SIZE = 256;
+
+    private final static int MASK = SIZE - 1;
+
+    private final String[] mPrefixes = new String[SIZE];
+
+    private final String[] mLocalNames = new String[SIZE];
+
+    private final String[] mQNames = new String[SIZE];
+
+    public PrefixedNameCache() { }
+
+    /**
+     * @param prefix Prefix of the name, if any; null or empty String
+     *    to indicate there is no prefix
+     * @param localName Local name; never null
+     *
+     * @return Qualified name, either cached instance or newly
+     *    constructed one
+     */
+    public String findQName(String prefix, String localName)
+    {
+        if (prefix == null || prefix.length() == 0) {
+            return localName;
+        }
+        int ix = ((localName.hashCode() * 31) ^ prefix.hashCode());
+        ix = (ix ^ (ix >>> 16)) & MASK;
+
+        String ln = mLocalNames[ix];
+        if (ln == localName || (ln != null && ln.equals(localName))) {
+            String p = mPrefixes[ix];
+            if (p == prefix || prefix.equals(p)) {
+                return mQNames[ix];
+            }
+        }
+        StringBuilder sb = new StringBuilder(prefix.length() + 1 + localName.length());
+        sb.append(prefix);
+        sb.append(':');
+        sb.append(localName);
+        String qname = sb.toString();
+        mPrefixes[ix] = prefix;
+        mLocalNames[ix] = localName;
+        mQNames[ix] = qname;
+        return qname;
+    }
+}
@@ -15,6 +15,9 @@
 
 package com.ctc.wstx.util;
 
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashSet;
 import java.util.concurrent.ThreadLocalRandom;
 
 /**
@@ -51,6 +54,12 @@ import java.util.concurrent.ThreadLocalRandom;
  * instances can be freely used without synchronization. However, using
  * master table concurrently with child instances can only be done if
  * access to master instance is read-only (ie. no modifications done).
+ *<p>
+ * Finally, a master instance can also be "frozen" (see
+ * {@link #createFrozen}): such tables are pre-populated with a fixed
+ * vocabulary, and never modified after construction; child instances
+ * will still add unknown symbols to their private copies, but these are
+ * never merged back.
  */
 
 public class SymbolTable {
@@ -156,6 +165,15 @@ public class SymbolTable {
      */
     protected final int mHashSeed;
 
+    /**
+     * Flag that indicates that this is a frozen master table, contents
+     * of which can not be modified; child instances are not frozen,
+     * but changes to them can not be merged back.
+     *
+     * @since 7.3
+     */
+    protected boolean mFrozen;
+
     /*
     ////////////////////////////////////////
     // Life-cycle:
@@ -197,15 +215,22 @@ public class SymbolTable {
      */
     public SymbolTable(boolean internStrings, int initialSize,
             float fillFactor)
+    {
+        // Random per-table seed to defend against hash-collision attacks
+        // (see issue #12).
+        this(internStrings, initialSize, fillFactor,
+                ThreadLocalRandom.current().nextInt());
+    }
+
+    private SymbolTable(boolean internStrings, int initialSize,
+            float fillFactor, int hashSeed)
     {
         mInternStrings = internStrings;
         // Let's start versions from 1
         mThisVersion = 1;
         // And we'll also set flags so no copying of buckets is needed:
         mDirty = true;
-        // Random per-table seed to defend against hash-collision attacks
-        // (see issue #12).
-        mHashSeed = ThreadLocalRandom.current().nextInt();
+        mHashSeed = hashSeed;
 
         // No point in requesting funny initial sizes...
         if (initialSize < 1) {
@@ -259,6 +284,87 @@ public class SymbolTable {
         mDirty = false;
     }
 
+    /**
+     * Factory method for constructing a frozen master table that contains
+     * given names (as well as "xml" and "xmlns" prefixes), and that can
+     * not be modified after construction. Such tables can be shared
+     * between input factories (see
+     * {@link com.ctc.wstx.stax.WstxInputFactory#setSharedSymbolTable}),
+     * so that readers find names of a known vocabulary without having to
+     * construct, intern or add them; names not in vocabulary are added
+     * to private child tables of readers only.
+     *<p>
+     * Since contents are known in advance, hash seed and table size are
+     * chosen so that names do not collide (if such a combination is
+     * found with a reasonable effort), to make lookups take a single
+     * comparison. Seed is still chosen randomly among such candidates,
+     * so resulting layout differs between instances. All names are intern()ed.
+     *
+     * @param names Names to add; duplicates and empty names are ignored
+     *
+     * @since 7.3
+     */
+    public static SymbolTable createFrozen(Collection<String> names)
+    {
+        LinkedHashSet<String> syms = new LinkedHashSet<String>();
+        syms.add("xml");
+        syms.add("xmlns");
+        for (String name : names) {
+            if (name != null && name.length() > 0) {
+                syms.add(name);
+            }
+        }
+        final int count = syms.size();
+        int minSize = 4;
+        while (minSize < (count + count)) {
+            minSize += minSize;
+        }
+        // Candidate seeds must not be predictable: child tables of readers
+        // inherit the seed, and add names from documents using it (so
+        // hash-collision defense of issue #12 applies to them as well)
+        final ThreadLocalRandom rnd = ThreadLocalRandom.current();
+        int bestSize = minSize;
+        int bestSeed = 0;
+        int bestCollisions = Integer.MAX_VALUE;
+
+        search:
+        for (int size = minSize; size <= (minSize << 2); size += size) {
+            boolean[] used = new boolean[size];
+            for (int round = 0; round < 64; ++round) {
+                int seed = rnd.nextInt();
+                Arrays.fill(used, false);
+                int collisions = 0;
+                for (String sym : syms) {
+                    int ix = calcHash(sym, seed) & (size - 1);
+                    if (used[ix]) {
+                        if (++collisions >= bestCollisions) {
+                            break;
+                        }
+                    } else {
+                        used[ix] = true;
+                    }
+                }
+                if (collisions < bestCollisions) {
+                    bestCollisions = collisions;
+                    bestSize = size;
+                    bestSeed = seed;
+                    if (collisions == 0) {
+                        break search;
+                    }
+                }
+            }
+        }
+
+        SymbolTable t = new SymbolTable(true, bestSize, DEFAULT_FILL_FACTOR, bestSeed);
+        for (String sym : syms) {
+            t.findSymbol(sym);
+        }
+        t.mFrozen = true;
+        // so that child instances will copy arrays before modification
+        t.mDirty = false;
+        return t;
+    }
+
     /**
      * "Factory" method; will create a new child instance of this symbol
      * table. It will be a copy-on-write instance, ie. it will only use
@@ -303,6 +409,10 @@ public class SymbolTable {
      */
     public synchronized void mergeChild(SymbolTable child)
     {
+        // Frozen tables are never modified
+        if (mFrozen) {
+            return;
+        }
         // Let's do a basic sanity check first:
         if (child.size() <= size()) { // nothing to add
             return;
@@ -358,6 +468,14 @@ public class SymbolTable {
 
     public boolean isDirty() { return mDirty; }
 
+    /**
+     * @return True if this is a frozen master table, constructed using
+     *   {@link #createFrozen}
+     *
+     * @since 7.3
+     */
+    public boolean isFrozen() { return mFrozen; }
+
     public boolean isDirectChildOf(SymbolTable t)
     {
         /* Actually, this doesn't really prove it is a child (would have to
@@ -430,6 +548,9 @@ public class SymbolTable {
             }
         }
 
+        if (mFrozen) {
+            throw new IllegalStateException("Can not add symbol '"+new String(buffer, start, len)+"' to a frozen SymbolTable");
+        }
         // Need to expand?
         if (mSize >= mSizeThreshold) {
             rehash();
@@ -539,6 +660,9 @@ public class SymbolTable {
             }
         }
 
+        if (mFrozen) {
+            throw new IllegalStateException("Can not add symbol '"+str+"' to a frozen SymbolTable");
+        }
         // Need to expand?
         if (mSize >= mSizeThreshold) {
             rehash();
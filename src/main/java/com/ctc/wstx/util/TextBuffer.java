@@ -120,6 +120,12 @@ public final class TextBuffer
      */
     private int mCurrentSize;
 
+    /**
+     * Number of times a new segment has been allocated since the last
+     * call to {@link #resetExpansionCount}; only used for metrics.
+     */
+    private int mExpansionCount;
+
     // // // Temporary caching for Objects to return
 
     /**
@@ -130,6 +136,12 @@ public final class TextBuffer
 
     private char[] mResultArray;
 
+    /**
+     * View used for accessing contents as a {@link CharSequence};
+     * created when first needed, and reused after that.
+     */
+    private TextView mView;
+
     // // // Canonical indentation objects (up to 32 spaces, 8 tabs)
 
     public final static int MAX_INDENT_SPACES = 32;
@@ -582,6 +594,36 @@ public final class TextBuffer
         return mResultString;
     }
 
+    /**
+     * Variant of {@link #contentsAsString} that canonicalizes contents
+     * using given value cache, if they are short enough (and contained
+     * in a single array).
+     *
+     * @param cache Cache to use; if null, behaves exactly like
+     *   {@link #contentsAsString()}
+     *
+     * @since 7.3
+     */
+    public String contentsAsString(ValueCache cache)
+    {
+        if (cache != null && mResultString == null) {
+            if (mInputStart >= 0) {
+                if (cache.canCache(mInputLen)) {
+                    return (mResultString = cache.find(mInputBuffer, mInputStart, mInputLen));
+                }
+            } else if (mResultArray != null) {
+                if (cache.canCache(mResultArray.length)) {
+                    return (mResultString = cache.find(mResultArray, 0, mResultArray.length));
+                }
+            } else if (mSegmentSize == 0 && mCurrentSegment != null) {
+                if (cache.canCache(mCurrentSize)) {
+                    return (mResultString = cache.find(mCurrentSegment, 0, mCurrentSize));
+                }
+            }
+        }
+        return contentsAsString();
+    }
+
     /**
      * Similar to {@link #contentsAsString}, but constructs a StringBuilder
      * for further appends.
@@ -646,6 +688,57 @@ public final class TextBuffer
         }
     }
  
+    /**
+     * Method for accessing contents as a {@link CharSequence} without
+     * constructing a String: if contents are in a single array (shared
+     * input buffer, or a single segment), returned view refers to it
+     * directly; otherwise contents are first combined into a single
+     * array (same as {@link #contentsAsArray}). Returned instance
+     * is reused, and is only valid until contents are next modified.
+     *
+     * @since 7.3
+     */
+    public TextView contentsAsCharSequence()
+    {
+        final TextView view = view();
+        if (mInputStart >= 0) {
+            return view.reset(mInputBuffer, mInputStart, mInputLen);
+        }
+        if (mResultArray != null) {
+            return view.reset(mResultArray, 0, mResultArray.length);
+        }
+        if (mSegmentSize == 0) {
+            if (mCurrentSize == 0 || mCurrentSegment == null) {
+                return view.reset(DataUtil.getEmptyCharArray(), 0, 0);
+            }
+            return view.reset(mCurrentSegment, 0, mCurrentSize);
+        }
+        char[] result = contentsAsArray();
+        return view.reset(result, 0, result.length);
+    }
+
+    /**
+     * Method for pointing the view returned by {@link #contentsAsCharSequence}
+     * to given content that is not contained in this buffer (such as
+     * replacement text of an entity), so that the same view instance
+     * can be used for all textual events of a reader.
+     *
+     * @since 7.3
+     */
+    public TextView contentsAsCharSequence(char[] buf, int start, int len)
+    {
+        return view().reset(buf, start, len);
+    }
+
+    private TextView view()
+    {
+        TextView view = mView;
+        if (view == null) {
+            mView = view = new TextView();
+        }
+        return view;
+    }
+
     public char[] contentsAsArray()
     {
         char[] result = mResultArray;
@@ -1063,6 +1156,23 @@ public final class TextBuffer
         }
     }
 
+    /**
+     * @return Number of times buffer has had to allocate a new segment
+     *   since last call to {@link #resetExpansionCount}
+     *
+     * @since 7.3
+     */
+    public int getExpansionCount() {
+        return mExpansionCount;
+    }
+
+    /**
+     * @since 7.3
+     */
+    public void resetExpansionCount() {
+        mExpansionCount = 0;
+    }
+
     /*
     //////////////////////////////////////////////
     // Raw access, for high-performance use:
@@ -1109,6 +1219,7 @@ public final class TextBuffer
         char[] curr = new char[calcNewSize(oldLen)];
         mCurrentSize = 0;
         mCurrentSegment = curr;
+        ++mExpansionCount;
         return curr;
     }
     
@@ -1194,6 +1305,7 @@ public final class TextBuffer
         curr = new char[newSize];
         mCurrentSize = 0;
         mCurrentSegment = curr;
+        ++mExpansionCount;
     }
 
     private char[] buildResultArray()
@@ -0,0 +1,268 @@
+/* Woodstox XML processor
+ *
+ * Copyright (c) 2004- Tatu Saloranta, tatu.saloranta@iki.fi
+ *
+ * Licensed under the License specified in file LICENSE, included with
+ * the source code.
+ * You may not use this file except in compliance with the License.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ctc.wstx.util;
+
+/**
+ * {@link CharSequence} that gives read-only access to a region of a
+ * character array, without copying. Used by stream readers to expose
+ * textual content of the current event without constructing a String
+ * (see {@link com.ctc.wstx.sr.StreamReaderImpl#getTextAsCharSequence});
+ * instances are reused, and contents are only valid until the reader
+ * is advanced. Use {@link #toString} to get a persistent copy.
+ *<p>
+ * In addition to the standard accessors, helper methods are included for
+ * comparing contents, calculating hash codes (same as
+ * {@link String#hashCode} would), and parsing integral numbers.
+ *
+ * @since 7.3
+ */
+public final class TextView
+    implements CharSequence
+{
+    private char[] mBuffer;
+
+    private int mStart;
+
+    private int mLength;
+
+    TextView() {
+        mBuffer = DataUtil.getEmptyCharArray();
+    }
+
+    public TextView(char[] buf, int start, int len) {
+        mBuffer = buf;
+        mStart = start;
+        mLength = len;
+    }
+
+    TextView reset(char[] buf, int start, int len)
+    {
+        mBuffer = buf;
+        mStart = start;
+        mLength = len;
+        return this;
+    }
+
+    /*
+    ///////////////////////////////////////////////////////////
+    // CharSequence implementation
+    ///////////////////////////////////////////////////////////
+     */
+
+    @Override
+    public int length() {
+        return mLength;
+    }
+
+    @Override
+    public char charAt(int index)
+    {
+        if (index < 0 || index >= mLength) {
+            throw new IndexOutOfBoundsException("Index "+index+" out of bounds for length "+mLength);
+        }
+        return mBuffer[mStart + index];
+    }
+
+    /**
+     * Note: returned sub-sequence shares the underlying buffer, and is
+     * only valid as long as this view is.
+     */
+    @Override
+    public CharSequence subSequence(int start, int end)
+    {
+        if (start < 0 || end > mLength || start > end) {
+            throw new IndexOutOfBoundsException("Invalid range ["+start+", "+end+"[ for length "+mLength);
+        }
+        return new TextView(mBuffer, mStart + start, end - start);
+    }
+
+    @Override
+    public String toString() {
+        return new String(mBuffer, mStart, mLength);
+    }
+
+    /*
+    ///////////////////////////////////////////////////////////
+    // Additional accessors
+    ///////////////////////////////////////////////////////////
+     */
+
+    /**
+     * Method for copying contents to given array.
+     */
+    public void getChars(char[] dst, int dstStart)
+    {
+        System.arraycopy(mBuffer, mStart, dst, dstStart, mLength);
+    }
+
+    public void appendTo(StringBuilder sb) {
+        sb.append(mBuffer, mStart, mLength);
+    }
+
+    /**
+     * @return Hash code String with same contents would have; can be
+     *   used for looking up contents from hash-based data structures
+     *   keyed by Strings, without constructing a String
+     */
+    public int stringHashCode()
+    {
+        final char[] buf = mBuffer;
+        int hash = 0;
+        for (int i = mStart, end = mStart + mLength; i < end; ++i) {
+            hash = 31 * hash + buf[i];
+        }
+        return hash;
+    }
+
+    /*
+    ///////////////////////////////////////////////////////////
+    // Comparison
+    ///////////////////////////////////////////////////////////
+     */
+
+    public boolean contentEquals(CharSequence str)
+    {
+        final int len = mLength;
+        if (str.length() != len) {
+            return false;
+        }
+        final char[] buf = mBuffer;
+        final int start = mStart;
+        for (int i = 0; i < len; ++i) {
+            if (buf[start+i] != str.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public boolean contentEqualsIgnoreCase(String str)
+    {
+        return (str.length() == mLength) && regionMatches(true, 0, str, 0, mLength);
+    }
+
+    public boolean startsWith(CharSequence prefix)
+    {
+        return regionMatches(false, 0, prefix, 0, prefix.length());
+    }
+
+    /**
+     * Method similar to {@link String#regionMatches(boolean,int,String,int,int)}.
+     */
+    public boolean regionMatches(boolean ignoreCase, int offset, CharSequence other,
+            int otherOffset, int len)
+    {
+        if (offset < 0 || otherOffset < 0
+            || offset > (mLength - len) || otherOffset > (other.length() - len)) {
+            return false;
+        }
+        final char[] buf = mBuffer;
+        int ptr = mStart + offset;
+        for (int i = 0; i < len; ++i) {
+            char c1 = buf[ptr++];
+            char c2 = other.charAt(otherOffset + i);
+            if (c1 == c2) {
+                continue;
+            }
+            if (!ignoreCase) {
+                return false;
+            }
+            // Same as String.regionMatches: need to check both cases
+            char u1 = Character.toUpperCase(c1);
+            char u2 = Character.toUpperCase(c2);
+            if (u1 != u2 && Character.toLowerCase(u1) != Character.toLowerCase(u2)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /*
+    ///////////////////////////////////////////////////////////
+    // Parsing
+    ///////////////////////////////////////////////////////////
+     */
+
+    /**
+     * Method for parsing contents as a decimal integer, ignoring leading
+     * and trailing white space (as defined by XML).
+     *
+     * @throws NumberFormatException If contents are not a valid
+     *   integer, or value does not fit in an int
+     */
+    public int parseInt()
+    {
+        long l = parseLong();
+        if (l < Integer.MIN_VALUE || l > Integer.MAX_VALUE) {
+            throw new NumberFormatException("Value \""+this+"\" out of int range");
+        }
+        return (int) l;
+    }
+
+    /**
+     * Method for parsing contents as a decimal integer, ignoring leading
+     * and trailing white space (as defined by XML).
+     *
+     * @throws NumberFormatException If contents are not a valid
+     *   integer, or value does not fit in a long
+     */
+    public long parseLong()
+    {
+        final char[] buf = mBuffer;
+        int ptr = mStart;
+        int end = ptr + mLength;
+        while (ptr < end && isSpace(buf[ptr])) {
+            ++ptr;
+        }
+        while (end > ptr && isSpace(buf[end-1])) {
+            --end;
+        }
+        if (ptr == end) {
+            throw new NumberFormatException("Empty value");
+        }
+        boolean neg = false;
+        char c = buf[ptr];
+        if (c == '-' || c == '+') {
+            neg = (c == '-');
+            if (++ptr == end) {
+                throw new NumberFormatException("Value \""+this+"\" has no digits");
+            }
+        }
+        // Accumulate as negative, to be able to represent Long.MIN_VALUE
+        final long limit = neg ? Long.MIN_VALUE : -Long.MAX_VALUE;
+        final long multLimit = limit / 10;
+        long result = 0L;
+        while (ptr < end) {
+            int digit = buf[ptr++] - '0';
+            if (digit < 0 || digit > 9) {
+                throw new NumberFormatException("Value \""+this+"\" is not a valid integer");
+            }
+            if (result < multLimit) {
+                throw new NumberFormatException("Value \""+this+"\" out of long range");
+            }
+            result *= 10;
+            if (result < limit + digit) {
+                throw new NumberFormatException("Value \""+this+"\" out of long range");
+            }
+            result -= digit;
+        }
+        return neg ? result : -result;
+    }
+
+    private static boolean isSpace(char c) {
+        return (c == ' ' || c == '\t' || c == '\n' || c == '\r');
+    }
+}
@@ -0,0 +1,138 @@
+/* Woodstox XML processor
+ *
+ * Copyright (c) 2004- Tatu Saloranta, tatu.saloranta@iki.fi
+ *
+ * Licensed under the License specified in file LICENSE, included with
+ * the source code.
+ * You may not use this file except in compliance with the License.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ctc.wstx.util;
+
+/**
+ * Bounded cache used for canonicalizing short attribute values and
+ * text contents, so that repeated values (status codes, booleans,
+ * currency codes and such) can share a single String instance, instead
+ * of a new one being constructed for every occurrence. Enabled using
+ * {@link com.ctc.wstx.api.WstxInputProperties#P_VALUE_CACHE_MAX_LENGTH};
+ * shared by all readers created by the same input factory.
+ *<p>
+ * Cache is a simple direct-mapped table: each value has exactly one
+ * slot it can be stored in (based on its hash code), and a value that
+ * is not found replaces the previous occupant of its slot. This keeps
+ * both lookups and memory usage strictly bounded, but also means that
+ * cache is only beneficial for documents where a small set of values
+ * repeats often: for mostly unique values it just adds overhead.
+ *<p>
+ * Instances are thread-safe without synchronization: slots only ever
+ * contain fully constructed (immutable) Strings, and the worst outcome
+ * of a race is a lost update, that is, a cache miss.
+ *
+ * @since 7.3
+ */
+public final class ValueCache
+{
+    /**
+     * Maximum number of slots a cache can have: cache is only useful
+     * for small sets of values, so there is no point in allowing huge
+     * (and possibly overflowing) sizes.
+     */
+    public final static int MAX_SIZE = 0x10000;
+
+    private final String[] mSlots;
+
+    private final int mMask;
+
+    private final int mMaxLength;
+
+    /**
+     * @param size Maximum number of values to cache; rounded up to
+     *    the next power of two, and capped at {@link #MAX_SIZE}
+     * @param maxLength Maximum length of values to cache: longer values
+     *    are unlikely to repeat, and are more expensive to compare
+     */
+    public ValueCache(int size, int maxLength)
+    {
+        if (size < 1) {
+            throw new IllegalArgumentException("Invalid cache size ("+size+"): has to be a positive number");
+        }
+        if (maxLength < 1) {
+            throw new IllegalArgumentException("Invalid maximum value length ("+maxLength+"): has to be a positive number");
+        }
+        size = Math.min(size, MAX_SIZE);
+        int actual = 1;
+        while (actual < size) {
+            actual += actual;
+        }
+        mSlots = new String[actual];
+        mMask = actual - 1;
+        mMaxLength = maxLength;
+    }
+
+    /*
+    ///////////////////////////////////////////////////////////
+    // Public API
+    ///////////////////////////////////////////////////////////
+     */
+
+    public int getSize() { return mSlots.length; }
+
+    public int getMaxLength() { return mMaxLength; }
+
+    /**
+     * @return True if values of given length can be cached; false
+     *   if they are too long
+     */
+    public boolean canCache(int len) {
+        return (len <= mMaxLength);
+    }
+
+    /**
+     * Method for finding a String with the given contents from the cache;
+     * or, if none found, constructing one and adding it to the cache.
+     * Caller is expected to check the length with {@link #canCache}
+     * first; no check is done here.
+     */
+    public String find(char[] buf, int start, int len)
+    {
+        if (len == 0) {
+            return "";
+        }
+        // Same hash as String.hashCode(), plus bit of mixing, since
+        // only the lowest bits are used
+        int hash = 0;
+        for (int i = start, end = start+len; i < end; ++i) {
+            hash = (hash * 31) + buf[i];
+        }
+        hash ^= (hash >>> 16);
+        final int ix = hash & mMask;
+        String str = mSlots[ix];
+        if (str != null && str.length() == len) {
+            int i = 0;
+            while (str.charAt(i) == buf[start+i]) {
+                if (++i == len) {
+                    return str;
+                }
+            }
+        }
+        str = new String(buf, start, len);
+        mSlots[ix] = str;
+        return str;
+    }
+
+    /**
+     * Method for removing all cached values.
+     */
+    public void clear()
+    {
+        for (int i = 0; i < mSlots.length; ++i) {
+            mSlots[i] = null;
+        }
+    }
+}
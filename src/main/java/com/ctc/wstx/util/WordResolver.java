@@ -112,8 +112,33 @@ public final class WordResolver
      * @return (Shared) string instance of the word, if it exists in
      *   the word set; null if not.
      */
+    public String find(char[] str, final int start, final int end)
+    {
+        int ix = findIndex(str, start, end);
+        return (ix < 0) ? null : mWords[ix];
+    }
+
+    /**
+     * @return (Shared) string instance of the word, if it exists in
+     *   the word set; null if not.
+     */
+    public String find(String str)
+    {
+        int ix = findIndex(str);
+        return (ix < 0) ? null : mWords[ix];
+    }
+
+    /**
+     * Method similar to {@link #find(char[],int,int)}, but returns
+     * index of the word instead.
+     *
+     * @return Index of the word (in alphabetic ordering of all words),
+     *   if it exists in the word set; -1 if not.
+     *
+     * @since 7.3
+     */
     @SuppressWarnings("cast")
-	public String find(char[] str, final int start, final int end)
+	public int findIndex(char[] str, final int start, final int end)
     {
         char[] data = mData;
 
@@ -129,9 +154,9 @@ public final class WordResolver
             // End of input String? Need to match the runt entry!
             if (offset == end) {
                 if (data[ptr+1] == CHAR_NULL) {
-                    return mWords[data[ptr+2] - NEGATIVE_OFFSET];
+                    return data[ptr+2] - NEGATIVE_OFFSET;
                 }
-                return null;
+                return -1;
             }
 
             int count = data[ptr++];
@@ -159,7 +184,7 @@ public final class WordResolver
                             break inner_block;
                         }
                     }
-                    return null; // No match!
+                    return -1; // No match!
                 } else { // Ok, binary search:
                     int low = 0;
                     int high = count-1;
@@ -178,56 +203,59 @@ public final class WordResolver
                             break inner_block;
                         }
                     }
-                    return null; // No match!
+                    return -1; // No match!
                 }
             } while (false);
 
             // Ok; now, is it the end?
             if (ptr >= NEGATIVE_OFFSET) {
-                String word = mWords[ptr - NEGATIVE_OFFSET];
+                int ix = ptr - NEGATIVE_OFFSET;
+                String word = mWords[ix];
                 int expLen = (end - start);
                 if (word.length() != expLen) {
-                    return null;
+                    return -1;
                 }
                 for (int i = offset - start; offset < end; ++i, ++offset) {
                     if (word.charAt(i) != str[offset]) {
-                        return null;
+                        return -1;
                     }
                 }
-                return word;
+                return ix;
             }
         }
         // never gets here
     }
 
-    private String findFromOne(char[] str, final int start, final int end)
+    private int findFromOne(char[] str, final int start, final int end)
     {
         String word = mWords[0];
         int len = end-start;
         if (word.length() != len) {
-            return null;
+            return -1;
         }
         for (int i = 0; i < len; ++i) {
             if (word.charAt(i) != str[start+i]) {
-                return null;
+                return -1;
             }
         }
-        return word;
+        return 0;
     }
 
     /**
-     * @return (Shared) string instance of the word, if it exists in
-     *   the word set; null if not.
+     * @return Index of the word (in alphabetic ordering of all words),
+     *   if it exists in the word set; -1 if not.
+     *
+     * @since 7.3
      */
     @SuppressWarnings("cast")
-	public String find(String str)
+	public int findIndex(String str)
     {
         char[] data = mData;
 
         // 03-Jan-2006, TSa: Special case; one entry
         if (data == null) {
             String word = mWords[0];
-            return word.equals(str) ? word : null;
+            return word.equals(str) ? 0 : -1;
         }
 
         int ptr = 0; // pointer to compressed set data
@@ -238,9 +266,9 @@ public final class WordResolver
             // End of input String? Need to match the runt entry!
             if (offset == end) {
                 if (data[ptr+1] == CHAR_NULL) {
-                    return mWords[data[ptr+2] - NEGATIVE_OFFSET];
+                    return data[ptr+2] - NEGATIVE_OFFSET;
                 }
-                return null;
+                return -1;
             }
 
             int count = data[ptr++];
@@ -268,7 +296,7 @@ public final class WordResolver
                             break inner_block;
                         }
                     }
-                    return null; // No match!
+                    return -1; // No match!
                 } else { // Ok, binary search:
                     int low = 0;
                     int high = count-1;
@@ -287,22 +315,23 @@ public final class WordResolver
                             break inner_block;
                         }
                     }
-                    return null; // No match!
+                    return -1; // No match!
                 }
             } while (false);
 
             // Ok; now, is it the end?
             if (ptr >= NEGATIVE_OFFSET) {
-                String word = mWords[ptr - NEGATIVE_OFFSET];
+                int ix = ptr - NEGATIVE_OFFSET;
+                String word = mWords[ix];
                 if (word.length() != str.length()) {
-                    return null;
+                    return -1;
                 }
                 for (; offset < end; ++offset) {
                     if (word.charAt(offset) != str.charAt(offset)) {
-                        return null;
+                        return -1;
                     }
                 }
-                return word;
+                return ix;
             }
         }
         // never gets here
@@ -0,0 +1,83 @@
+package com.ctc.wstx.dtd;
+
+import java.util.*;
+
+import com.ctc.wstx.util.PrefixedName;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for {@link DFATable}, compiled (table-based) content model
+ * transitions, verifying they match the name-based DFA transitions.
+ */
+public class TestDFATable extends wstxtest.BaseJUnit4Test
+{
+    private final PrefixedName A = new PrefixedName(null, "a");
+    private final PrefixedName B = new PrefixedName(null, "b");
+    private final PrefixedName C = new PrefixedName(null, "c");
+    private final PrefixedName D = new PrefixedName(null, "d");
+
+    @Test
+    public void testSequenceWithStar()
+    {
+        // (a, b*, c)
+        ContentSpec spec = new SeqContentSpec(true, ' ', new ContentSpec[] {
+                TokenContentSpec.construct(' ', A),
+                TokenContentSpec.construct('*', B),
+                TokenContentSpec.construct(' ', C)
+        });
+        Map<PrefixedName,Integer> ids = ids(D, C, B, A);
+        DFATable table = DFATable.construct(DFAState.constructDFA(spec), ids);
+
+        int state = table.findNext(0, ids.get(A));
+        assertTrue(state > 0);
+        assertFalse(table.getState(state).isAcceptingState());
+        assertEquals(-1, table.findNext(0, ids.get(B)));
+        // undeclared/unused ids never match
+        assertEquals(-1, table.findNext(0, ids.get(D)));
+        assertEquals(-1, table.findNext(0, 99));
+
+        int state2 = table.findNext(state, ids.get(B));
+        assertTrue(state2 >= 0);
+        assertEquals(state2, table.findNext(state2, ids.get(B)));
+        int end = table.findNext(state2, ids.get(C));
+        assertTrue(end >= 0);
+        assertTrue(table.getState(end).isAcceptingState());
+    }
+
+    @Test
+    public void testValidatorMatchesNameBased()
+    {
+        // (a | b)+, c?
+        ContentSpec spec = new SeqContentSpec(true, ' ', new ContentSpec[] {
+                ChoiceContentSpec.constructChoice(true, '+', Arrays.<ContentSpec>asList(
+                        TokenContentSpec.construct(' ', A),
+                        TokenContentSpec.construct(' ', B))),
+                TokenContentSpec.construct('?', C)
+        });
+        DFAState initial = DFAState.constructDFA(spec);
+        Map<PrefixedName,Integer> ids = ids(A, B, C);
+        DFATable table = DFATable.construct(initial, ids);
+
+        PrefixedName[][] inputs = new PrefixedName[][] {
+            { A }, { A, B, A }, { B, C }, { C }, { A, C, A }, { }
+        };
+        for (PrefixedName[] input : inputs) {
+            DFAValidator byName = new DFAValidator(initial);
+            DFAValidator byId = new DFAValidator(table);
+            for (PrefixedName n : input) {
+                assertEquals(byName.tryToValidate(n),
+                        byId.tryToValidate(ids.get(n), n));
+            }
+            assertEquals(byName.fullyValid(), byId.fullyValid());
+        }
+    }
+
+    private static Map<PrefixedName,Integer> ids(PrefixedName... names)
+    {
+        Map<PrefixedName,Integer> m = new HashMap<PrefixedName,Integer>();
+        for (PrefixedName n : names) {
+            m.put(n, m.size());
+        }
+        return m;
+    }
+}
@@ -0,0 +1,107 @@
+package wstxtest.io;
+
+import java.io.*;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+
+import javax.xml.stream.*;
+
+import org.junit.jupiter.api.Test;
+
+import com.ctc.wstx.api.ReaderConfig;
+import com.ctc.wstx.io.BufferRecycler;
+import com.ctc.wstx.io.CharsetReader;
+import com.ctc.wstx.stax.WstxInputFactory;
+
+public class TestCharsetReader extends wstxtest.BaseJUnit4Test
+{
+    final static String JP_TEXT = "abc 日本語テキスト xyz";
+
+    final static String CN_TEXT = "中文 𠀋 😀!";
+
+    @SuppressWarnings("resource")
+    private CharsetReader reader(byte[] input, String enc) {
+        ReaderConfig cfg = ReaderConfig.createFullDefaults();
+        // use tiny buffer to get multi-byte chars split between reads
+        return new CharsetReader(cfg, new ByteArrayInputStream(input),
+                new byte[5], 0, 0, true, Charset.forName(enc));
+    }
+
+    @Test
+    public void testDecode() throws Exception {
+        _testDecode(JP_TEXT, "Shift_JIS");
+        _testDecode(JP_TEXT, "EUC-JP");
+        _testDecode(CN_TEXT, "GB18030");
+        _testDecode("Café €™", "windows-1252");
+    }
+
+    @Test
+    public void testMalformedReplaced() throws Exception {
+        // truncated 2-byte Shift_JIS sequence at the end
+        byte[] input = new byte[] { 'a', (byte) 0x93 };
+        String str = _read(reader(input, "Shift_JIS"), 16);
+        assertEquals(2, str.length());
+        assertEquals('a', str.charAt(0));
+        assertEquals('\uFFFD', str.charAt(1));
+    }
+
+    @Test
+    public void testParseDocument() throws Exception {
+        for (String enc : new String[] { "Shift_JIS", "GB18030", "windows-1252" }) {
+            String text = "windows-1252".equals(enc) ? "Café €" : JP_TEXT;
+            StringBuilder sb = new StringBuilder();
+            sb.append("<?xml version='1.0' encoding='").append(enc).append("'?><root>");
+            for (int i = 0; i < 3000; ++i) {
+                sb.append("<a>").append(text).append(i).append("</a>");
+            }
+            sb.append("</root>");
+            byte[] data = sb.toString().getBytes(enc);
+            // parse twice, to also use recycled decoder
+            for (int round = 0; round < 2; ++round) {
+                XMLStreamReader sr = new WstxInputFactory().createXMLStreamReader(new ByteArrayInputStream(data));
+                assertEquals(XMLStreamConstants.START_ELEMENT, sr.nextTag());
+                assertEquals(enc, sr.getEncoding());
+                int count = 0;
+                while (sr.nextTag() == XMLStreamConstants.START_ELEMENT) {
+                    assertEquals(text+count, sr.getElementText());
+                    ++count;
+                }
+                assertEquals(3000, count);
+                sr.close();
+            }
+        }
+    }
+
+    @Test
+    public void testDecoderRecycling() {
+        BufferRecycler br = new BufferRecycler();
+        Charset sjis = Charset.forName("Shift_JIS");
+        CharsetDecoder dec1 = sjis.newDecoder();
+        CharsetDecoder dec2 = sjis.newDecoder();
+        br.returnDecoder(dec1);
+        br.returnDecoder(dec2);
+        br.returnDecoder(Charset.forName("GB18030").newDecoder());
+        // only one decoder kept per charset
+        assertSame(dec2, br.getDecoder(sjis));
+        assertNull(br.getDecoder(sjis));
+        assertNotNull(br.getDecoder(Charset.forName("GB18030")));
+    }
+
+    private void _testDecode(String text, String enc) throws IOException {
+        byte[] input = text.getBytes(enc);
+        assertEquals(text, _read(reader(input, enc), 3));
+        // and with single-char reads, to split surrogate pairs
+        assertEquals(text, _read(reader(input, enc), 1));
+    }
+
+    private String _read(Reader r, int bufLen) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        char[] cbuf = new char[bufLen];
+        int count;
+        while ((count = r.read(cbuf, 0, cbuf.length)) >= 0) {
+            sb.append(cbuf, 0, count);
+        }
+        r.close();
+        return sb.toString();
+    }
+}
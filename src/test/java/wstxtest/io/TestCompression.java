@@ -0,0 +1,290 @@
+package wstxtest.io;
+
+import java.io.*;
+import java.util.zip.*;
+
+import javax.xml.stream.*;
+
+import org.junit.jupiter.api.Test;
+
+import org.codehaus.stax2.io.Stax2ByteArraySource;
+
+import com.ctc.wstx.api.WstxInputProperties;
+import com.ctc.wstx.api.WstxOutputProperties;
+
+import wstxtest.BaseWstxTest;
+
+/**
+ * Tests for verifying handling of gzip and zlib compressed input (which
+ * is auto-detected; zlib only if enabled) and output (enabled via
+ * {@link WstxOutputProperties#P_OUTPUT_COMPRESSION}).
+ */
+public class TestCompression
+    extends BaseWstxTest
+{
+    @Test
+    public void testGzipInput() throws Exception
+    {
+        final String doc = _doc(2000);
+        _verifyDoc(new ByteArrayInputStream(_gzip(doc.getBytes("UTF-8"))), 2000);
+        // and with encoding that needs declaration
+        final String latinDoc = doc.replace("<?xml version='1.0'?>",
+                "<?xml version='1.0' encoding='ISO-8859-1'?>");
+        _verifyDoc(new ByteArrayInputStream(_gzip(latinDoc.getBytes("ISO-8859-1"))), 2000);
+        // and from a byte array, without stream
+        XMLStreamReader sr = getInputFactory().createXMLStreamReader(
+                new Stax2ByteArraySource(_gzip(doc.getBytes("UTF-8")), 0, _gzip(doc.getBytes("UTF-8")).length));
+        _verifyDoc(sr, 2000);
+    }
+
+    @Test
+    public void testGzipMultipleMembers() throws Exception
+    {
+        byte[] data = _doc(100).getBytes("UTF-8");
+        int split = data.length / 3;
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        bytes.write(_gzip(java.util.Arrays.copyOfRange(data, 0, split)));
+        bytes.write(_gzip(java.util.Arrays.copyOfRange(data, split, data.length)));
+        _verifyDoc(new ByteArrayInputStream(bytes.toByteArray()), 100);
+    }
+
+    @Test
+    public void testZlibInput() throws Exception
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DeflaterOutputStream out = new DeflaterOutputStream(bytes);
+        out.write(_doc(1000).getBytes("UTF-8"));
+        out.close();
+        XMLInputFactory f = getNewInputFactory();
+        assertEquals(Boolean.FALSE, f.getProperty(WstxInputProperties.P_DETECT_ZLIB_COMPRESSION));
+        f.setProperty(WstxInputProperties.P_DETECT_ZLIB_COMPRESSION, Boolean.TRUE);
+        _verifyDoc(f.createXMLStreamReader(new ByteArrayInputStream(bytes.toByteArray())), 1000);
+
+        // but not detected by default
+        XMLStreamReader sr = getNewInputFactory().createXMLStreamReader(new ByteArrayInputStream(bytes.toByteArray()));
+        try {
+            sr.next();
+            fail("Expected exception for non-XML content");
+        } catch (XMLStreamException e) {
+            // fine, as long as it's a parsing problem and not a decompression one
+            assertFalse(e.getMessage().contains("compressed"));
+        }
+    }
+
+    /**
+     * Test to verify that fragment content that happens to start with
+     * bytes that look like a zlib header is not taken to be compressed.
+     */
+    @Test
+    public void testFragmentInput() throws Exception
+    {
+        for (String start : new String[] { "x ", "x?", "Xf", "hC", "H\r" }) {
+            final String text = start+"text<a/>";
+            for (boolean zlib : new boolean[] { false, true }) {
+                XMLInputFactory f = getNewInputFactory();
+                f.setProperty(WstxInputProperties.P_INPUT_PARSING_MODE,
+                        WstxInputProperties.PARSING_MODE_FRAGMENT);
+                f.setProperty(WstxInputProperties.P_DETECT_ZLIB_COMPRESSION, zlib);
+                setCoalescing(f, true);
+                XMLStreamReader sr = f.createXMLStreamReader(new ByteArrayInputStream(text.getBytes("UTF-8")));
+                assertTokenType(CHARACTERS, sr.next());
+                assertEquals(start.replace('\r', '\n')+"text", sr.getText());
+                assertTokenType(START_ELEMENT, sr.next());
+                assertTokenType(END_ELEMENT, sr.next());
+                assertTokenType(END_DOCUMENT, sr.next());
+                sr.close();
+            }
+        }
+    }
+
+    @Test
+    public void testCorruptGzipInput() throws Exception
+    {
+        byte[] data = _gzip(_doc(10).getBytes("UTF-8"));
+        data[data.length - 6] ^= 0x55; // corrupt CRC
+        XMLStreamReader sr = getInputFactory().createXMLStreamReader(new ByteArrayInputStream(data));
+        try {
+            while (sr.hasNext()) {
+                sr.next();
+            }
+            fail("Expected exception for corrupt content");
+        } catch (XMLStreamException e) {
+            verifyException(e, "checksum mismatch");
+        }
+    }
+
+    @Test
+    public void testGzipOutput() throws Exception
+    {
+        for (String enc : new String[] { "UTF-8", "ISO-8859-1", "UTF-16" }) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            _write(WstxOutputProperties.COMPRESSION_GZIP, bytes, enc, 2000);
+            byte[] data = _readAll(new GZIPInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+            _verifyDoc(new ByteArrayInputStream(data), 2000);
+            // and we should also be able to read it as is
+            _verifyDoc(new ByteArrayInputStream(bytes.toByteArray()), 2000);
+        }
+    }
+
+    @Test
+    public void testDeflateOutput() throws Exception
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        _write(WstxOutputProperties.COMPRESSION_DEFLATE, bytes, "UTF-8", 500);
+        byte[] data = _readAll(new InflaterInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+        _verifyDoc(new ByteArrayInputStream(data), 500);
+    }
+
+    /**
+     * Test to verify that flushing the writer makes all content written
+     * so far available to the receiver, without closing the writer.
+     */
+    @Test
+    public void testFlushOutput() throws Exception
+    {
+        for (String compression : new String[] { WstxOutputProperties.COMPRESSION_GZIP,
+                WstxOutputProperties.COMPRESSION_DEFLATE }) {
+            XMLOutputFactory f = getNewOutputFactory();
+            f.setProperty(WstxOutputProperties.P_OUTPUT_COMPRESSION, compression);
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            XMLStreamWriter sw = f.createXMLStreamWriter(bytes, "UTF-8");
+            sw.writeStartElement("root");
+            sw.writeCharacters("first");
+            sw.writeEndElement();
+            sw.flush();
+            assertEquals("<root>first</root>", _readAvailable(bytes.toByteArray(), compression));
+
+            sw.writeComment("second");
+            sw.flush();
+            assertEquals("<root>first</root><!--second-->", _readAvailable(bytes.toByteArray(), compression));
+            // and without new content, flushing should not change anything
+            int len = bytes.size();
+            sw.flush();
+            assertEquals(len, bytes.size());
+            sw.close();
+        }
+    }
+
+    @Test
+    public void testOutputNotAutoClosed() throws Exception
+    {
+        final boolean[] closed = new boolean[1];
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream() {
+            @Override
+            public void close() {
+                closed[0] = true;
+            }
+        };
+        _write(WstxOutputProperties.COMPRESSION_GZIP, bytes, "UTF-8", 10);
+        assertFalse(closed[0]);
+        // but compressed content still needs to be complete
+        _readAll(new GZIPInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+    }
+
+    @Test
+    public void testInvalidCompressionProperty() throws Exception
+    {
+        XMLOutputFactory f = getNewOutputFactory();
+        try {
+            f.setProperty(WstxOutputProperties.P_OUTPUT_COMPRESSION, "zip");
+            fail("Expected exception for invalid compression format");
+        } catch (IllegalArgumentException e) {
+            verifyException(e, "Unrecognized compression format");
+        }
+        f.setProperty(WstxOutputProperties.P_OUTPUT_COMPRESSION, WstxOutputProperties.COMPRESSION_NONE);
+        assertNull(f.getProperty(WstxOutputProperties.P_OUTPUT_COMPRESSION));
+    }
+
+    /*
+    ///////////////////////////////////////////////////////////
+    // Helper methods
+    ///////////////////////////////////////////////////////////
+     */
+
+    private String _doc(int count)
+    {
+        StringBuilder sb = new StringBuilder("<?xml version='1.0'?><root>");
+        for (int i = 0; i < count; ++i) {
+            sb.append("<item id='").append(i).append("'>Text #").append(i).append("</item>");
+        }
+        return sb.append("</root>").toString();
+    }
+
+    private void _write(String compression, OutputStream out, String enc, int count)
+        throws XMLStreamException
+    {
+        XMLOutputFactory f = getNewOutputFactory();
+        f.setProperty(WstxOutputProperties.P_OUTPUT_COMPRESSION, compression);
+        XMLStreamWriter sw = f.createXMLStreamWriter(out, enc);
+        sw.writeStartDocument(enc, "1.0");
+        sw.writeStartElement("root");
+        for (int i = 0; i < count; ++i) {
+            sw.writeStartElement("item");
+            sw.writeAttribute("id", String.valueOf(i));
+            sw.writeCharacters("Text #"+i);
+            sw.writeEndElement();
+        }
+        sw.writeEndElement();
+        sw.writeEndDocument();
+        sw.close();
+    }
+
+    private void _verifyDoc(InputStream in, int count) throws XMLStreamException
+    {
+        _verifyDoc(getInputFactory().createXMLStreamReader(in), count);
+    }
+
+    private void _verifyDoc(XMLStreamReader sr, int count) throws XMLStreamException
+    {
+        assertTokenType(START_ELEMENT, sr.nextTag());
+        for (int i = 0; i < count; ++i) {
+            assertTokenType(START_ELEMENT, sr.nextTag());
+            assertEquals(String.valueOf(i), sr.getAttributeValue(0));
+            assertEquals("Text #"+i, sr.getElementText());
+        }
+        assertTokenType(END_ELEMENT, sr.nextTag());
+        assertTokenType(END_DOCUMENT, sr.next());
+        sr.close();
+    }
+
+    private static byte[] _gzip(byte[] data) throws IOException
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        GZIPOutputStream out = new GZIPOutputStream(bytes);
+        out.write(data);
+        out.close();
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Helper method for decompressing content that is not yet complete,
+     * up to the point where input runs out
+     */
+    private static String _readAvailable(byte[] data, String compression) throws IOException
+    {
+        InputStream in = new ByteArrayInputStream(data);
+        in = WstxOutputProperties.COMPRESSION_GZIP.equals(compression)
+                ? new GZIPInputStream(in) : new InflaterInputStream(in);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try {
+            int b;
+            while ((b = in.read()) >= 0) {
+                bytes.write(b);
+            }
+        } catch (EOFException e) {
+            // expected, as content is not complete
+        }
+        return bytes.toString("UTF-8");
+    }
+
+    private static byte[] _readAll(InputStream in) throws IOException
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        byte[] buf = new byte[1000];
+        int count;
+        while ((count = in.read(buf)) > 0) {
+            bytes.write(buf, 0, count);
+        }
+        return bytes.toByteArray();
+    }
+}
@@ -0,0 +1,110 @@
+package wstxtest.io;
+
+import java.io.*;
+
+import javax.xml.stream.*;
+
+import org.junit.jupiter.api.Test;
+
+import com.ctc.wstx.api.ReaderConfig;
+import com.ctc.wstx.io.UTF16Reader;
+import com.ctc.wstx.stax.WstxInputFactory;
+
+public class TestUTF16Reader extends wstxtest.BaseJUnit4Test
+{
+    final static String TEXT = "Abc é€😀 xyz\r\n𐀀!";
+
+    @SuppressWarnings("resource")
+    private UTF16Reader reader(byte[] input, boolean bigEndian) {
+        ReaderConfig cfg = ReaderConfig.createFullDefaults();
+        return new UTF16Reader(cfg, new ByteArrayInputStream(input),
+                new byte[8], 0, 0, false, bigEndian);
+    }
+
+    @Test
+    public void testDecodeBothEndians() throws Exception {
+        _testDecode(TEXT.getBytes("UTF-16BE"), true);
+        _testDecode(TEXT.getBytes("UTF-16LE"), false);
+    }
+
+    @Test
+    public void testUnpairedHighSurrogate() throws Exception {
+        _testInvalid(new byte[] { (byte) 0xD8, 0x00, 0x00, 0x41 }, true);
+        // or one at the end of input
+        _testInvalid(new byte[] { 0x00, 0x41, (byte) 0xD8, 0x00 }, true);
+    }
+
+    @Test
+    public void testUnpairedLowSurrogate() throws Exception {
+        _testInvalid(new byte[] { 0x41, 0x00, 0x00, (byte) 0xDC }, false);
+    }
+
+    @Test
+    public void testOddByteCount() throws Exception {
+        _testInvalid(new byte[] { 0x00, 0x41, 0x00 }, true);
+    }
+
+    @Test
+    public void testInvalidChar() throws Exception {
+        _testInvalid(new byte[] { (byte) 0xFF, (byte) 0xFF }, true);
+    }
+
+    /**
+     * Test to verify that auto-detected UTF-16 documents are read
+     * correctly; content is long enough to span multiple buffers.
+     */
+    @Test
+    public void testParseDocument() throws Exception {
+        StringBuilder sb = new StringBuilder();
+        sb.append("<?xml version='1.0' encoding='UTF-16'?><root>");
+        for (int i = 0; i < 5000; ++i) {
+            sb.append("<a>").append(TEXT).append(i).append("</a>");
+        }
+        sb.append("</root>");
+        final String doc = sb.toString();
+        for (String enc : new String[] { "UTF-16", "UTF-16LE", "UTF-16BE" }) {
+            byte[] data = doc.getBytes(enc);
+            if (!"UTF-16".equals(enc)) { // add BOM
+                byte[] withBom = new byte[data.length + 2];
+                System.arraycopy(data, 0, withBom, 2, data.length);
+                if ("UTF-16LE".equals(enc)) {
+                    withBom[0] = (byte) 0xFF;
+                    withBom[1] = (byte) 0xFE;
+                } else {
+                    withBom[0] = (byte) 0xFE;
+                    withBom[1] = (byte) 0xFF;
+                }
+                data = withBom;
+            }
+            XMLStreamReader sr = new WstxInputFactory().createXMLStreamReader(new ByteArrayInputStream(data));
+            assertEquals(XMLStreamConstants.START_ELEMENT, sr.nextTag());
+            int count = 0;
+            while (sr.nextTag() == XMLStreamConstants.START_ELEMENT) {
+                assertEquals(TEXT.replace("\r\n", "\n")+count, sr.getElementText());
+                ++count;
+            }
+            assertEquals(5000, count);
+            sr.close();
+        }
+    }
+
+    private void _testDecode(byte[] input, boolean bigEndian) throws IOException {
+        UTF16Reader r = reader(input, bigEndian);
+        StringBuilder sb = new StringBuilder();
+        char[] cbuf = new char[3];
+        int count;
+        while ((count = r.read(cbuf, 0, cbuf.length)) >= 0) {
+            sb.append(cbuf, 0, count);
+        }
+        assertEquals(TEXT, sb.toString());
+    }
+
+    private void _testInvalid(byte[] input, boolean bigEndian) throws IOException {
+        UTF16Reader r = reader(input, bigEndian);
+        char[] cbuf = new char[8];
+        try {
+            while (r.read(cbuf, 0, cbuf.length) >= 0) { }
+            fail("Expected CharConversionException");
+        } catch (CharConversionException expected) { }
+    }
+}
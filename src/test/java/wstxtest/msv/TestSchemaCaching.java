@@ -0,0 +1,197 @@
+package wstxtest.msv;
+
+import java.io.*;
+import java.nio.file.Files;
+
+import javax.xml.stream.*;
+
+import org.codehaus.stax2.*;
+import org.codehaus.stax2.validation.*;
+import org.junit.jupiter.api.Test;
+
+import com.ctc.wstx.api.ValidatorConfig;
+import com.ctc.wstx.msv.W3CSchemaFactory;
+
+import wstxtest.vstream.BaseValidationTest;
+
+/**
+ * Tests for verifying that schema caching (enabled using
+ * {@link ValidatorConfig#P_CACHE_SCHEMAS}) and reuse of validator
+ * infrastructure between documents work as expected.
+ */
+public class TestSchemaCaching
+    extends BaseValidationTest
+{
+    final static String MAIN_SCHEMA =
+        "<xs:schema xmlns:xs='http://www.w3.org/2001/XMLSchema'>\n"
+        +"<xs:include schemaLocation='types.xsd'/>\n"
+        +"<xs:element name='price' type='priceType' />\n"
+        +"</xs:schema>";
+
+    final static String TYPES_SCHEMA_INT =
+        "<xs:schema xmlns:xs='http://www.w3.org/2001/XMLSchema'>\n"
+        +"<xs:simpleType name='priceType'><xs:restriction base='xs:int'/></xs:simpleType>\n"
+        +"</xs:schema>";
+
+    final static String TYPES_SCHEMA_STRING =
+        "<xs:schema xmlns:xs='http://www.w3.org/2001/XMLSchema'>\n"
+        +"<xs:simpleType name='priceType'><xs:restriction base='xs:string'/></xs:simpleType>\n"
+        +"</xs:schema>";
+
+    @Test
+    public void testCachingDisabledByDefault() throws Exception
+    {
+        File dir = _writeSchemas(TYPES_SCHEMA_INT);
+        try {
+            W3CSchemaFactory f = new W3CSchemaFactory();
+            assertEquals(Boolean.FALSE, f.getProperty(ValidatorConfig.P_CACHE_SCHEMAS));
+            File main = new File(dir, "main.xsd");
+            assertNotSame(f.createSchema(main), f.createSchema(main));
+        } finally {
+            _delete(dir);
+        }
+    }
+
+    @Test
+    public void testCachingWithIncludes() throws Exception
+    {
+        File dir = _writeSchemas(TYPES_SCHEMA_INT);
+        try {
+            W3CSchemaFactory f = new W3CSchemaFactory();
+            assertTrue(f.setProperty(ValidatorConfig.P_CACHE_SCHEMAS, Boolean.TRUE));
+            File main = new File(dir, "main.xsd");
+            XMLValidationSchema schema = f.createSchema(main);
+            assertSame(schema, f.createSchema(main));
+            verifyFailure("<price>abc</price>", schema, "invalid 'int' value",
+                    "does not satisfy the \"int\" type");
+
+            // Modifying an included schema must invalidate cached instance
+            File types = new File(dir, "types.xsd");
+            _write(types, TYPES_SCHEMA_STRING);
+            types.setLastModified(types.lastModified() - 10000L);
+            XMLValidationSchema schema2 = f.createSchema(main);
+            assertNotSame(schema, schema2);
+            _validate(schema2, "<price>abc</price>");
+
+            f.clearSchemaCache();
+            assertNotSame(schema2, f.createSchema(main));
+        } finally {
+            _delete(dir);
+        }
+    }
+
+    @Test
+    public void testNoCachingForCallerContent() throws Exception
+    {
+        W3CSchemaFactory f = new W3CSchemaFactory();
+        f.setProperty(ValidatorConfig.P_CACHE_SCHEMAS, Boolean.TRUE);
+        final String SCHEMA = "<xs:schema xmlns:xs='http://www.w3.org/2001/XMLSchema'>\n"
+                +"<xs:element name='price' type='xs:int' />\n"
+                +"</xs:schema>";
+        // System id need not identify content passed, so no caching
+        assertNotSame(f.createSchema(new StringReader(SCHEMA), null, "urn:test:price"),
+                f.createSchema(new StringReader(SCHEMA), null, "urn:test:price"));
+        byte[] bytes = SCHEMA.getBytes("UTF-8");
+        assertNotSame(f.createSchema(new ByteArrayInputStream(bytes), "UTF-8", null, "urn:test:price"),
+                f.createSchema(new ByteArrayInputStream(bytes), "UTF-8", null, "urn:test:price"));
+    }
+
+    @Test
+    public void testCacheSize() throws Exception
+    {
+        File dir = _writeSchemas(TYPES_SCHEMA_INT);
+        try {
+            W3CSchemaFactory f = new W3CSchemaFactory();
+            f.setProperty(ValidatorConfig.P_CACHE_SCHEMAS, Boolean.TRUE);
+            assertEquals(Integer.valueOf(100), f.getProperty(ValidatorConfig.P_SCHEMA_CACHE_SIZE));
+            assertTrue(f.setProperty(ValidatorConfig.P_SCHEMA_CACHE_SIZE, Integer.valueOf(2)));
+            File a = new File(dir, "types.xsd");
+            File b = new File(dir, "b.xsd");
+            File c = new File(dir, "c.xsd");
+            _write(b, TYPES_SCHEMA_STRING);
+            _write(c, TYPES_SCHEMA_STRING);
+
+            XMLValidationSchema schemaA = f.createSchema(a);
+            XMLValidationSchema schemaB = f.createSchema(b);
+            // access 'a' so that 'b' becomes the least recently used one
+            assertSame(schemaA, f.createSchema(a));
+            f.createSchema(c);
+            assertSame(schemaA, f.createSchema(a));
+            assertNotSame(schemaB, f.createSchema(b));
+
+            try {
+                f.setProperty(ValidatorConfig.P_SCHEMA_CACHE_SIZE, Integer.valueOf(0));
+                fail("Expected an exception for invalid cache size");
+            } catch (IllegalArgumentException e) {
+                verifyException(e, ValidatorConfig.P_SCHEMA_CACHE_SIZE);
+            }
+        } finally {
+            _delete(dir);
+        }
+    }
+
+    /**
+     * Test to verify that reusing validation infrastructure between
+     * documents does not leak state from one document to another.
+     */
+    @Test
+    public void testRepeatedValidation() throws Exception
+    {
+        XMLValidationSchema schema = parseW3CSchema(
+                "<xs:schema xmlns:xs='http://www.w3.org/2001/XMLSchema'>\n"
+                +"<xs:element name='root'><xs:complexType><xs:sequence>\n"
+                +"<xs:element name='a' type='xs:int' maxOccurs='2' />\n"
+                +"</xs:sequence></xs:complexType></xs:element>\n"
+                +"</xs:schema>");
+        for (int i = 0; i < 20; ++i) {
+            _validate(schema, "<root><a>"+i+"</a><a>1</a></root>");
+            verifyFailure("<root><a>1</a><a>2</a><a>3</a></root>", schema,
+                    "too many elements", "no element may occur");
+            // and one where validation is stopped before document ends
+            XMLStreamReader2 sr = constructStreamReader(getInputFactory(), "<root><a>1</a></root>");
+            sr.validateAgainst(schema);
+            assertTokenType(START_ELEMENT, sr.next());
+            sr.stopValidatingAgainst(schema);
+            sr.close();
+        }
+    }
+
+    /*
+    ///////////////////////////////////////////////////////////////////////
+    // Helper methods
+    ///////////////////////////////////////////////////////////////////////
+     */
+
+    private void _validate(XMLValidationSchema schema, String xml) throws XMLStreamException
+    {
+        XMLStreamReader2 sr = constructStreamReader(getInputFactory(), xml);
+        sr.validateAgainst(schema);
+        while (sr.hasNext()) {
+            sr.next();
+        }
+        sr.close();
+    }
+
+    private File _writeSchemas(String types) throws IOException
+    {
+        File dir = Files.createTempDirectory("wstxtest").toFile();
+        _write(new File(dir, "main.xsd"), MAIN_SCHEMA);
+        _write(new File(dir, "types.xsd"), types);
+        return dir;
+    }
+
+    private void _write(File f, String contents) throws IOException
+    {
+        Writer w = new OutputStreamWriter(new FileOutputStream(f), "UTF-8");
+        w.write(contents);
+        w.close();
+    }
+
+    private void _delete(File dir)
+    {
+        for (File f : dir.listFiles()) {
+            f.delete();
+        }
+        dir.delete();
+    }
+}
@@ -293,6 +293,34 @@ public class TestW3CSchema
                       "tag name \"foobar\" is not allowed", false);
     }
 
+    /**
+     * Test to check handling of text content passed in multiple segments,
+     * as well as text within mixed and element-only content.
+     */
+    @Test
+    public void testTextSegments() throws XMLStreamException
+    {
+        String SCHEMA = "<xs:schema xmlns:xs='http://www.w3.org/2001/XMLSchema'>\n"
+            + "<xs:element name='root'><xs:complexType><xs:sequence>\n"
+            + " <xs:element name='value' type='xs:int' maxOccurs='unbounded' />\n"
+            + " <xs:element name='note' minOccurs='0'><xs:complexType mixed='true'><xs:sequence>\n"
+            + "  <xs:element name='b' type='xs:string' minOccurs='0' maxOccurs='unbounded' />\n"
+            + " </xs:sequence></xs:complexType></xs:element>\n"
+            + "</xs:sequence></xs:complexType></xs:element>\n"
+            + "</xs:schema>";
+        XMLValidationSchema schema = parseW3CSchema(SCHEMA);
+
+        for (ValidationMode mode : ValidationMode.values()) {
+            mode.validate(schema, "<root>\n  <value>12</value>\n</root>");
+            mode.validate(schema, "<root><value>1<![CDATA[2]]>3</value>"
+                    +"<note>Some <b>bold</b> text &amp; more</note></root>");
+        }
+        verifyFailure("<root><value>1<![CDATA[2]]>x</value></root>", schema,
+                "invalid int value split in segments", "does not satisfy the \"int\" type");
+        verifyFailure("<root><value>1</value>  text  </root>", schema,
+                "text not allowed in element-only content", "");
+    }
+
     /**
      * Test for reproducing [WSTX-191]
      */
@@ -72,6 +72,44 @@ public class TestBasicSax
         assertEquals(text, handler.getText());
     }
 
+    /**
+     * Test to verify that qualified names of elements and attributes
+     * are reported correctly (and reused across events, as they are
+     * cached by the parser).
+     */
+    @Test
+    public void testQualifiedNames() throws Exception
+    {
+        final String DOC = "<ns:root xmlns:ns='urn:x' xmlns='urn:y'>"
+            +"<ns:leaf ns:attr='1' plain='2' /><ns:leaf ns:attr='3' plain='4' /></ns:root>";
+        SAXParserFactory spf = new WstxSAXParserFactory();
+        spf.setNamespaceAware(true);
+        SAXParser sp = spf.newSAXParser();
+        sp.getXMLReader().setFeature("http://xml.org/sax/features/namespace-prefixes", true);
+        final java.util.List<String> names = new java.util.ArrayList<String>();
+        sp.parse(new InputSource(new StringReader(DOC)), new DefaultHandler() {
+            @Override
+            public void startElement(String uri, String ln, String qname, Attributes a) {
+                names.add(qname);
+                for (int i = 0, len = a.getLength(); i < len; ++i) {
+                    names.add(a.getQName(i));
+                }
+            }
+
+            @Override
+            public void endElement(String uri, String ln, String qname) {
+                names.add("/"+qname);
+            }
+        });
+        assertEquals(java.util.Arrays.asList("ns:root", "xmlns:ns", "xmlns",
+                "ns:leaf", "ns:attr", "plain", "/ns:leaf",
+                "ns:leaf", "ns:attr", "plain", "/ns:leaf",
+                "/ns:root"), names);
+        // Same element name should map to same String instance
+        assertSame(names.get(3), names.get(7));
+        assertSame(names.get(4), names.get(8));
+    }
+
     /*
     ////////////////////////////////////////////////////
     // Helper methods
@@ -0,0 +1,221 @@
+package wstxtest.stream;
+
+import java.io.*;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+import javax.xml.namespace.QName;
+import javax.xml.stream.*;
+
+import org.codehaus.stax2.XMLStreamReader2;
+import org.junit.jupiter.api.Test;
+
+import com.ctc.wstx.index.ElementIndex;
+import com.ctc.wstx.index.ElementIndexer;
+import com.ctc.wstx.stax.WstxInputFactory;
+
+/**
+ * Unit tests for building element indexes ({@link ElementIndex}) and
+ * reading indexed elements directly.
+ */
+public class TestElementIndex
+    extends BaseStreamTest
+{
+    final static String NS = "http://foo";
+
+    @Test
+    public void testIndexUTF8() throws Exception
+    {
+        _testIndex(StandardCharsets.UTF_8, true);
+        _testIndex(StandardCharsets.UTF_8, false);
+    }
+
+    @Test
+    public void testIndexUTF16() throws Exception
+    {
+        _testIndex(StandardCharsets.UTF_16LE, false);
+    }
+
+    @Test
+    public void testIndexSingleByte() throws Exception
+    {
+        _testIndex(StandardCharsets.ISO_8859_1, false);
+    }
+
+    @Test
+    public void testNestedAndPersisted() throws Exception
+    {
+        String XML = "<root xmlns:f='"+NS+"'>\r\n"
+            +"<f:rec id='1'><f:rec id='2'/></f:rec>\r\n"
+            +"<f:rec id='3'>\u00E9</f:rec></root>";
+        File f = writeFile(XML, StandardCharsets.UTF_8);
+        ElementIndexer indexer = new ElementIndexer((WstxInputFactory) getNewInputFactory());
+        ElementIndex index = indexer.buildIndex(f, StandardCharsets.UTF_8, new QName(NS, "rec"));
+
+        // Let's round-trip it first
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        index.writeTo(bytes);
+        index = ElementIndex.readFrom(new ByteArrayInputStream(bytes.toByteArray()));
+
+        assertEquals(3, index.size());
+        assertEquals("UTF-8", index.getEncoding());
+        // in document order, outer one first
+        assertEquals(2, index.getEntry(0).getDepth());
+        assertEquals(3, index.getEntry(1).getDepth());
+        assertEquals(2, index.getEntry(2).getDepth());
+        assertEquals(1, index.getEntry(0).getNsBindingCount());
+        assertEquals("f", index.getEntry(0).getNsPrefix(0));
+        assertEquals(NS, index.getEntry(0).getNsURI(0));
+
+        XMLStreamReader2 sr = indexer.createReader(f, index, 1);
+        assertTokenType(START_ELEMENT, sr.getEventType());
+        assertEquals("2", sr.getAttributeValue(0));
+        assertTokenType(END_ELEMENT, sr.next());
+        assertTokenType(END_DOCUMENT, sr.next());
+        sr.close();
+
+        sr = indexer.createReader(f, index, 0);
+        assertTokenType(START_ELEMENT, sr.next());
+        assertEquals(NS, sr.getNamespaceURI());
+        assertEquals("2", sr.getAttributeValue(0));
+        assertTokenType(END_ELEMENT, sr.next());
+        assertTokenType(END_ELEMENT, sr.next());
+        assertEquals("rec", sr.getLocalName());
+        assertTokenType(END_DOCUMENT, sr.next());
+        sr.close();
+
+        sr = indexer.createReader(f, index, 2);
+        assertTokenType(CHARACTERS, sr.next());
+        assertEquals("\u00E9", getAndVerifyText(sr));
+        sr.close();
+    }
+
+    /**
+     * Test to verify that declarations of the DTD (entities, default
+     * attribute values) are available when reading indexed elements.
+     */
+    @Test
+    public void testWithDoctype() throws Exception
+    {
+        String XML = "<?xml version='1.0'?>\n"
+            +"<!DOCTYPE root [\n"
+            +"<!ENTITY e 'ent'>\n"
+            +"<!ATTLIST item kind CDATA 'dflt'>\n"
+            +"]>\n"
+            +"<root><item>a &e; b</item><item kind='x'>&e;</item></root>";
+        File f = writeFile(XML, StandardCharsets.UTF_8);
+        ElementIndexer indexer = new ElementIndexer((WstxInputFactory) getNewInputFactory());
+        ElementIndex index = indexer.buildIndex(f, StandardCharsets.UTF_8, new QName("item"));
+        assertTrue(index.hasDoctype());
+        assertEquals(XML.indexOf("<!DOCTYPE"), (int) index.getDoctypeStartOffset());
+        assertEquals(XML.indexOf("]>") + 2, (int) index.getDoctypeEndOffset());
+
+        // DOCTYPE location needs to be persisted as well
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        index.writeTo(bytes);
+        index = ElementIndex.readFrom(new ByteArrayInputStream(bytes.toByteArray()));
+        assertEquals(2, index.size());
+        assertTrue(index.hasDoctype());
+
+        XMLStreamReader2 sr = indexer.createReader(f, index, 0);
+        assertTokenType(START_ELEMENT, sr.getEventType());
+        assertEquals("item", sr.getLocalName());
+        assertEquals("dflt", sr.getAttributeValue(null, "kind"));
+        assertEquals("a ent b", sr.getElementText());
+        assertTokenType(END_DOCUMENT, sr.next());
+        sr.close();
+
+        sr = indexer.createReader(f, index, 1);
+        assertEquals("x", sr.getAttributeValue(null, "kind"));
+        assertEquals("ent", sr.getElementText());
+        sr.close();
+
+        // and documents without DOCTYPE have none
+        f = writeFile("<root><item /></root>", StandardCharsets.UTF_8);
+        index = indexer.buildIndex(f, StandardCharsets.UTF_8, new QName("item"));
+        assertFalse(index.hasDoctype());
+        assertEquals(-1L, index.getDoctypeStartOffset());
+    }
+
+    @Test
+    public void testUnsupportedEncoding() throws Exception
+    {
+        File f = writeFile("<root />", StandardCharsets.UTF_8);
+        ElementIndexer indexer = new ElementIndexer((WstxInputFactory) getNewInputFactory());
+        try {
+            indexer.buildIndex(f, Charset.forName("UTF-32"), new QName("root"));
+            fail("Expected an exception for UTF-32");
+        } catch (IllegalArgumentException e) {
+            verifyException(e, "not supported for indexing");
+        }
+    }
+
+    /*
+    ////////////////////////////////////////
+    // Private methods
+    ////////////////////////////////////////
+     */
+
+    private void _testIndex(Charset cs, boolean withBOM) throws Exception
+    {
+        // Need to stick to characters single-byte encodings can handle
+        final String TEXT = "ISO-8859-1".equals(cs.name()) ? "text \u00E4 " : "text \u20AC\uD83D\uDE00 ";
+        // Large enough to span multiple input buffers
+        StringBuilder sb = new StringBuilder();
+        if (withBOM) {
+            sb.append('\uFEFF');
+        }
+        sb.append("<?xml version='1.0' encoding='").append(cs.name()).append("'?>\n");
+        sb.append("<root xmlns='"+NS+"' xmlns:a='urn:a'>\n");
+        final int COUNT = 500;
+        for (int i = 0; i < COUNT; ++i) {
+            sb.append("<item id='").append(i).append("' a:x='\u00E4'>");
+            sb.append(TEXT).append(i);
+            sb.append("<!-- c --></item>\n");
+            if ((i % 100) == 0) {
+                sb.append("<group xmlns:a='urn:b'><item id='g").append(i).append("' a:x='y'/></group>\n");
+            }
+        }
+        sb.append("</root>");
+        File f = writeFile(sb.toString(), cs);
+        ElementIndexer indexer = new ElementIndexer((WstxInputFactory) getNewInputFactory());
+        ElementIndex index = indexer.buildIndex(f, cs, new QName(NS, "item"));
+        assertEquals(COUNT + 5, index.size());
+
+        // Let's verify a few: last regular one
+        ElementIndex.Entry last = index.getEntry(index.size() - 1);
+        assertEquals(2, last.getDepth());
+        assertEquals(2, last.getNsBindingCount());
+        XMLStreamReader2 sr = indexer.createReader(f, index, index.size() - 1);
+        assertTokenType(START_ELEMENT, sr.getEventType());
+        assertEquals(NS, sr.getNamespaceURI());
+        assertEquals(String.valueOf(COUNT-1), sr.getAttributeValue(null, "id"));
+        assertEquals("\u00E4", sr.getAttributeValue("urn:a", "x"));
+        assertTokenType(CHARACTERS, sr.next());
+        assertEquals(TEXT+(COUNT-1), getAndVerifyText(sr));
+        assertTokenType(COMMENT, sr.next());
+        assertTokenType(END_ELEMENT, sr.next());
+        assertTokenType(END_DOCUMENT, sr.next());
+        sr.close();
+
+        // and one within group, with masked prefix
+        ElementIndex.Entry nested = index.getEntry(index.size() - 1 - 99);
+        assertEquals(3, nested.getDepth());
+        sr = indexer.createReader(f, index, index.size() - 1 - 99);
+        assertEquals("g400", sr.getAttributeValue(null, "id"));
+        assertEquals("y", sr.getAttributeValue("urn:b", "x"));
+        assertTokenType(END_ELEMENT, sr.next());
+        assertTokenType(END_DOCUMENT, sr.next());
+        sr.close();
+    }
+
+    private File writeFile(String contents, Charset cs) throws IOException
+    {
+        File f = File.createTempFile("wstxtest", ".xml");
+        f.deleteOnExit();
+        Writer w = new OutputStreamWriter(new FileOutputStream(f), cs);
+        w.write(contents);
+        w.close();
+        return f;
+    }
+}
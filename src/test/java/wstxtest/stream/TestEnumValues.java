@@ -0,0 +1,100 @@
+package wstxtest.stream;
+
+import javax.xml.stream.*;
+
+import org.junit.jupiter.api.Test;
+
+import com.ctc.wstx.sr.EnumValues;
+import com.ctc.wstx.sr.StreamReaderImpl;
+
+/**
+ * Tests for decoding attribute values and element contents as
+ * ordinals of {@link EnumValues}.
+ */
+public class TestEnumValues
+    extends BaseStreamTest
+{
+    enum Side { BUY, SELL, SHORT_SELL }
+
+    final static EnumValues CURRENCIES = EnumValues.construct("USD", "EUR", "GBP", "JPY", "CHF",
+            "SEK", "NOK", "DKK", "EU");
+
+    @Test
+    public void testConstruct()
+    {
+        assertEquals(9, CURRENCIES.size());
+        assertEquals("EUR", CURRENCIES.getWord(1));
+        assertEquals(1, CURRENCIES.find("EUR"));
+        assertEquals(8, CURRENCIES.find("EU"));
+        assertEquals(-1, CURRENCIES.find("E"));
+        assertEquals(-1, CURRENCIES.find("EURO"));
+        assertEquals(7, CURRENCIES.find("xDKKx".toCharArray(), 1, 4));
+
+        EnumValues single = EnumValues.construct("only");
+        assertEquals(0, single.find("only"));
+        assertEquals(-1, single.find("onl"));
+
+        EnumValues sides = EnumValues.construct(Side.class);
+        for (Side side : Side.values()) {
+            assertEquals(side.ordinal(), sides.find(side.name()));
+        }
+
+        for (String[] words : new String[][] { { }, { "a", "b", "a" }, { "a", "" } }) {
+            try {
+                EnumValues.construct(words);
+                fail("Should not accept word list of "+words.length+" words");
+            } catch (IllegalArgumentException e) {
+                verifyException(e, "EnumValues");
+            }
+        }
+    }
+
+    @Test
+    public void testAttributes() throws XMLStreamException
+    {
+        StreamReaderImpl sr = createReader("<trade ccy='GBP' side=' SELL\n' other='EURO' empty=''/>");
+        XMLStreamReader xr = (XMLStreamReader) sr;
+        assertTokenType(START_ELEMENT, xr.next());
+        EnumValues sides = EnumValues.construct(Side.class);
+        assertEquals(2, sr.getAttributeAsEnum(0, CURRENCIES));
+        assertEquals(Side.SELL.ordinal(), sr.getAttributeAsEnum(1, sides));
+        assertEquals(-1, sr.getAttributeAsEnum(2, CURRENCIES));
+        assertEquals(-1, sr.getAttributeAsEnum(3, CURRENCIES));
+        assertEquals(-1, sr.getAttributeAsEnum(0, sides));
+        assertTokenType(END_ELEMENT, xr.next());
+        try {
+            sr.getAttributeAsEnum(0, sides);
+            fail("Should not allow decoding attributes for END_ELEMENT");
+        } catch (IllegalStateException e) {
+            verifyException(e, "START_ELEMENT");
+        }
+        xr.close();
+    }
+
+    @Test
+    public void testElements() throws XMLStreamException
+    {
+        StreamReaderImpl sr = createReader("<trade><ccy>CHF</ccy><ccy>\n  JPY </ccy>"
+                +"<ccy>N<!--x-->OK</ccy><ccy>XXX</ccy><ccy/><ccy>EU<![CDATA[R]]></ccy></trade>");
+        XMLStreamReader xr = (XMLStreamReader) sr;
+        assertTokenType(START_ELEMENT, xr.next());
+        int[] exp = { 4, 3, 6, -1, -1, 1 };
+        for (int i = 0; i < exp.length; ++i) {
+            assertTokenType(START_ELEMENT, xr.next());
+            assertEquals("Entry #"+i, exp[i], sr.getElementAsEnum(CURRENCIES));
+            assertTokenType(END_ELEMENT, xr.getEventType());
+            assertEquals("ccy", xr.getLocalName());
+        }
+        assertTokenType(END_ELEMENT, xr.next());
+        assertEquals("trade", xr.getLocalName());
+        xr.close();
+    }
+
+    private StreamReaderImpl createReader(String content)
+        throws XMLStreamException
+    {
+        XMLInputFactory f = getNewInputFactory();
+        setCoalescing(f, false);
+        return (StreamReaderImpl) constructStreamReader(f, content);
+    }
+}
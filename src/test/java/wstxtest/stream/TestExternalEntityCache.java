@@ -0,0 +1,222 @@
+package wstxtest.stream;
+
+import java.io.*;
+
+import javax.xml.stream.*;
+
+import org.junit.jupiter.api.Test;
+
+import com.ctc.wstx.api.WstxInputProperties;
+import com.ctc.wstx.io.ExternalEntityCache;
+import com.ctc.wstx.stax.WstxInputFactory;
+
+/**
+ * Tests for verifying that contents of external parsed entities are
+ * cached and reused across documents, when caching is enabled.
+ */
+public class TestExternalEntityCache
+    extends BaseStreamTest
+{
+    @Test
+    public void testCachingDisabledByDefault() throws XMLStreamException
+    {
+        XMLInputFactory f = getNewInputFactory();
+        assertEquals(Boolean.FALSE, f.getProperty(WstxInputProperties.P_CACHE_EXTERNAL_ENTITIES));
+        CountingResolver resolver = new CountingResolver("text");
+        f.setProperty(WstxInputProperties.P_ENTITY_RESOLVER, resolver);
+        for (int i = 0; i < 2; ++i) {
+            assertEquals("[text]", readRoot(f, docWithEntity(null, "ent.xml")));
+        }
+        assertEquals(2, resolver.mCount);
+    }
+
+    @Test
+    public void testCachingBySystemId() throws XMLStreamException
+    {
+        XMLInputFactory f = getNewInputFactory();
+        f.setProperty(WstxInputProperties.P_CACHE_EXTERNAL_ENTITIES, Boolean.TRUE);
+        assertEquals(Boolean.TRUE, f.getProperty(WstxInputProperties.P_CACHE_EXTERNAL_ENTITIES));
+        // Text declaration is to be skipped, linefeeds normalized
+        CountingResolver resolver = new CountingResolver("<?xml version='1.0' encoding='UTF-8'?>a\r\nb\rc<leaf>&amp;</leaf>");
+        f.setProperty(WstxInputProperties.P_ENTITY_RESOLVER, resolver);
+        for (int i = 0; i < 3; ++i) {
+            XMLStreamReader sr = constructStreamReader(f, docWithEntity("-//TEST//Entity", "ent.xml"));
+            assertTokenType(DTD, sr.next());
+            assertTokenType(START_ELEMENT, sr.next());
+            assertTokenType(CHARACTERS, sr.next());
+            assertEquals("[a\nb\nc", getAndVerifyText(sr));
+            assertTokenType(START_ELEMENT, sr.next());
+            assertEquals("leaf", sr.getLocalName());
+            assertEquals("&", sr.getElementText());
+            assertTokenType(CHARACTERS, sr.next());
+            assertEquals("]", getAndVerifyText(sr));
+            assertTokenType(END_ELEMENT, sr.next());
+            sr.close();
+        }
+        assertEquals(1, resolver.mCount);
+
+        // Different system id, different entity; public id not used by default
+        assertEquals("[a\nb\nc&]", readRoot(f, docWithEntity("-//TEST//Entity", "other.xml")));
+        assertEquals(2, resolver.mCount);
+    }
+
+    @Test
+    public void testCachingByPublicId() throws XMLStreamException
+    {
+        XMLInputFactory f = getNewInputFactory();
+        f.setProperty(WstxInputProperties.P_CACHE_EXTERNAL_ENTITIES, Boolean.TRUE);
+        f.setProperty(WstxInputProperties.P_CACHE_EXTERNAL_ENTITIES_BY_PUBLIC_ID, Boolean.TRUE);
+        CountingResolver resolver = new CountingResolver("text");
+        f.setProperty(WstxInputProperties.P_ENTITY_RESOLVER, resolver);
+        assertEquals("[text]", readRoot(f, docWithEntity("-//TEST//Entity", "ent.xml")));
+        assertEquals("[text]", readRoot(f, docWithEntity("-//TEST//Entity", "other.xml")));
+        assertEquals(1, resolver.mCount);
+        // but without public id, system id is used
+        assertEquals("[text]", readRoot(f, docWithEntity(null, "ent.xml")));
+        assertEquals(2, resolver.mCount);
+    }
+
+    /**
+     * Test to verify that entities too big to cache are still read
+     * correctly (but not cached), and that total size of cached
+     * contents is bounded.
+     */
+    @Test
+    public void testCacheLimits() throws XMLStreamException
+    {
+        XMLInputFactory f = getNewInputFactory();
+        f.setProperty(WstxInputProperties.P_CACHE_EXTERNAL_ENTITIES, Boolean.TRUE);
+        ExternalEntityCache cache = ((WstxInputFactory) f).getConfig().getExternalEntityCache();
+        assertNotNull(cache);
+
+        // First, an entity just too big to cache
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; sb.length() <= cache.getMaxEntityLength(); ++i) {
+            sb.append("line ").append(i).append('\n');
+        }
+        final String big = sb.toString();
+        CountingResolver resolver = new CountingResolver(big);
+        f.setProperty(WstxInputProperties.P_ENTITY_RESOLVER, resolver);
+        for (int i = 0; i < 2; ++i) {
+            assertEquals("["+big+"]", readRoot(f, docWithEntity(null, "big.xml")));
+        }
+        assertEquals(2, resolver.mCount);
+        assertEquals(0, cache.size());
+
+        // Then enough entities to exceed total limit
+        final String medium = big.substring(0, cache.getMaxEntityLength() - 10);
+        resolver = new CountingResolver(medium);
+        f.setProperty(WstxInputProperties.P_ENTITY_RESOLVER, resolver);
+        final int count = (cache.getMaxLength() / medium.length()) + 3;
+        for (int i = 0; i < count; ++i) {
+            assertEquals("["+medium+"]", readRoot(f, docWithEntity(null, "ent"+i+".xml")));
+            assertTrue(cache.getTotalLength() <= cache.getMaxLength());
+        }
+        assertEquals(count, resolver.mCount);
+        assertTrue(cache.size() < count);
+        // most recent one still cached, but first one dropped
+        readRoot(f, docWithEntity(null, "ent"+(count-1)+".xml"));
+        assertEquals(count, resolver.mCount);
+        readRoot(f, docWithEntity(null, "ent0.xml"));
+        assertEquals(count+1, resolver.mCount);
+    }
+
+    @Test
+    public void testCachingFromFile() throws Exception
+    {
+        File dir = File.createTempFile("wstxtest", "");
+        dir.delete();
+        dir.mkdir();
+        File ent = new File(dir, "ent.xml");
+        File doc = new File(dir, "doc.xml");
+        try {
+            writeFile(ent, "<?xml version='1.0' encoding='ISO-8859-1'?>café", "ISO-8859-1");
+            writeFile(doc, docWithEntity(null, "ent.xml"), "UTF-8");
+
+            XMLInputFactory f = getNewInputFactory();
+            f.setProperty(WstxInputProperties.P_CACHE_EXTERNAL_ENTITIES, Boolean.TRUE);
+            assertEquals("[café]", readRoot(f, doc));
+            // Changes are not seen, since contents are cached
+            writeFile(ent, "changed", "UTF-8");
+            assertEquals("[café]", readRoot(f, doc));
+
+            // but will be once caching is disabled
+            f.setProperty(WstxInputProperties.P_CACHE_EXTERNAL_ENTITIES, Boolean.FALSE);
+            assertEquals("[changed]", readRoot(f, doc));
+        } finally {
+            ent.delete();
+            doc.delete();
+            dir.delete();
+        }
+    }
+
+    /*
+    ///////////////////////////////////////////////////////////
+    // Helper methods, classes
+    ///////////////////////////////////////////////////////////
+     */
+
+    private String docWithEntity(String pubId, String sysId)
+    {
+        String decl = (pubId == null) ? ("SYSTEM '"+sysId+"'")
+            : ("PUBLIC '"+pubId+"' '"+sysId+"'");
+        return "<!DOCTYPE root [\n"
+            +"<!ENTITY ext "+decl+">\n"
+            +"]><root>[&ext;]</root>";
+    }
+
+    private String readRoot(XMLInputFactory f, String doc) throws XMLStreamException
+    {
+        return readRoot(constructStreamReader(f, doc));
+    }
+
+    private String readRoot(XMLInputFactory f, File doc) throws Exception
+    {
+        InputStream in = new FileInputStream(doc);
+        try {
+            return readRoot(f.createXMLStreamReader(doc.toURI().toString(), in));
+        } finally {
+            in.close();
+        }
+    }
+
+    private String readRoot(XMLStreamReader sr) throws XMLStreamException
+    {
+        assertTokenType(DTD, sr.next());
+        assertTokenType(START_ELEMENT, sr.next());
+        StringBuilder sb = new StringBuilder();
+        while (sr.next() != END_ELEMENT || !"root".equals(sr.getLocalName())) {
+            if (sr.getEventType() == CHARACTERS) {
+                sb.append(sr.getText());
+            }
+        }
+        sr.close();
+        return sb.toString();
+    }
+
+    private void writeFile(File f, String content, String enc) throws IOException
+    {
+        Writer w = new OutputStreamWriter(new FileOutputStream(f), enc);
+        w.write(content);
+        w.close();
+    }
+
+    final static class CountingResolver
+        implements XMLResolver
+    {
+        final String mContent;
+
+        int mCount;
+
+        CountingResolver(String content) {
+            mContent = content;
+        }
+
+        @Override
+        public Object resolveEntity(String publicID, String systemID, String baseURI, String namespace)
+        {
+            ++mCount;
+            return mContent;
+        }
+    }
+}
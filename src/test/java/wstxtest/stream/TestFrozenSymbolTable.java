@@ -0,0 +1,141 @@
+package wstxtest.stream;
+
+import java.util.*;
+
+import javax.xml.stream.*;
+
+import org.junit.jupiter.api.Test;
+
+import org.codehaus.stax2.XMLStreamReader2;
+import org.codehaus.stax2.DTDInfo;
+
+import com.ctc.wstx.dtd.DTDSubset;
+import com.ctc.wstx.stax.WstxInputFactory;
+import com.ctc.wstx.util.SymbolTable;
+
+/**
+ * Tests for verifying that frozen, pre-loaded symbol tables can be shared
+ * between input factories.
+ */
+public class TestFrozenSymbolTable
+    extends BaseStreamTest
+{
+    @Test
+    public void testFrozenTable()
+    {
+        SymbolTable t = SymbolTable.createFrozen(Arrays.asList("root", "leaf", "attr", "leaf", "", "ns"));
+        assertTrue(t.isFrozen());
+        // "xml" and "xmlns" are always added
+        assertEquals(6, t.size());
+        // and with so few names, there should be no collisions
+        assertEquals(1.0, t.calcAvgSeek(), 0.0001);
+        assertSame("root", t.findSymbol(new String("root")));
+        try {
+            t.findSymbol("unknown");
+            fail("Should not be able to add symbols to a frozen table");
+        } catch (IllegalStateException e) {
+            verifyException(e, "frozen");
+        }
+        // but child instances are modifiable
+        SymbolTable child = t.makeChild();
+        assertFalse(child.isFrozen());
+        assertNotNull(child.findSymbol("unknown"));
+        assertEquals(7, child.size());
+        t.mergeChild(child);
+        assertEquals(6, t.size());
+        assertNull(t.findSymbolIfExists("unknown".toCharArray(), 0, 7,
+                SymbolTable.calcHash("unknown", t.getHashSeed())));
+    }
+
+    /**
+     * Test to verify that hash seed of frozen tables (which is also used
+     * by child tables of readers) is not predictable from the vocabulary.
+     */
+    @Test
+    public void testRandomSeed()
+    {
+        final List<String> names = Arrays.asList("root", "leaf", "attr");
+        Set<Integer> seeds = new HashSet<Integer>();
+        for (int i = 0; i < 8; ++i) {
+            SymbolTable t = SymbolTable.createFrozen(names);
+            assertEquals(t.getHashSeed(), t.makeChild().getHashSeed());
+            seeds.add(t.getHashSeed());
+        }
+        assertTrue("Expected different seeds, got "+seeds, seeds.size() > 1);
+    }
+
+    @Test
+    public void testSharedBetweenFactories() throws XMLStreamException
+    {
+        SymbolTable t = SymbolTable.createFrozen(Arrays.asList("root", "leaf", "attr", "ns"));
+        WstxInputFactory f1 = new WstxInputFactory();
+        WstxInputFactory f2 = new WstxInputFactory();
+        assertNull(f1.getSharedSymbolTable());
+        f1.setSharedSymbolTable(t);
+        f2.setSharedSymbolTable(t);
+        assertSame(t, f1.getSharedSymbolTable());
+
+        final String XML = "<ns:root xmlns:ns='urn:x' attr='1'><leaf attr='2' other='3'/><unknown/></ns:root>";
+        for (int i = 0; i < 3; ++i) {
+            XMLStreamReader sr = constructStreamReader((i == 1) ? f2 : f1, XML);
+            assertTokenType(START_ELEMENT, sr.next());
+            assertEquals("root", sr.getLocalName());
+            assertEquals("ns", sr.getPrefix());
+            assertEquals("attr", sr.getAttributeLocalName(0));
+            assertTokenType(START_ELEMENT, sr.next());
+            assertEquals("leaf", sr.getLocalName());
+            assertEquals("other", sr.getAttributeLocalName(1));
+            assertTokenType(END_ELEMENT, sr.next());
+            assertTokenType(START_ELEMENT, sr.next());
+            assertEquals("unknown", sr.getLocalName());
+            streamThrough(sr);
+            sr.close();
+        }
+        // shared table is not modified
+        assertEquals(6, t.size());
+
+        f1.setSharedSymbolTable(null);
+        assertNull(f1.getSharedSymbolTable());
+        try {
+            f1.setSharedSymbolTable(new SymbolTable());
+            fail("Should not accept non-frozen table");
+        } catch (IllegalArgumentException e) {
+            verifyException(e, "frozen");
+        }
+    }
+
+    @Test
+    public void testVocabularyFromDTD() throws XMLStreamException
+    {
+        final String XML = "<!DOCTYPE root [\n"
+            +"<!ELEMENT root (x:leaf)*>\n"
+            +"<!ATTLIST root id ID #IMPLIED>\n"
+            +"<!ELEMENT x:leaf EMPTY>\n"
+            +"<!ATTLIST x:leaf value CDATA #IMPLIED>\n"
+            +"<!ENTITY ent 'text'>\n"
+            +"]><root />";
+        WstxInputFactory f = new WstxInputFactory();
+        f.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.TRUE);
+        XMLStreamReader2 sr = (XMLStreamReader2) constructStreamReader(f, XML);
+        assertTokenType(DTD, sr.next());
+        DTDInfo info = sr.getDTDInfo();
+        Set<String> names = ((DTDSubset) info.getProcessedDTDSchema()).getDeclaredNames();
+        sr.close();
+        for (String name : new String[] { "root", "leaf", "x", "x:leaf", "id", "value", "ent" }) {
+            assertTrue("Missing '"+name+"' from "+names, names.contains(name));
+        }
+
+        SymbolTable t = SymbolTable.createFrozen(names);
+        WstxInputFactory f2 = new WstxInputFactory();
+        f2.setSharedSymbolTable(t);
+        sr = (XMLStreamReader2) constructStreamReader(f2,
+                "<root id='a' xmlns:x='urn:x'><x:leaf value='1'/></root>");
+        assertTokenType(START_ELEMENT, sr.next());
+        assertTokenType(START_ELEMENT, sr.next());
+        assertEquals("leaf", sr.getLocalName());
+        assertEquals("x", sr.getPrefix());
+        assertEquals("value", sr.getAttributeLocalName(0));
+        sr.close();
+        assertEquals(names.size() + 2, t.size());
+    }
+}
@@ -0,0 +1,202 @@
+package wstxtest.stream;
+
+import java.io.StringReader;
+
+import javax.xml.stream.*;
+
+import org.codehaus.stax2.XMLInputFactory2;
+import org.junit.jupiter.api.Test;
+
+import com.ctc.wstx.api.WstxInputProperties;
+import com.ctc.wstx.sr.StreamReaderImpl;
+
+/**
+ * Unit tests for multi-document parsing mode with an explicit document
+ * separator (see {@link WstxInputProperties#P_INPUT_DOCUMENT_SEPARATOR}),
+ * as well as per-document state handling in multi-document mode.
+ */
+public class TestMultiDocFraming
+    extends BaseStreamTest
+{
+    final static char SEP = '\u001E';
+
+    final static String DOC1 = "<?xml version='1.0'?><a>x</a>";
+    final static String DOC2 = "\n<b attr='1'><!-- c --></b>\n";
+    final static String DOC3 = " <?xml version='1.0' encoding='UTF-8'?><!DOCTYPE c><c>text</c>";
+
+    final static String XML = DOC1+SEP+DOC2+SEP+DOC3+SEP+"\n";
+
+    @Test
+    public void testSeparatedDocuments() throws XMLStreamException
+    {
+        for (int i = 0; i < 4; ++i) {
+            boolean lazy = (i & 1) != 0;
+            boolean reportWS = (i & 2) != 0;
+            StreamReaderImpl sr = getReader(XML, lazy, reportWS, 1000);
+
+            assertTokenType(START_DOCUMENT, sr.getEventType());
+            assertEquals(0, sr.getDocumentIndex());
+            assertEquals(0L, sr.getDocumentStartOffset());
+            assertTokenType(START_ELEMENT, sr.next());
+            assertEquals("a", sr.getLocalName());
+            assertTokenType(CHARACTERS, sr.next());
+            assertEquals("x", getAndVerifyText(sr));
+            assertTokenType(END_ELEMENT, sr.next());
+            assertTokenType(END_DOCUMENT, sr.next());
+
+            assertTokenType(START_DOCUMENT, sr.next());
+            assertEquals(1, sr.getDocumentIndex());
+            assertEquals(DOC1.length()+1, sr.getDocumentStartOffset());
+            assertNull(sr.getCharacterEncodingScheme());
+            // white space right after separator is skipped, not reported
+            assertTokenType(START_ELEMENT, sr.next());
+            assertEquals("b", sr.getLocalName());
+            assertEquals("1", sr.getAttributeValue(0));
+            assertTokenType(COMMENT, sr.next());
+            assertTokenType(END_ELEMENT, sr.next());
+            if (reportWS) {
+                assertTokenType(SPACE, sr.next());
+            }
+            assertTokenType(END_DOCUMENT, sr.next());
+
+            assertTokenType(START_DOCUMENT, sr.next());
+            assertEquals(2, sr.getDocumentIndex());
+            assertEquals(DOC1.length()+DOC2.length()+2, sr.getDocumentStartOffset());
+            assertEquals("UTF-8", sr.getCharacterEncodingScheme());
+            assertTokenType(DTD, sr.next());
+            assertTokenType(START_ELEMENT, sr.next());
+            assertEquals("c", sr.getLocalName());
+            assertTokenType(CHARACTERS, sr.next());
+            assertEquals("text", getAndVerifyText(sr));
+            assertTokenType(END_ELEMENT, sr.next());
+            // trailing separator followed by white space: just the end
+            assertTokenType(END_DOCUMENT, sr.next());
+            assertFalse(sr.hasNext());
+            sr.close();
+        }
+    }
+
+    @Test
+    public void testSkipDocuments() throws XMLStreamException
+    {
+        // Let's also verify handling of input buffer boundaries
+        for (int bufSize : new int[] { 8, 17, 1000 }) {
+            StreamReaderImpl sr = getReader(XML, true, false, bufSize);
+            assertTokenType(START_DOCUMENT, sr.getEventType());
+            assertTrue(sr.skipDocument());
+            assertTokenType(START_DOCUMENT, sr.getEventType());
+            assertEquals(1, sr.getDocumentIndex());
+            assertEquals(DOC1.length()+1, sr.getDocumentStartOffset());
+
+            // can also skip from the middle of a document
+            assertTokenType(START_ELEMENT, sr.next());
+            assertEquals("b", sr.getLocalName());
+            assertTrue(sr.skipDocument());
+            assertTokenType(START_DOCUMENT, sr.getEventType());
+            assertEquals(2, sr.getDocumentIndex());
+            assertEquals("UTF-8", sr.getCharacterEncodingScheme());
+            // and state from the previous document has been cleared
+            assertTokenType(DTD, sr.next());
+            assertTokenType(START_ELEMENT, sr.next());
+            assertEquals("c", sr.getLocalName());
+            assertEquals(1, sr.getDepth());
+            // line numbers still get updated
+            assertEquals(3, sr.getLocation().getLineNumber());
+
+            assertFalse(sr.skipDocument());
+            assertTokenType(END_DOCUMENT, sr.getEventType());
+            assertFalse(sr.hasNext());
+            sr.close();
+        }
+    }
+
+    @Test
+    public void testSkipFromBoundary() throws XMLStreamException
+    {
+        StreamReaderImpl sr = getReader(XML, true, false, 1000);
+        assertTokenType(START_ELEMENT, sr.next());
+        assertTokenType(CHARACTERS, sr.next());
+        assertTokenType(END_ELEMENT, sr.next());
+        assertTokenType(END_DOCUMENT, sr.next());
+        // At the boundary, the following document gets skipped
+        assertTrue(sr.skipDocument());
+        assertEquals(2, sr.getDocumentIndex());
+        assertTokenType(DTD, sr.next());
+        sr.close();
+    }
+
+    /**
+     * Each document may have its own DOCTYPE declaration, even without
+     * a separator.
+     */
+    @Test
+    public void testDoctypePerDocument() throws XMLStreamException
+    {
+        final String XML2 = "<!DOCTYPE a><a/><!DOCTYPE b><b/>";
+        XMLInputFactory f = getInputFactory();
+        f.setProperty(WstxInputProperties.P_INPUT_PARSING_MODE, WstxInputProperties.PARSING_MODE_DOCUMENTS);
+        StreamReaderImpl sr = (StreamReaderImpl) constructStreamReader(f, XML2);
+        assertTokenType(DTD, sr.next());
+        assertEquals("a", sr.getDTDInfo().getDTDRootName());
+        assertTokenType(START_ELEMENT, sr.next());
+        assertTokenType(END_ELEMENT, sr.next());
+        assertTokenType(END_DOCUMENT, sr.next());
+        assertTokenType(START_DOCUMENT, sr.next());
+        assertEquals(1, sr.getDocumentIndex());
+        assertEquals(XML2.indexOf("<!DOCTYPE b"), sr.getDocumentStartOffset());
+        assertTokenType(DTD, sr.next());
+        assertEquals("b", sr.getDTDInfo().getDTDRootName());
+        assertTokenType(START_ELEMENT, sr.next());
+        assertTokenType(END_ELEMENT, sr.next());
+        assertTokenType(END_DOCUMENT, sr.next());
+        sr.close();
+    }
+
+    @Test
+    public void testInvalidConfig() throws XMLStreamException
+    {
+        XMLInputFactory f = getNewInputFactory();
+        try {
+            f.setProperty(WstxInputProperties.P_INPUT_DOCUMENT_SEPARATOR, Character.valueOf('a'));
+            fail("Expected an exception for non-control character separator");
+        } catch (IllegalArgumentException e) {
+            verifyException(e, "Illegal document separator");
+        }
+        try {
+            f.setProperty(WstxInputProperties.P_INPUT_DOCUMENT_SEPARATOR, "\n");
+            fail("Expected an exception for linefeed as separator");
+        } catch (IllegalArgumentException e) {
+            verifyException(e, "Illegal document separator");
+        }
+
+        // Separator only applies to multi-document mode
+        f.setProperty(WstxInputProperties.P_INPUT_DOCUMENT_SEPARATOR, Character.valueOf(SEP));
+        StreamReaderImpl sr = (StreamReaderImpl) f.createXMLStreamReader(new StringReader(DOC1));
+        try {
+            sr.skipDocument();
+            fail("Expected an exception when not in multi-document mode");
+        } catch (IllegalStateException e) {
+            verifyException(e, "Can not skip documents");
+        }
+        sr.close();
+    }
+
+    /*
+    ////////////////////////////////////////
+    // Private methods, other
+    ////////////////////////////////////////
+     */
+
+    private StreamReaderImpl getReader(String contents, boolean lazy, boolean reportWS,
+            int bufSize)
+        throws XMLStreamException
+    {
+        XMLInputFactory f = getNewInputFactory();
+        f.setProperty(WstxInputProperties.P_INPUT_PARSING_MODE, WstxInputProperties.PARSING_MODE_DOCUMENTS);
+        f.setProperty(WstxInputProperties.P_INPUT_DOCUMENT_SEPARATOR, Character.valueOf(SEP));
+        f.setProperty(WstxInputProperties.P_INPUT_BUFFER_LENGTH, Integer.valueOf(bufSize));
+        f.setProperty(XMLInputFactory2.P_LAZY_PARSING, Boolean.valueOf(lazy));
+        f.setProperty(XMLInputFactory2.P_REPORT_PROLOG_WHITESPACE, Boolean.valueOf(reportWS));
+        return (StreamReaderImpl) constructStreamReader(f, contents);
+    }
+}
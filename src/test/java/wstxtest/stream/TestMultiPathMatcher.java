@@ -0,0 +1,181 @@
+package wstxtest.stream;
+
+import java.util.*;
+
+import javax.xml.stream.*;
+
+import org.junit.jupiter.api.Test;
+
+import org.codehaus.stax2.XMLStreamReader2;
+
+import com.ctc.wstx.api.WstxInputProperties;
+import com.ctc.wstx.sr.MultiPathMatcher;
+import com.ctc.wstx.sr.PathFilter;
+
+/**
+ * Tests for verifying that {@link MultiPathMatcher} finds matches for
+ * all of its paths in a single pass.
+ */
+public class TestMultiPathMatcher
+    extends BaseStreamTest
+{
+    final static String XML =
+        "<?xml version='1.0'?>\n"
+        +"<order xmlns:x='urn:x' id='17'>\n"
+        +" <customer type='vip'><name>Bob</name><!-- c --></customer>\n"
+        +" <items>\n"
+        +"  <item sku='a'><qty>2</qty><x:note>fragile</x:note></item>\n"
+        +"  <item sku='b'><qty>1</qty></item>\n"
+        +" </items>\n"
+        +" <skipped><deep><deeper>text</deeper></deep></skipped>\n"
+        +"</order>";
+
+    @Test
+    public void testSharedSteps()
+    {
+        Map<String,PathFilter> paths = new LinkedHashMap<String,PathFilter>();
+        paths.put("a", PathFilter.compile("/order/items/item"));
+        paths.put("b", PathFilter.compile("/order/items/item/qty"));
+        paths.put("c", PathFilter.compile("/order/customer"));
+        paths.put("d", PathFilter.compile("/order/items/item"));
+        MultiPathMatcher m = MultiPathMatcher.compile(paths);
+        assertEquals(4, m.getPathCount());
+        // order, items, item, qty, customer
+        assertEquals(5, m.getStateCount());
+    }
+
+    @Test
+    public void testMatches() throws XMLStreamException
+    {
+        Map<String,PathFilter> paths = new LinkedHashMap<String,PathFilter>();
+        paths.put("items", PathFilter.compile("/order/items/item"));
+        paths.put("firstQty", PathFilter.compile("/order/items/item[1]/qty"));
+        paths.put("skus", PathFilter.compile("//item[@sku]"));
+        paths.put("vip", PathFilter.compile("/order/customer[@type='vip']/name"));
+        paths.put("none", PathFilter.compile("/order/missing"));
+        paths.put("items2", PathFilter.compile("/order/items/item"));
+        RecordingHandler h = new RecordingHandler(MultiPathMatcher.CAPTURE_NONE);
+        MultiPathMatcher.compile(paths).match(createReader(XML), h);
+        // Order of ids for the same element is not defined
+        Collections.sort(h.mStarted);
+        assertEquals("[firstQty:qty, items2:item@a, items2:item@b, items:item@a, items:item@b, "
+                +"skus:item@a, skus:item@b, vip:name]", h.mStarted.toString());
+        assertTrue(h.mCaptured.isEmpty());
+    }
+
+    @Test
+    public void testCaptureText() throws XMLStreamException
+    {
+        Map<String,PathFilter> paths = new LinkedHashMap<String,PathFilter>();
+        paths.put("item", PathFilter.compile("//item"));
+        paths.put("qty", PathFilter.compile("//qty"));
+        RecordingHandler h = new RecordingHandler(MultiPathMatcher.CAPTURE_TEXT);
+        MultiPathMatcher.compile(paths).match(createReader(XML), h);
+        // nested captures are completed innermost first
+        assertEquals("[qty=2, item=2fragile, qty=1, item=1]", h.mCaptured.toString());
+    }
+
+    @Test
+    public void testCaptureXml() throws XMLStreamException
+    {
+        Map<String,PathFilter> paths = new LinkedHashMap<String,PathFilter>();
+        paths.put("item", PathFilter.compile("/order/items/item[1]"));
+        paths.put("cust", PathFilter.compile("/order/customer"));
+        RecordingHandler h = new RecordingHandler(MultiPathMatcher.CAPTURE_XML);
+        MultiPathMatcher.compile(paths).match(createReader(XML), h);
+        assertEquals(2, h.mCaptured.size());
+        assertEquals("cust=<customer type=\"vip\"><name>Bob</name><!-- c --></customer>",
+                h.mCaptured.get(0));
+        // Namespace declaration needs to be added for the fragment
+        String item = h.mCaptured.get(1);
+        assertTrue("Unexpected capture: "+item,
+                item.startsWith("item=<item sku=\"a\"><qty>2</qty><x:note xmlns:x=\"urn:x\">fragile</x:note></item>"));
+
+        // and should be parseable as is
+        XMLStreamReader sr = constructStreamReader(getNewInputFactory(), item.substring(5));
+        streamThrough(sr);
+        sr.close();
+    }
+
+    @Test
+    public void testDescendantAxes() throws XMLStreamException
+    {
+        final String DOC = "<a><b><a><b><c>1</c></b></a></b><c>2</c></a>";
+        Map<String,PathFilter> paths = new LinkedHashMap<String,PathFilter>();
+        paths.put("x", PathFilter.compile("//a//c"));
+        paths.put("y", PathFilter.compile("//b/c"));
+        paths.put("z", PathFilter.compile("//a/*[1]"));
+        RecordingHandler h = new RecordingHandler(MultiPathMatcher.CAPTURE_TEXT);
+        MultiPathMatcher.compile(paths).match(createReader(DOC), h);
+        // each match reported just once, even if there are multiple ways to match
+        assertEquals("[x=1, y=1, z=1, z=1, x=2]", h.mCaptured.toString());
+    }
+
+    @Test
+    public void testMultipleDocuments() throws XMLStreamException
+    {
+        XMLInputFactory f = getNewInputFactory();
+        f.setProperty(WstxInputProperties.P_INPUT_PARSING_MODE, WstxInputProperties.PARSING_MODE_DOCUMENTS);
+        XMLStreamReader sr = constructStreamReader(f,
+                "<?xml version='1.0'?><msg><v>1</v><v>2</v></msg><?xml version='1.0'?><msg><v>3</v></msg>");
+        RecordingHandler h = new RecordingHandler(MultiPathMatcher.CAPTURE_TEXT);
+        MultiPathMatcher.compile(Collections.singletonMap("v", PathFilter.compile("/msg/v[1]")))
+            .match(sr, h);
+        sr.close();
+        assertEquals("[v=1, v=3]", h.mCaptured.toString());
+    }
+
+    @Test
+    public void testInvalidReader() throws XMLStreamException
+    {
+        MultiPathMatcher m = MultiPathMatcher.compile(Collections.singletonMap("v", PathFilter.compile("/v")));
+        XMLStreamReader sr = createReader("<v />");
+        sr.next();
+        try {
+            m.match(sr, new RecordingHandler(MultiPathMatcher.CAPTURE_NONE));
+            fail("Should not allow matching when reader is not at START_DOCUMENT");
+        } catch (IllegalStateException e) {
+            verifyException(e, "START_DOCUMENT");
+        }
+    }
+
+    /*
+    ///////////////////////////////////////////////////////////
+    // Helper methods, classes
+    ///////////////////////////////////////////////////////////
+     */
+
+    private XMLStreamReader createReader(String doc) throws XMLStreamException
+    {
+        XMLInputFactory f = getNewInputFactory();
+        setNamespaceAware(f, true);
+        setCoalescing(f, false);
+        return constructStreamReader(f, doc);
+    }
+
+    final static class RecordingHandler
+        implements MultiPathMatcher.Handler
+    {
+        final int mCapture;
+
+        final List<String> mStarted = new ArrayList<String>();
+
+        final List<String> mCaptured = new ArrayList<String>();
+
+        RecordingHandler(int capture) {
+            mCapture = capture;
+        }
+
+        @Override
+        public int matchStarted(String id, XMLStreamReader2 reader) {
+            String sku = reader.getAttributeValue(null, "sku");
+            mStarted.add(id+":"+reader.getLocalName()+((sku == null) ? "" : ("@"+sku)));
+            return mCapture;
+        }
+
+        @Override
+        public void matchCaptured(String id, String content) {
+            mCaptured.add(id+"="+content);
+        }
+    }
+}
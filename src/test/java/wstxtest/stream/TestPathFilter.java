@@ -0,0 +1,290 @@
+package wstxtest.stream;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import javax.xml.XMLConstants;
+import javax.xml.namespace.NamespaceContext;
+import javax.xml.stream.*;
+
+import org.junit.jupiter.api.Test;
+
+import org.codehaus.stax2.XMLStreamReader2;
+
+import com.ctc.wstx.api.WstxInputProperties;
+import com.ctc.wstx.sr.PathFilter;
+
+/**
+ * Tests for verifying that path filters only let matching elements
+ * (and their contents) through.
+ */
+public class TestPathFilter
+    extends BaseStreamTest
+{
+    final static String XML =
+        "<?xml version='1.0'?>\n"
+        +"<!-- comment --><root>\n"
+        +" <item id='1' type='a'><name>first</name><price>1.5</price></item>\n"
+        +" <item id='2'><name>second</name><!-- x --><price>2</price></item>\n"
+        +" <group><item id='3' type='a'><name>third</name></item></group>\n"
+        +" <item id='4' type='b'><name>fourth<![CDATA[!]]></name></item>\n"
+        +"</root><?pi?>";
+
+    @Test
+    public void testCompileErrors()
+    {
+        for (String expr : new String[] { "", "root", "/root/", "/root[", "/root[@a='x]",
+                "/root[0]", "/root[x]", "/p:root" }) {
+            try {
+                PathFilter.compile(expr, new SimpleNsContext("q", "urn:q"));
+                fail("Should not accept '"+expr+"'");
+            } catch (IllegalArgumentException e) {
+                verifyException(e, "Invalid path expression");
+            }
+        }
+        assertEquals("/a//b[@c='d'][2]", PathFilter.compile("/a//b[@c='d'][2]").toString());
+    }
+
+    @Test
+    public void testChildAxis() throws XMLStreamException
+    {
+        assertEquals("[<name>first</name>, <name>second</name>, <name>fourth!</name>]",
+                collect("/root/item/name", XML).toString());
+        // nothing matches, only document events remain
+        XMLStreamReader sr = createReader("/item", XML);
+        assertTokenType(END_DOCUMENT, sr.next());
+        assertFalse(sr.hasNext());
+        sr.close();
+    }
+
+    @Test
+    public void testDescendantAxis() throws XMLStreamException
+    {
+        assertEquals("[<name>first</name>, <name>second</name>, <name>third</name>, <name>fourth!</name>]",
+                collect("//name", XML).toString());
+        assertEquals("[<name>third</name>]", collect("/root/group//name", XML).toString());
+        assertEquals("[<name>third</name>]", collect("//group/*/name", XML).toString());
+    }
+
+    @Test
+    public void testPredicates() throws XMLStreamException
+    {
+        assertEquals("[<name>first</name>, <name>third</name>]",
+                collect("//item[@type='a']/name", XML).toString());
+        assertEquals("[<name>first</name>, <name>third</name>, <name>fourth!</name>]",
+                collect("//item[@type]/name", XML).toString());
+        assertEquals("[<price>2</price>]", collect("/root/item[2]/price", XML).toString());
+        // position among those matching preceding predicates
+        assertEquals("[<name>fourth!</name>]",
+                collect("/root/item[ @type ][2]/name", XML).toString());
+        // position relative to parent, for descendants
+        assertEquals("[<name>first</name>, <name>third</name>]",
+                collect("//item[1]/name", XML).toString());
+        assertEquals("[<item><name>third</name></item>]",
+                collect("/root/*[3]/item", XML).toString());
+    }
+
+    @Test
+    public void testWholeSubtree() throws XMLStreamException
+    {
+        XMLStreamReader sr = createReader("//item[@id=\"2\"]", XML);
+        assertTokenType(START_ELEMENT, sr.next());
+        assertEquals("item", sr.getLocalName());
+        assertEquals("2", sr.getAttributeValue(null, "id"));
+        assertEquals(1, sr.getAttributeCount());
+        assertTokenType(START_ELEMENT, sr.next());
+        assertEquals("second", sr.getElementText());
+        assertTokenType(COMMENT, sr.next());
+        assertEquals(" x ", sr.getText());
+        assertTokenType(START_ELEMENT, sr.next());
+        assertEquals("2", sr.getElementText());
+        assertTokenType(END_ELEMENT, sr.next());
+        assertEquals("item", sr.getLocalName());
+        assertTokenType(END_DOCUMENT, sr.next());
+        sr.close();
+    }
+
+    @Test
+    public void testNamespaces() throws XMLStreamException
+    {
+        final String NS_XML = "<root xmlns='urn:a' xmlns:b='urn:b'>"
+            +"<leaf>1</leaf><b:leaf b:attr='x'>2</b:leaf><x:leaf xmlns:x='urn:b'>3</x:leaf>"
+            +"<leaf xmlns=''>4</leaf></root>";
+        NamespaceContext ctxt = new SimpleNsContext("ns", "urn:b");
+        assertEquals("[<leaf>2</leaf>, <leaf>3</leaf>]",
+                collect(PathFilter.compile("/*/ns:leaf", ctxt), NS_XML).toString());
+        assertEquals("[<leaf>2</leaf>]",
+                collect(PathFilter.compile("//ns:*[@ns:attr='x']", ctxt), NS_XML).toString());
+        // Unprefixed names only match elements not in a namespace
+        assertEquals("[<leaf>4</leaf>]", collect("//leaf", NS_XML).toString());
+        // but without namespace context, prefixes are matched as is
+        assertEquals("[<leaf>2</leaf>]", collect("//b:leaf[@b:attr]", NS_XML).toString());
+    }
+
+    @Test
+    public void testNonNamespaceAware() throws XMLStreamException
+    {
+        final String DOC = "<root><a:leaf a:x='1'>1</a:leaf><b:leaf>2</b:leaf></root>";
+        XMLInputFactory f = getNewInputFactory();
+        setNamespaceAware(f, false);
+        f.setProperty(WstxInputProperties.P_PATH_FILTER, "//a:leaf[@a:x='1']");
+        XMLStreamReader sr = constructStreamReader(f, DOC);
+        assertTokenType(START_ELEMENT, sr.next());
+        assertEquals("a:leaf", sr.getLocalName());
+        assertEquals("1", sr.getElementText());
+        assertTokenType(END_DOCUMENT, sr.next());
+        sr.close();
+    }
+
+    @Test
+    public void testSkippedContentChecked() throws XMLStreamException
+    {
+        // Skipped content is still checked for well-formedness
+        XMLStreamReader sr = createReader("/root/b", "<root><a><x></y></a><b/></root>");
+        try {
+            sr.next();
+            fail("Expected an exception for mismatched end tag");
+        } catch (XMLStreamException e) {
+            verifyException(e, "</y>");
+        }
+    }
+
+    @Test
+    public void testEntitiesAndDocuments() throws XMLStreamException
+    {
+        final String DOC = "<!DOCTYPE root [\n"
+            +"<!ENTITY ent '<leaf>ent</leaf>'>\n"
+            +"]><root><skip>&ent;</skip><keep>&ent;</keep></root>";
+        assertEquals("[<leaf>ent</leaf>]", collect("/root/keep/leaf", DOC).toString());
+
+        XMLInputFactory f = getNewInputFactory();
+        f.setProperty(WstxInputProperties.P_INPUT_PARSING_MODE, WstxInputProperties.PARSING_MODE_DOCUMENTS);
+        f.setProperty(WstxInputProperties.P_PATH_FILTER, PathFilter.compile("/doc/v[1]"));
+        XMLStreamReader sr = constructStreamReader(f,
+                "<?xml version='1.0'?><doc><v>1</v><v>x</v></doc><?xml version='1.0'?><doc><v>2</v></doc>");
+        List<String> values = new ArrayList<String>();
+        while (sr.hasNext()) {
+            if (sr.next() == START_ELEMENT) {
+                values.add(sr.getElementText());
+            }
+        }
+        sr.close();
+        assertEquals("[1, 2]", values.toString());
+    }
+
+    @Test
+    public void testSetForReader() throws XMLStreamException
+    {
+        XMLStreamReader2 sr = (XMLStreamReader2) constructStreamReader(getNewInputFactory(), XML);
+        assertNull(sr.getProperty(WstxInputProperties.P_PATH_FILTER));
+        assertTrue(sr.setProperty(WstxInputProperties.P_PATH_FILTER, PathFilter.compile("//price")));
+        assertTokenType(START_ELEMENT, sr.next());
+        assertEquals("1.5", sr.getElementText());
+        // can not be changed once root has been read
+        try {
+            sr.setProperty(WstxInputProperties.P_PATH_FILTER, null);
+            fail("Should not allow changing filter");
+        } catch (IllegalStateException e) {
+            verifyException(e, "path filter");
+        }
+        assertTokenType(START_ELEMENT, sr.next());
+        assertEquals("2", sr.getElementText());
+        assertTokenType(END_DOCUMENT, sr.next());
+        sr.close();
+    }
+
+    /*
+    ///////////////////////////////////////////////////////////
+    // Helper methods, classes
+    ///////////////////////////////////////////////////////////
+     */
+
+    private XMLStreamReader createReader(String expr, String doc) throws XMLStreamException
+    {
+        return createReader(PathFilter.compile(expr), doc);
+    }
+
+    private XMLStreamReader createReader(PathFilter filter, String doc) throws XMLStreamException
+    {
+        XMLInputFactory f = getNewInputFactory();
+        setNamespaceAware(f, true);
+        f.setProperty(XMLInputFactory.IS_REPLACING_ENTITY_REFERENCES, Boolean.TRUE);
+        f.setProperty(WstxInputProperties.P_PATH_FILTER, filter);
+        return constructStreamReader(f, doc);
+    }
+
+    private List<String> collect(String expr, String doc) throws XMLStreamException
+    {
+        return collect(PathFilter.compile(expr), doc);
+    }
+
+    /**
+     * Helper method that reads through the document, collecting
+     * a simple serialization of reported elements
+     */
+    private List<String> collect(PathFilter filter, String doc) throws XMLStreamException
+    {
+        XMLStreamReader sr = createReader(filter, doc);
+        List<String> result = new ArrayList<String>();
+        StringBuilder sb = new StringBuilder();
+        int depth = 0;
+        assertTokenType(START_DOCUMENT, sr.getEventType());
+        while (true) {
+            int type = sr.next();
+            if (type == END_DOCUMENT) {
+                break;
+            }
+            assertTrue("Unexpected event "+tokenTypeDesc(type)+" outside of match",
+                    depth > 0 || type == START_ELEMENT);
+            switch (type) {
+            case START_ELEMENT:
+                ++depth;
+                sb.append('<').append(sr.getLocalName()).append('>');
+                break;
+            case END_ELEMENT:
+                sb.append("</").append(sr.getLocalName()).append('>');
+                if (--depth == 0) {
+                    result.add(sb.toString());
+                    sb.setLength(0);
+                }
+                break;
+            case CHARACTERS:
+            case CDATA:
+                sb.append(sr.getText());
+                break;
+            }
+        }
+        assertEquals(0, depth);
+        sr.close();
+        return result;
+    }
+
+    final static class SimpleNsContext
+        implements NamespaceContext
+    {
+        final String mPrefix, mURI;
+
+        SimpleNsContext(String prefix, String uri) {
+            mPrefix = prefix;
+            mURI = uri;
+        }
+
+        @Override
+        public String getNamespaceURI(String prefix) {
+            return mPrefix.equals(prefix) ? mURI : XMLConstants.NULL_NS_URI;
+        }
+
+        @Override
+        public String getPrefix(String uri) {
+            return mURI.equals(uri) ? mPrefix : null;
+        }
+
+        @Override
+        public Iterator<String> getPrefixes(String uri) {
+            return mURI.equals(uri) ? Collections.singletonList(mPrefix).iterator()
+                : Collections.<String>emptyList().iterator();
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package wstxtest.stream;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.stream.*;
+
+import org.junit.jupiter.api.Test;
+
+import org.codehaus.stax2.XMLInputFactory2;
+import org.codehaus.stax2.XMLStreamReader2;
+import org.codehaus.stax2.validation.ValidationProblemHandler;
+import org.codehaus.stax2.validation.XMLValidationException;
+import org.codehaus.stax2.validation.XMLValidationProblem;
+
+import com.ctc.wstx.api.WstxInputProperties;
+import com.ctc.wstx.api.WstxMetrics;
+
+/**
+ * Tests for verifying that stream readers report metrics to the
+ * configured {@link WstxMetrics} instance.
+ */
+public class TestReaderMetrics
+    extends BaseStreamTest
+{
+    @Test
+    public void testNoMetricsByDefault() throws XMLStreamException
+    {
+        XMLInputFactory f = getNewInputFactory();
+        assertNull(f.getProperty(WstxInputProperties.P_METRICS));
+        WstxMetrics metrics = new WstxMetrics();
+        f.setProperty(WstxInputProperties.P_METRICS, metrics);
+        assertSame(metrics, f.getProperty(WstxInputProperties.P_METRICS));
+        f.setProperty(WstxInputProperties.P_METRICS, null);
+        assertNull(f.getProperty(WstxInputProperties.P_METRICS));
+    }
+
+    @Test
+    public void testDocumentCounts() throws XMLStreamException
+    {
+        final String XML = "<!DOCTYPE root [\n"
+            +"<!ENTITY ent '<b x=\"1\">text</b>'>\n"
+            +"]><root a='1' b='2'><leaf c='3'/>&ent;&ent;</root>";
+        XMLInputFactory f = getNewInputFactory();
+        setCoalescing(f, true);
+        WstxMetrics metrics = new WstxMetrics();
+        f.setProperty(WstxInputProperties.P_METRICS, metrics);
+
+        for (int i = 0; i < 2; ++i) {
+            XMLStreamReader sr = constructStreamReader(f, XML);
+            streamThrough(sr);
+            // reported when end of input reached, not again when closed
+            assertEquals(i+1, metrics.getDocumentsRead());
+            sr.close();
+            sr.close();
+        }
+        assertEquals(2, metrics.getDocumentsRead());
+
+        // but if closed before the end, when closing
+        XMLStreamReader sr = constructStreamReader(f, XML);
+        assertTokenType(DTD, sr.next());
+        assertTokenType(START_ELEMENT, sr.next());
+        sr.close();
+        assertEquals(3, metrics.getDocumentsRead());
+        assertEquals(2 * 4 + 1, metrics.getElementsRead());
+        metrics.reset();
+        for (int i = 0; i < 2; ++i) {
+            sr = constructStreamReader(f, XML);
+            streamThrough(sr);
+            sr.close();
+        }
+        assertEquals(2, metrics.getDocumentsRead());
+        assertEquals(2 * XML.length(), metrics.getCharactersRead());
+        assertEquals(2 * 4, metrics.getElementsRead());
+        assertEquals(2 * 5, metrics.getAttributesRead());
+        assertEquals(2 * 2, metrics.getEntityExpansions());
+        assertTrue(metrics.getSymbolTableSize() > 0);
+        assertEquals(0, metrics.getValidationProblems());
+
+        metrics.reset();
+        assertEquals(0, metrics.getDocumentsRead());
+        assertEquals(0, metrics.getCharactersRead());
+    }
+
+    @Test
+    public void testBufferExpansions() throws XMLStreamException
+    {
+        StringBuilder sb = new StringBuilder("<root attr='");
+        for (int i = 0; i < 1000; ++i) {
+            sb.append("value ");
+        }
+        sb.append("'>");
+        for (int i = 0; i < 10000; ++i) {
+            sb.append("text ");
+        }
+        sb.append("</root>");
+        XMLInputFactory f = getNewInputFactory();
+        setCoalescing(f, true);
+        WstxMetrics metrics = new WstxMetrics();
+        f.setProperty(WstxInputProperties.P_METRICS, metrics);
+        XMLStreamReader sr = constructStreamReader(f, sb.toString());
+        streamThrough(sr);
+        sr.close();
+        assertTrue(metrics.getBufferExpansions() > 0);
+    }
+
+    @Test
+    public void testMultipleDocuments() throws XMLStreamException
+    {
+        XMLInputFactory f = getNewInputFactory();
+        f.setProperty(WstxInputProperties.P_INPUT_PARSING_MODE, WstxInputProperties.PARSING_MODE_DOCUMENTS);
+        WstxMetrics metrics = new WstxMetrics();
+        f.setProperty(WstxInputProperties.P_METRICS, metrics);
+        XMLStreamReader sr = constructStreamReader(f,
+                "<?xml version='1.0'?><a x='1'/><?xml version='1.0'?><b><c/></b>");
+        streamThrough(sr);
+        sr.close();
+        assertEquals(2, metrics.getDocumentsRead());
+        assertEquals(3, metrics.getElementsRead());
+        assertEquals(1, metrics.getAttributesRead());
+    }
+
+    @Test
+    public void testDtdAndValidation() throws XMLStreamException
+    {
+        final String DTD = "<!ELEMENT root (leaf)*>\n"
+            +"<!ELEMENT leaf EMPTY>\n";
+        final String XML = "<!DOCTYPE root SYSTEM 'metrics.dtd'><root><leaf/><bogus/></root>";
+        XMLInputFactory f = getNewInputFactory();
+        f.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.TRUE);
+        f.setProperty(XMLInputFactory.IS_VALIDATING, Boolean.TRUE);
+        f.setProperty(WstxInputProperties.P_CACHE_DTDS, Boolean.TRUE);
+        f.setProperty(WstxInputProperties.P_DTD_RESOLVER, new XMLResolver() {
+            @Override
+            public Object resolveEntity(String publicID, String systemID, String baseURI, String namespace) {
+                return DTD;
+            }
+        });
+        WstxMetrics metrics = new WstxMetrics();
+        f.setProperty(WstxInputProperties.P_METRICS, metrics);
+
+        for (int i = 0; i < 3; ++i) {
+            XMLStreamReader2 sr = (XMLStreamReader2) constructStreamReader(f, XML);
+            final List<XMLValidationProblem> problems = new ArrayList<XMLValidationProblem>();
+            sr.setValidationProblemHandler(new ValidationProblemHandler() {
+                @Override
+                public void reportProblem(XMLValidationProblem problem) throws XMLValidationException {
+                    problems.add(problem);
+                }
+            });
+            streamThrough(sr);
+            sr.close();
+            assertFalse(problems.isEmpty());
+        }
+        assertEquals(1, metrics.getDtdsLoaded());
+        assertEquals(1, metrics.getDtdCacheMisses());
+        assertEquals(2, metrics.getDtdCacheHits());
+        assertTrue(metrics.getDtdLoadNanos() > 0L);
+        assertTrue(metrics.getValidationProblems() >= 3);
+        assertEquals(3, metrics.getDocumentsRead());
+    }
+
+    @Test
+    public void testPerReaderMetrics() throws XMLStreamException
+    {
+        XMLInputFactory2 f = getInputFactory();
+        WstxMetrics shared = new WstxMetrics();
+        f.setProperty(WstxInputProperties.P_METRICS, shared);
+        XMLStreamReader2 sr = (XMLStreamReader2) constructStreamReader(f, "<root><a/></root>");
+        WstxMetrics own = new WstxMetrics();
+        sr.setProperty(WstxInputProperties.P_METRICS, own);
+        streamThrough(sr);
+        sr.close();
+        assertEquals(0, shared.getDocumentsRead());
+        assertEquals(1, own.getDocumentsRead());
+        assertEquals(2, own.getElementsRead());
+    }
+}
@@ -0,0 +1,122 @@
+package wstxtest.stream;
+
+import javax.xml.stream.*;
+
+import org.junit.jupiter.api.Test;
+
+import com.ctc.wstx.api.WstxInputProperties;
+
+/**
+ * Tests for verifying that internal entities with plain text as
+ * replacement text (which are copied as is, instead of being parsed
+ * via separate input source) are expanded correctly, and count against
+ * entity expansion limits same as other entities.
+ */
+public class TestSimpleEntityExpansion
+    extends BaseStreamTest
+{
+    final static String DTD_SUBSET = "<!DOCTYPE root [\n"
+            +" <!ENTITY name 'Jos&#233; &#x41;'>\n"
+            +" <!ENTITY ws 'a&#9;b&#10;c'>\n"
+            +" <!ENTITY markup '<b>bold</b>'>\n"
+            +" <!ENTITY nested '[&name;]'>\n"
+            +" <!ENTITY empty ''>\n"
+            +"]>";
+
+    @Test
+    public void testTextExpansion() throws XMLStreamException
+    {
+        String XML = DTD_SUBSET+"<root>x&name;&empty;y&nested;&ws;&name;</root>";
+        for (int i = 0; i < 2; ++i) {
+            XMLInputFactory f = getNewInputFactory();
+            setCoalescing(f, i == 1);
+            XMLStreamReader sr = constructStreamReader(f, XML);
+            assertTokenType(DTD, sr.next());
+            assertTokenType(START_ELEMENT, sr.next());
+            assertEquals("xJosé Ay[José A]a\tb\ncJosé A", sr.getElementText());
+            sr.close();
+        }
+        // and with markup in between
+        XMLStreamReader sr = constructStreamReader(getNewInputFactory(),
+                DTD_SUBSET+"<root>&name;&markup;&name;</root>");
+        assertTokenType(DTD, sr.next());
+        assertTokenType(START_ELEMENT, sr.next());
+        assertTokenType(CHARACTERS, sr.next());
+        assertEquals("José A", getAndVerifyText(sr));
+        assertTokenType(START_ELEMENT, sr.next());
+        assertEquals("b", sr.getLocalName());
+        assertEquals("bold", sr.getElementText());
+        assertTokenType(CHARACTERS, sr.next());
+        assertEquals("José A", getAndVerifyText(sr));
+        assertTokenType(END_ELEMENT, sr.next());
+        sr.close();
+    }
+
+    @Test
+    public void testAttributeExpansion() throws XMLStreamException
+    {
+        String XML = DTD_SUBSET+"<root a='&name;' b='x&nested;&empty;y' c='&ws;&name;'/>";
+        XMLStreamReader sr = constructStreamReader(getNewInputFactory(), XML);
+        assertTokenType(DTD, sr.next());
+        assertTokenType(START_ELEMENT, sr.next());
+        assertEquals("José A", sr.getAttributeValue(null, "a"));
+        assertEquals("x[José A]y", sr.getAttributeValue(null, "b"));
+        // white space still normalized, for non-simple entities
+        assertEquals("a b cJosé A", sr.getAttributeValue(null, "c"));
+        sr.close();
+    }
+
+    @Test
+    public void testExpansionCountLimit() throws XMLStreamException
+    {
+        StringBuilder sb = new StringBuilder(DTD_SUBSET);
+        sb.append("<root attr='");
+        for (int i = 0; i < 5; ++i) {
+            sb.append("&name;");
+        }
+        sb.append("'>");
+        for (int i = 0; i < 5; ++i) {
+            sb.append("text &name;");
+        }
+        sb.append("</root>");
+        final String XML = sb.toString();
+
+        // 5 expansions for attribute value, 5 for text; so 10 fine
+        XMLInputFactory f = getNewInputFactory();
+        setCoalescing(f, true);
+        f.setProperty(WstxInputProperties.P_MAX_ENTITY_COUNT, 10);
+        XMLStreamReader sr = constructStreamReader(f, XML);
+        assertTokenType(DTD, sr.next());
+        assertTokenType(START_ELEMENT, sr.next());
+        assertTokenType(CHARACTERS, sr.next());
+        assertTokenType(END_ELEMENT, sr.next());
+        sr.close();
+
+        // but 9 is not
+        f.setProperty(WstxInputProperties.P_MAX_ENTITY_COUNT, 9);
+        sr = constructStreamReader(f, XML);
+        assertTokenType(DTD, sr.next());
+        assertTokenType(START_ELEMENT, sr.next());
+        try {
+            assertTokenType(CHARACTERS, sr.next());
+            // advancing forces reading of the rest of the text
+            sr.next();
+            fail("Should have failed with entity expansion count limit");
+        } catch (XMLStreamException e) {
+            verifyException(e, "Maximum entity expansion count");
+        }
+        sr.close();
+
+        // nor is 4, for attribute value
+        f.setProperty(WstxInputProperties.P_MAX_ENTITY_COUNT, 4);
+        sr = constructStreamReader(f, XML);
+        assertTokenType(DTD, sr.next());
+        try {
+            sr.next();
+            fail("Should have failed with entity expansion count limit");
+        } catch (XMLStreamException e) {
+            verifyException(e, "Maximum entity expansion count");
+        }
+        sr.close();
+    }
+}
@@ -0,0 +1,182 @@
+package wstxtest.stream;
+
+import javax.xml.stream.*;
+
+import org.junit.jupiter.api.Test;
+
+import com.ctc.wstx.sr.StreamReaderImpl;
+import com.ctc.wstx.util.TextView;
+
+/**
+ * Tests for accessing textual content via
+ * {@link StreamReaderImpl#getTextAsCharSequence}.
+ */
+public class TestTextView
+    extends BaseStreamTest
+{
+    @Test
+    public void testSimpleText() throws XMLStreamException
+    {
+        XMLStreamReader sr = createReader("<root>abc<!--comment--><![CDATA[cdata]]>&amp;<?pi data?></root>", false);
+        StreamReaderImpl impl = (StreamReaderImpl) sr;
+        assertTokenType(START_ELEMENT, sr.next());
+        assertTokenType(CHARACTERS, sr.next());
+        TextView view = impl.getTextAsCharSequence();
+        assertEquals("abc", view.toString());
+        assertTrue(view.contentEquals("abc"));
+        assertEquals("abc".hashCode(), view.stringHashCode());
+
+        assertTokenType(COMMENT, sr.next());
+        TextView view2 = impl.getTextAsCharSequence();
+        assertEquals("comment", view2.toString());
+        // view is reused for subsequent events
+        assertSame(view, view2);
+
+        assertTokenType(CDATA, sr.next());
+        assertEquals("cdata", impl.getTextAsCharSequence().toString());
+        assertTokenType(CHARACTERS, sr.next());
+        assertEquals("&", impl.getTextAsCharSequence().toString());
+        assertTokenType(PROCESSING_INSTRUCTION, sr.next());
+        try {
+            impl.getTextAsCharSequence();
+            fail("Should not allow accessing text for PROCESSING_INSTRUCTION");
+        } catch (IllegalStateException e) {
+            verifyException(e, "PROCESSING_INSTRUCTION");
+        }
+        assertTokenType(END_ELEMENT, sr.next());
+        try {
+            impl.getTextAsCharSequence();
+            fail("Should not allow accessing text for END_ELEMENT");
+        } catch (IllegalStateException e) {
+            verifyException(e, "END_ELEMENT");
+        }
+        sr.close();
+    }
+
+    /**
+     * Test to verify handling of entity references when entities are
+     * not replaced: external entities have no replacement text, so
+     * null is returned, same as with {@link XMLStreamReader#getText}.
+     */
+    @Test
+    public void testEntityReferences() throws XMLStreamException
+    {
+        final String doc = "<!DOCTYPE root [\n"
+            +"<!ENTITY int 'internal'>\n"
+            +"<!ENTITY ext SYSTEM 'ext.xml'>\n"
+            +"]><root>abc&int;&ext;</root>";
+        XMLInputFactory f = getNewInputFactory();
+        setCoalescing(f, false);
+        setReplaceEntities(f, false);
+        setSupportDTD(f, true);
+        XMLStreamReader sr = constructStreamReader(f, doc);
+        StreamReaderImpl impl = (StreamReaderImpl) sr;
+
+        assertTokenType(DTD, sr.next());
+        TextView view = impl.getTextAsCharSequence();
+        assertEquals(sr.getText(), view.toString());
+        assertTokenType(START_ELEMENT, sr.next());
+        assertTokenType(CHARACTERS, sr.next());
+        assertSame(view, impl.getTextAsCharSequence());
+        assertEquals("abc", view.toString());
+
+        assertTokenType(ENTITY_REFERENCE, sr.next());
+        assertEquals("int", sr.getLocalName());
+        // view is reused for entity replacement text as well
+        assertSame(view, impl.getTextAsCharSequence());
+        assertEquals("internal", view.toString());
+
+        assertTokenType(ENTITY_REFERENCE, sr.next());
+        assertEquals("ext", sr.getLocalName());
+        assertNull(sr.getText());
+        assertNull(impl.getTextAsCharSequence());
+        assertTokenType(END_ELEMENT, sr.next());
+        sr.close();
+    }
+
+    @Test
+    public void testLongCoalescedText() throws XMLStreamException
+    {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; sb.length() < 40000; ++i) {
+            sb.append("text ").append(i).append(" &amp; <![CDATA[more]]>\n");
+        }
+        final String doc = "<root>"+sb+"</root>";
+        final String exp = sb.toString().replace("&amp;", "&")
+                .replace("<![CDATA[", "").replace("]]>", "");
+        XMLStreamReader sr = createReader(doc, true);
+        assertTokenType(START_ELEMENT, sr.next());
+        assertTokenType(CHARACTERS, sr.next());
+        TextView view = ((StreamReaderImpl) sr).getTextAsCharSequence();
+        assertEquals(exp.length(), view.length());
+        assertTrue(view.contentEquals(exp));
+        assertEquals(exp.hashCode(), view.stringHashCode());
+        assertEquals(exp, sr.getText());
+        assertTokenType(END_ELEMENT, sr.next());
+        sr.close();
+    }
+
+    @Test
+    public void testComparison()
+    {
+        TextView view = view("xxHello World");
+        TextView sub = (TextView) view.subSequence(2, view.length());
+        assertEquals("Hello World", sub.toString());
+        assertEquals('W', sub.charAt(6));
+        assertTrue(sub.startsWith("Hello"));
+        assertFalse(sub.startsWith("hello"));
+        assertTrue(sub.contentEqualsIgnoreCase("HELLO world"));
+        assertFalse(sub.contentEqualsIgnoreCase("HELLO worl"));
+        assertTrue(sub.regionMatches(false, 6, "World", 0, 5));
+        assertTrue(sub.regionMatches(true, 6, "xworld", 1, 5));
+        assertFalse(sub.regionMatches(false, 7, "World", 0, 5));
+        assertEquals("".hashCode(), view("").stringHashCode());
+        try {
+            sub.charAt(11);
+            fail("Should not allow access past the end");
+        } catch (IndexOutOfBoundsException e) {
+            verifyException(e, "out of bounds");
+        }
+    }
+
+    @Test
+    public void testParsing()
+    {
+        assertEquals(0, view("0").parseInt());
+        assertEquals(-12, view(" \n-12\t").parseInt());
+        assertEquals(12, view("+12").parseInt());
+        assertEquals(Integer.MAX_VALUE, view(String.valueOf(Integer.MAX_VALUE)).parseInt());
+        assertEquals(Integer.MIN_VALUE, view(String.valueOf(Integer.MIN_VALUE)).parseInt());
+        assertEquals(Long.MAX_VALUE, view(String.valueOf(Long.MAX_VALUE)).parseLong());
+        assertEquals(Long.MIN_VALUE, view(String.valueOf(Long.MIN_VALUE)).parseLong());
+
+        for (String str : new String[] { "", "  ", "-", "1 2", "12a", "0x10",
+                "2147483648", "9223372036854775808", "-9223372036854775809" }) {
+            try {
+                long l = (str.length() > 11) ? view(str).parseLong() : view(str).parseInt();
+                fail("Should not parse '"+str+"', got "+l);
+            } catch (NumberFormatException e) { }
+        }
+    }
+
+    /*
+    ///////////////////////////////////////////////////////////
+    // Helper methods
+    ///////////////////////////////////////////////////////////
+     */
+
+    private static TextView view(String str)
+    {
+        // surround with other content to verify offsets are honored
+        char[] buf = ("[["+str+"]]").toCharArray();
+        return new TextView(buf, 2, str.length());
+    }
+
+    private XMLStreamReader createReader(String content, boolean coalescing)
+        throws XMLStreamException
+    {
+        XMLInputFactory f = getNewInputFactory();
+        setCoalescing(f, coalescing);
+        return constructStreamReader(f, content);
+    }
+}
@@ -0,0 +1,126 @@
+package wstxtest.stream;
+
+import java.util.Arrays;
+
+import javax.xml.stream.*;
+
+import org.junit.jupiter.api.Test;
+
+import com.ctc.wstx.api.WstxInputProperties;
+import com.ctc.wstx.util.ValueCache;
+
+/**
+ * Tests for verifying that short attribute values and text are
+ * canonicalized when value cache is enabled.
+ */
+public class TestValueCache
+    extends BaseStreamTest
+{
+    final static String XML =
+        "<root><item status='active' currency='EUR' id='12345678901234567890'>true</item>"
+        +"<item status='active' currency='EUR' id='12345678901234567891'>true</item></root>";
+
+    @Test
+    public void testDisabledByDefault() throws XMLStreamException
+    {
+        XMLInputFactory f = getNewInputFactory();
+        assertEquals(Integer.valueOf(0), f.getProperty(WstxInputProperties.P_VALUE_CACHE_MAX_LENGTH));
+        XMLStreamReader sr = constructStreamReader(f, XML);
+        String[] first = readItem(sr);
+        String[] second = readItem(sr);
+        assertEquals(first[0], second[0]);
+        assertNotSame(first[0], second[0]);
+        sr.close();
+    }
+
+    @Test
+    public void testSharedValues() throws XMLStreamException
+    {
+        XMLInputFactory f = getNewInputFactory();
+        f.setProperty(WstxInputProperties.P_VALUE_CACHE_MAX_LENGTH, 16);
+        f.setProperty(WstxInputProperties.P_VALUE_CACHE_SIZE, 100);
+        assertEquals(Integer.valueOf(16), f.getProperty(WstxInputProperties.P_VALUE_CACHE_MAX_LENGTH));
+        assertEquals(Integer.valueOf(100), f.getProperty(WstxInputProperties.P_VALUE_CACHE_SIZE));
+
+        XMLStreamReader sr = constructStreamReader(f, XML);
+        String[] first = readItem(sr);
+        String[] second = readItem(sr);
+        assertEquals("[active, EUR, 12345678901234567890, true]", Arrays.asList(first).toString());
+        assertEquals("[active, EUR, 12345678901234567891, true]", Arrays.asList(second).toString());
+        // short values shared
+        assertSame(first[0], second[0]);
+        assertSame(first[1], second[1]);
+        assertSame(first[3], second[3]);
+        sr.close();
+
+        // as well as across readers created by the same factory
+        sr = constructStreamReader(f, XML);
+        String[] third = readItem(sr);
+        assertSame(first[0], third[0]);
+        assertSame(first[3], third[3]);
+        sr.close();
+
+        // and attributes accessed by name, as well as getElementText()
+        sr = constructStreamReader(f, "<root a='active'><b>EUR</b></root>");
+        assertTokenType(START_ELEMENT, sr.next());
+        assertSame(first[0], sr.getAttributeValue(null, "a"));
+        assertTokenType(START_ELEMENT, sr.next());
+        assertSame(first[1], sr.getElementText());
+        sr.close();
+    }
+
+    @Test
+    public void testCacheDirectly()
+    {
+        ValueCache cache = new ValueCache(10, 4);
+        assertEquals(16, cache.getSize());
+        assertTrue(cache.canCache(4));
+        assertFalse(cache.canCache(5));
+
+        char[] buf = "xtruex".toCharArray();
+        String str = cache.find(buf, 1, 4);
+        assertEquals("true", str);
+        assertSame(str, cache.find("true".toCharArray(), 0, 4));
+        assertEquals("", cache.find(buf, 0, 0));
+        cache.clear();
+        assertNotSame(str, cache.find(buf, 1, 4));
+
+        try {
+            new ValueCache(0, 4);
+            fail("Should not accept cache size 0");
+        } catch (IllegalArgumentException e) {
+            verifyException(e, "Invalid cache size");
+        }
+        // big sizes are capped (and must not overflow)
+        assertEquals(ValueCache.MAX_SIZE, new ValueCache(Integer.MAX_VALUE, 4).getSize());
+    }
+
+    @Test
+    public void testInvalidSize()
+    {
+        XMLInputFactory f = getNewInputFactory();
+        f.setProperty(WstxInputProperties.P_VALUE_CACHE_MAX_LENGTH, 16);
+        for (int size : new int[] { ValueCache.MAX_SIZE + 1, (1 << 30) + 1, Integer.MAX_VALUE }) {
+            try {
+                f.setProperty(WstxInputProperties.P_VALUE_CACHE_SIZE, size);
+                fail("Should not accept cache size "+size);
+            } catch (IllegalArgumentException e) {
+                verifyException(e, "cache size");
+            }
+        }
+        f.setProperty(WstxInputProperties.P_VALUE_CACHE_SIZE, ValueCache.MAX_SIZE);
+        assertEquals(Integer.valueOf(ValueCache.MAX_SIZE), f.getProperty(WstxInputProperties.P_VALUE_CACHE_SIZE));
+    }
+
+    private String[] readItem(XMLStreamReader sr) throws XMLStreamException
+    {
+        while (sr.next() != START_ELEMENT || !"item".equals(sr.getLocalName())) { }
+        String[] result = new String[4];
+        result[0] = sr.getAttributeValue(0);
+        result[1] = sr.getAttributeValue(1);
+        result[2] = sr.getAttributeValue(2);
+        assertTokenType(CHARACTERS, sr.next());
+        result[3] = sr.getText();
+        return result;
+    }
+}
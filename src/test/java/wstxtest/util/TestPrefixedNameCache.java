@@ -0,0 +1,47 @@
+package wstxtest.util;
+
+import com.ctc.wstx.util.PrefixedNameCache;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for {@link PrefixedNameCache}.
+ */
+public class TestPrefixedNameCache
+    extends wstxtest.BaseJUnit4Test
+{
+    @Test
+    public void testNoPrefix()
+    {
+        PrefixedNameCache cache = new PrefixedNameCache();
+        String ln = "root";
+        assertSame(ln, cache.findQName(null, ln));
+        assertSame(ln, cache.findQName("", ln));
+    }
+
+    @Test
+    public void testReuse()
+    {
+        PrefixedNameCache cache = new PrefixedNameCache();
+        String qn = cache.findQName("ns", "elem");
+        assertEquals("ns:elem", qn);
+        assertSame(qn, cache.findQName("ns", "elem"));
+        // and should also match non-identical (but equal) components
+        assertSame(qn, cache.findQName(new String("ns"), new String("elem")));
+
+        assertEquals("ns2:elem", cache.findQName("ns2", "elem"));
+        assertEquals("ns:elem2", cache.findQName("ns", "elem2"));
+    }
+
+    @Test
+    public void testCollisions()
+    {
+        PrefixedNameCache cache = new PrefixedNameCache();
+        // Enough distinct names to force slot replacement
+        for (int round = 0; round < 2; ++round) {
+            for (int i = 0; i < 1000; ++i) {
+                String ln = "name"+i;
+                assertEquals("p:"+ln, cache.findQName("p", ln));
+            }
+        }
+    }
+}
@@ -72,8 +72,13 @@ public class TestWordResolver
         assertEquals(wr.size(), set.size());
 
         // Let's first check if words that should be there, are:
+        int index = 0;
         for (String str : set) {
             assertEquals(str, wr.find(str));
+            // indexes are based on alphabetic ordering
+            assertEquals(index, wr.findIndex(str));
+            assertEquals(index, wr.findIndex(str.toCharArray(), 0, str.length()));
+            ++index;
             // And then, let's make sure intern()ing isn't needed:
             assertEquals(str, wr.find(""+str));
 
@@ -99,6 +104,8 @@ public class TestWordResolver
         assertNull(wr.find(str));
         assertNull(wr.find(strArr, 0, strArr.length));
         assertNull(wr.find(strArr2, 1, strArr.length + 1));
+        assertEquals(-1, wr.findIndex(str));
+        assertEquals(-1, wr.findIndex(strArr2, 1, strArr.length + 1));
     }
 
 }
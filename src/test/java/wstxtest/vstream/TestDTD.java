@@ -292,6 +292,69 @@ public class TestDTD
                 "undefined");
     }
 
+    /**
+     * Test to verify that a single compiled DTD schema can be used
+     * concurrently for validating documents from multiple threads.
+     */
+    @Test
+    public void testSharedSchemaConcurrently() throws Exception
+    {
+        final String DTD_STR = "<!ELEMENT root (leaf+, end?)>\n"
+            +"<!ATTLIST root attr CDATA #REQUIRED>\n"
+            +"<!ELEMENT leaf (#PCDATA)>\n"
+            +"<!ATTLIST leaf id ID #IMPLIED kind (a|b) 'a'>\n"
+            +"<!ELEMENT end EMPTY>\n";
+        final XMLValidationSchema schema = parseDTDSchema(DTD_STR);
+        final int THREADS = 4;
+        final int ROUNDS = 200;
+        final Throwable[] fails = new Throwable[THREADS];
+        Thread[] threads = new Thread[THREADS];
+        for (int t = 0; t < THREADS; ++t) {
+            final int index = t;
+            threads[t] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        XMLInputFactory f = getInputFactory();
+                        for (int i = 0; i < ROUNDS; ++i) {
+                            String xml = "<root attr='"+i+"'><leaf id='x"+index+"'>"+i
+                                    +"</leaf><leaf id='y"+i+"'/><end/></root>";
+                            XMLStreamReader2 sr = constructStreamReader(f, xml);
+                            sr.validateAgainst(schema);
+                            assertTokenType(START_ELEMENT, sr.next());
+                            assertTokenType(START_ELEMENT, sr.next());
+                            assertEquals("a", sr.getAttributeValue(null, "kind"));
+                            while (sr.next() != END_DOCUMENT) { }
+                            sr.close();
+                        }
+                        // and also ensure failures are still reported as expected
+                        XMLStreamReader2 sr = constructStreamReader(f, "<root attr='x'><end/></root>");
+                        sr.validateAgainst(schema);
+                        try {
+                            while (sr.next() != END_DOCUMENT) { }
+                            fail("Expected validation exception for missing <leaf>");
+                        } catch (XMLValidationException vex) {
+                            ; // good
+                        }
+                    } catch (Throwable e) {
+                        fails[index] = e;
+                    }
+                }
+            });
+        }
+        for (Thread t : threads) {
+            t.start();
+        }
+        for (Thread t : threads) {
+            t.join();
+        }
+        for (Throwable e : fails) {
+            if (e != null) {
+                fail("Failure in validation thread: "+e);
+            }
+        }
+    }
+
     /*
     //////////////////////////////////////////////////////
     // Helper methods
@@ -0,0 +1,141 @@
+package wstxtest.wstream;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+import javax.xml.stream.*;
+
+import org.codehaus.stax2.XMLStreamWriter2;
+import org.junit.jupiter.api.Test;
+
+import com.ctc.wstx.io.ByteBufferQueue;
+
+import wstxtest.BaseWstxTest;
+
+/**
+ * Tests for verifying that output into {@link ByteBufferQueue}s works
+ * with all kinds of output encodings, and that back-pressure is
+ * reported as expected.
+ */
+public class TestByteBufferOutput
+    extends BaseWstxTest
+{
+    @Test
+    public void testEncodings() throws Exception
+    {
+        for (String enc : new String[] { "UTF-8", "ISO-8859-1", "US-ASCII", "windows-1252", "UTF-16" }) {
+            // tiny buffers, to ensure content spans multiple ones
+            ByteBufferQueue q = new ByteBufferQueue(7, 1000, (enc.length() & 1) == 0);
+            XMLStreamWriter2 sw = getWstxOutputFactory().createXMLStreamWriter(q, enc);
+            sw.writeStartDocument(enc, "1.0");
+            sw.writeStartElement("root");
+            sw.writeAttribute("attr", "a<b & \"c\"");
+            sw.writeCharacters("Café € <ok>");
+            sw.writeEndElement();
+            sw.writeEndDocument();
+            sw.close();
+
+            assertFalse(q.isFinished());
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            ByteBuffer buf;
+            while ((buf = q.poll()) != null) {
+                assertTrue(buf.remaining() <= 7);
+                while (buf.hasRemaining()) {
+                    bytes.write(buf.get());
+                }
+                q.release(buf);
+            }
+            assertEquals(0L, q.getQueuedBytes());
+
+            XMLStreamReader sr = getInputFactory().createXMLStreamReader(new ByteArrayInputStream(bytes.toByteArray()));
+            assertEquals(XMLStreamConstants.START_ELEMENT, sr.nextTag());
+            assertEquals("a<b & \"c\"", sr.getAttributeValue(0));
+            assertEquals("Café € <ok>", sr.getElementText());
+            sr.close();
+        }
+    }
+
+    @Test
+    public void testBackPressure() throws Exception
+    {
+        ByteBufferQueue q = new ByteBufferQueue(100, 500, false);
+        XMLStreamWriter2 sw = getWstxOutputFactory().createXMLStreamWriter(q, "UTF-8");
+        sw.writeStartElement("root");
+        int count = 0;
+        while (!q.isSaturated()) {
+            sw.writeStartElement("item");
+            sw.writeCharacters("value "+count);
+            sw.writeEndElement();
+            sw.flush();
+            ++count;
+        }
+        assertTrue(q.hasReady());
+        assertTrue(q.getQueuedBytes() >= 500);
+
+        // Channel that only accepts a few bytes at a time, like a
+        // non-blocking socket channel might
+        ThrottledChannel ch = new ThrottledChannel();
+        ch.allowance = 64;
+        assertFalse(q.drainTo(ch));
+        assertTrue(q.getQueuedBytes() > 0);
+        ch.allowance = Integer.MAX_VALUE;
+        assertTrue(q.drainTo(ch));
+        assertFalse(q.isSaturated());
+        assertEquals(0L, q.getQueuedBytes());
+
+        sw.writeEndElement();
+        sw.writeEndDocument();
+        sw.close();
+        // auto-close not enabled: queue itself not closed
+        assertFalse(q.isFinished());
+        assertTrue(q.drainTo(ch));
+        q.close();
+        assertTrue(q.isFinished());
+        try {
+            q.write(1);
+            fail("Expected an exception for writing to closed queue");
+        } catch (IOException e) {
+            verifyException(e, "closed");
+        }
+
+        XMLStreamReader sr = getInputFactory().createXMLStreamReader(new ByteArrayInputStream(ch.bytes.toByteArray()));
+        assertEquals(XMLStreamConstants.START_ELEMENT, sr.nextTag());
+        for (int i = 0; i < count; ++i) {
+            assertEquals(XMLStreamConstants.START_ELEMENT, sr.nextTag());
+            assertEquals("value "+i, sr.getElementText());
+        }
+        assertEquals(XMLStreamConstants.END_ELEMENT, sr.nextTag());
+        sr.close();
+    }
+
+    /*
+    ///////////////////////////////////////////////////////////
+    // Helper classes
+    ///////////////////////////////////////////////////////////
+     */
+
+    final static class ThrottledChannel implements WritableByteChannel
+    {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        int allowance;
+
+        @Override
+        public int write(ByteBuffer src)
+        {
+            int count = Math.min(allowance, src.remaining());
+            allowance -= count;
+            for (int i = 0; i < count; ++i) {
+                bytes.write(src.get());
+            }
+            return count;
+        }
+
+        @Override
+        public boolean isOpen() { return true; }
+
+        @Override
+        public void close() { }
+    }
+}
@@ -0,0 +1,163 @@
+package wstxtest.wstream;
+
+import java.io.*;
+
+import javax.xml.stream.*;
+
+import org.codehaus.stax2.XMLOutputFactory2;
+import org.codehaus.stax2.XMLStreamReader2;
+import org.junit.jupiter.api.Test;
+
+import com.ctc.wstx.sw.BaseStreamWriter;
+
+/**
+ * Tests for verifying functioning of
+ * {@link BaseStreamWriter#copyElementFromReader}, which copies whole
+ * elements as raw content when possible.
+ */
+public class TestCopyElementRaw
+    extends BaseWriterTest
+{
+    final static String BODY = "<body a='1'  b=\"&lt;\">text &amp; <b>bold</b>\r\n"
+            +"<!-- comment --><?pi data?><![CDATA[cdata]]><empty/></body>";
+
+    @Test
+    public void testSimpleRawCopy() throws Exception
+    {
+        String doc = "<env><hdr>old</hdr>"+BODY+"<trailer/></env>";
+        assertEquals("<env><hdr>new</hdr>"+BODY+"</env>", _copy(doc, false));
+        assertEquals("<env><hdr>new</hdr>"+BODY+"</env>", _copy(doc, true));
+    }
+
+    @Test
+    public void testEmptyElement() throws Exception
+    {
+        String doc = "<env><hdr/><body  x='y' /></env>";
+        assertEquals("<env><hdr>new</hdr><body  x='y' /></env>", _copy(doc, false));
+    }
+
+    @Test
+    public void testLongContent() throws Exception
+    {
+        StringBuilder sb = new StringBuilder("<body>");
+        for (int i = 0; i < 20000; ++i) {
+            sb.append("<item id='").append(i).append("'>value &#").append(65 + (i % 26)).append(";</item>\r\n");
+        }
+        sb.append("</body>");
+        final String body = sb.toString();
+        String doc = "<env><hdr>old</hdr>"+body+"</env>";
+        assertEquals("<env><hdr>new</hdr>"+body+"</env>", _copy(doc, false));
+        assertEquals("<env><hdr>new</hdr>"+body+"</env>", _copy(doc, true));
+    }
+
+    /**
+     * Test to verify that copying the root element updates writer state,
+     * so that document can be closed (and second root is caught).
+     */
+    @Test
+    public void testCopyRoot() throws Exception
+    {
+        final String doc = "<root a='1'><x>text</x></root>";
+        XMLStreamReader2 sr = (XMLStreamReader2) getInputFactory().createXMLStreamReader(new StringReader(doc));
+        StringWriter w = new StringWriter();
+        BaseStreamWriter sw = (BaseStreamWriter) getOutputFactory().createXMLStreamWriter(w);
+        sw.writeStartDocument();
+        assertTokenType(START_ELEMENT, sr.next());
+        sw.copyElementFromReader(sr);
+        assertTokenType(END_ELEMENT, sr.getEventType());
+        sw.writeComment("end");
+        sw.writeEndDocument();
+        sw.close();
+        assertEquals("<?xml version='1.0' encoding='UTF-8'?>"+doc+"<!--end-->", w.toString());
+
+        // And then a second root should not be allowed
+        sr = (XMLStreamReader2) getInputFactory().createXMLStreamReader(new StringReader(doc));
+        sw = (BaseStreamWriter) getOutputFactory().createXMLStreamWriter(new StringWriter());
+        sw.writeStartDocument();
+        sw.writeEmptyElement("first");
+        sw.writeEndDocument();
+        assertTokenType(START_ELEMENT, sr.next());
+        try {
+            sw.copyElementFromReader(sr);
+            fail("Should not allow copying a second root element");
+        } catch (XMLStreamException e) {
+            verifyException(e, "second root");
+        }
+    }
+
+    /**
+     * Test to verify that copying falls back to event-by-event copying
+     * if output encoding can not represent all characters.
+     */
+    @Test
+    public void testFallbackForLatin1() throws Exception
+    {
+        String doc = "<env><hdr/><body a='1'>€</body></env>";
+        XMLStreamReader2 sr = (XMLStreamReader2) getInputFactory().createXMLStreamReader(new StringReader(doc));
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        BaseStreamWriter sw = (BaseStreamWriter) getOutputFactory().createXMLStreamWriter(bytes, "ISO-8859-1");
+        assertTokenType(START_ELEMENT, sr.next());
+        assertTokenType(START_ELEMENT, sr.next());
+        sr.skipElement();
+        assertTokenType(START_ELEMENT, sr.next());
+        sw.copyElementFromReader(sr);
+        assertTokenType(END_ELEMENT, sr.getEventType());
+        assertEquals("body", sr.getLocalName());
+        sw.close();
+        assertEquals("<body a=\"1\">&#x20ac;</body>", new String(bytes.toByteArray(), "ISO-8859-1"));
+    }
+
+    @Test
+    public void testFallbackForRepairing() throws Exception
+    {
+        String doc = "<body a='1'><x:b xmlns:x='urn:x'/></body>";
+        XMLStreamReader2 sr = (XMLStreamReader2) getInputFactory().createXMLStreamReader(new StringReader(doc));
+        XMLOutputFactory f = getOutputFactory();
+        f.setProperty(XMLOutputFactory.IS_REPAIRING_NAMESPACES, Boolean.TRUE);
+        StringWriter w = new StringWriter();
+        BaseStreamWriter sw = (BaseStreamWriter) f.createXMLStreamWriter(w);
+        assertTokenType(START_ELEMENT, sr.next());
+        sw.copyElementFromReader(sr);
+        assertTokenType(END_DOCUMENT, sr.next());
+        sw.close();
+        assertEquals("<body a=\"1\"><x:b xmlns:x=\"urn:x\"/></body>", w.toString());
+    }
+
+    /*
+    ///////////////////////////////////////////////////////////////////////
+    // Helper methods
+    ///////////////////////////////////////////////////////////////////////
+     */
+
+    private String _copy(String doc, boolean bytes) throws Exception
+    {
+        XMLInputFactory inf = getInputFactory();
+        XMLStreamReader2 sr;
+        if (bytes) {
+            sr = (XMLStreamReader2) inf.createXMLStreamReader(new ByteArrayInputStream(doc.getBytes("UTF-8")));
+        } else {
+            sr = (XMLStreamReader2) inf.createXMLStreamReader(new StringReader(doc));
+        }
+        XMLOutputFactory2 outf = getOutputFactory();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        BaseStreamWriter sw = (BaseStreamWriter) outf.createXMLStreamWriter(out, "UTF-8");
+
+        assertTokenType(START_ELEMENT, sr.next());
+        sw.writeStartElement("env");
+        assertTokenType(START_ELEMENT, sr.next());
+        assertEquals("hdr", sr.getLocalName());
+        sr.skipElement();
+        sw.writeStartElement("hdr");
+        sw.writeCharacters("new");
+        sw.writeEndElement();
+        assertTokenType(START_ELEMENT, sr.next());
+        assertEquals("body", sr.getLocalName());
+        sw.copyElementFromReader(sr);
+        assertTokenType(END_ELEMENT, sr.getEventType());
+        assertEquals("body", sr.getLocalName());
+        sw.writeEndElement();
+        sw.close();
+        sr.close();
+        return new String(out.toByteArray(), "UTF-8");
+    }
+}
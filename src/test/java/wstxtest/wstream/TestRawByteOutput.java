@@ -0,0 +1,84 @@
+package wstxtest.wstream;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.junit.jupiter.api.Test;
+
+import com.ctc.wstx.sw.BaseStreamWriter;
+
+import wstxtest.BaseWstxTest;
+
+/**
+ * Tests for verifying that pre-encoded content written using
+ * {@link BaseStreamWriter#writeRawBytes} ends up in the right place,
+ * whether it is short enough to be buffered or long enough to be
+ * written directly.
+ */
+public class TestRawByteOutput
+    extends BaseWstxTest
+{
+    @Test
+    public void testStreams() throws Exception
+    {
+        for (String enc : new String[] { "UTF-8", "ISO-8859-1", "UTF-16BE" }) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            BaseStreamWriter sw = (BaseStreamWriter) getOutputFactory().createXMLStreamWriter(bytes, enc);
+            String exp = _write(sw, enc);
+            assertEquals(exp, new String(bytes.toByteArray(), enc));
+        }
+    }
+
+    @Test
+    public void testFile() throws Exception
+    {
+        File f = File.createTempFile("wstxtest", ".xml");
+        f.deleteOnExit();
+        for (String enc : new String[] { "UTF-8", "ISO-8859-1" }) {
+            FileOutputStream out = new FileOutputStream(f);
+            BaseStreamWriter sw = (BaseStreamWriter) getOutputFactory().createXMLStreamWriter(out, enc);
+            String exp = _write(sw, enc);
+            out.close();
+            assertEquals(exp, new String(Files.readAllBytes(f.toPath()), enc));
+        }
+    }
+
+    @Test
+    public void testWriter() throws Exception
+    {
+        StringWriter w = new StringWriter();
+        BaseStreamWriter sw = (BaseStreamWriter) getOutputFactory().createXMLStreamWriter(w, "UTF-8");
+        String exp = _write(sw, "UTF-8");
+        assertEquals(exp, w.toString());
+    }
+
+    /*
+    ///////////////////////////////////////////////////////////
+    // Helper methods
+    ///////////////////////////////////////////////////////////
+     */
+
+    private String _write(BaseStreamWriter sw, String enc) throws Exception
+    {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 2000; ++i) {
+            sb.append("<x>").append(i).append(" é</x>");
+        }
+        final String LONG = sb.toString();
+        final String SHORT = "<y>&amp;</y>";
+
+        sw.writeStartElement("root");
+        sw.writeAttribute("a", "1");
+        byte[] data = SHORT.getBytes(enc);
+        sw.writeRawBytes(data, 0, data.length);
+        sw.writeCharacters("text");
+        // Offset and length need to be honored too
+        data = ("--"+LONG+"--").getBytes(enc);
+        int prefix = "--".getBytes(enc).length;
+        sw.writeRawBytes(data, prefix, data.length - prefix - prefix);
+        sw.writeEndElement();
+        sw.close();
+        return "<root a=\"1\">"+SHORT+"text"+LONG+"</root>";
+    }
+}
@@ -0,0 +1,161 @@
+package wstxtest.wstream;
+
+import java.io.*;
+
+import javax.xml.stream.*;
+
+import org.codehaus.stax2.XMLStreamWriter2;
+import org.junit.jupiter.api.Test;
+
+import com.ctc.wstx.api.WstxOutputProperties;
+import com.ctc.wstx.io.SingleByteCodec;
+
+import wstxtest.BaseWstxTest;
+
+/**
+ * Tests for verifying handling of single-byte encodings other than
+ * ISO-8859-1 and US-ASCII, which are read and written using lookup
+ * tables, both for reading and writing.
+ */
+public class TestSingleByteEncodings
+    extends BaseWstxTest
+{
+    final static String[][] ENCODINGS_AND_TEXT = {
+        { "windows-1252", "Café € ™ “quoted”" },
+        { "KOI8-R", "Привет мир" },
+        { "ISO-8859-2", "Żluťoučký kůň" },
+        { "windows-1251", "Здравей" },
+    };
+
+    @Test
+    public void testCodecTables()
+    {
+        SingleByteCodec codec = SingleByteCodec.forEncoding("windows-1252");
+        assertNotNull(codec);
+        assertTrue(codec.isAsciiCompatible());
+        assertEquals('€', codec.getDecodeTable()[0x80]);
+        assertEquals(0x80, codec.encode(0x20ac));
+        assertEquals(-1, codec.encode(0x4e2d));
+
+        codec = SingleByteCodec.forEncoding("IBM037");
+        assertNotNull(codec);
+        assertFalse(codec.isAsciiCompatible());
+        assertEquals('<', codec.getDecodeTable()[0x4C]);
+
+        assertNull(SingleByteCodec.forEncoding("UTF-8"));
+        assertNull(SingleByteCodec.forEncoding("Shift_JIS"));
+        assertNull(SingleByteCodec.forEncoding("no-such-encoding"));
+    }
+
+    @Test
+    public void testRoundTrip() throws Exception
+    {
+        for (String[] pair : ENCODINGS_AND_TEXT) {
+            final String enc = pair[0];
+            final String text = pair[1];
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            XMLStreamWriter sw = getOutputFactory().createXMLStreamWriter(bytes, enc);
+            sw.writeStartDocument(enc, "1.0");
+            sw.writeStartElement("root");
+            sw.writeAttribute("attr", text);
+            // Chinese is not mappable in any of these, needs to be escaped
+            sw.writeCharacters(text+" 中");
+            sw.writeComment(text);
+            sw.writeEndElement();
+            sw.writeEndDocument();
+            sw.close();
+
+            byte[] data = bytes.toByteArray();
+            // content should be decodable by JDK
+            String doc = new String(data, enc);
+            assertTrue(doc.contains(text+" &#x4e2d;"));
+
+            // and parseable by us
+            XMLStreamReader sr = getInputFactory().createXMLStreamReader(new ByteArrayInputStream(data));
+            assertEquals(XMLStreamConstants.START_ELEMENT, sr.nextTag());
+            assertEquals(text, sr.getAttributeValue(0));
+            assertTokenType(CHARACTERS, sr.next());
+            assertEquals(text+" 中", getAndVerifyText(sr));
+            assertTokenType(COMMENT, sr.next());
+            assertEquals(text, sr.getText());
+            sr.close();
+        }
+    }
+
+    @Test
+    public void testUnmappableInComment() throws Exception
+    {
+        XMLStreamWriter sw = getOutputFactory().createXMLStreamWriter(new ByteArrayOutputStream(), "KOI8-R");
+        sw.writeStartDocument("KOI8-R", "1.0");
+        sw.writeStartElement("root");
+        try {
+            sw.writeComment("é");
+            sw.flush();
+            fail("Expected an exception for unmappable character in comment");
+        } catch (XMLStreamException e) {
+            assertTrue(e.getMessage().contains("can only be output using character entity"));
+        }
+    }
+
+    /**
+     * Test to verify that content is encoded properly also when content
+     * validation is disabled (and raw output methods are used).
+     */
+    @Test
+    public void testWithoutContentValidation() throws Exception
+    {
+        final String enc = "windows-1251";
+        final String text = "Привет";
+        XMLOutputFactory f = getOutputFactory();
+        f.setProperty(WstxOutputProperties.P_OUTPUT_VALIDATE_CONTENT, Boolean.FALSE);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        XMLStreamWriter2 sw = (XMLStreamWriter2) f.createXMLStreamWriter(bytes, enc);
+        sw.writeStartDocument(enc, "1.0");
+        sw.writeStartElement("root");
+        sw.writeRaw(text);
+        sw.writeRaw(text.toCharArray(), 0, text.length());
+        sw.writeComment(text);
+        sw.writeCData(text);
+        sw.writeProcessingInstruction("pi", text);
+        sw.writeEndElement();
+        sw.writeEndDocument();
+        sw.close();
+        assertEquals("<?xml version='1.0' encoding='windows-1251'?><root>"+text+text
+                +"<!--"+text+"--><![CDATA["+text+"]]><?pi "+text+"?></root>",
+                new String(bytes.toByteArray(), enc));
+
+        // but unmappable characters still need to be reported
+        sw = (XMLStreamWriter2) f.createXMLStreamWriter(new ByteArrayOutputStream(), enc);
+        sw.writeStartDocument(enc, "1.0");
+        sw.writeStartElement("root");
+        try {
+            sw.writeRaw("中");
+            sw.flush();
+            fail("Expected an exception for unmappable character in raw content");
+        } catch (XMLStreamException e) {
+            assertTrue(e.getMessage().contains("can only be output using character entity"));
+        }
+    }
+
+    @Test
+    public void testEbcdic() throws Exception
+    {
+        final String text = "Hello é world";
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        XMLStreamWriter sw = getOutputFactory().createXMLStreamWriter(bytes, "IBM037");
+        sw.writeStartDocument("IBM037", "1.0");
+        sw.writeStartElement("root");
+        sw.writeCharacters(text);
+        sw.writeEndElement();
+        sw.writeEndDocument();
+        sw.close();
+        byte[] data = bytes.toByteArray();
+        assertEquals("<?xml version='1.0' encoding='IBM037'?><root>"+text+"</root>",
+                new String(data, "IBM037"));
+
+        XMLStreamReader sr = getInputFactory().createXMLStreamReader(new ByteArrayInputStream(data));
+        assertEquals(XMLStreamConstants.START_ELEMENT, sr.nextTag());
+        assertEquals(text, sr.getElementText());
+        sr.close();
+    }
+}
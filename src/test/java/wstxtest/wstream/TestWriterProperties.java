@@ -4,6 +4,7 @@ import java.io.*;
 
 import javax.xml.stream.*;
 
+import com.ctc.wstx.api.WstxMetrics;
 import com.ctc.wstx.api.WstxOutputProperties;
 import org.junit.jupiter.api.Test;
 
@@ -49,4 +50,27 @@ public class TestWriterProperties
         assertTrue("P_OUTPUT_UNDERLYING_WRITER should be supported",
                 f.isPropertySupported(WstxOutputProperties.P_OUTPUT_UNDERLYING_WRITER));
     }
+
+    @Test
+    public void testMetrics()
+        throws XMLStreamException
+    {
+        XMLOutputFactory f = getNewOutputFactory();
+        assertNull(f.getProperty(WstxOutputProperties.P_METRICS));
+        WstxMetrics metrics = new WstxMetrics();
+        f.setProperty(WstxOutputProperties.P_METRICS, metrics);
+        assertSame(metrics, f.getProperty(WstxOutputProperties.P_METRICS));
+
+        StringWriter strw = new StringWriter();
+        XMLStreamWriter sw = f.createXMLStreamWriter(strw);
+        sw.writeStartDocument();
+        sw.writeStartElement("root");
+        sw.writeCharacters("text");
+        sw.writeEndDocument();
+        // reported once, even though both end document and close finish it
+        sw.close();
+        assertEquals(1, metrics.getDocumentsWritten());
+        assertEquals(strw.toString().length(), metrics.getCharactersWritten());
+        assertEquals(0, metrics.getDocumentsRead());
+    }
 }
@@ -0,0 +1,230 @@
+package wstxtest.wstream;
+
+import java.io.*;
+
+import javax.xml.stream.*;
+
+import org.codehaus.stax2.validation.XMLValidationSchema;
+import org.codehaus.stax2.validation.XMLValidationSchemaFactory;
+import org.junit.jupiter.api.Test;
+
+import com.ctc.wstx.api.WstxOutputProperties;
+import com.ctc.wstx.stax.WstxOutputFactory;
+import com.ctc.wstx.sw.BaseStreamWriter;
+import com.ctc.wstx.sw.XmlFragment;
+import com.ctc.wstx.sw.XmlFragmentWriter;
+
+import wstxtest.BaseWstxTest;
+
+/**
+ * Tests for recording pre-serialized {@link XmlFragment}s and outputting
+ * them using stream writers.
+ */
+public class TestXmlFragments
+    extends BaseWstxTest
+{
+    final static String NS_ENV = "http://env";
+    final static String NS_APP = "http://app";
+
+    @Test
+    public void testOpenElements() throws Exception
+    {
+        XmlFragment frag = envelopeFragment();
+        assertEquals(2, frag.getOpenElementCount());
+        assertEquals(1, frag.getTopLevelElementCount());
+        assertEquals("env", frag.getOpenElementPrefix(0));
+        assertEquals("Envelope", frag.getOpenElementLocalName(0));
+        assertEquals(2, frag.getOpenElementNsDeclCount(0));
+        assertEquals("Body", frag.getOpenElementLocalName(1));
+        // declarations of the closed header element are not included
+        assertEquals(0, frag.getOpenElementNsDeclCount(1));
+
+        for (String enc : new String[] { "UTF-8", "ISO-8859-1", "windows-1252", "UTF-16" }) {
+            for (int repairing = 0; repairing < 2; ++repairing) {
+                WstxOutputFactory f = new WstxOutputFactory();
+                f.setProperty(XMLOutputFactory.IS_REPAIRING_NAMESPACES, Boolean.valueOf(repairing == 1));
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                BaseStreamWriter sw = (BaseStreamWriter) f.createXMLStreamWriter(bytes, enc);
+                sw.writeStartDocument(enc, "1.0");
+                sw.writeFragment(frag);
+                // Bindings from the fragment are in scope
+                assertEquals(NS_ENV, sw.getNamespaceContext().getNamespaceURI("env"));
+                assertEquals("", sw.getNamespaceContext().getPrefix(NS_APP));
+                sw.writeStartElement(NS_APP, "result");
+                sw.writeCharacters("ok");
+                sw.writeEndElement();
+                sw.writeEndElement();
+                sw.writeEndElement();
+                sw.writeEndDocument();
+                sw.close();
+
+                XMLStreamReader sr = getInputFactory().createXMLStreamReader(new ByteArrayInputStream(bytes.toByteArray()));
+                assertEquals(START_ELEMENT, sr.nextTag());
+                assertEquals("Envelope", sr.getLocalName());
+                assertEquals(START_ELEMENT, sr.nextTag());
+                assertEquals("Header", sr.getLocalName());
+                assertEquals("café", sr.getElementText());
+                assertEquals(START_ELEMENT, sr.nextTag());
+                assertEquals("Body", sr.getLocalName());
+                assertEquals(NS_ENV, sr.getNamespaceURI());
+                assertEquals(START_ELEMENT, sr.nextTag());
+                assertEquals("result", sr.getLocalName());
+                assertEquals(NS_APP, sr.getNamespaceURI());
+                assertEquals(0, sr.getNamespaceCount());
+                assertEquals("ok", sr.getElementText());
+                assertEquals(END_ELEMENT, sr.nextTag());
+                assertEquals(END_ELEMENT, sr.nextTag());
+                sr.close();
+            }
+        }
+    }
+
+    @Test
+    public void testSharedSubTree() throws Exception
+    {
+        XmlFragmentWriter fw = getWstxOutputFactory().createFragmentWriter();
+        fw.writeStartElement("item");
+        fw.writeAttribute("id", "x");
+        fw.writeEndElement();
+        fw.writeCharacters("&");
+        fw.writeEmptyElement("item");
+        XmlFragment frag = fw.toFragment();
+        assertEquals(0, frag.getOpenElementCount());
+        assertEquals(2, frag.getTopLevelElementCount());
+        assertEquals("<item id=\"x\"/>&amp;<item/>", frag.getContent());
+
+        StringWriter w = new StringWriter();
+        BaseStreamWriter sw = (BaseStreamWriter) getOutputFactory().createXMLStreamWriter(w);
+        sw.writeStartElement("root");
+        sw.writeFragment(frag);
+        sw.writeFragment(frag);
+        sw.writeEndElement();
+        sw.writeEndDocument();
+        sw.close();
+        assertEquals("<root>"+frag+frag+"</root>", w.toString());
+
+        // but can not be used as the root element, having two
+        sw = (BaseStreamWriter) getOutputFactory().createXMLStreamWriter(new StringWriter());
+        try {
+            sw.writeFragment(frag);
+            fail("Expected an exception for multiple root elements");
+        } catch (XMLStreamException e) {
+            verifyException(e, "second root");
+        }
+    }
+
+    @Test
+    public void testTopLevelText() throws Exception
+    {
+        XmlFragmentWriter fw = getWstxOutputFactory().createFragmentWriter();
+        fw.writeCharacters("\n");
+        fw.writeComment("c");
+        fw.writeProcessingInstruction("pi", "data");
+        fw.writeStartElement("a");
+        fw.writeCharacters("text");
+        fw.writeEndElement();
+        fw.writeEmptyElement("b");
+        fw.writeCharacters(" ");
+        XmlFragment frag = fw.toFragment();
+        assertFalse(frag.hasTopLevelText());
+        fw.writeCharacters("x");
+        assertTrue(fw.toFragment().hasTopLevelText());
+
+        fw = getWstxOutputFactory().createFragmentWriter();
+        fw.writeCharacters("text");
+        XmlFragment textFrag = fw.toFragment();
+        assertTrue(textFrag.hasTopLevelText());
+
+        fw = getWstxOutputFactory().createFragmentWriter();
+        fw.writeCData("x");
+        fw.writeStartElement("a");
+        XmlFragment cdataFrag = fw.toFragment();
+        assertTrue(cdataFrag.hasTopLevelText());
+
+        // Fine within the root element
+        StringWriter w = new StringWriter();
+        BaseStreamWriter sw = (BaseStreamWriter) getOutputFactory().createXMLStreamWriter(w);
+        sw.writeStartElement("root");
+        sw.writeFragment(textFrag);
+        sw.writeEndElement();
+        sw.close();
+        assertEquals("<root>text</root>", w.toString());
+
+        // but not in prolog or epilog
+        for (XmlFragment f : new XmlFragment[] { textFrag, cdataFrag }) {
+            sw = (BaseStreamWriter) getOutputFactory().createXMLStreamWriter(new StringWriter());
+            try {
+                sw.writeFragment(f);
+                fail("Expected an exception for text in prolog");
+            } catch (XMLStreamException e) {
+                verifyException(e, "prolog");
+            }
+        }
+        sw = (BaseStreamWriter) getOutputFactory().createXMLStreamWriter(new StringWriter());
+        sw.writeEmptyElement("root");
+        try {
+            sw.writeFragment(textFrag);
+            fail("Expected an exception for text in epilog");
+        } catch (XMLStreamException e) {
+            verifyException(e, "epilog");
+        }
+    }
+
+    @Test
+    public void testValidatingWriter() throws Exception
+    {
+        XmlFragmentWriter fw = getWstxOutputFactory().createFragmentWriter();
+        fw.writeStartElement("root");
+        XmlFragment frag = fw.toFragment();
+
+        XMLValidationSchema schema = XMLValidationSchemaFactory.newInstance(XMLValidationSchema.SCHEMA_ID_DTD)
+            .createSchema(new StringReader("<!ELEMENT root (#PCDATA)>"));
+        BaseStreamWriter sw = (BaseStreamWriter) getOutputFactory().createXMLStreamWriter(new StringWriter());
+        sw.validateAgainst(schema);
+        try {
+            sw.writeFragment(frag);
+            fail("Expected an exception when validating output");
+        } catch (XMLStreamException e) {
+            verifyException(e, "validation");
+        }
+    }
+
+    @Test
+    public void testInvalidFragment() throws Exception
+    {
+        XmlFragmentWriter fw = getWstxOutputFactory().createFragmentWriter();
+        fw.writeStartElement("a");
+        fw.writeEndElement();
+        try {
+            fw.writeEndElement();
+            fail("Expected an exception for unbalanced end element");
+        } catch (XMLStreamException e) {
+            verifyException(e, "No open start element");
+        }
+    }
+
+    /*
+    ///////////////////////////////////////////////////////////
+    // Helper methods
+    ///////////////////////////////////////////////////////////
+     */
+
+    private XmlFragment envelopeFragment() throws XMLStreamException
+    {
+        WstxOutputFactory f = new WstxOutputFactory();
+        // Recording is non-repairing regardless of settings
+        f.setProperty(XMLOutputFactory.IS_REPAIRING_NAMESPACES, Boolean.TRUE);
+        f.setProperty(WstxOutputProperties.P_OUTPUT_VALIDATE_STRUCTURE, Boolean.TRUE);
+        XmlFragmentWriter fw = f.createFragmentWriter();
+        fw.setPrefix("env", NS_ENV);
+        fw.writeStartElement("env", "Envelope", NS_ENV);
+        fw.writeNamespace("env", NS_ENV);
+        fw.writeDefaultNamespace(NS_APP);
+        fw.writeStartElement("env", "Header", NS_ENV);
+        fw.writeNamespace("h", "http://header");
+        fw.writeCharacters("café");
+        fw.writeEndElement();
+        fw.writeStartElement("env", "Body", NS_ENV);
+        return fw.toFragment();
+    }
+}